@@ -0,0 +1,196 @@
+package ccf.ccf.enforcement;
+
+import ccf.ccf.enforcement.model.SagaLogRecord;
+import ccf.ccf.enforcement.model.SagaLogRecordType;
+import ccf.ccf.exception.SagaExecutionException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking counterpart of {@link SagaOrchestrator}. Steps return a {@link CompletionStage},
+ * so no thread waits on a slow dependency, and every step (and compensation) gets a deadline
+ * enforced by the JDK's shared delay scheduler via {@link CompletableFuture#orTimeout}.
+ * A timed-out step may still have taken effect, so it is compensated along with the completed ones.
+ * Compensations go through the {@link CompensationHandler}, so failing ones are retried and
+ * parked like those of synchronous sagas.
+ */
+@Slf4j
+@Component
+public class AsyncSagaOrchestrator {
+
+    private final SagaLog sagaLog;
+    private final ExecutorService sagaStepExecutor;
+    private final CompensationHandler compensationHandler;
+    private final MeterRegistry meterRegistry;
+    private final int defaultTimeoutSeconds;
+
+    public AsyncSagaOrchestrator(SagaLog sagaLog,
+                                 ExecutorService sagaStepExecutor,
+                                 CompensationHandler compensationHandler,
+                                 ObjectProvider<MeterRegistry> meterRegistry,
+                                 @Value("${ccf.saga.step-timeout-seconds:30}") int defaultTimeoutSeconds) {
+        this.sagaLog = sagaLog;
+        this.sagaStepExecutor = sagaStepExecutor;
+        this.compensationHandler = compensationHandler;
+        this.meterRegistry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+        this.defaultTimeoutSeconds = defaultTimeoutSeconds;
+    }
+
+    public CompletableFuture<SagaContext> executeSaga(String sagaName, List<AsyncSagaStep> steps) {
+        String sagaId = UUID.randomUUID().toString();
+        log.info("Starting async saga execution: {}", sagaId);
+
+        SagaContext context = new SagaContext();
+        context.setSagaId(sagaId);
+
+        // Only touched from the chain below, whose stages run one after another
+        List<AsyncSagaStep> toCompensate = new ArrayList<>();
+
+        CompletableFuture<Void> chain = sagaLog.appendAsync(
+                SagaLogRecord.of(SagaLogRecordType.SAGA_STARTED, sagaId, sagaName, -1, null));
+
+        for (int i = 0; i < steps.size(); i++) {
+            int stepIndex = i;
+            AsyncSagaStep step = steps.get(i);
+            // Hop off the log writer thread before invoking the next step
+            chain = chain.thenComposeAsync(v -> runStep(sagaId, sagaName, stepIndex, step, toCompensate),
+                    sagaStepExecutor);
+        }
+
+        return chain
+                .thenCompose(v -> sagaLog.appendAsync(
+                        SagaLogRecord.of(SagaLogRecordType.SAGA_COMPLETED, sagaId, sagaName, -1, null)))
+                .thenApply(v -> {
+                    context.setCompleted(true);
+                    log.info("Async saga execution completed successfully: {}", sagaId);
+                    return context;
+                })
+                .exceptionallyCompose(error -> abort(sagaId, sagaName, context, toCompensate, unwrap(error)));
+    }
+
+    private CompletableFuture<Void> runStep(String sagaId, String sagaName, int stepIndex,
+                                            AsyncSagaStep step, List<AsyncSagaStep> toCompensate) {
+        log.info("Executing async saga step: {}", step.getStepName());
+        long start = System.nanoTime();
+
+        return sagaLog.appendAsync(
+                        SagaLogRecord.of(SagaLogRecordType.STEP_STARTED, sagaId, sagaName, stepIndex, step.getStepName()))
+                .thenComposeAsync(v -> invoke(step.getAction(), timeoutSeconds(step)), sagaStepExecutor)
+                .whenComplete((result, error) -> {
+                    Throwable cause = error == null ? null : unwrap(error);
+                    String outcome = cause == null ? "success" : cause instanceof TimeoutException ? "timeout" : "failure";
+
+                    Timer.builder("ccf.saga.step.duration")
+                            .tag("saga", tagValue(sagaName))
+                            .tag("step", step.getStepName())
+                            .tag("outcome", outcome)
+                            .register(meterRegistry)
+                            .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+                    if (cause instanceof TimeoutException) {
+                        Counter.builder("ccf.saga.step.timeouts")
+                                .tag("saga", tagValue(sagaName))
+                                .tag("step", step.getStepName())
+                                .register(meterRegistry)
+                                .increment();
+                        log.warn("Saga step {} timed out after {}s", step.getStepName(), timeoutSeconds(step));
+                    }
+
+                    if (cause == null || cause instanceof TimeoutException) {
+                        toCompensate.add(step);
+                    }
+                })
+                .thenCompose(result -> {
+                    log.info("Async saga step completed: {}", step.getStepName());
+                    return sagaLog.appendAsync(SagaLogRecord.of(
+                            SagaLogRecordType.STEP_COMPLETED, sagaId, sagaName, stepIndex, step.getStepName()));
+                });
+    }
+
+    private CompletableFuture<SagaContext> abort(String sagaId, String sagaName, SagaContext context,
+                                                 List<AsyncSagaStep> toCompensate, Throwable cause) {
+        log.error("Async saga execution failed: {}", cause.getMessage());
+        context.setCompensating(true);
+
+        return sagaLog.appendAsync(SagaLogRecord.of(SagaLogRecordType.SAGA_COMPENSATING, sagaId, sagaName, -1, null))
+                .exceptionally(e -> null)
+                // The handler waits for the compensations, so it gets a thread of its own
+                .thenApplyAsync(v -> compensationHandler.compensate(sagaId, sagaName, compensations(toCompensate)),
+                        sagaStepExecutor)
+                // With parked compensations the saga stays unfinished until the retry queue aborts it
+                .thenCompose(allCompensated -> allCompensated
+                        ? sagaLog.appendAsync(SagaLogRecord.of(SagaLogRecordType.SAGA_ABORTED, sagaId, sagaName, -1, null))
+                        : CompletableFuture.<Void>completedFuture(null))
+                .handle((v, e) -> {
+                    throw new SagaExecutionException("Saga execution failed", cause);
+                });
+    }
+
+    // Each compensation waits for its stage within the step's deadline, so a retry or a parked
+    // retry sees it fail like a synchronous one
+    private List<SagaStep> compensations(List<AsyncSagaStep> steps) {
+        List<SagaStep> compensations = new ArrayList<>(steps.size());
+        for (AsyncSagaStep step : steps) {
+            compensations.add(SagaStep.builder()
+                    .stepId(step.getStepId())
+                    .stepName(step.getStepName())
+                    .serviceName(step.getServiceName())
+                    .compensation(step.getCompensation() == null ? null
+                            : () -> invoke(step.getCompensation(), timeoutSeconds(step)).join())
+                    .timeoutSeconds(step.getTimeoutSeconds())
+                    .executed(true)
+                    .build());
+        }
+        return compensations;
+    }
+
+    // Copies the stage into our own future so the deadline never completes the caller's future
+    private CompletableFuture<Object> invoke(Supplier<CompletionStage<?>> operation, int timeoutSeconds) {
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        try {
+            operation.get().whenComplete((value, error) -> {
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            });
+        } catch (Exception e) {
+            result.completeExceptionally(e);
+        }
+        return result.orTimeout(timeoutSeconds, TimeUnit.SECONDS);
+    }
+
+    private int timeoutSeconds(AsyncSagaStep step) {
+        return step.getTimeoutSeconds() > 0 ? step.getTimeoutSeconds() : defaultTimeoutSeconds;
+    }
+
+    private String tagValue(String sagaName) {
+        return sagaName == null ? "unnamed" : sagaName;
+    }
+
+    private Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+}
@@ -0,0 +1,23 @@
+package ccf.ccf.enforcement;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AsyncSagaStep {
+    private String stepId;
+    private String stepName;
+    private String serviceName;
+    private Supplier<CompletionStage<?>> action;
+    private Supplier<CompletionStage<?>> compensation;
+    // 0 falls back to ccf.saga.step-timeout-seconds
+    private int timeoutSeconds;
+}
@@ -1,42 +1,205 @@
 package ccf.ccf.enforcement;
 
+import ccf.ccf.enforcement.model.SagaLogRecord;
+import ccf.ccf.enforcement.model.SagaLogRecordType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Component
 public class CompensationHandler {
 
-    public void compensate(List<SagaStep> executedSteps) {
-        log.warn("Starting compensation for {} executed steps", executedSteps.size());
+    private final SagaLog sagaLog;
+    private final ExecutorService sagaStepExecutor;
+    private final CompensationRetryQueue retryQueue;
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+
+    public CompensationHandler(SagaLog sagaLog,
+                               ExecutorService sagaStepExecutor,
+                               CompensationRetryQueue retryQueue,
+                               ObjectProvider<MeterRegistry> meterRegistry,
+                               @Value("${ccf.saga.compensation.max-attempts:5}") int maxAttempts,
+                               @Value("${ccf.saga.compensation.initial-backoff-ms:100}") long initialBackoffMillis,
+                               @Value("${ccf.saga.compensation.max-backoff-ms:5000}") long maxBackoffMillis) {
+        this.sagaLog = sagaLog;
+        this.sagaStepExecutor = sagaStepExecutor;
+        this.retryQueue = retryQueue;
+        this.meterRegistry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    public boolean compensate(List<SagaStep> executedSteps) {
+        return compensate(null, null, executedSteps);
+    }
 
-        // Compensate in reverse order
-        Collections.reverse(executedSteps);
+    /**
+     * Compensates the executed steps in reverse dependency order: a step is compensated only after
+     * every executed step depending on it, and independent compensations run in parallel.
+     * Failures are retried with exponential backoff and jitter, then parked in the
+     * {@link CompensationRetryQueue}. The caller's list is left untouched.
+     *
+     * @return {@code true} when every compensation succeeded, {@code false} when some were parked
+     */
+    public boolean compensate(String sagaId, String sagaName, List<SagaStep> executedSteps) {
+        log.warn("Starting compensation for {} executed steps", executedSteps.size());
 
+        List<SagaStep> pending = new ArrayList<>();
         for (SagaStep step : executedSteps) {
             if (step.isExecuted() && !step.isCompensated()) {
-                try {
-                    log.info("Compensating step: {}", step.getStepName());
+                pending.add(step);
+            }
+        }
+
+        Map<String, List<String>> dependents = reverseDependencies(pending);
+        Map<String, SagaStep> stepsByName = new LinkedHashMap<>();
+        pending.forEach(step -> stepsByName.put(step.getStepName(), step));
+        Map<String, CompletableFuture<Boolean>> compensations = new HashMap<>();
+        List<SagaStep> failed = Collections.synchronizedList(new ArrayList<>());
+
+        for (SagaStep step : pending) {
+            schedule(sagaId, sagaName, step, stepsByName, dependents, compensations, new HashSet<>(), failed);
+        }
+
+        CompletableFuture.allOf(compensations.values().toArray(CompletableFuture[]::new)).join();
+
+        retryQueue.park(sagaId, sagaName, failed);
+
+        log.info("Compensation process completed, {} parked for retry", failed.size());
+        return failed.isEmpty();
+    }
+
+    /**
+     * Schedules the compensation of a step after those of its dependents, scheduling them first
+     * if needed, so the declaration order of the steps does not matter.
+     */
+    private CompletableFuture<Boolean> schedule(String sagaId, String sagaName, SagaStep step,
+                                                Map<String, SagaStep> stepsByName,
+                                                Map<String, List<String>> dependents,
+                                                Map<String, CompletableFuture<Boolean>> compensations,
+                                                Set<String> visiting,
+                                                List<SagaStep> failed) {
+        CompletableFuture<Boolean> scheduled = compensations.get(step.getStepName());
+        if (scheduled != null) {
+            return scheduled;
+        }
+        visiting.add(step.getStepName());
+
+        List<CompletableFuture<Boolean>> prerequisites = new ArrayList<>();
+        for (String dependent : dependents.getOrDefault(step.getStepName(), List.of())) {
+            if (visiting.contains(dependent)) {
+                // Only a cyclic declaration gets here; the orchestrator rejects those before running
+                log.warn("Ignoring cyclic compensation dependency {} -> {}", dependent, step.getStepName());
+                continue;
+            }
+            prerequisites.add(schedule(sagaId, sagaName, stepsByName.get(dependent), stepsByName,
+                    dependents, compensations, visiting, failed));
+        }
+
+        CompletableFuture<Boolean> compensation = CompletableFuture.allOf(prerequisites.toArray(CompletableFuture[]::new))
+                .thenCompose(v -> attempt(sagaId, sagaName, step, 1, sagaStepExecutor))
+                .thenApply(succeeded -> {
+                    if (!succeeded) {
+                        failed.add(step);
+                    }
+                    return succeeded;
+                });
+        compensations.put(step.getStepName(), compensation);
+        visiting.remove(step.getStepName());
+        return compensation;
+    }
+
+    private CompletableFuture<Boolean> attempt(String sagaId, String sagaName, SagaStep step, int attempt, Executor executor) {
+        if (step.getCompensation() == null) {
+            log.warn("No compensation defined for step: {}", step.getStepName());
+            return CompletableFuture.completedFuture(true);
+        }
+
+        return CompletableFuture.runAsync(() -> {
+                    log.info("Compensating step: {} (attempt {})", step.getStepName(), attempt);
+                    step.getCompensation().run();
+                    step.setCompensated(true);
 
-                    if (step.getCompensation() != null) {
-                        step.getCompensation().run();
-                        step.setCompensated(true);
+                    if (sagaId != null) {
+                        sagaLog.append(SagaLogRecord.of(
+                                SagaLogRecordType.STEP_COMPENSATED, sagaId, sagaName, -1, step.getStepName()));
+                    }
 
-                        log.info("Compensation completed for step: {}", step.getStepName());
-                    } else {
-                        log.warn("No compensation defined for step: {}", step.getStepName());
+                    log.info("Compensation completed for step: {}", step.getStepName());
+                }, executor)
+                .handle((v, error) -> {
+                    if (error == null) {
+                        return CompletableFuture.completedFuture(true);
                     }
 
-                } catch (Exception e) {
-                    log.error("Compensation failed for step {}: {}", step.getStepName(), e.getMessage());
-                    // Continue with other compensations
+                    log.error("Compensation failed for step {} (attempt {}/{}): {}",
+                            step.getStepName(), attempt, maxAttempts, error.getMessage());
+
+                    if (attempt >= maxAttempts) {
+                        return CompletableFuture.completedFuture(false);
+                    }
+
+                    Counter.builder("ccf.saga.compensation.retries")
+                            .tag("step", step.getStepName())
+                            .register(meterRegistry)
+                            .increment();
+
+                    // The backoff is a delayed hand-off, no thread sleeps while waiting
+                    Executor delayed = CompletableFuture.delayedExecutor(
+                            backoffMillis(attempt), TimeUnit.MILLISECONDS, sagaStepExecutor);
+                    return attempt(sagaId, sagaName, step, attempt + 1, delayed);
+                })
+                .thenCompose(result -> result);
+    }
+
+    // Exponential backoff with equal jitter: half fixed, half random
+    private long backoffMillis(int attempt) {
+        long exponential = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt - 1, 20));
+        long half = exponential / 2;
+        return half + ThreadLocalRandom.current().nextLong(half + 1);
+    }
+
+    // Step name -> executed steps that depend on it and must therefore be compensated first
+    private Map<String, List<String>> reverseDependencies(List<SagaStep> steps) {
+        Map<String, SagaStep> byName = new LinkedHashMap<>();
+        steps.forEach(step -> byName.put(step.getStepName(), step));
+
+        Map<String, List<String>> dependents = new HashMap<>();
+        for (int i = 0; i < steps.size(); i++) {
+            SagaStep step = steps.get(i);
+            List<String> dependencies = step.getDependsOn() != null
+                    ? step.getDependsOn()
+                    : (i > 0 ? List.of(steps.get(i - 1).getStepName()) : List.of());
+
+            for (String dependency : dependencies) {
+                if (byName.containsKey(dependency)) {
+                    dependents.computeIfAbsent(dependency, k -> new ArrayList<>()).add(step.getStepName());
                 }
             }
         }
-
-        log.info("Compensation process completed");
+        return dependents;
     }
-}
\ No newline at end of file
+}
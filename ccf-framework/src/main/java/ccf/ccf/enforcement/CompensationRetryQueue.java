@@ -0,0 +1,134 @@
+package ccf.ccf.enforcement;
+
+import ccf.ccf.enforcement.model.SagaLogRecord;
+import ccf.ccf.enforcement.model.SagaLogRecordType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds compensations that kept failing after their retries and retries them periodically.
+ * A saga with parked compensations gets no SAGA_ABORTED record until the last one succeeds,
+ * so the saga log keeps it unfinished and {@link SagaRecovery} picks it up after a restart.
+ */
+@Slf4j
+@Component
+public class CompensationRetryQueue {
+
+    private static final String UNTRACKED_SAGA = "untracked";
+
+    private final SagaLog sagaLog;
+    private final ScheduledExecutorService scheduler;
+    private final Counter parkedCounter;
+    private final Counter recoveredCounter;
+
+    // Saga id -> parked steps by name
+    private final Map<String, ParkedSaga> parked = new ConcurrentHashMap<>();
+
+    public CompensationRetryQueue(SagaLog sagaLog,
+                                  ObjectProvider<MeterRegistry> meterRegistry,
+                                  @Value("${ccf.saga.compensation.park-retry-seconds:60}") long retrySeconds) {
+        this.sagaLog = sagaLog;
+
+        MeterRegistry registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+        this.parkedCounter = Counter.builder("ccf.saga.compensation.parked.total").register(registry);
+        this.recoveredCounter = Counter.builder("ccf.saga.compensation.recovered.total").register(registry);
+        Gauge.builder("ccf.saga.compensation.parked", this, CompensationRetryQueue::size).register(registry);
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ccf-compensation-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleWithFixedDelay(this::retryParked, retrySeconds, retrySeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Parks every compensation of a saga that exhausted its retries, in one call so the
+     * periodic retry never sees a partially parked saga.
+     */
+    public void park(String sagaId, String sagaName, List<SagaStep> steps) {
+        if (steps.isEmpty()) {
+            return;
+        }
+
+        // Untracked sagas each get their own entry, so equally named steps do not replace each other
+        String key = sagaId == null ? UNTRACKED_SAGA + "-" + UUID.randomUUID() : sagaId;
+        parked.compute(key, (k, existing) -> {
+            ParkedSaga saga = existing != null ? existing : new ParkedSaga(sagaId, sagaName);
+            steps.forEach(step -> saga.steps.put(step.getStepName(), step));
+            return saga;
+        });
+        parkedCounter.increment(steps.size());
+
+        log.error("Parked {} failing compensations for saga {}: {}",
+                steps.size(), key, steps.stream().map(SagaStep::getStepName).toList());
+    }
+
+    public int size() {
+        return parked.values().stream().mapToInt(saga -> saga.steps.size()).sum();
+    }
+
+    void retryParked() {
+        for (String key : new ArrayList<>(parked.keySet())) {
+            ParkedSaga saga = parked.get(key);
+            if (saga == null) {
+                continue;
+            }
+
+            for (SagaStep step : new ArrayList<>(saga.steps.values())) {
+                try {
+                    step.getCompensation().run();
+                    step.setCompensated(true);
+                    saga.steps.remove(step.getStepName());
+                    recoveredCounter.increment();
+
+                    if (saga.sagaId != null) {
+                        sagaLog.append(SagaLogRecord.of(
+                                SagaLogRecordType.STEP_COMPENSATED, saga.sagaId, saga.sagaName, -1, step.getStepName()));
+                    }
+                    log.info("Parked compensation succeeded for step: {}", step.getStepName());
+                } catch (Exception e) {
+                    log.warn("Parked compensation still failing for step {}: {}", step.getStepName(), e.getMessage());
+                }
+            }
+
+            ParkedSaga removed = parked.computeIfPresent(key, (k, current) -> current.steps.isEmpty() ? null : current);
+            if (removed == null && saga.sagaId != null) {
+                sagaLog.append(SagaLogRecord.of(SagaLogRecordType.SAGA_ABORTED, saga.sagaId, saga.sagaName, -1, null));
+                log.info("Saga {} fully compensated", saga.sagaId);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private static class ParkedSaga {
+        private final String sagaId;
+        private final String sagaName;
+        private final Map<String, SagaStep> steps = new ConcurrentHashMap<>();
+
+        private ParkedSaga(String sagaId, String sagaName) {
+            this.sagaId = sagaId;
+            this.sagaName = sagaName;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package ccf.ccf.enforcement;
+
+import ccf.ccf.enforcement.model.SagaEventTransition;
+import ccf.ccf.enforcement.model.SagaInstanceStatus;
+import ccf.ccf.enforcement.model.SagaPlan;
+import ccf.ccf.enforcement.model.SagaStepState;
+import ccf.ccf.exception.SagaExecutionException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks choreographed sagas. Services map the events they see (orderCreated, paymentAuthorized,
+ * paymentFailed, ...) to steps of the contract's SAGA block. The first step's event starts a saga
+ * instance keyed by the correlation key, later events advance it, and a failure event or the saga
+ * timeout compensates the steps that completed, using the handlers bound in {@link SagaPlanCompiler}.
+ * <p>
+ * Instances live in this JVM only: an event consumed by another service instance does not reach
+ * them, and a restart drops them. Report events after their transaction commits, and write
+ * compensations that check the current state first.
+ */
+@Slf4j
+@Component
+public class EventDrivenSagaRuntime {
+
+    private final SagaPlanCompiler sagaPlanCompiler;
+    private final SagaInstanceStore sagaInstanceStore;
+    private final CompensationHandler compensationHandler;
+    private final HierarchicalTimerWheel timerWheel;
+    private final long timeoutSeconds;
+
+    // Contract id -> event type -> transition
+    private final Map<String, Map<String, SagaEventTransition>> transitions = new ConcurrentHashMap<>();
+
+    public EventDrivenSagaRuntime(SagaPlanCompiler sagaPlanCompiler,
+                                  SagaInstanceStore sagaInstanceStore,
+                                  CompensationHandler compensationHandler,
+                                  HierarchicalTimerWheel timerWheel,
+                                  @Value("${ccf.saga.event-timeout-seconds:300}") long timeoutSeconds) {
+        this.sagaPlanCompiler = sagaPlanCompiler;
+        this.sagaInstanceStore = sagaInstanceStore;
+        this.compensationHandler = compensationHandler;
+        this.timerWheel = timerWheel;
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    public void mapEvent(String contractId, String eventType, String stepName, SagaStepState outcome) {
+        if (outcome != SagaStepState.COMPLETED && outcome != SagaStepState.FAILED) {
+            throw new IllegalArgumentException("Saga events can only complete or fail a step: " + outcome);
+        }
+        transitions.computeIfAbsent(contractId, k -> new ConcurrentHashMap<>())
+                .put(eventType, SagaEventTransition.builder()
+                        .eventType(eventType)
+                        .stepName(stepName)
+                        .outcome(outcome)
+                        .build());
+        log.debug("Mapped event {} to saga step {} ({}) of contract {}", eventType, stepName, outcome, contractId);
+    }
+
+    /**
+     * Applies an event to the saga correlated by the key.
+     *
+     * @return {@code false} when the event is unmapped or no running saga matches it
+     */
+    public boolean onEvent(String contractId, String eventType, String correlationKey, Object payload) {
+        SagaEventTransition transition = transitions.getOrDefault(contractId, Map.of()).get(eventType);
+        if (transition == null) {
+            return false;
+        }
+
+        SagaPlan plan = sagaPlanCompiler.resolvePlan(contractId);
+        Integer ordinal = plan.getStepIndexes().get(transition.getStepName());
+        if (ordinal == null) {
+            throw new SagaExecutionException("Contract " + contractId + " has no saga step " + transition.getStepName());
+        }
+
+        SagaInstance instance = sagaInstanceStore.findByCorrelationKey(correlationKey).orElse(null);
+        if (instance == null) {
+            if (ordinal != 0 || transition.getOutcome() != SagaStepState.COMPLETED) {
+                log.debug("Ignoring {} for {}: no running saga", eventType, correlationKey);
+                return false;
+            }
+            instance = start(plan, correlationKey, payload);
+        }
+
+        boolean abort;
+        synchronized (instance) {
+            if (instance.getStatus() != SagaInstanceStatus.RUNNING) {
+                log.debug("Ignoring {} for {}: saga is compensating", eventType, correlationKey);
+                return false;
+            }
+
+            instance.setStepState(ordinal, transition.getOutcome());
+            abort = transition.getOutcome() == SagaStepState.FAILED;
+
+            if (abort) {
+                instance.setStatus(SagaInstanceStatus.COMPENSATING);
+            } else if (instance.isFinished()) {
+                cancelTimeout(instance);
+                sagaInstanceStore.remove(instance);
+                log.info("Saga {} for {} completed", instance.getSagaId(), correlationKey);
+                return true;
+            }
+        }
+
+        if (abort) {
+            log.warn("Saga {} for {} failed at step {}", instance.getSagaId(), correlationKey, transition.getStepName());
+            compensate(instance);
+        }
+        return true;
+    }
+
+    private SagaInstance start(SagaPlan plan, String correlationKey, Object payload) {
+        SagaInstance instance = sagaInstanceStore.create(UUID.randomUUID().toString(), plan, correlationKey, payload);
+        instance.setTimeout(timerWheel.schedule(timeoutSeconds, TimeUnit.SECONDS, () -> onTimeout(instance)));
+        log.info("Saga {} started for {}", instance.getSagaId(), correlationKey);
+        return instance;
+    }
+
+    private void onTimeout(SagaInstance instance) {
+        synchronized (instance) {
+            if (instance.getStatus() != SagaInstanceStatus.RUNNING) {
+                return;
+            }
+            instance.setStatus(SagaInstanceStatus.COMPENSATING);
+        }
+
+        log.warn("Saga {} for {} timed out after {}s", instance.getSagaId(), instance.getCorrelationKey(), timeoutSeconds);
+        compensate(instance);
+    }
+
+    // Runs outside the instance lock: compensations record their outcome on the instance
+    private void compensate(SagaInstance instance) {
+        cancelTimeout(instance);
+
+        List<SagaStep> steps = sagaPlanCompiler.instantiate(
+                instance.getPlan().getContractId(), instance.getPayload(), sagaInstanceStore, instance);
+        for (int i = 0; i < steps.size(); i++) {
+            steps.get(i).setExecuted(instance.getStepState(i) == SagaStepState.COMPLETED);
+        }
+
+        try {
+            // Not written to the saga log: recovery cannot rebuild a choreographed saga's payload
+            compensationHandler.compensate(null, instance.getPlan().getSagaName(), steps);
+        } finally {
+            sagaInstanceStore.sagaFailed(instance);
+        }
+    }
+
+    private void cancelTimeout(SagaInstance instance) {
+        HierarchicalTimerWheel.Timeout timeout = instance.getTimeout();
+        if (timeout != null) {
+            timeout.cancel();
+            instance.setTimeout(null);
+        }
+    }
+}
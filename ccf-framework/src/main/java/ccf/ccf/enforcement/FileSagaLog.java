@@ -0,0 +1,352 @@
+package ccf.ccf.enforcement;
+
+import ccf.ccf.enforcement.model.SagaLogRecord;
+import ccf.ccf.enforcement.model.SagaLogRecordType;
+import ccf.ccf.exception.SagaExecutionException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only saga log on the local file system. With group commit enabled, records appended
+ * concurrently by many sagas are written by a single writer thread and share one fsync.
+ * Each line carries a CRC32 so a torn write at the tail is detected and ignored on recovery.
+ * Records of finished sagas are compacted out of the file periodically, so it only ever holds
+ * the sagas still in flight.
+ */
+@Slf4j
+public class FileSagaLog implements SagaLog, AutoCloseable {
+
+    private static final String NULL_VALUE = "-";
+
+    private final Path file;
+    private final boolean groupCommit;
+    private final int maxBatchSize;
+    private final Duration appendTimeout;
+    private final BlockingQueue<PendingAppend> queue = new LinkedBlockingQueue<>();
+    private final Object channelLock = new Object();
+    private final Thread writer;
+    private final ScheduledExecutorService compactor;
+
+    private FileChannel channel;
+    private volatile boolean running = true;
+
+    public FileSagaLog(Path file, boolean groupCommit, int maxBatchSize) {
+        this(file, groupCommit, maxBatchSize, Duration.ofSeconds(10), Duration.ZERO);
+    }
+
+    /**
+     * @param appendTimeout   how long {@link #append} waits for its record to become durable
+     * @param compactInterval how often finished sagas are compacted out; zero disables compaction
+     */
+    public FileSagaLog(Path file, boolean groupCommit, int maxBatchSize, Duration appendTimeout, Duration compactInterval) {
+        this.file = file;
+        this.groupCommit = groupCommit;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.appendTimeout = appendTimeout;
+
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            this.channel = openChannel();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open saga log: " + file, e);
+        }
+
+        this.writer = new Thread(this::writeLoop, "ccf-saga-log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+
+        if (compactInterval.isZero()) {
+            this.compactor = null;
+        } else {
+            this.compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "ccf-saga-log-compactor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long intervalMs = compactInterval.toMillis();
+            this.compactor.scheduleWithFixedDelay(this::compactQuietly, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        }
+
+        log.info("Saga log opened at {} (group commit: {}, max batch: {})", file, groupCommit, this.maxBatchSize);
+    }
+
+    @Override
+    public void append(SagaLogRecord record) {
+        try {
+            appendAsync(record).get(appendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw new SagaExecutionException("Failed to append saga log record", e.getCause());
+        } catch (TimeoutException e) {
+            throw new SagaExecutionException("Saga log record not durable after " + appendTimeout, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SagaExecutionException("Interrupted while appending saga log record", e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> appendAsync(SagaLogRecord record) {
+        if (!running) {
+            return CompletableFuture.failedFuture(new SagaExecutionException("Saga log is closed"));
+        }
+        if (!writer.isAlive()) {
+            return CompletableFuture.failedFuture(new SagaExecutionException("Saga log writer has stopped"));
+        }
+
+        PendingAppend pending = new PendingAppend(encode(record));
+        queue.add(pending);
+        return pending.durable;
+    }
+
+    @Override
+    public List<SagaLogRecord> readAll() {
+        synchronized (channelLock) {
+            try {
+                List<SagaLogRecord> records = new ArrayList<>();
+                for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    SagaLogRecord record = decode(line);
+                    if (record != null) {
+                        records.add(record);
+                    }
+                }
+                return records;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read saga log: " + file, e);
+            }
+        }
+    }
+
+    @Override
+    public void compact(Set<String> finishedSagaIds) {
+        synchronized (channelLock) {
+            Path compacted = file.resolveSibling(file.getFileName() + ".compact");
+            try {
+                List<String> retained = new ArrayList<>();
+                for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    SagaLogRecord record = decode(line);
+                    if (record != null && !finishedSagaIds.contains(record.getSagaId())) {
+                        retained.add(line);
+                    }
+                }
+
+                Files.write(compacted, retained, StandardCharsets.UTF_8);
+                try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.WRITE)) {
+                    out.force(true);
+                }
+
+                channel.close();
+                Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                channel = openChannel();
+
+                log.info("Saga log compacted, {} records retained", retained.size());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to compact saga log: " + file, e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        if (compactor != null) {
+            compactor.shutdownNow();
+        }
+        // Not interrupted: the writer drains the queue and stops within one poll interval
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+            synchronized (channelLock) {
+                channel.close();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.warn("Failed to close saga log: {}", e.getMessage());
+        }
+    }
+
+    private void writeLoop() {
+        List<PendingAppend> batch = new ArrayList<>(maxBatchSize);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingAppend first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                batch.add(first);
+                if (groupCommit) {
+                    queue.drainTo(batch, maxBatchSize - 1);
+                }
+
+                flush(batch);
+            } catch (InterruptedException e) {
+                // Only close() stops the writer; a stray interrupt must not strand later appends
+                if (running) {
+                    log.warn("Saga log writer interrupted, continuing");
+                }
+            } catch (RuntimeException e) {
+                log.error("Saga log write failed: {}", e.getMessage(), e);
+                batch.forEach(pending -> pending.durable.completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+
+        // Anything queued after the last drain would otherwise wait forever
+        PendingAppend left;
+        while ((left = queue.poll()) != null) {
+            left.durable.completeExceptionally(new SagaExecutionException("Saga log is closed"));
+        }
+    }
+
+    // One write and one fsync for the whole batch
+    private void flush(List<PendingAppend> batch) {
+        try {
+            synchronized (channelLock) {
+                int size = 0;
+                for (PendingAppend pending : batch) {
+                    size += pending.bytes.length;
+                }
+
+                ByteBuffer buffer = ByteBuffer.allocate(size);
+                for (PendingAppend pending : batch) {
+                    buffer.put(pending.bytes);
+                }
+                buffer.flip();
+
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+
+            batch.forEach(pending -> pending.durable.complete(null));
+        } catch (IOException e) {
+            log.error("Saga log write failed: {}", e.getMessage());
+            batch.forEach(pending -> pending.durable.completeExceptionally(e));
+            reopenIfClosed();
+        }
+    }
+
+    // An interrupt during a write closes the channel; reopen it so later batches can be written
+    private void reopenIfClosed() {
+        synchronized (channelLock) {
+            if (channel.isOpen() || !running) {
+                return;
+            }
+            Thread.interrupted();
+            try {
+                channel = openChannel();
+                // Ends a line the failed write may have torn, so the next record starts clean
+                channel.write(ByteBuffer.wrap(new byte[]{'\n'}));
+            } catch (IOException e) {
+                log.error("Failed to reopen saga log {}: {}", file, e.getMessage());
+            }
+        }
+    }
+
+    private void compactQuietly() {
+        try {
+            compactFinished();
+        } catch (RuntimeException e) {
+            log.warn("Scheduled saga log compaction failed: {}", e.getMessage());
+        }
+    }
+
+    private FileChannel openChannel() throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private byte[] encode(SagaLogRecord record) {
+        String payload = String.join("\t",
+                record.getType().name(),
+                record.getSagaId(),
+                valueOrNull(record.getSagaName()),
+                Integer.toString(record.getStepIndex()),
+                valueOrNull(record.getStepName()),
+                Long.toString(record.getTimestamp()),
+                // Base64 keeps tabs and line breaks of the payload out of the record's framing
+                record.getPayload() == null ? NULL_VALUE
+                        : Base64.getEncoder().encodeToString(record.getPayload().getBytes(StandardCharsets.UTF_8)));
+
+        return (checksum(payload) + "\t" + payload + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private SagaLogRecord decode(String line) {
+        int separator = line.indexOf('\t');
+        if (separator < 0) {
+            return null;
+        }
+
+        String payload = line.substring(separator + 1);
+        if (!line.substring(0, separator).equals(checksum(payload))) {
+            log.warn("Skipping corrupt saga log record: {}", line);
+            return null;
+        }
+
+        // Records written before payloads were logged have six fields
+        String[] fields = payload.split("\t", -1);
+        if (fields.length != 6 && fields.length != 7) {
+            log.warn("Skipping malformed saga log record: {}", line);
+            return null;
+        }
+
+        return SagaLogRecord.builder()
+                .type(SagaLogRecordType.valueOf(fields[0]))
+                .sagaId(fields[1])
+                .sagaName(nullIfAbsent(fields[2]))
+                .stepIndex(Integer.parseInt(fields[3]))
+                .stepName(nullIfAbsent(fields[4]))
+                .timestamp(Long.parseLong(fields[5]))
+                .payload(fields.length == 7 && !NULL_VALUE.equals(fields[6])
+                        ? new String(Base64.getDecoder().decode(fields[6]), StandardCharsets.UTF_8) : null)
+                .build();
+    }
+
+    private String checksum(String payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload.getBytes(StandardCharsets.UTF_8));
+        return Long.toHexString(crc.getValue());
+    }
+
+    private String valueOrNull(String value) {
+        return value == null ? NULL_VALUE : value;
+    }
+
+    private String nullIfAbsent(String value) {
+        return NULL_VALUE.equals(value) ? null : value;
+    }
+
+    private static class PendingAppend {
+        private final byte[] bytes;
+        private final CompletableFuture<Void> durable = new CompletableFuture<>();
+
+        private PendingAppend(byte[] bytes) {
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package ccf.ccf.enforcement;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hierarchical timing wheel for saga timeouts. Scheduling and cancelling are O(1): a timeout
+ * is linked into the bucket of its deadline, and buckets of the coarser wheels are cascaded
+ * into the finer ones as time reaches them. One ticker thread serves every timeout, instead of
+ * one scheduled task per saga. Expired tasks run on the saga step executor.
+ */
+@Slf4j
+@Component
+public class HierarchicalTimerWheel {
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_TICKS = 1L << (WHEEL_BITS * LEVELS);
+
+    private final long tickMillis;
+    private final ExecutorService sagaStepExecutor;
+    private final Bucket[][] wheels = new Bucket[LEVELS][WHEEL_SIZE];
+    private final long startNanos = System.nanoTime();
+    private final Thread ticker;
+
+    // Next tick to process; guarded by this
+    private long currentTick;
+    private int size;
+
+    public HierarchicalTimerWheel(@Value("${ccf.saga.timer.tick-ms:100}") long tickMillis,
+                                  ExecutorService sagaStepExecutor) {
+        this.tickMillis = Math.max(1, tickMillis);
+        this.sagaStepExecutor = sagaStepExecutor;
+        for (Bucket[] wheel : wheels) {
+            for (int i = 0; i < WHEEL_SIZE; i++) {
+                wheel[i] = new Bucket();
+            }
+        }
+
+        this.ticker = new Thread(this::run, "ccf-timer-wheel");
+        this.ticker.setDaemon(true);
+        this.ticker.start();
+    }
+
+    /**
+     * Runs the task once the delay elapsed, rounded up to the next tick. The delay may span
+     * up to 64^4 ticks (about 19 days with the default 100 ms tick).
+     */
+    public Timeout schedule(long delay, TimeUnit unit, Runnable task) {
+        long ticks = Math.max(1, (unit.toMillis(delay) + tickMillis - 1) / tickMillis);
+        if (ticks >= MAX_TICKS) {
+            throw new IllegalArgumentException("Timeout exceeds the timer wheel range: " + delay + " " + unit);
+        }
+
+        // From the wall-clock tick, not currentTick, which lags while the ticker is delayed;
+        // the extra tick covers the part of the current tick that already elapsed
+        long deadlineTick = elapsedTicks() + 1 + ticks;
+        synchronized (this) {
+            Timeout timeout = new Timeout(this, Math.max(currentTick, deadlineTick), task);
+            place(timeout);
+            size++;
+            return timeout;
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.interrupt();
+    }
+
+    private void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                long elapsedTicks = elapsedTicks();
+
+                List<Timeout> expired = new ArrayList<>();
+                synchronized (this) {
+                    while (currentTick <= elapsedTicks) {
+                        advance(expired);
+                    }
+                }
+
+                for (Timeout timeout : expired) {
+                    try {
+                        sagaStepExecutor.execute(timeout.task);
+                    } catch (Exception e) {
+                        log.error("Failed to dispatch expired timeout: {}", e.getMessage());
+                    }
+                }
+
+                long nextTickNanos = startNanos + TimeUnit.MILLISECONDS.toNanos((elapsedTicks + 1) * tickMillis);
+                TimeUnit.NANOSECONDS.sleep(Math.max(0, nextTickNanos - System.nanoTime()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private long elapsedTicks() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) / tickMillis;
+    }
+
+    // Processes one tick: cascade coarser buckets that became due, then expire the current bucket
+    private void advance(List<Timeout> expired) {
+        int index = (int) (currentTick & WHEEL_MASK);
+        for (int level = 1; level < LEVELS && index == 0; level++) {
+            index = (int) ((currentTick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+            Timeout timeout = wheels[level][index].detachAll();
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                timeout.next = null;
+                place(timeout);
+                timeout = next;
+            }
+        }
+
+        Timeout timeout = wheels[0][(int) (currentTick & WHEEL_MASK)].detachAll();
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            timeout.next = null;
+            timeout.bucket = null;
+            size--;
+            expired.add(timeout);
+            timeout = next;
+        }
+
+        currentTick++;
+    }
+
+    private void place(Timeout timeout) {
+        long remaining = Math.max(0, timeout.deadlineTick - currentTick);
+        int level = 0;
+        while (level < LEVELS - 1 && remaining >= (1L << (WHEEL_BITS * (level + 1)))) {
+            level++;
+        }
+        long tick = Math.max(timeout.deadlineTick, currentTick);
+        int index = (int) ((tick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+        wheels[level][index].add(timeout);
+    }
+
+    public static final class Timeout {
+        private final HierarchicalTimerWheel wheel;
+        private final long deadlineTick;
+        private final Runnable task;
+        private Timeout prev;
+        private Timeout next;
+        private Bucket bucket;
+
+        private Timeout(HierarchicalTimerWheel wheel, long deadlineTick, Runnable task) {
+            this.wheel = wheel;
+            this.deadlineTick = deadlineTick;
+            this.task = task;
+        }
+
+        /**
+         * Unlinks the timeout from its bucket.
+         *
+         * @return {@code false} when it already expired or was cancelled
+         */
+        public boolean cancel() {
+            synchronized (wheel) {
+                if (bucket == null) {
+                    return false;
+                }
+                bucket.remove(this);
+                wheel.size--;
+                return true;
+            }
+        }
+    }
+
+    // Doubly linked list of timeouts sharing a slot
+    private static final class Bucket {
+        private Timeout head;
+
+        private void add(Timeout timeout) {
+            timeout.bucket = this;
+            timeout.prev = null;
+            timeout.next = head;
+            if (head != null) {
+                head.prev = timeout;
+            }
+            head = timeout;
+        }
+
+        private void remove(Timeout timeout) {
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+
+        // Empties the bucket and returns its former list, linked through next
+        private Timeout detachAll() {
+            Timeout first = head;
+            head = null;
+            for (Timeout timeout = first; timeout != null; timeout = timeout.next) {
+                timeout.prev = null;
+                timeout.bucket = null;
+            }
+            return first;
+        }
+    }
+}
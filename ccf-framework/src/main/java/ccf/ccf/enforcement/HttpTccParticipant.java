@@ -0,0 +1,68 @@
+package ccf.ccf.enforcement;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClient;
+
+/**
+ * Remote participant exposing idempotent endpoints under a base URL:
+ * {@code POST {base}/{transactionId}/try} with the payload as JSON, then {@code /confirm} or {@code /cancel}.
+ * Every call carries an {@code Idempotency-Key} header, so a retried phase never applies twice.
+ * A 404 on cancel means nothing was reserved and counts as cancelled.
+ */
+@Slf4j
+public class HttpTccParticipant<T> implements TccParticipant<T> {
+
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+    private final String name;
+    private final RestClient restClient;
+    private final String baseUrl;
+
+    public HttpTccParticipant(String name, RestClient restClient, String baseUrl) {
+        this.name = name;
+        this.restClient = restClient;
+        this.baseUrl = baseUrl;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void tryReserve(String transactionId, T payload) {
+        restClient.post()
+                .uri(baseUrl + "/{transactionId}/try", transactionId)
+                .header(IDEMPOTENCY_KEY, transactionId + ":try")
+                .body(payload)
+                .retrieve()
+                .toBodilessEntity();
+    }
+
+    @Override
+    public void confirm(String transactionId) {
+        post(transactionId, "confirm");
+    }
+
+    @Override
+    public void cancel(String transactionId) {
+        try {
+            post(transactionId, "cancel");
+        } catch (HttpClientErrorException e) {
+            if (e.getStatusCode() != HttpStatus.NOT_FOUND) {
+                throw e;
+            }
+            log.debug("Empty cancel for transaction {} on {}", transactionId, name);
+        }
+    }
+
+    private void post(String transactionId, String phase) {
+        restClient.post()
+                .uri(baseUrl + "/{transactionId}/" + phase, transactionId)
+                .header(IDEMPOTENCY_KEY, transactionId + ":" + phase)
+                .retrieve()
+                .toBodilessEntity();
+    }
+}
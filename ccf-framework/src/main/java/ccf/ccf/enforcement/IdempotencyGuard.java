@@ -0,0 +1,145 @@
+package ccf.ccf.enforcement;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Skips events that were already processed, keyed by their stable event id. A new event, the
+ * common case, is recognised by a bloom filter miss alone. Only a bloom hit checks the bounded
+ * LRU of recent ids, and only an LRU miss reads the optional {@link ProcessedEventStore}.
+ * <p>
+ * The bloom filter ages by generations: once the current one holds its expected number of ids,
+ * it becomes the previous one and a fresh filter takes over. Ids older than two generations are
+ * forgotten, which bounds the memory and keeps the false-positive rate near its target.
+ */
+@Slf4j
+@Component
+public class IdempotencyGuard {
+
+    private final ProcessedEventStore processedEventStore;
+    private final long expectedEvents;
+    private final double falsePositiveRate;
+    private final Map<String, Boolean> recentIds;
+    private final AtomicLong insertions = new AtomicLong();
+    private final Counter duplicates;
+    private final Counter storeReads;
+
+    private volatile BloomFilter current;
+    private volatile BloomFilter previous;
+
+    public IdempotencyGuard(ObjectProvider<ProcessedEventStore> processedEventStore,
+                            ObjectProvider<MeterRegistry> meterRegistry,
+                            @Value("${ccf.idempotency.expected-events:1000000}") long expectedEvents,
+                            @Value("${ccf.idempotency.false-positive-rate:0.01}") double falsePositiveRate,
+                            @Value("${ccf.idempotency.lru-size:100000}") int lruSize) {
+        this.processedEventStore = processedEventStore.getIfAvailable();
+        this.expectedEvents = expectedEvents;
+        this.falsePositiveRate = falsePositiveRate;
+        this.current = new BloomFilter(expectedEvents, falsePositiveRate);
+        this.previous = new BloomFilter(1, falsePositiveRate);
+
+        this.recentIds = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > lruSize;
+            }
+        };
+
+        MeterRegistry registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+        this.duplicates = Counter.builder("ccf.idempotency.duplicates").register(registry);
+        this.storeReads = Counter.builder("ccf.idempotency.store.reads").register(registry);
+    }
+
+    @PostConstruct
+    public void warmUp() {
+        if (processedEventStore == null) {
+            log.info("No ProcessedEventStore configured, event deduplication is in-memory only");
+            return;
+        }
+        // A redelivery right after a restart must still hit the filter, or it would be taken as new
+        int loaded = 0;
+        for (String eventId : processedEventStore.recentIds((int) Math.min(Integer.MAX_VALUE, expectedEvents))) {
+            current.put(eventId);
+            loaded++;
+        }
+        insertions.set(loaded);
+        log.info("Idempotency guard preloaded {} processed event ids", loaded);
+    }
+
+    /**
+     * Runs the handler unless the event was already processed, then records the event id.
+     * A handler that throws leaves the event unrecorded, so its redelivery is processed again.
+     * Events without an id are always processed.
+     *
+     * @return {@code false} when the event was skipped as a duplicate
+     */
+    public boolean process(String eventId, Runnable handler) {
+        if (eventId == null) {
+            handler.run();
+            return true;
+        }
+
+        if (isProcessed(eventId)) {
+            duplicates.increment();
+            log.info("Skipping duplicate event: {}", eventId);
+            return false;
+        }
+
+        handler.run();
+        markProcessed(eventId);
+        return true;
+    }
+
+    public boolean isProcessed(String eventId) {
+        if (!current.mightContain(eventId) && !previous.mightContain(eventId)) {
+            return false;
+        }
+
+        synchronized (recentIds) {
+            if (recentIds.get(eventId) != null) {
+                return true;
+            }
+        }
+
+        if (processedEventStore != null) {
+            storeReads.increment();
+            return processedEventStore.contains(eventId);
+        }
+        // A bloom false positive, or an id that already left the LRU
+        return false;
+    }
+
+    public void markProcessed(String eventId) {
+        if (processedEventStore != null) {
+            processedEventStore.add(eventId);
+        }
+        synchronized (recentIds) {
+            recentIds.put(eventId, Boolean.TRUE);
+        }
+        current.put(eventId);
+
+        if (insertions.incrementAndGet() >= expectedEvents) {
+            rotate();
+        }
+    }
+
+    private synchronized void rotate() {
+        if (insertions.get() < expectedEvents) {
+            return;  // Another thread rotated first
+        }
+        previous = current;
+        current = new BloomFilter(expectedEvents, falsePositiveRate);
+        insertions.set(0);
+        log.debug("Idempotency bloom filter rotated after {} events", expectedEvents);
+    }
+}
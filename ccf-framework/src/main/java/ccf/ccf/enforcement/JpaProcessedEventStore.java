@@ -0,0 +1,105 @@
+package ccf.ccf.enforcement;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Processed event ids in the table {@code ccf_processed_events}. An id recorded inside the
+ * handler's transaction commits with its effects; recorded afterwards, a crash in between lets
+ * the redelivery through once. Ids older than {@code ccf.idempotency.retention-hours} are purged
+ * hourly, so the retention must exceed the longest redelivery the consumers can see.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "ccf.idempotency.store", havingValue = "jpa")
+public class JpaProcessedEventStore implements ProcessedEventStore {
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration retention;
+    private final ScheduledExecutorService purger;
+
+    public JpaProcessedEventStore(EntityManager entityManager,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${ccf.idempotency.retention-hours:168}") long retentionHours) {
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.retention = Duration.ofHours(retentionHours);
+        this.purger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ccf-processed-events-purge");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void createTable() {
+        transactionTemplate.executeWithoutResult(status -> {
+            entityManager.createNativeQuery("""
+                    CREATE TABLE IF NOT EXISTS ccf_processed_events (
+                        event_id VARCHAR(255) PRIMARY KEY,
+                        processed_at BIGINT NOT NULL)""").executeUpdate();
+            entityManager.createNativeQuery(
+                    "CREATE INDEX IF NOT EXISTS ccf_processed_events_processed_at ON ccf_processed_events (processed_at)")
+                    .executeUpdate();
+        });
+        purger.scheduleWithFixedDelay(this::purge, 1, 1, TimeUnit.HOURS);
+        log.info("Processed event ids stored in table ccf_processed_events");
+    }
+
+    @Override
+    public boolean contains(String eventId) {
+        return !entityManager.createNativeQuery("SELECT 1 FROM ccf_processed_events WHERE event_id = ?1")
+                .setParameter(1, eventId)
+                .getResultList()
+                .isEmpty();
+    }
+
+    @Override
+    public void add(String eventId) {
+        transactionTemplate.executeWithoutResult(status -> entityManager.createNativeQuery(
+                        "INSERT INTO ccf_processed_events (event_id, processed_at) VALUES (?1, ?2) ON CONFLICT DO NOTHING")
+                .setParameter(1, eventId)
+                .setParameter(2, System.currentTimeMillis())
+                .executeUpdate());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<String> recentIds(int limit) {
+        return entityManager.createNativeQuery(
+                        "SELECT event_id FROM ccf_processed_events ORDER BY processed_at DESC LIMIT ?1")
+                .setParameter(1, limit)
+                .getResultList();
+    }
+
+    void purge() {
+        try {
+            Integer purged = transactionTemplate.execute(status -> entityManager.createNativeQuery(
+                            "DELETE FROM ccf_processed_events WHERE processed_at < ?1")
+                    .setParameter(1, System.currentTimeMillis() - retention.toMillis())
+                    .executeUpdate());
+            log.debug("Purged {} processed event ids older than {}", purged, retention);
+        } catch (RuntimeException e) {
+            log.warn("Purging processed event ids failed: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        purger.shutdownNow();
+    }
+}
@@ -0,0 +1,89 @@
+package ccf.ccf.enforcement;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * In-process participant, mainly for tests and single-service resources. It tracks the phase of
+ * every transaction, which makes the phases idempotent. It also handles the two TCC corner cases:
+ * a cancel for a try that never ran only records the cancel, and a try arriving after its cancel
+ * is rejected.
+ */
+@Slf4j
+public class LocalTccParticipant<T> implements TccParticipant<T> {
+
+    private enum Phase { TRIED, CONFIRMED, CANCELLED }
+
+    private final String name;
+    private final BiConsumer<String, T> onTry;
+    private final Consumer<String> onConfirm;
+    private final Consumer<String> onCancel;
+
+    // Transaction id -> phase reached; entries live until the transaction is forgotten
+    private final Map<String, Phase> phases = new ConcurrentHashMap<>();
+
+    public LocalTccParticipant(String name, BiConsumer<String, T> onTry,
+                               Consumer<String> onConfirm, Consumer<String> onCancel) {
+        this.name = name;
+        this.onTry = onTry;
+        this.onConfirm = onConfirm;
+        this.onCancel = onCancel;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    // Each phase runs inside compute, so calls for one transaction are serialized and others run freely
+    @Override
+    public void tryReserve(String transactionId, T payload) {
+        phases.compute(transactionId, (id, phase) -> {
+            if (phase == Phase.CANCELLED) {
+                throw new IllegalStateException("Transaction " + id + " was already cancelled");
+            }
+            if (phase == null) {
+                onTry.accept(id, payload);
+                return Phase.TRIED;
+            }
+            return phase;
+        });
+    }
+
+    @Override
+    public void confirm(String transactionId) {
+        phases.compute(transactionId, (id, phase) -> {
+            if (phase == Phase.CONFIRMED) {
+                return phase;
+            }
+            if (phase != Phase.TRIED) {
+                throw new IllegalStateException("Cannot confirm transaction " + id + " in phase " + phase);
+            }
+            onConfirm.accept(id);
+            return Phase.CONFIRMED;
+        });
+    }
+
+    @Override
+    public void cancel(String transactionId) {
+        phases.compute(transactionId, (id, phase) -> {
+            if (phase == Phase.CONFIRMED) {
+                throw new IllegalStateException("Cannot cancel confirmed transaction " + id);
+            }
+            if (phase == Phase.TRIED) {
+                onCancel.accept(id);
+            } else if (phase == null) {
+                log.debug("Empty cancel for transaction {} on {}", id, name);
+            }
+            return Phase.CANCELLED;
+        });
+    }
+
+    public void forget(String transactionId) {
+        phases.remove(transactionId);
+    }
+}
@@ -0,0 +1,74 @@
+package ccf.ccf.enforcement;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Processed event ids in the collection {@code ccf_processed_events}, one document per id keyed by
+ * {@code _id}. A TTL index drops ids after {@code ccf.idempotency.retention-hours}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "ccf.idempotency.store", havingValue = "mongo")
+public class MongoProcessedEventStore implements ProcessedEventStore {
+
+    private static final String COLLECTION = "ccf_processed_events";
+
+    private final MongoTemplate mongoTemplate;
+    private final Duration retention;
+
+    private volatile boolean indexed;
+
+    public MongoProcessedEventStore(MongoTemplate mongoTemplate,
+                                    @Value("${ccf.idempotency.retention-hours:168}") long retentionHours) {
+        this.mongoTemplate = mongoTemplate;
+        this.retention = Duration.ofHours(retentionHours);
+    }
+
+    @Override
+    public boolean contains(String eventId) {
+        return mongoTemplate.exists(new Query(where("_id").is(eventId)), COLLECTION);
+    }
+
+    @Override
+    public void add(String eventId) {
+        if (!indexed) {
+            createIndexes();
+        }
+        try {
+            mongoTemplate.insert(new Document("_id", eventId).append("processedAt", new Date()), COLLECTION);
+        } catch (DuplicateKeyException e) {
+            // Recorded by an earlier delivery
+        }
+    }
+
+    @Override
+    public List<String> recentIds(int limit) {
+        Query recent = new Query().with(Sort.by(Sort.Direction.DESC, "processedAt")).limit(limit);
+        recent.fields().include("_id");
+        return mongoTemplate.find(recent, Document.class, COLLECTION).stream()
+                .map(document -> document.getString("_id"))
+                .toList();
+    }
+
+    private void createIndexes() {
+        mongoTemplate.indexOps(COLLECTION).createIndex(new Index().on("processedAt", Sort.Direction.DESC)
+                .expire(retention));
+        indexed = true;
+        log.info("Processed event ids stored in collection {}", COLLECTION);
+    }
+}
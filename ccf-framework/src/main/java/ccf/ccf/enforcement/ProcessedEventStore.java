@@ -0,0 +1,22 @@
+package ccf.ccf.enforcement;
+
+import java.util.List;
+
+/**
+ * Durable record of processed event ids, consulted by {@link IdempotencyGuard} only when its
+ * in-memory structures cannot rule out a duplicate. Services provide an implementation backed
+ * by their own database; without one, deduplication does not survive a restart.
+ */
+public interface ProcessedEventStore {
+
+    boolean contains(String eventId);
+
+    void add(String eventId);
+
+    /**
+     * Ids to preload into the bloom filter at startup, most recent first.
+     */
+    default List<String> recentIds(int limit) {
+        return List.of();
+    }
+}
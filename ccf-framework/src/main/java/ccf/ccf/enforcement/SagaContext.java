@@ -8,15 +8,23 @@ import java.util.Map;
 @Data
 public class SagaContext {
     private String sagaId;
-    private Map<String, Object> data = new HashMap<>();
+    // Allocated on the first put; plan-based sagas keep their state in a SagaInstance instead
+    private Map<String, Object> data;
     private boolean completed;
     private boolean compensating;
 
     public void put(String key, Object value) {
+        if (data == null) {
+            data = new HashMap<>();
+        }
         data.put(key, value);
     }
 
     public Object get(String key) {
-        return data.get(key);
+        return data == null ? null : data.get(key);
     }
-}
\ No newline at end of file
+
+    public Map<String, Object> getData() {
+        return data == null ? Map.of() : data;
+    }
+}
@@ -0,0 +1,34 @@
+package ccf.ccf.enforcement;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Slf4j
+@Configuration
+public class SagaExecutorConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService sagaStepExecutor() {
+        try {
+            // JDK 21+: one virtual thread per step, resolved reflectively as the library targets 17
+            ExecutorService executor = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+            log.info("Saga steps run on virtual threads");
+            return executor;
+        } catch (ReflectiveOperationException e) {
+            log.info("Virtual threads unavailable, saga steps run on a cached thread pool");
+            AtomicInteger counter = new AtomicInteger();
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "ccf-saga-step-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package ccf.ccf.enforcement;
+
+import ccf.ccf.enforcement.model.SagaInstanceStatus;
+import ccf.ccf.enforcement.model.SagaPlan;
+import ccf.ccf.enforcement.model.SagaStepState;
+
+/**
+ * State of one in-flight saga, laid out by the step ordinals of its compiled {@link SagaPlan}:
+ * one byte per step instead of a mutable step object per step, and no per-saga map.
+ * The plan is shared by every instance of the saga.
+ */
+public final class SagaInstance {
+
+    private static final SagaStepState[] STATES = SagaStepState.values();
+
+    private final String sagaId;
+    private final String correlationKey;
+    private final SagaPlan plan;
+    private final Object payload;
+    private final byte[] stepStates;
+    private SagaInstanceStatus status = SagaInstanceStatus.RUNNING;
+    // Pending timeout of an event-driven saga
+    private HierarchicalTimerWheel.Timeout timeout;
+
+    SagaInstance(String sagaId, String correlationKey, SagaPlan plan, Object payload) {
+        this.sagaId = sagaId;
+        this.correlationKey = correlationKey;
+        this.plan = plan;
+        this.payload = payload;
+        // PENDING is ordinal 0, so a fresh array needs no initialisation
+        this.stepStates = new byte[plan.getSteps().size()];
+    }
+
+    public String getSagaId() {
+        return sagaId;
+    }
+
+    public String getCorrelationKey() {
+        return correlationKey;
+    }
+
+    public SagaPlan getPlan() {
+        return plan;
+    }
+
+    public Object getPayload() {
+        return payload;
+    }
+
+    public synchronized SagaInstanceStatus getStatus() {
+        return status;
+    }
+
+    public synchronized SagaStepState getStepState(int ordinal) {
+        return STATES[stepStates[ordinal]];
+    }
+
+    public SagaStepState getStepState(String stepName) {
+        return getStepState(plan.getStepIndexes().get(stepName));
+    }
+
+    synchronized void setStepState(int ordinal, SagaStepState state) {
+        stepStates[ordinal] = (byte) state.ordinal();
+    }
+
+    synchronized void setStatus(SagaInstanceStatus status) {
+        this.status = status;
+    }
+
+    synchronized HierarchicalTimerWheel.Timeout getTimeout() {
+        return timeout;
+    }
+
+    synchronized void setTimeout(HierarchicalTimerWheel.Timeout timeout) {
+        this.timeout = timeout;
+    }
+
+    synchronized boolean isFinished() {
+        for (byte state : stepStates) {
+            if (state != SagaStepState.COMPLETED.ordinal()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Completed steps whose compensation has not succeeded yet
+    synchronized boolean hasUncompensatedSteps() {
+        for (byte state : stepStates) {
+            if (state == SagaStepState.COMPLETED.ordinal()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
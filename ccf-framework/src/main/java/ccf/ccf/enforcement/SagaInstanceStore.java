@@ -0,0 +1,130 @@
+package ccf.ccf.enforcement;
+
+import ccf.ccf.enforcement.model.SagaInstanceStatus;
+import ccf.ccf.enforcement.model.SagaPlan;
+import ccf.ccf.enforcement.model.SagaStepState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * In-memory store of in-flight saga instances, sharded by saga id with one lock per shard so
+ * concurrent sagas rarely contend. A second sharded index resolves instances by correlation key
+ * (e.g. the order id). Instances leave the store once the saga completes or is fully compensated.
+ */
+@Slf4j
+@Component
+public class SagaInstanceStore {
+
+    private final Shard[] sagaShards;
+    private final Shard[] correlationShards;
+    private final int mask;
+
+    public SagaInstanceStore(@Value("${ccf.saga.store.shards:64}") int shards) {
+        int count = Integer.highestOneBit(Math.max(1, shards - 1) << 1);
+        this.mask = count - 1;
+        this.sagaShards = new Shard[count];
+        this.correlationShards = new Shard[count];
+        for (int i = 0; i < count; i++) {
+            sagaShards[i] = new Shard();
+            correlationShards[i] = new Shard();
+        }
+    }
+
+    public SagaInstance create(String sagaId, SagaPlan plan, String correlationKey, Object payload) {
+        SagaInstance instance = new SagaInstance(sagaId, correlationKey, plan, payload);
+
+        Shard shard = sagaShards[index(sagaId)];
+        synchronized (shard) {
+            shard.instances.put(sagaId, instance);
+        }
+
+        if (correlationKey != null) {
+            Shard correlationShard = correlationShards[index(correlationKey)];
+            synchronized (correlationShard) {
+                correlationShard.instances.put(correlationKey, instance);
+            }
+        }
+        return instance;
+    }
+
+    public Optional<SagaInstance> findBySagaId(String sagaId) {
+        Shard shard = sagaShards[index(sagaId)];
+        synchronized (shard) {
+            return Optional.ofNullable(shard.instances.get(sagaId));
+        }
+    }
+
+    public Optional<SagaInstance> findByCorrelationKey(String correlationKey) {
+        Shard shard = correlationShards[index(correlationKey)];
+        synchronized (shard) {
+            return Optional.ofNullable(shard.instances.get(correlationKey));
+        }
+    }
+
+    public void remove(SagaInstance instance) {
+        Shard shard = sagaShards[index(instance.getSagaId())];
+        synchronized (shard) {
+            shard.instances.remove(instance.getSagaId(), instance);
+        }
+
+        if (instance.getCorrelationKey() != null) {
+            Shard correlationShard = correlationShards[index(instance.getCorrelationKey())];
+            synchronized (correlationShard) {
+                // A newer saga may have taken over the key
+                correlationShard.instances.remove(instance.getCorrelationKey(), instance);
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Shard shard : sagaShards) {
+            synchronized (shard) {
+                size += shard.instances.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Records a successful compensation, which may come from the retry queue long after the
+     * saga failed, and drops the instance once nothing is left to compensate.
+     */
+    void stepCompensated(SagaInstance instance, int ordinal) {
+        synchronized (instance) {
+            instance.setStepState(ordinal, SagaStepState.COMPENSATED);
+            if (instance.getStatus() == SagaInstanceStatus.COMPENSATING && !instance.hasUncompensatedSteps()) {
+                remove(instance);
+            }
+        }
+    }
+
+    /**
+     * Called once the orchestrator gave up on a saga: the instance is dropped, or kept as
+     * COMPENSATING while some of its compensations are parked.
+     */
+    void sagaFailed(SagaInstance instance) {
+        synchronized (instance) {
+            if (instance.hasUncompensatedSteps()) {
+                instance.setStatus(SagaInstanceStatus.COMPENSATING);
+                log.warn("Saga {} keeps parked compensations", instance.getSagaId());
+            } else {
+                remove(instance);
+            }
+        }
+    }
+
+    private int index(String key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private static final class Shard {
+        private final Map<String, SagaInstance> instances = new HashMap<>();
+    }
+}
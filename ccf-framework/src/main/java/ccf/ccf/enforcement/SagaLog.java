@@ -0,0 +1,49 @@
+package ccf.ccf.enforcement;
+
+import ccf.ccf.enforcement.model.SagaLogRecord;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * Write-ahead log of saga progress. {@link #append} returns once the record is durable,
+ * so a step is never run before its STEP_STARTED record survives a crash.
+ */
+public interface SagaLog {
+
+    void append(SagaLogRecord record);
+
+    /**
+     * Non-blocking append; the returned future completes once the record is durable.
+     */
+    default CompletableFuture<Void> appendAsync(SagaLogRecord record) {
+        try {
+            append(record);
+            return CompletableFuture.completedFuture(null);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    List<SagaLogRecord> readAll();
+
+    /**
+     * Drops the records of sagas that reached a terminal state.
+     */
+    void compact(Set<String> finishedSagaIds);
+
+    /**
+     * Drops the records of every saga that has a terminal record in the log.
+     */
+    default void compactFinished() {
+        Set<String> finished = readAll().stream()
+                .filter(SagaLogRecord::isTerminal)
+                .map(SagaLogRecord::getSagaId)
+                .collect(Collectors.toSet());
+        if (!finished.isEmpty()) {
+            compact(finished);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package ccf.ccf.enforcement;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Configuration
+public class SagaLogConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "ccf.saga.log.type", havingValue = "file")
+    public FileSagaLog fileSagaLog(
+            @Value("${ccf.saga.log.directory:./ccf-saga-log}") String directory,
+            @Value("${spring.application.name:ccf}") String applicationName,
+            @Value("${ccf.saga.log.group-commit:true}") boolean groupCommit,
+            @Value("${ccf.saga.log.max-batch-size:256}") int maxBatchSize,
+            @Value("${ccf.saga.log.append-timeout-ms:10000}") long appendTimeoutMs,
+            @Value("${ccf.saga.log.compact-interval-seconds:300}") long compactIntervalSeconds) {
+        return new FileSagaLog(Path.of(directory, applicationName + ".saga.log"), groupCommit, maxBatchSize,
+                Duration.ofMillis(appendTimeoutMs), Duration.ofSeconds(compactIntervalSeconds));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "ccf.saga.log.type", havingValue = "none", matchIfMissing = true)
+    public SagaLog noOpSagaLog() {
+        return new NoOpSagaLog();
+    }
+}
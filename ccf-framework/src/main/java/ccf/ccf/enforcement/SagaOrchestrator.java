@@ -1,13 +1,28 @@
 package ccf.ccf.enforcement;
 
+import ccf.ccf.enforcement.model.SagaLogRecord;
+import ccf.ccf.enforcement.model.SagaLogRecordType;
+import ccf.ccf.enforcement.model.SagaPlanStep;
+import ccf.ccf.enforcement.model.SagaStepState;
 import ccf.ccf.exception.SagaExecutionException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 @Slf4j
 @Component
@@ -15,35 +30,145 @@ import java.util.UUID;
 public class SagaOrchestrator {
 
     private final CompensationHandler compensationHandler;
+    private final SagaLog sagaLog;
+    private final ExecutorService sagaStepExecutor;
 
     public SagaContext executeSaga(List<SagaStep> steps) {
-        String sagaId = UUID.randomUUID().toString();
+        return executeSaga(null, steps);
+    }
+
+    public SagaContext executeSaga(String sagaName, List<SagaStep> steps) {
+        return executeSaga(UUID.randomUUID().toString(), sagaName, steps);
+    }
+
+    public SagaContext executeSaga(String sagaId, String sagaName, List<SagaStep> steps) {
+        return executeSaga(sagaId, sagaName, null, steps);
+    }
+
+    /**
+     * @param payload the serialized payload the steps act on, logged with the start of the saga
+     *                and handed to its {@link SagaRecovery} factory after a crash
+     */
+    public SagaContext executeSaga(String sagaId, String sagaName, String payload, List<SagaStep> steps) {
         log.info("Starting saga execution: {}", sagaId);
 
+        sagaLog.append(SagaLogRecord.started(sagaId, sagaName, payload));
+
+        return runSteps(sagaId, sagaName, steps, List.of());
+    }
+
+    /**
+     * Runs a compiled plan in step order for one instance. Step states live in the instance's
+     * slots and the actions are the plan's handlers, taken by ordinal, so the running saga holds
+     * no step objects. They are built, from {@code compensations}, only if the saga fails.
+     *
+     * @param handlers the plan's handlers, indexed by step ordinal
+     * @param payload  the serialized payload, logged with the start of the saga
+     */
+    @SuppressWarnings("unchecked")
+    public SagaContext executePlan(SagaInstance instance, SagaStepHandler<?>[] handlers, String payload,
+                                   Supplier<List<SagaStep>> compensations) {
+        String sagaId = instance.getSagaId();
+        String sagaName = instance.getPlan().getSagaName();
+        List<SagaPlanStep> planSteps = instance.getPlan().getSteps();
+        log.info("Starting saga execution: {}", sagaId);
+
+        sagaLog.append(SagaLogRecord.started(sagaId, sagaName, payload));
+
         SagaContext context = new SagaContext();
         context.setSagaId(sagaId);
+        try {
+            for (int ordinal = 0; ordinal < planSteps.size(); ordinal++) {
+                String stepName = planSteps.get(ordinal).getStepName();
+                log.info("Executing saga step: {}", stepName);
+                sagaLog.append(SagaLogRecord.of(SagaLogRecordType.STEP_STARTED, sagaId, sagaName, ordinal, stepName));
 
-        List<SagaStep> executedSteps = new ArrayList<>();
+                instance.setStepState(ordinal, SagaStepState.STARTED);
+                try {
+                    ((SagaStepHandler<Object>) handlers[ordinal]).execute(instance.getPayload());
+                } catch (Throwable e) {
+                    instance.setStepState(ordinal, SagaStepState.FAILED);
+                    throw e;
+                }
+                instance.setStepState(ordinal, SagaStepState.COMPLETED);
 
-        try {
-            for (SagaStep step : steps) {
-                log.info("Executing saga step: {}", step.getStepName());
+                sagaLog.append(SagaLogRecord.of(SagaLogRecordType.STEP_COMPLETED, sagaId, sagaName, ordinal, stepName));
+                log.info("Saga step completed: {}", stepName);
+            }
+
+            sagaLog.append(SagaLogRecord.of(SagaLogRecordType.SAGA_COMPLETED, sagaId, sagaName, -1, null));
+            context.setCompleted(true);
+            log.info("Saga execution completed successfully: {}", sagaId);
+
+        } catch (Throwable e) {
+            log.error("Saga execution failed: {}", e.getMessage());
+            context.setCompensating(true);
+
+            List<SagaStep> steps = compensations.get();
+            for (int ordinal = 0; ordinal < steps.size(); ordinal++) {
+                steps.get(ordinal).setExecuted(instance.getStepState(ordinal) == SagaStepState.COMPLETED);
+            }
+
+            sagaLog.append(SagaLogRecord.of(SagaLogRecordType.SAGA_COMPENSATING, sagaId, sagaName, -1, null));
+            if (compensationHandler.compensate(sagaId, sagaName, steps)) {
+                sagaLog.append(SagaLogRecord.of(SagaLogRecordType.SAGA_ABORTED, sagaId, sagaName, -1, null));
+            }
 
-                step.getAction().run();
+            throw new SagaExecutionException("Saga execution failed", e);
+        }
+
+        return context;
+    }
+
+    /**
+     * Continues a saga recovered from the log. Steps whose names are in {@code completedStepNames}
+     * already ran and are only kept for compensation; the rest run again from the first one
+     * that did not complete, so actions must tolerate being re-run after a crash.
+     */
+    public SagaContext resumeSaga(String sagaId, String sagaName, List<SagaStep> steps, Set<String> completedStepNames) {
+        log.info("Resuming saga execution: {}", sagaId);
+
+        List<SagaStep> executedSteps = new ArrayList<>();
+        List<SagaStep> remainingSteps = new ArrayList<>();
+        for (SagaStep step : steps) {
+            if (completedStepNames.contains(step.getStepName())) {
                 step.setExecuted(true);
                 executedSteps.add(step);
+            } else {
+                remainingSteps.add(step);
+            }
+        }
 
-                log.info("Saga step completed: {}", step.getStepName());
+        return runSteps(sagaId, sagaName, remainingSteps, executedSteps);
+    }
+
+    private SagaContext runSteps(String sagaId, String sagaName, List<SagaStep> steps, List<SagaStep> alreadyExecuted) {
+        SagaContext context = new SagaContext();
+        context.setSagaId(sagaId);
+
+        List<SagaStep> executedSteps = new ArrayList<>(alreadyExecuted);
+
+        try {
+            if (steps.stream().allMatch(step -> step.getDependsOn() == null)) {
+                runSequentially(sagaId, sagaName, steps, executedSteps);
+            } else {
+                runGraph(sagaId, sagaName, steps, executedSteps);
             }
 
+            sagaLog.append(SagaLogRecord.of(SagaLogRecordType.SAGA_COMPLETED, sagaId, sagaName, -1, null));
             context.setCompleted(true);
             log.info("Saga execution completed successfully: {}", sagaId);
 
-        } catch (Exception e) {
+        } catch (Throwable e) {
+            // Errors thrown by a step are compensated like exceptions; the saga must not stay half-done
             log.error("Saga execution failed: {}", e.getMessage());
             context.setCompensating(true);
 
-            compensationHandler.compensate(executedSteps);
+            sagaLog.append(SagaLogRecord.of(SagaLogRecordType.SAGA_COMPENSATING, sagaId, sagaName, -1, null));
+            // With parked compensations the saga stays unfinished until the retry queue aborts it
+            if (compensationHandler.compensate(sagaId, sagaName, executedSteps)) {
+                sagaLog.append(SagaLogRecord.of(SagaLogRecordType.SAGA_ABORTED, sagaId, sagaName, -1, null));
+            }
 
             throw new SagaExecutionException("Saga execution failed", e);
         }
@@ -51,8 +176,217 @@ public class SagaOrchestrator {
         return context;
     }
 
+    private void runSequentially(String sagaId, String sagaName, List<SagaStep> steps, List<SagaStep> executedSteps) {
+        for (SagaStep step : steps) {
+            runStep(sagaId, sagaName, executedSteps.size(), step);
+            executedSteps.add(step);
+        }
+    }
+
+    /**
+     * Runs every step as soon as its dependencies completed, so independent steps overlap and
+     * saga latency follows the critical path. On the first failure no further step is started,
+     * running siblings are interrupted, and only steps that actually completed are compensated.
+     */
+    private void runGraph(String sagaId, String sagaName, List<SagaStep> steps, List<SagaStep> executedSteps)
+            throws Throwable {
+        Map<String, List<String>> dependencies = resolveDependencies(steps, executedSteps);
+
+        Map<String, SagaStep> stepsByName = new LinkedHashMap<>();
+        Map<String, Integer> stepIndexes = new HashMap<>();
+        for (int i = 0; i < steps.size(); i++) {
+            stepsByName.put(steps.get(i).getStepName(), steps.get(i));
+            stepIndexes.put(steps.get(i).getStepName(), executedSteps.size() + i);
+        }
+
+        Map<String, Integer> pendingDependencies = new HashMap<>();
+        Map<String, List<String>> dependents = new HashMap<>();
+        for (Map.Entry<String, List<String>> entry : dependencies.entrySet()) {
+            pendingDependencies.put(entry.getKey(), entry.getValue().size());
+            for (String dependency : entry.getValue()) {
+                dependents.computeIfAbsent(dependency, k -> new ArrayList<>()).add(entry.getKey());
+            }
+        }
+
+        BlockingQueue<StepOutcome> outcomes = new LinkedBlockingQueue<>();
+        Map<String, Thread> runningThreads = new ConcurrentHashMap<>();
+        AtomicBoolean aborted = new AtomicBoolean();
+        Throwable failure = null;
+        boolean interrupted = false;
+        int inFlight = 0;
+
+        for (Map.Entry<String, Integer> entry : pendingDependencies.entrySet()) {
+            if (entry.getValue() == 0) {
+                String name = entry.getKey();
+                submit(sagaId, sagaName, stepIndexes.get(name), stepsByName.get(name), outcomes, runningThreads, aborted);
+                inFlight++;
+            }
+        }
+
+        // Every submitted step reports exactly once, so this loop also waits for cancelled siblings
+        while (inFlight > 0) {
+            StepOutcome outcome;
+            try {
+                outcome = outcomes.take();
+            } catch (InterruptedException e) {
+                // Stop the saga, but still collect the running steps so the completed ones are compensated
+                interrupted = true;
+                if (failure == null) {
+                    failure = e;
+                    aborted.set(true);
+                    interruptRunning(runningThreads);
+                }
+                continue;
+            }
+            inFlight--;
+
+            if (outcome.completed) {
+                executedSteps.add(outcome.step);
+                if (failure != null) {
+                    continue;
+                }
+                for (String dependent : dependents.getOrDefault(outcome.step.getStepName(), List.of())) {
+                    if (pendingDependencies.merge(dependent, -1, Integer::sum) == 0) {
+                        submit(sagaId, sagaName, stepIndexes.get(dependent), stepsByName.get(dependent),
+                                outcomes, runningThreads, aborted);
+                        inFlight++;
+                    }
+                }
+            } else if (outcome.error != null && failure == null) {
+                failure = outcome.error;
+                aborted.set(true);
+                interruptRunning(runningThreads);
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    // Atomic with a step's own removal, so a late interrupt never reaches a thread that moved on
+    private void interruptRunning(Map<String, Thread> runningThreads) {
+        for (String name : runningThreads.keySet()) {
+            runningThreads.computeIfPresent(name, (key, thread) -> {
+                thread.interrupt();
+                return thread;
+            });
+        }
+    }
+
+    private void submit(String sagaId, String sagaName, int stepIndex, SagaStep step,
+                        BlockingQueue<StepOutcome> outcomes, Map<String, Thread> runningThreads, AtomicBoolean aborted) {
+        sagaStepExecutor.execute(() -> {
+            if (aborted.get()) {
+                outcomes.add(new StepOutcome(step, false, null));
+                return;
+            }
+
+            runningThreads.put(step.getStepName(), Thread.currentThread());
+            try {
+                runStep(sagaId, sagaName, stepIndex, step);
+                outcomes.add(new StepOutcome(step, true, null));
+            } catch (Throwable e) {
+                // Every submitted step must report, or the saga waits for it forever
+                outcomes.add(new StepOutcome(step, false, e));
+            } finally {
+                runningThreads.remove(step.getStepName());
+                // Clear a cancellation interrupt so it does not leak into the pool thread's next task
+                Thread.interrupted();
+            }
+        });
+    }
+
+    private void runStep(String sagaId, String sagaName, int stepIndex, SagaStep step) {
+        log.info("Executing saga step: {}", step.getStepName());
+
+        // Write-ahead: the intent is durable before the action runs
+        sagaLog.append(SagaLogRecord.of(SagaLogRecordType.STEP_STARTED, sagaId, sagaName, stepIndex, step.getStepName()));
+
+        step.getAction().run();
+        step.setExecuted(true);
+
+        sagaLog.append(SagaLogRecord.of(SagaLogRecordType.STEP_COMPLETED, sagaId, sagaName, stepIndex, step.getStepName()));
+
+        log.info("Saga step completed: {}", step.getStepName());
+    }
+
+    // Validates names and dependencies and rejects cycles before any step runs
+    private Map<String, List<String>> resolveDependencies(List<SagaStep> steps, List<SagaStep> executedSteps) {
+        Set<String> completed = new HashSet<>();
+        executedSteps.forEach(step -> completed.add(step.getStepName()));
+
+        Map<String, List<String>> dependencies = new LinkedHashMap<>();
+        for (int i = 0; i < steps.size(); i++) {
+            SagaStep step = steps.get(i);
+            if (dependencies.containsKey(step.getStepName())) {
+                throw new SagaExecutionException("Duplicate saga step name: " + step.getStepName());
+            }
+
+            List<String> declared = step.getDependsOn() != null
+                    ? step.getDependsOn()
+                    : (i > 0 ? List.of(steps.get(i - 1).getStepName()) : List.of());
+
+            List<String> pending = new ArrayList<>();
+            for (String dependency : declared) {
+                if (!completed.contains(dependency)) {
+                    pending.add(dependency);
+                }
+            }
+            dependencies.put(step.getStepName(), pending);
+        }
+
+        Map<String, Integer> inDegree = new HashMap<>();
+        for (Map.Entry<String, List<String>> entry : dependencies.entrySet()) {
+            for (String dependency : entry.getValue()) {
+                if (!dependencies.containsKey(dependency)) {
+                    throw new SagaExecutionException(
+                            "Saga step " + entry.getKey() + " depends on unknown step " + dependency);
+                }
+            }
+            inDegree.put(entry.getKey(), entry.getValue().size());
+        }
+
+        List<String> ready = new ArrayList<>();
+        inDegree.forEach((name, degree) -> {
+            if (degree == 0) {
+                ready.add(name);
+            }
+        });
+        int visited = 0;
+        while (!ready.isEmpty()) {
+            String name = ready.remove(ready.size() - 1);
+            visited++;
+            for (Map.Entry<String, List<String>> entry : dependencies.entrySet()) {
+                if (entry.getValue().contains(name) && inDegree.merge(entry.getKey(), -1, Integer::sum) == 0) {
+                    ready.add(entry.getKey());
+                }
+            }
+        }
+        if (visited != dependencies.size()) {
+            throw new SagaExecutionException("Saga step dependencies contain a cycle");
+        }
+
+        return dependencies;
+    }
+
     public void addStep(List<SagaStep> steps, SagaStep step) {
         steps.add(step);
         log.debug("Added saga step: {}", step.getStepName());
     }
-}
\ No newline at end of file
+
+    private static class StepOutcome {
+        private final SagaStep step;
+        private final boolean completed;
+        private final Throwable error;
+
+        private StepOutcome(SagaStep step, boolean completed, Throwable error) {
+            this.step = step;
+            this.completed = completed;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package ccf.ccf.enforcement;
+
+import ccf.ccf.enforcement.model.SagaPlan;
+import ccf.ccf.enforcement.model.SagaPlanStep;
+import ccf.ccf.enforcement.model.SagaStepState;
+import ccf.ccf.exception.SagaExecutionException;
+import ccf.ccf.specification.ContractRepository;
+import ccf.ccf.specification.model.ConsistencyContract;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compiles the SAGA block of a contract into an immutable {@link SagaPlan} once, and keeps the
+ * step handlers services bind at startup next to it. Executing a saga then only instantiates
+ * the per-execution step state from the cached plan.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SagaPlanCompiler {
+
+    private static final Pattern STEP = Pattern.compile("STEP\\s+(\\w+)(?:\\s+COMPENSATE\\s+(\\w+))?");
+
+    private final ContractRepository contractRepository;
+
+    // Contract id -> compiled plan with its handlers resolved by step index
+    private final Map<String, CompiledSaga> compiled = new ConcurrentHashMap<>();
+
+    // Contract id -> step name -> handler, kept so bindings survive a recompile
+    private final Map<String, Map<String, SagaStepHandler<?>>> bindings = new ConcurrentHashMap<>();
+
+    public SagaPlan compile(ConsistencyContract contract) {
+        List<SagaPlanStep> steps = new ArrayList<>();
+        Map<String, Integer> stepIndexes = new HashMap<>();
+
+        String definition = contract.getSagaDefinition() == null ? "" : contract.getSagaDefinition();
+        Matcher matcher = STEP.matcher(definition);
+        while (matcher.find()) {
+            String stepName = matcher.group(1);
+            if (stepIndexes.putIfAbsent(stepName, steps.size()) != null) {
+                throw new SagaExecutionException(
+                        "Duplicate saga step " + stepName + " in contract " + contract.getContractId());
+            }
+            steps.add(SagaPlanStep.builder()
+                    .index(steps.size())
+                    .stepId(contract.getContractId() + "." + stepName)
+                    .stepName(stepName)
+                    .compensationName(matcher.group(2))
+                    .build());
+        }
+
+        SagaPlan plan = SagaPlan.builder()
+                .contractId(contract.getContractId())
+                .contractHash(contract.getContractHash())
+                .sagaName(contract.getContractName())
+                .steps(steps)
+                .stepIndexes(stepIndexes)
+                .build();
+
+        compiled.put(plan.getContractId(), resolve(plan));
+
+        log.info("Compiled saga plan for contract {} with {} steps", plan.getContractId(), steps.size());
+        return plan;
+    }
+
+    public Optional<SagaPlan> getPlan(String contractId) {
+        CompiledSaga saga = compiled.get(contractId);
+        return Optional.ofNullable(saga == null ? null : saga.plan);
+    }
+
+    /**
+     * Binds the action and compensation of a step. Meant to be called once per step at startup;
+     * steps of an already compiled plan are checked immediately.
+     */
+    public <T> void bind(String contractId, String stepName, SagaStepHandler<T> handler) {
+        CompiledSaga saga = compiled.get(contractId);
+        if (saga != null && !saga.plan.getStepIndexes().containsKey(stepName)) {
+            throw new SagaExecutionException("Contract " + contractId + " has no saga step " + stepName);
+        }
+
+        bindings.computeIfAbsent(contractId, k -> new ConcurrentHashMap<>()).put(stepName, handler);
+        if (saga != null) {
+            compiled.put(contractId, resolve(saga.plan));
+        }
+        log.debug("Bound saga step {} of contract {}", stepName, contractId);
+    }
+
+    /**
+     * Returns the plan of the contract, compiling it on first use or after the contract changed.
+     */
+    public SagaPlan resolvePlan(String contractId) {
+        return compiledSaga(contractId).plan;
+    }
+
+    /**
+     * The handlers of the given plan, indexed by step ordinal, for running it without step
+     * objects. The array is shared and must not be modified.
+     *
+     * @throws SagaExecutionException if a step has no handler bound
+     */
+    SagaStepHandler<?>[] handlers(SagaPlan plan) {
+        CompiledSaga saga = compiled.get(plan.getContractId());
+        // A plan replaced since it was resolved keeps the handlers bound to its own steps
+        SagaStepHandler<?>[] handlers = saga != null && saga.plan == plan ? saga.handlers : resolve(plan).handlers;
+        for (SagaPlanStep step : plan.getSteps()) {
+            if (handlers[step.getIndex()] == null) {
+                throw new SagaExecutionException("No handler bound for saga step " + step.getStepName()
+                        + " of contract " + plan.getContractId());
+            }
+        }
+        return handlers;
+    }
+
+    public <T> List<SagaStep> instantiate(String contractId, T payload) {
+        return instantiate(contractId, payload, null, null);
+    }
+
+    /**
+     * Creates the steps of one saga execution from the cached plan. Only the per-execution state
+     * is allocated; parsing, validation and handler lookup happened at compile and bind time.
+     * When an instance is given, step transitions are recorded in its slots.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<SagaStep> instantiate(String contractId, T payload,
+                                          SagaInstanceStore store, SagaInstance instance) {
+        CompiledSaga saga = compiledSaga(contractId);
+        List<SagaPlanStep> planSteps = saga.plan.getSteps();
+
+        List<SagaStep> steps = new ArrayList<>(planSteps.size());
+        for (int i = 0; i < planSteps.size(); i++) {
+            SagaPlanStep planStep = planSteps.get(i);
+            SagaStepHandler<T> handler = (SagaStepHandler<T>) saga.handlers[i];
+            if (handler == null) {
+                throw new SagaExecutionException(
+                        "No handler bound for saga step " + planStep.getStepName() + " of contract " + contractId);
+            }
+
+            int ordinal = planStep.getIndex();
+            SagaStep.SagaStepBuilder step = SagaStep.builder()
+                    .stepId(planStep.getStepId())
+                    .stepName(planStep.getStepName());
+
+            if (instance == null) {
+                step.action(() -> handler.execute(payload))
+                        .compensation(() -> handler.compensate(payload));
+            } else {
+                step.action(() -> {
+                            instance.setStepState(ordinal, SagaStepState.STARTED);
+                            try {
+                                handler.execute(payload);
+                            } catch (RuntimeException e) {
+                                instance.setStepState(ordinal, SagaStepState.FAILED);
+                                throw e;
+                            }
+                            instance.setStepState(ordinal, SagaStepState.COMPLETED);
+                        })
+                        .compensation(() -> {
+                            handler.compensate(payload);
+                            store.stepCompensated(instance, ordinal);
+                        });
+            }
+            steps.add(step.build());
+        }
+        return steps;
+    }
+
+    private CompiledSaga compiledSaga(String contractId) {
+        CompiledSaga saga = compiled.get(contractId);
+        Optional<ConsistencyContract> contract = contractRepository.findById(contractId);
+
+        // Reuse the plan unless the contract was replaced since it was compiled
+        if (saga != null && (contract.isEmpty()
+                || Objects.equals(saga.plan.getContractHash(), contract.get().getContractHash()))) {
+            return saga;
+        }
+
+        compile(contract.orElseThrow(() -> new SagaExecutionException("Unknown contract: " + contractId)));
+        return compiled.get(contractId);
+    }
+
+    private CompiledSaga resolve(SagaPlan plan) {
+        Map<String, SagaStepHandler<?>> bound = bindings.getOrDefault(plan.getContractId(), Map.of());
+
+        SagaStepHandler<?>[] handlers = new SagaStepHandler<?>[plan.getSteps().size()];
+        for (SagaPlanStep step : plan.getSteps()) {
+            handlers[step.getIndex()] = bound.get(step.getStepName());
+        }
+        return new CompiledSaga(plan, handlers);
+    }
+
+    private static class CompiledSaga {
+        private final SagaPlan plan;
+        private final SagaStepHandler<?>[] handlers;
+
+        private CompiledSaga(SagaPlan plan, SagaStepHandler<?>[] handlers) {
+            this.plan = plan;
+            this.handlers = handlers;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package ccf.ccf.enforcement;
+
+import ccf.ccf.enforcement.model.SagaLogRecord;
+import ccf.ccf.enforcement.model.SagaLogRecordType;
+import ccf.ccf.exception.SagaExecutionException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Replays the saga log at startup and finishes every saga a crash left unfinished.
+ * Services register a step factory per saga name so the actions and compensations,
+ * which cannot be persisted, can be rebuilt. The factory gets the saga's SAGA_STARTED record,
+ * which carries its id and the serialized payload the steps act on.
+ * <p>
+ * Recovery runs as a lifecycle phase ahead of the web server and the Kafka listener containers,
+ * so no request or event starts a new saga before the unfinished ones of the log have been dealt
+ * with; sagas started afterwards are never mistaken for crashed ones.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SagaRecovery implements SmartLifecycle {
+
+    // The web server starts in phase Integer.MAX_VALUE - 2048, listener containers in Integer.MAX_VALUE - 100
+    static final int PHASE = TccCoordinator.PHASE;
+
+    public enum Policy {
+        COMPENSATE,  // Undo the completed steps of every unfinished saga
+        RESUME       // Run the remaining steps; sagas already compensating are still compensated
+    }
+
+    private final SagaLog sagaLog;
+    private final SagaOrchestrator sagaOrchestrator;
+    private final CompensationHandler compensationHandler;
+
+    private final Map<String, Function<SagaLogRecord, List<SagaStep>>> definitions = new ConcurrentHashMap<>();
+
+    private volatile boolean running;
+
+    @Value("${ccf.saga.recovery.policy:COMPENSATE}")
+    private Policy policy;
+
+    /**
+     * To be called while the context initializes, e.g. from a {@code @PostConstruct} method:
+     * recovery runs before the context has finished starting.
+     */
+    public void registerDefinition(String sagaName, Function<SagaLogRecord, List<SagaStep>> stepFactory) {
+        definitions.put(sagaName, stepFactory);
+        log.debug("Registered saga definition for recovery: {}", sagaName);
+    }
+
+    @Override
+    public void start() {
+        recover();
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    public int recover() {
+        Map<String, List<SagaLogRecord>> recordsBySaga = new LinkedHashMap<>();
+        for (SagaLogRecord record : sagaLog.readAll()) {
+            recordsBySaga.computeIfAbsent(record.getSagaId(), k -> new ArrayList<>()).add(record);
+        }
+
+        int recovered = 0;
+
+        for (Map.Entry<String, List<SagaLogRecord>> entry : recordsBySaga.entrySet()) {
+            // TCC transactions are recovered by the TccCoordinator
+            if (entry.getValue().stream().anyMatch(SagaLogRecord::isTerminal)
+                    || entry.getValue().get(0).getType().isTcc()) {
+                continue;
+            }
+
+            try {
+                if (recoverSaga(entry.getKey(), entry.getValue())) {
+                    recovered++;
+                }
+            } catch (Exception e) {
+                log.error("Failed to recover saga {}: {}", entry.getKey(), e.getMessage(), e);
+            }
+        }
+
+        // Re-read instead of trusting the loop: a resumed saga may have parked its compensations
+        Set<String> finished = new HashSet<>();
+        for (SagaLogRecord record : sagaLog.readAll()) {
+            if (record.isTerminal()) {
+                finished.add(record.getSagaId());
+            }
+        }
+
+        if (!finished.isEmpty()) {
+            sagaLog.compact(finished);
+        }
+
+        log.info("Saga recovery completed: {} recovered, {} still unfinished",
+                recovered, recordsBySaga.entrySet().stream()
+                        .filter(entry -> !entry.getValue().get(0).getType().isTcc())
+                        .filter(entry -> !finished.contains(entry.getKey()))
+                        .count());
+        return recovered;
+    }
+
+    private boolean recoverSaga(String sagaId, List<SagaLogRecord> records) {
+        String sagaName = records.get(0).getSagaName();
+        Function<SagaLogRecord, List<SagaStep>> definition = sagaName == null ? null : definitions.get(sagaName);
+
+        if (definition == null) {
+            log.error("Cannot recover saga {}: no definition registered for '{}'", sagaId, sagaName);
+            return false;
+        }
+
+        Set<String> completed = new HashSet<>();
+        Set<String> compensated = new HashSet<>();
+        boolean compensating = false;
+
+        for (SagaLogRecord record : records) {
+            switch (record.getType()) {
+                case STEP_COMPLETED -> completed.add(record.getStepName());
+                case STEP_COMPENSATED -> compensated.add(record.getStepName());
+                case SAGA_COMPENSATING -> compensating = true;
+                default -> { }
+            }
+        }
+
+        SagaLogRecord started = records.stream()
+                .filter(record -> record.getType() == SagaLogRecordType.SAGA_STARTED)
+                .findFirst()
+                .orElse(records.get(0));
+        List<SagaStep> steps = definition.apply(started);
+
+        if (compensating || policy == Policy.COMPENSATE) {
+            log.warn("Compensating unfinished saga {} ({}), completed steps: {}", sagaId, sagaName, completed);
+
+            // A step that started but never completed is not compensated: its outcome is unknown
+            List<SagaStep> toCompensate = new ArrayList<>();
+            for (SagaStep step : steps) {
+                if (completed.contains(step.getStepName()) && !compensated.contains(step.getStepName())) {
+                    step.setExecuted(true);
+                    toCompensate.add(step);
+                }
+            }
+
+            if (!compensating) {
+                sagaLog.append(SagaLogRecord.of(SagaLogRecordType.SAGA_COMPENSATING, sagaId, sagaName, -1, null));
+            }
+            if (!compensationHandler.compensate(sagaId, sagaName, toCompensate)) {
+                log.warn("Saga {} has parked compensations and stays unfinished", sagaId);
+                return false;
+            }
+            sagaLog.append(SagaLogRecord.of(SagaLogRecordType.SAGA_ABORTED, sagaId, sagaName, -1, null));
+            return true;
+        }
+
+        log.warn("Resuming unfinished saga {} ({}), completed steps: {}", sagaId, sagaName, completed);
+        try {
+            sagaOrchestrator.resumeSaga(sagaId, sagaName, steps, completed);
+        } catch (SagaExecutionException e) {
+            // The orchestrator has already compensated and logged the abort
+            log.warn("Resumed saga {} failed and was compensated", sagaId);
+        }
+        return true;
+    }
+}
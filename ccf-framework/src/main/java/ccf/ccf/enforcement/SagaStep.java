@@ -5,6 +5,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
 import java.util.function.Consumer;
 
 @Data
@@ -18,6 +19,8 @@ public class SagaStep {
     private Runnable action;
     private Runnable compensation;
     private int timeoutSeconds;
+    // Names of steps that must complete first; null means the previous step, empty means none
+    private List<String> dependsOn;
     private boolean executed;
     private boolean compensated;
 }
\ No newline at end of file
@@ -0,0 +1,14 @@
+package ccf.ccf.enforcement;
+
+/**
+ * Action and compensation of one saga step, bound once by step name and invoked with the
+ * payload of every saga execution.
+ */
+public interface SagaStepHandler<T> {
+
+    void execute(T payload);
+
+    default void compensate(T payload) {
+        // No compensation by default
+    }
+}
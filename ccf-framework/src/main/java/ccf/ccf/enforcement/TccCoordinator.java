@@ -0,0 +1,320 @@
+package ccf.ccf.enforcement;
+
+import ccf.ccf.enforcement.model.SagaLogRecord;
+import ccf.ccf.enforcement.model.SagaLogRecordType;
+import ccf.ccf.exception.SagaExecutionException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * Try-Confirm-Cancel coordinator for STRONG contracts. All participants reserve in parallel;
+ * if every try succeeds the decision to confirm is logged and all confirm in parallel, otherwise
+ * all cancel in parallel. That is two parallel round trips instead of one serialized round trip
+ * per saga step, and no other transaction observes a half-applied outcome.
+ * <p>
+ * Every phase is written to the {@link SagaLog}. After a crash, transactions with a logged
+ * confirm decision are confirmed again, and all others are cancelled (presumed abort). Recovery
+ * runs as a lifecycle phase before the web server and the listener containers start, so every
+ * unfinished transaction it finds belongs to an earlier process, never to one still trying.
+ */
+@Slf4j
+@Component
+public class TccCoordinator implements SmartLifecycle {
+
+    // The web server starts in phase Integer.MAX_VALUE - 2048, listener containers in Integer.MAX_VALUE - 100
+    static final int PHASE = Integer.MAX_VALUE - 4096;
+
+    private final SagaLog sagaLog;
+    private final ExecutorService sagaStepExecutor;
+    private final MeterRegistry meterRegistry;
+    private final int tryTimeoutSeconds;
+    private final int maxAttempts;
+    private final long backoffMillis;
+
+    // Contract id -> participants, in registration order
+    private final Map<String, List<TccParticipant<?>>> participants = new ConcurrentHashMap<>();
+
+    private volatile boolean running;
+
+    public TccCoordinator(SagaLog sagaLog,
+                          ExecutorService sagaStepExecutor,
+                          ObjectProvider<MeterRegistry> meterRegistry,
+                          @Value("${ccf.tcc.try-timeout-seconds:10}") int tryTimeoutSeconds,
+                          @Value("${ccf.tcc.max-attempts:5}") int maxAttempts,
+                          @Value("${ccf.tcc.backoff-ms:200}") long backoffMillis) {
+        this.sagaLog = sagaLog;
+        this.sagaStepExecutor = sagaStepExecutor;
+        this.meterRegistry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+        this.tryTimeoutSeconds = tryTimeoutSeconds;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMillis = backoffMillis;
+    }
+
+    /**
+     * To be called while the context initializes, e.g. from a {@code @PostConstruct} method, so
+     * the participant is known to recovery.
+     */
+    public void registerParticipant(String contractId, TccParticipant<?> participant) {
+        participants.computeIfAbsent(contractId, k -> new CopyOnWriteArrayList<>()).add(participant);
+        log.debug("Registered TCC participant {} for contract {}", participant.getName(), contractId);
+    }
+
+    public boolean hasParticipants(String contractId) {
+        return !participants.getOrDefault(contractId, List.of()).isEmpty();
+    }
+
+    /**
+     * Runs the transaction across the contract's participants and returns once the outcome is
+     * applied everywhere it could be.
+     *
+     * @throws SagaExecutionException when the transaction was cancelled
+     */
+    @SuppressWarnings("unchecked")
+    public <T> SagaContext execute(String transactionId, String contractId, T payload) {
+        List<TccParticipant<?>> parties = participants.getOrDefault(contractId, List.of());
+        if (parties.isEmpty()) {
+            throw new SagaExecutionException("No TCC participants registered for contract " + contractId);
+        }
+
+        log.info("Starting TCC transaction {} with {} participants", transactionId, parties.size());
+        long start = System.nanoTime();
+
+        // Write-ahead: recovery must know every participant that may hold a reservation
+        List<CompletableFuture<Void>> intents = new ArrayList<>();
+        for (int i = 0; i < parties.size(); i++) {
+            intents.add(sagaLog.appendAsync(SagaLogRecord.of(
+                    SagaLogRecordType.TCC_TRYING, transactionId, contractId, i, parties.get(i).getName())));
+        }
+        CompletableFuture.allOf(intents.toArray(CompletableFuture[]::new)).join();
+
+        List<Future<?>> tries = new ArrayList<>();
+        for (TccParticipant<?> participant : parties) {
+            TccParticipant<T> party = (TccParticipant<T>) participant;
+            tries.add(sagaStepExecutor.submit(() -> party.tryReserve(transactionId, payload)));
+        }
+
+        // One deadline for all tries, since they run in parallel
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(tryTimeoutSeconds);
+        Throwable failure = null;
+        for (int i = 0; i < tries.size(); i++) {
+            try {
+                tries.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (ExecutionException e) {
+                log.warn("TCC try failed on {} for transaction {}: {}",
+                        parties.get(i).getName(), transactionId, e.getCause().getMessage());
+                failure = failure != null ? failure : e.getCause();
+            } catch (TimeoutException e) {
+                // Stop the reservation; the cancel below releases whatever it already holds
+                tries.get(i).cancel(true);
+                log.warn("TCC try timed out on {} for transaction {} after {}s",
+                        parties.get(i).getName(), transactionId, tryTimeoutSeconds);
+                failure = failure != null ? failure : e;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                tries.forEach(pending -> pending.cancel(true));
+                failure = failure != null ? failure : e;
+                break;
+            }
+        }
+
+        boolean confirm = failure == null;
+        if (!logDecision(transactionId, contractId, confirm) && confirm) {
+            // Without a logged confirm decision recovery presumes abort, so cancel now to agree with it
+            failure = new SagaExecutionException("Could not log the confirm decision of TCC transaction " + transactionId);
+            confirm = false;
+            logDecision(transactionId, contractId, false);
+        }
+        finish(transactionId, contractId, parties, confirm);
+
+        Timer.builder("ccf.tcc.duration")
+                .tag("contract", contractId)
+                .tag("outcome", confirm ? "confirmed" : "cancelled")
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        if (!confirm) {
+            throw new SagaExecutionException("TCC transaction " + transactionId + " cancelled", failure);
+        }
+
+        SagaContext context = new SagaContext();
+        context.setSagaId(transactionId);
+        context.setCompleted(true);
+        log.info("TCC transaction {} confirmed", transactionId);
+        return context;
+    }
+
+    @Override
+    public void start() {
+        recover();
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    public int recover() {
+        Map<String, List<SagaLogRecord>> recordsByTransaction = new LinkedHashMap<>();
+        for (SagaLogRecord record : sagaLog.readAll()) {
+            if (record.getType().isTcc()) {
+                recordsByTransaction.computeIfAbsent(record.getSagaId(), k -> new ArrayList<>()).add(record);
+            }
+        }
+
+        Set<String> finished = new HashSet<>();
+        int recovered = 0;
+
+        for (Map.Entry<String, List<SagaLogRecord>> entry : recordsByTransaction.entrySet()) {
+            List<SagaLogRecord> records = entry.getValue();
+            if (records.stream().anyMatch(SagaLogRecord::isTerminal)) {
+                finished.add(entry.getKey());
+                continue;
+            }
+
+            String contractId = records.get(0).getSagaName();
+            List<TccParticipant<?>> parties = new ArrayList<>();
+            boolean confirm = false;
+            boolean resolvable = true;
+
+            for (SagaLogRecord record : records) {
+                // The last decision counts: a confirm whose logging timed out is followed by a cancel
+                if (record.getType() == SagaLogRecordType.TCC_CONFIRMING) {
+                    confirm = true;
+                } else if (record.getType() == SagaLogRecordType.TCC_CANCELLING) {
+                    confirm = false;
+                } else if (record.getType() == SagaLogRecordType.TCC_TRYING) {
+                    TccParticipant<?> participant = findParticipant(contractId, record.getStepName());
+                    if (participant == null) {
+                        log.error("Cannot recover TCC transaction {}: participant {} is not registered",
+                                entry.getKey(), record.getStepName());
+                        resolvable = false;
+                    } else {
+                        parties.add(participant);
+                    }
+                }
+            }
+
+            if (resolvable) {
+                log.warn("Recovering TCC transaction {} by {}", entry.getKey(), confirm ? "confirming" : "cancelling");
+                if (!confirm) {
+                    logDecision(entry.getKey(), contractId, false);
+                }
+                if (finish(entry.getKey(), contractId, parties, confirm)) {
+                    finished.add(entry.getKey());
+                    recovered++;
+                }
+            }
+        }
+
+        if (!finished.isEmpty()) {
+            sagaLog.compact(finished);
+        }
+        log.info("TCC recovery completed: {} recovered, {} still unfinished",
+                recovered, recordsByTransaction.size() - finished.size());
+        return recovered;
+    }
+
+    /**
+     * @return {@code false} when the decision could not be logged
+     */
+    private boolean logDecision(String transactionId, String contractId, boolean confirm) {
+        try {
+            sagaLog.append(SagaLogRecord.of(confirm ? SagaLogRecordType.TCC_CONFIRMING : SagaLogRecordType.TCC_CANCELLING,
+                    transactionId, contractId, -1, null));
+            return true;
+        } catch (RuntimeException e) {
+            log.error("Could not log the {} decision of TCC transaction {}: {}",
+                    confirm ? "confirm" : "cancel", transactionId, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Drives the logged decision on every participant in parallel.
+     *
+     * @return {@code true} when every participant applied it; otherwise the transaction stays
+     * unfinished in the log and is retried by the next recovery
+     */
+    private boolean finish(String transactionId, String contractId, List<TccParticipant<?>> parties, boolean confirm) {
+        List<CompletableFuture<Boolean>> phases = new ArrayList<>();
+        for (TccParticipant<?> participant : parties) {
+            Consumer<String> phase = confirm ? participant::confirm : participant::cancel;
+            phases.add(attempt(transactionId, participant.getName(), phase, 1, sagaStepExecutor));
+        }
+
+        boolean applied = phases.stream().allMatch(CompletableFuture::join);
+        if (applied) {
+            sagaLog.append(SagaLogRecord.of(confirm ? SagaLogRecordType.TCC_CONFIRMED : SagaLogRecordType.TCC_CANCELLED,
+                    transactionId, contractId, -1, null));
+        } else {
+            log.error("TCC transaction {} left unfinished: not every participant could {}",
+                    transactionId, confirm ? "confirm" : "cancel");
+        }
+        return applied;
+    }
+
+    // Confirm and cancel must eventually succeed, so they are retried with a linear backoff
+    private CompletableFuture<Boolean> attempt(String transactionId, String participantName,
+                                               Consumer<String> phase, int attempt, Executor executor) {
+        return CompletableFuture.runAsync(() -> phase.accept(transactionId), executor)
+                .handle((v, error) -> {
+                    if (error == null) {
+                        return CompletableFuture.completedFuture(true);
+                    }
+
+                    log.warn("TCC phase failed on {} for transaction {} (attempt {}/{}): {}",
+                            participantName, transactionId, attempt, maxAttempts, error.getMessage());
+                    if (attempt >= maxAttempts) {
+                        return CompletableFuture.completedFuture(false);
+                    }
+
+                    Executor delayed = CompletableFuture.delayedExecutor(
+                            backoffMillis * attempt, TimeUnit.MILLISECONDS, sagaStepExecutor);
+                    return attempt(transactionId, participantName, phase, attempt + 1, delayed);
+                })
+                .thenCompose(result -> result);
+    }
+
+    private TccParticipant<?> findParticipant(String contractId, String name) {
+        for (TccParticipant<?> participant : participants.getOrDefault(contractId, List.of())) {
+            if (participant.getName().equals(name)) {
+                return participant;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,20 @@
+package ccf.ccf.enforcement;
+
+/**
+ * Party of a Try-Confirm-Cancel transaction. Confirm and cancel only get the transaction id:
+ * the coordinator may resend them after a crash without the payload. So every phase must be
+ * idempotent per transaction id, and a cancel may arrive for a try that never ran.
+ */
+public interface TccParticipant<T> {
+
+    String getName();
+
+    /**
+     * Reserves the resources for the transaction, without making the effect visible yet.
+     */
+    void tryReserve(String transactionId, T payload);
+
+    void confirm(String transactionId);
+
+    void cancel(String transactionId);
+}
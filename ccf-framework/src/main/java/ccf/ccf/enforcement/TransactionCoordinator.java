@@ -1,11 +1,17 @@
 package ccf.ccf.enforcement;
 
+import ccf.ccf.enforcement.model.SagaPlan;
+import ccf.ccf.exception.SagaExecutionException;
+import ccf.ccf.specification.ContractRepository;
+import ccf.ccf.specification.model.ConsistencyLevel;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
 @Slf4j
 @Component
@@ -13,26 +19,109 @@ import java.util.List;
 public class TransactionCoordinator {
 
     private final SagaOrchestrator sagaOrchestrator;
+    private final SagaPlanCompiler sagaPlanCompiler;
+    private final SagaInstanceStore sagaInstanceStore;
+    private final TccCoordinator tccCoordinator;
+    private final ContractRepository contractRepository;
+    private final SagaRecovery sagaRecovery;
+    private final ObjectMapper objectMapper;
 
-    public void coordinateTransaction(String transactionId, List<SagaStep> steps) {
+    public <T> SagaContext coordinateTransaction(String transactionId, String contractId, T payload) {
+        return coordinateTransaction(transactionId, contractId, payload, null);
+    }
+
+    /**
+     * Runs the SAGA block of a contract for one payload, using the handlers bound through
+     * {@link SagaPlanCompiler#bind}. While it runs, the saga can be looked up in the
+     * {@link SagaInstanceStore} by its id or by the correlation key.
+     * STRONG contracts with registered TCC participants run as a Try-Confirm-Cancel transaction instead.
+     */
+    public <T> SagaContext coordinateTransaction(String transactionId, String contractId, T payload,
+                                                 String correlationKey) {
+        if (isStrong(contractId) && tccCoordinator.hasParticipants(contractId)) {
+            log.info("Coordinating transaction {} with TCC", transactionId);
+            return tccCoordinator.execute(transactionId, contractId, payload);
+        }
+
+        // The instance's slots and the plan's handlers are all a running saga holds; step objects
+        // are only built to compensate
+        SagaPlan plan = sagaPlanCompiler.resolvePlan(contractId);
+        SagaStepHandler<?>[] handlers = sagaPlanCompiler.handlers(plan);
+        String loggedPayload = serialize(contractId, payload);
+        SagaInstance instance = sagaInstanceStore.create(UUID.randomUUID().toString(), plan, correlationKey, payload);
+
+        log.info("Coordinating transaction: {}", transactionId);
+        try {
+            SagaContext context = sagaOrchestrator.executePlan(instance, handlers, loggedPayload,
+                    () -> sagaPlanCompiler.instantiate(contractId, payload, sagaInstanceStore, instance));
+            sagaInstanceStore.remove(instance);
+            log.info("Transaction completed successfully: {}", transactionId);
+            return context;
+        } catch (RuntimeException e) {
+            log.error("Transaction coordination failed: {}", e.getMessage());
+            sagaInstanceStore.sagaFailed(instance);
+            throw e;
+        }
+    }
+
+    public SagaContext coordinateTransaction(String transactionId, List<SagaStep> steps) {
+        return coordinate(transactionId, UUID.randomUUID().toString(), steps);
+    }
+
+    /**
+     * Lets {@link SagaRecovery} rebuild the contract's sagas after a crash from their logged
+     * payloads, read back as the given type. Call it while the context initializes, after the
+     * handlers are bound.
+     */
+    public <T> void registerRecovery(String contractId, Class<T> payloadType) {
+        SagaPlan plan = sagaPlanCompiler.resolvePlan(contractId);
+        sagaRecovery.registerDefinition(plan.getSagaName(), started -> {
+            if (started.getPayload() == null) {
+                throw new SagaExecutionException("Saga " + started.getSagaId() + " has no logged payload");
+            }
+            try {
+                return sagaPlanCompiler.instantiate(contractId, objectMapper.readValue(started.getPayload(), payloadType));
+            } catch (JsonProcessingException e) {
+                throw new SagaExecutionException("Cannot read the payload of saga " + started.getSagaId(), e);
+            }
+        });
+    }
+
+    public <T> List<SagaStep> buildSteps(String contractId, T payload) {
+        return sagaPlanCompiler.instantiate(contractId, payload);
+    }
+
+    private boolean isStrong(String contractId) {
+        return contractRepository.findById(contractId)
+                .map(contract -> contract.getConsistencyLevel() == ConsistencyLevel.STRONG)
+                .orElse(false);
+    }
+
+    // Logged with the start of the saga, so recovery can rebuild its steps
+    private String serialize(String contractId, Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new SagaExecutionException("Cannot serialize the saga payload of contract " + contractId, e);
+        }
+    }
+
+    private SagaContext coordinate(String transactionId, String sagaId, List<SagaStep> steps) {
         log.info("Coordinating transaction: {}", transactionId);
 
         try {
-            SagaContext context = sagaOrchestrator.executeSaga(steps);
+            SagaContext context = sagaOrchestrator.executeSaga(sagaId, null, steps);
 
             if (context.isCompleted()) {
                 log.info("Transaction completed successfully: {}", transactionId);
             } else {
                 log.warn("Transaction not completed: {}", transactionId);
             }
+            return context;
 
         } catch (Exception e) {
             log.error("Transaction coordination failed: {}", e.getMessage());
             throw e;
         }
     }
-
-    public List<SagaStep> buildSteps() {
-        return new ArrayList<>();
-    }
-}
\ No newline at end of file
+}
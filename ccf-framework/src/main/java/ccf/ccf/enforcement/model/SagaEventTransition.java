@@ -0,0 +1,17 @@
+package ccf.ccf.enforcement.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SagaEventTransition {
+    private String eventType;
+    private String stepName;
+    // COMPLETED advances the saga, FAILED compensates its completed steps
+    private SagaStepState outcome;
+}
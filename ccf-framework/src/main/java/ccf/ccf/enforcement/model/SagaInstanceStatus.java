@@ -0,0 +1,6 @@
+package ccf.ccf.enforcement.model;
+
+public enum SagaInstanceStatus {
+    RUNNING,
+    COMPENSATING  // Failed with compensations still parked for retry
+}
@@ -0,0 +1,36 @@
+package ccf.ccf.enforcement.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SagaLogRecord {
+    private SagaLogRecordType type;
+    private String sagaId;
+    private String sagaName;
+    private int stepIndex;
+    private String stepName;
+    private long timestamp;
+    // The serialized saga payload, on SAGA_STARTED records only, so recovery can rebuild the steps
+    private String payload;
+
+    public static SagaLogRecord of(SagaLogRecordType type, String sagaId, String sagaName,
+                                   int stepIndex, String stepName) {
+        return new SagaLogRecord(type, sagaId, sagaName, stepIndex, stepName, System.currentTimeMillis(), null);
+    }
+
+    public static SagaLogRecord started(String sagaId, String sagaName, String payload) {
+        return new SagaLogRecord(SagaLogRecordType.SAGA_STARTED, sagaId, sagaName, -1, null,
+                System.currentTimeMillis(), payload);
+    }
+
+    public boolean isTerminal() {
+        return type == SagaLogRecordType.SAGA_COMPLETED || type == SagaLogRecordType.SAGA_ABORTED
+                || type == SagaLogRecordType.TCC_CONFIRMED || type == SagaLogRecordType.TCC_CANCELLED;
+    }
+}
@@ -0,0 +1,20 @@
+package ccf.ccf.enforcement.model;
+
+public enum SagaLogRecordType {
+    SAGA_STARTED,
+    STEP_STARTED,
+    STEP_COMPLETED,
+    SAGA_COMPENSATING,
+    STEP_COMPENSATED,
+    SAGA_COMPLETED,   // All steps ran
+    SAGA_ABORTED,     // Compensation finished
+    TCC_TRYING,       // One per participant, before the try phase
+    TCC_CONFIRMING,   // Commit decision: every participant reserved
+    TCC_CANCELLING,   // Abort decision
+    TCC_CONFIRMED,    // Every participant confirmed
+    TCC_CANCELLED;    // Every participant cancelled
+
+    public boolean isTcc() {
+        return name().startsWith("TCC_");
+    }
+}
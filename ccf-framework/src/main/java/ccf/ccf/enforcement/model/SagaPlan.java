@@ -0,0 +1,31 @@
+package ccf.ccf.enforcement.model;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compiled SAGA block. Plans are cached and shared by every execution of the contract, so
+ * they are immutable, including their collections.
+ */
+@Value
+public class SagaPlan {
+    String contractId;
+    String contractHash;
+    String sagaName;
+    List<SagaPlanStep> steps;
+    // Step name -> index into steps
+    Map<String, Integer> stepIndexes;
+
+    @Builder
+    private SagaPlan(String contractId, String contractHash, String sagaName,
+                     List<SagaPlanStep> steps, Map<String, Integer> stepIndexes) {
+        this.contractId = contractId;
+        this.contractHash = contractHash;
+        this.sagaName = sagaName;
+        this.steps = steps == null ? List.of() : List.copyOf(steps);
+        this.stepIndexes = stepIndexes == null ? Map.of() : Map.copyOf(stepIndexes);
+    }
+}
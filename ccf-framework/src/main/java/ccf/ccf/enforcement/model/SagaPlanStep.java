@@ -0,0 +1,14 @@
+package ccf.ccf.enforcement.model;
+
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class SagaPlanStep {
+    int index;
+    String stepId;
+    String stepName;
+    // Name from the optional COMPENSATE clause, documentation only; handlers are bound by step name
+    String compensationName;
+}
@@ -0,0 +1,9 @@
+package ccf.ccf.enforcement.model;
+
+public enum SagaStepState {
+    PENDING,
+    STARTED,
+    COMPLETED,
+    FAILED,
+    COMPENSATED
+}
@@ -0,0 +1,280 @@
+package ccf.ccf.mapping;
+
+import ccf.ccf.mapping.model.ConsistencySwitch;
+import ccf.ccf.specification.model.ConsistencyContract;
+import ccf.ccf.specification.model.ConsistencyLevel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Picks the level read operations run at, per contract, from the load they observe. Every
+ * evaluation window the average latency, the rate of serialization failures and deadlocks,
+ * and the rate of lock-wait timeouts are compared to their thresholds. Under pressure reads
+ * step down one level, never below the contract's READ_CONSISTENCY floor; after several
+ * calm windows they step back up towards its ceiling. Writes keep the contract's level.
+ * <p>
+ * Every switch is logged, kept in a bounded history, and counted in
+ * {@code ccf.consistency.switches}; the current read level of each contract is exported as
+ * the {@code ccf.consistency.read.level} gauge (its strength, 0 = EVENTUAL to 3 = STRONG).
+ */
+@Slf4j
+@Component
+public class AdaptiveConsistencyController {
+
+    private static final String SERIALIZATION_FAILURE = "40001";
+    private static final String DEADLOCK_DETECTED = "40P01";
+    private static final String LOCK_NOT_AVAILABLE = "55P03";
+
+    private final MeterRegistry meterRegistry;
+    private final ScheduledExecutorService scheduler;
+    private final boolean enabled;
+    private final int minSamples;
+    private final double latencyThresholdMillis;
+    private final double conflictRateThreshold;
+    private final double lockWaitRateThreshold;
+    private final int recoveryWindows;
+    private final int historySize;
+
+    private final Map<String, ContractLoad> loads = new ConcurrentHashMap<>();
+    private final Deque<ConsistencySwitch> history = new ArrayDeque<>();
+
+    public AdaptiveConsistencyController(ObjectProvider<MeterRegistry> meterRegistry,
+                                         @Value("${ccf.consistency.adaptive.enabled:true}") boolean enabled,
+                                         @Value("${ccf.consistency.adaptive.evaluation-interval-ms:5000}") long intervalMillis,
+                                         @Value("${ccf.consistency.adaptive.min-samples:20}") int minSamples,
+                                         @Value("${ccf.consistency.adaptive.latency-threshold-ms:500}") double latencyThresholdMillis,
+                                         @Value("${ccf.consistency.adaptive.conflict-rate-threshold:0.05}") double conflictRateThreshold,
+                                         @Value("${ccf.consistency.adaptive.lock-wait-rate-threshold:0.05}") double lockWaitRateThreshold,
+                                         @Value("${ccf.consistency.adaptive.recovery-windows:3}") int recoveryWindows,
+                                         @Value("${ccf.consistency.adaptive.history-size:100}") int historySize) {
+        this.meterRegistry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+        this.enabled = enabled;
+        this.minSamples = minSamples;
+        this.latencyThresholdMillis = latencyThresholdMillis;
+        this.conflictRateThreshold = conflictRateThreshold;
+        this.lockWaitRateThreshold = lockWaitRateThreshold;
+        this.recoveryWindows = Math.max(1, recoveryWindows);
+        this.historySize = historySize;
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ccf-adaptive-consistency");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (enabled) {
+            this.scheduler.scheduleWithFixedDelay(this::evaluate, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public ConsistencyLevel getReadLevel(ConsistencyContract contract) {
+        if (!enabled) {
+            return ceiling(contract);
+        }
+        return load(contract).readLevel;
+    }
+
+    /**
+     * Records one monitored operation of the contract.
+     *
+     * @param failure the exception it ended with, or {@code null}
+     */
+    public void record(ConsistencyContract contract, long durationNanos, Throwable failure) {
+        if (!enabled) {
+            return;
+        }
+
+        ContractLoad load = load(contract);
+        load.calls.increment();
+        load.latencyNanos.add(durationNanos);
+
+        String sqlState = findSqlState(failure);
+        if (SERIALIZATION_FAILURE.equals(sqlState) || DEADLOCK_DETECTED.equals(sqlState)) {
+            load.conflicts.increment();
+        } else if (LOCK_NOT_AVAILABLE.equals(sqlState)) {
+            load.lockWaits.increment();
+        }
+    }
+
+    /**
+     * Whether the failure is a serialization failure or deadlock, which the database resolves by
+     * rolling the transaction back; rerunning it from the start may succeed.
+     */
+    public static boolean isConflict(Throwable failure) {
+        String sqlState = findSqlState(failure);
+        return SERIALIZATION_FAILURE.equals(sqlState) || DEADLOCK_DETECTED.equals(sqlState);
+    }
+
+    public List<ConsistencySwitch> getSwitchHistory() {
+        synchronized (history) {
+            return new ArrayList<>(history);
+        }
+    }
+
+    void evaluate() {
+        for (ContractLoad load : loads.values()) {
+            try {
+                evaluate(load);
+            } catch (Exception e) {
+                log.error("Failed to evaluate load of contract {}: {}", load.contractId, e.getMessage());
+            }
+        }
+    }
+
+    private void evaluate(ContractLoad load) {
+        long calls = load.calls.sumThenReset();
+        long latencyNanos = load.latencyNanos.sumThenReset();
+        long conflicts = load.conflicts.sumThenReset();
+        long lockWaits = load.lockWaits.sumThenReset();
+
+        double averageLatencyMillis = calls == 0 ? 0 : latencyNanos / 1_000_000.0 / calls;
+        double conflictRate = calls == 0 ? 0 : (double) conflicts / calls;
+        double lockWaitRate = calls == 0 ? 0 : (double) lockWaits / calls;
+
+        // Too few operations to judge; low traffic is no pressure
+        String pressure = calls < minSamples ? null
+                : averageLatencyMillis > latencyThresholdMillis ? "latency"
+                : conflictRate > conflictRateThreshold ? "serialization-failures"
+                : lockWaitRate > lockWaitRateThreshold ? "lock-waits"
+                : null;
+
+        if (pressure != null) {
+            load.calmWindows = 0;
+            if (load.floor.isWeakerThan(load.readLevel)) {
+                switchLevel(load, load.readLevel.weaker(), pressure, averageLatencyMillis, conflictRate, lockWaitRate);
+            }
+            return;
+        }
+
+        // Recover only well below the thresholds, so the level does not flap around them
+        boolean calm = averageLatencyMillis <= latencyThresholdMillis / 2
+                && conflictRate <= conflictRateThreshold / 2
+                && lockWaitRate <= lockWaitRateThreshold / 2;
+        if (!calm) {
+            load.calmWindows = 0;
+        } else if (++load.calmWindows >= recoveryWindows && load.readLevel.isWeakerThan(load.ceiling)) {
+            load.calmWindows = 0;
+            switchLevel(load, load.readLevel.stronger(), "recovered", averageLatencyMillis, conflictRate, lockWaitRate);
+        }
+    }
+
+    private void switchLevel(ContractLoad load, ConsistencyLevel to, String reason,
+                             double averageLatencyMillis, double conflictRate, double lockWaitRate) {
+        ConsistencyLevel from = load.readLevel;
+        load.readLevel = to;
+
+        ConsistencySwitch change = ConsistencySwitch.builder()
+                .contractId(load.contractId)
+                .from(from)
+                .to(to)
+                .reason(reason)
+                .averageLatencyMillis(averageLatencyMillis)
+                .conflictRate(conflictRate)
+                .lockWaitRate(lockWaitRate)
+                .timestamp(Instant.now())
+                .build();
+        synchronized (history) {
+            history.addLast(change);
+            while (history.size() > historySize) {
+                history.removeFirst();
+            }
+        }
+
+        Counter.builder("ccf.consistency.switches")
+                .tag("contract", load.contractId)
+                .tag("from", from.name())
+                .tag("to", to.name())
+                .register(meterRegistry)
+                .increment();
+        log.warn("Read consistency of contract {} switched {} -> {} ({}: latency {}ms, conflicts {}, lock waits {})",
+                load.contractId, from, to, reason, String.format("%.1f", averageLatencyMillis),
+                String.format("%.3f", conflictRate), String.format("%.3f", lockWaitRate));
+    }
+
+    private ContractLoad load(ConsistencyContract contract) {
+        ContractLoad load = loads.computeIfAbsent(contract.getContractId(), id -> {
+            ContractLoad created = new ContractLoad(id, floor(contract), ceiling(contract));
+            Gauge.builder("ccf.consistency.read.level", created, l -> l.readLevel.getStrength())
+                    .tag("contract", id)
+                    .register(meterRegistry);
+            return created;
+        });
+
+        // A re-registered contract may declare a different range
+        if (load.floor != floor(contract) || load.ceiling != ceiling(contract)) {
+            load.updateRange(floor(contract), ceiling(contract));
+        }
+        return load;
+    }
+
+    private static ConsistencyLevel floor(ConsistencyContract contract) {
+        return Objects.requireNonNullElse(contract.getReadConsistencyFloor(), contract.getConsistencyLevel());
+    }
+
+    private static ConsistencyLevel ceiling(ConsistencyContract contract) {
+        return Objects.requireNonNullElse(contract.getReadConsistencyCeiling(), contract.getConsistencyLevel());
+    }
+
+    private static String findSqlState(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException && sqlException.getSQLState() != null) {
+                return sqlException.getSQLState();
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private static class ContractLoad {
+        private final String contractId;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder latencyNanos = new LongAdder();
+        private final LongAdder conflicts = new LongAdder();
+        private final LongAdder lockWaits = new LongAdder();
+        private volatile ConsistencyLevel floor;
+        private volatile ConsistencyLevel ceiling;
+        private volatile ConsistencyLevel readLevel;
+        // Only touched by the evaluation thread
+        private int calmWindows;
+
+        private ContractLoad(String contractId, ConsistencyLevel floor, ConsistencyLevel ceiling) {
+            this.contractId = contractId;
+            this.floor = floor;
+            this.ceiling = ceiling;
+            this.readLevel = ceiling;
+        }
+
+        private synchronized void updateRange(ConsistencyLevel floor, ConsistencyLevel ceiling) {
+            this.floor = floor;
+            this.ceiling = ceiling;
+            this.readLevel = ceiling;
+        }
+    }
+}
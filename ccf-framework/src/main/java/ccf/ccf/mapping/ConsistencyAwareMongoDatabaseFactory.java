@@ -0,0 +1,82 @@
+package ccf.ccf.mapping;
+
+import ccf.ccf.specification.model.ConsistencyLevel;
+import com.mongodb.ClientSessionOptions;
+import com.mongodb.ReadPreference;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoDatabase;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.support.PersistenceExceptionTranslator;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+
+/**
+ * Returns databases carrying the write and read concern of the consistency level bound to the
+ * current thread. Collections inherit both, so every operation of MongoTemplate and the
+ * repositories is covered without touching the service code. Reads routed after a session token
+ * are bound to the adapter's causally consistent session and prefer secondaries.
+ */
+public class ConsistencyAwareMongoDatabaseFactory implements MongoDatabaseFactory {
+
+    private final MongoDatabaseFactory delegate;
+    private final MongoDBAdapter adapter;
+
+    public ConsistencyAwareMongoDatabaseFactory(MongoDatabaseFactory delegate, MongoDBAdapter adapter) {
+        this.delegate = delegate;
+        this.adapter = adapter;
+    }
+
+    @Override
+    public MongoDatabase getMongoDatabase() throws DataAccessException {
+        return withConcerns(target().getMongoDatabase());
+    }
+
+    @Override
+    public MongoDatabase getMongoDatabase(String dbName) throws DataAccessException {
+        return withConcerns(target().getMongoDatabase(dbName));
+    }
+
+    @Override
+    public PersistenceExceptionTranslator getExceptionTranslator() {
+        return delegate.getExceptionTranslator();
+    }
+
+    @Override
+    public CodecRegistry getCodecRegistry() {
+        return delegate.getCodecRegistry();
+    }
+
+    @Override
+    public ClientSession getSession(ClientSessionOptions options) {
+        return delegate.getSession(options);
+    }
+
+    @Override
+    public MongoDatabaseFactory withSession(ClientSession session) {
+        return new ConsistencyAwareMongoDatabaseFactory(delegate.withSession(session), adapter);
+    }
+
+    @Override
+    public boolean isTransactionActive() {
+        return delegate.isTransactionActive();
+    }
+
+    private MongoDatabaseFactory target() {
+        ClientSession session = adapter.getReadSession();
+        return session != null ? delegate.withSession(session) : delegate;
+    }
+
+    private MongoDatabase withConcerns(MongoDatabase database) {
+        if (adapter.getReadSession() != null) {
+            database = database.withReadPreference(ReadPreference.secondaryPreferred());
+        }
+
+        ConsistencyLevel level = adapter.getCurrentLevel();
+        if (level == null) {
+            return database;
+        }
+        // Both are cheap immutable copies; inside a transaction the driver uses the transaction's concerns
+        return database.withWriteConcern(adapter.getWriteConcern(level))
+                .withReadConcern(adapter.getReadConcern(level));
+    }
+}
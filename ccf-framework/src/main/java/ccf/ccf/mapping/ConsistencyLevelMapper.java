@@ -1,30 +1,36 @@
 package ccf.ccf.mapping;
 
+import ccf.ccf.mapping.model.DatabaseType;
 import ccf.ccf.specification.model.ConsistencyLevel;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
+import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
 
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class ConsistencyLevelMapper {
 
-    private final PostgreSQLAdapter postgreSQLAdapter;
-    private final MongoDBAdapter mongoDBAdapter;
+    private final Map<DatabaseType, DatabaseAdapter> adapters = new EnumMap<>(DatabaseType.class);
+    // Reads the current thread has routed to a replica so far, kept across clear()
+    private final ThreadLocal<long[]> replicaReads = ThreadLocal.withInitial(() -> new long[1]);
 
-    private final Map<String, DatabaseAdapter> adapters = new HashMap<>();
-
-    public void initialize() {
-        adapters.put("PostgreSQL", postgreSQLAdapter);
-        adapters.put("MongoDB", mongoDBAdapter);
+    // Every DatabaseAdapter bean whose driver is on the classpath
+    public ConsistencyLevelMapper(List<DatabaseAdapter> databaseAdapters) {
+        for (DatabaseAdapter adapter : databaseAdapters) {
+            adapters.put(adapter.getDatabaseType(), adapter);
+        }
+        log.info("Consistency level adapters: {}", adapters.keySet());
     }
 
     public void applyConsistencyLevel(String databaseType, ConsistencyLevel level) {
-        log.info("Applying consistency level {} for database type {}", level, databaseType);
+        applyConsistencyLevel(DatabaseType.fromName(databaseType), level);
+    }
+
+    public void applyConsistencyLevel(DatabaseType databaseType, ConsistencyLevel level) {
+        log.debug("Applying consistency level {} for database type {}", level, databaseType);
 
         DatabaseAdapter adapter = adapters.get(databaseType);
         if (adapter == null) {
@@ -35,11 +41,76 @@ public class ConsistencyLevelMapper {
         adapter.applyConsistencyLevel(level);
     }
 
+    /**
+     * Binds the level on every adapter for the current thread, unless an enclosing call already
+     * did: its transaction may already hold a connection, so the outer level stays in effect.
+     *
+     * @return {@code true} when this call bound the level and must {@link #clear()} it
+     */
+    public boolean bind(ConsistencyLevel level) {
+        if (level == null || adapters.values().stream().anyMatch(a -> a.getCurrentLevel() != null)) {
+            return false;
+        }
+        adapters.values().forEach(adapter -> adapter.applyConsistencyLevel(level));
+        return true;
+    }
+
+    /**
+     * Binds a read's level like {@link #bind(ConsistencyLevel)}. Reads at READ_YOUR_WRITES or
+     * weaker are also routed to a replica that has applied the client's session token.
+     */
+    public boolean bindRead(ConsistencyLevel level, String sessionToken) {
+        if (!bind(level)) {
+            return false;
+        }
+        if (ConsistencyLevel.READ_YOUR_WRITES.isWeakerThan(level)) {
+            return true;
+        }
+        boolean routed = false;
+        for (DatabaseAdapter adapter : adapters.values()) {
+            routed |= adapter.routeReadsAfter(sessionToken);
+        }
+        if (routed) {
+            replicaReads.get()[0]++;
+        }
+        return true;
+    }
+
+    /**
+     * How many reads the current thread has routed to a replica. A caller that compares it before
+     * and after a call learns whether that call may have read from a lagging replica.
+     */
+    public long replicaReads() {
+        return replicaReads.get()[0];
+    }
+
+    /**
+     * The session token covering the current thread's writes, from the first adapter that has one.
+     */
+    public String captureSessionToken() {
+        for (DatabaseAdapter adapter : adapters.values()) {
+            String token = adapter.captureSessionToken();
+            if (token != null) {
+                return token;
+            }
+        }
+        return null;
+    }
+
+    public void clear() {
+        adapters.values().forEach(DatabaseAdapter::clearConsistencyLevel);
+    }
+
     public String getTranslatedLevel(String databaseType, ConsistencyLevel level) {
-        DatabaseAdapter adapter = adapters.get(databaseType);
+        DatabaseAdapter adapter;
+        try {
+            adapter = adapters.get(DatabaseType.fromName(databaseType));
+        } catch (IllegalArgumentException e) {
+            adapter = null;
+        }
         if (adapter == null) {
             return "UNKNOWN";
         }
         return adapter.translateConsistencyLevel(level);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,78 @@
+package ccf.ccf.mapping;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Hands out connections from the data source the adapter selected for the current thread: a
+ * pool preconfigured for the bound consistency level, or a replica for session-consistent reads.
+ * Falls back to the application's own pool when nothing is selected.
+ */
+public class ConsistencyRoutingDataSource implements DataSource {
+
+    private final DataSource defaultDataSource;
+    private final Supplier<DataSource> currentTarget;
+
+    public ConsistencyRoutingDataSource(DataSource defaultDataSource, Supplier<DataSource> currentTarget) {
+        this.defaultDataSource = defaultDataSource;
+        this.currentTarget = currentTarget;
+    }
+
+    public DataSource determineTargetDataSource() {
+        DataSource target = currentTarget.get();
+        return target != null ? target : defaultDataSource;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return determineTargetDataSource().getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return determineTargetDataSource().getConnection(username, password);
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return defaultDataSource.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        defaultDataSource.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        defaultDataSource.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return defaultDataSource.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return defaultDataSource.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return defaultDataSource.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || defaultDataSource.isWrapperFor(iface);
+    }
+}
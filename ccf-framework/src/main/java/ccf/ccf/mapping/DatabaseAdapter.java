@@ -1,14 +1,44 @@
 package ccf.ccf.mapping;
 
+import ccf.ccf.mapping.model.DatabaseType;
 import ccf.ccf.specification.model.ConsistencyLevel;
 
 public interface DatabaseAdapter {
 
-    String getDatabaseType();
+    DatabaseType getDatabaseType();
 
+    /**
+     * Binds the level to the current thread. Connections or operations started afterwards on
+     * this thread use the matching isolation level or read/write concerns.
+     */
     void applyConsistencyLevel(ConsistencyLevel level);
 
+    /**
+     * Clears the bound level and any replica route of the current thread.
+     */
+    void clearConsistencyLevel();
+
+    ConsistencyLevel getCurrentLevel();
+
     String translateConsistencyLevel(ConsistencyLevel level);
 
+    /**
+     * The primary's replication position after the current thread's writes, for clients to
+     * present on later reads, or {@code null} when the database cannot provide one.
+     */
+    default String captureSessionToken() {
+        return null;
+    }
+
+    /**
+     * Routes the current thread's reads to a replica that has applied the session token, or to
+     * any replica when the token is {@code null} or belongs to another database.
+     *
+     * @return {@code false} when no replica qualifies and reads stay on the primary
+     */
+    default boolean routeReadsAfter(String sessionToken) {
+        return false;
+    }
+
     boolean supportsTransactions();
-}
\ No newline at end of file
+}
@@ -1,27 +1,148 @@
 package ccf.ccf.mapping;
 
+import ccf.ccf.mapping.model.DatabaseType;
 import ccf.ccf.specification.model.ConsistencyLevel;
+import com.mongodb.ClientSessionOptions;
+import com.mongodb.ReadConcern;
+import com.mongodb.WriteConcern;
+import com.mongodb.client.ClientSession;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonTimestamp;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
 import org.springframework.stereotype.Component;
 
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Applies consistency levels as MongoDB write and read concerns. The concerns are immutable
+ * templates built once per level; the application's {@link MongoDatabaseFactory} is wrapped so
+ * that databases handed to MongoTemplate carry the concerns of the level bound to the thread.
+ * <p>
+ * Session tokens are operation times. After a write the primary's operation time is handed to
+ * the client. A read presenting it runs in a causally consistent session advanced to that time,
+ * with a secondaryPreferred read preference. The server then answers only once the secondary
+ * has applied the token. Reads fall back to the primary when no secondary is available.
+ * Secondary reads are opt-in ({@code ccf.mapping.mongodb.secondary-reads}); without them every
+ * read goes to the primary, so no token is needed and none is captured.
+ */
 @Slf4j
 @Component
-public class MongoDBAdapter implements DatabaseAdapter {
+@ConditionalOnClass(name = "org.springframework.data.mongodb.MongoDatabaseFactory")
+public class MongoDBAdapter implements DatabaseAdapter, BeanPostProcessor {
+
+    private static final Map<ConsistencyLevel, WriteConcern> WRITE_CONCERNS = new EnumMap<>(Map.of(
+            ConsistencyLevel.STRONG, WriteConcern.MAJORITY,
+            ConsistencyLevel.CAUSAL, WriteConcern.MAJORITY,
+            ConsistencyLevel.EVENTUAL, WriteConcern.W1,
+            ConsistencyLevel.READ_YOUR_WRITES, WriteConcern.MAJORITY));
+
+    private static final Map<ConsistencyLevel, ReadConcern> READ_CONCERNS = new EnumMap<>(Map.of(
+            ConsistencyLevel.STRONG, ReadConcern.LINEARIZABLE,
+            ConsistencyLevel.CAUSAL, ReadConcern.MAJORITY,
+            ConsistencyLevel.EVENTUAL, ReadConcern.LOCAL,
+            ConsistencyLevel.READ_YOUR_WRITES, ReadConcern.MAJORITY));
+
+    private static final String TOKEN_PREFIX = "mongo:";
+
+    private static final ClientSessionOptions CAUSAL_SESSION = ClientSessionOptions.builder()
+            .causallyConsistent(true)
+            .build();
+
+    private final ThreadLocal<ConsistencyLevel> currentLevel = new ThreadLocal<>();
+    private final ThreadLocal<ClientSession> readSession = new ThreadLocal<>();
+
+    private final boolean secondaryReads;
+
+    private volatile MongoDatabaseFactory factory;
+
+    public MongoDBAdapter(@Value("${ccf.mapping.mongodb.secondary-reads:false}") boolean secondaryReads) {
+        this.secondaryReads = secondaryReads;
+    }
 
     @Override
-    public String getDatabaseType() {
-        return "MongoDB";
+    public DatabaseType getDatabaseType() {
+        return DatabaseType.MONGODB;
     }
 
     @Override
     public void applyConsistencyLevel(ConsistencyLevel level) {
-        log.info("Applying consistency level {} to MongoDB", level);
+        log.debug("Applying MongoDB concerns: {}", translateConsistencyLevel(level));
+        currentLevel.set(level);
+    }
+
+    @Override
+    public void clearConsistencyLevel() {
+        currentLevel.remove();
+        ClientSession session = readSession.get();
+        if (session != null) {
+            readSession.remove();
+            session.close();
+        }
+    }
 
-        String writeConcern = translateConsistencyLevel(level);
-        log.info("Mapped to write concern: {}", writeConcern);
+    @Override
+    public ConsistencyLevel getCurrentLevel() {
+        return currentLevel.get();
+    }
 
-        // In real implementation, set MongoDB write concern
-        // e.g., WriteConcern.MAJORITY
+    public WriteConcern getWriteConcern(ConsistencyLevel level) {
+        return WRITE_CONCERNS.get(level);
+    }
+
+    public ReadConcern getReadConcern(ConsistencyLevel level) {
+        return READ_CONCERNS.get(level);
+    }
+
+    public ClientSession getReadSession() {
+        return readSession.get();
+    }
+
+    @Override
+    public String captureSessionToken() {
+        if (factory == null || !secondaryReads) {
+            return null;
+        }
+        try {
+            // Any command reports the node's latest operation time, which covers the writes before it
+            Document reply = factory.getMongoDatabase().runCommand(new Document("ping", 1));
+            if (reply.get("operationTime") instanceof BsonTimestamp operationTime) {
+                return TOKEN_PREFIX + operationTime.getTime() + "." + operationTime.getInc();
+            }
+            return null;  // Standalone servers report no operation time
+        } catch (RuntimeException e) {
+            log.warn("Could not read the MongoDB operation time: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public boolean routeReadsAfter(String sessionToken) {
+        if (factory == null || !secondaryReads) {
+            return false;
+        }
+
+        BsonTimestamp operationTime = null;
+        if (sessionToken != null && sessionToken.startsWith(TOKEN_PREFIX)) {
+            String[] parts = sessionToken.substring(TOKEN_PREFIX.length()).split("\\.");
+            try {
+                operationTime = new BsonTimestamp(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
+            } catch (RuntimeException e) {
+                log.debug("Ignoring malformed session token {}, reading from the primary", sessionToken);
+                return false;
+            }
+        }
+
+        ClientSession session = factory.getSession(CAUSAL_SESSION);
+        if (operationTime != null) {
+            session.advanceOperationTime(operationTime);
+        }
+        readSession.set(session);
+        return true;
     }
 
     @Override
@@ -38,4 +159,14 @@ public class MongoDBAdapter implements DatabaseAdapter {
     public boolean supportsTransactions() {
         return true; // MongoDB 4.0+
     }
-}
\ No newline at end of file
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof MongoDatabaseFactory factory && !(bean instanceof ConsistencyAwareMongoDatabaseFactory)) {
+            log.info("Applying consistency-level concerns to MongoDatabaseFactory '{}'", beanName);
+            this.factory = factory;
+            return new ConsistencyAwareMongoDatabaseFactory(factory, this);
+        }
+        return bean;
+    }
+}
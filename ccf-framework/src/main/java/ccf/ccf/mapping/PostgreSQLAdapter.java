@@ -1,27 +1,87 @@
 package ccf.ccf.mapping;
 
+import ccf.ccf.mapping.model.DatabaseType;
 import ccf.ccf.specification.model.ConsistencyLevel;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.stereotype.Component;
 
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Applies consistency levels as PostgreSQL isolation levels. Levels stricter than READ COMMITTED,
+ * the server default, get their own small Hikari pool whose connections are created with that
+ * isolation level, so a transaction needs no {@code SET TRANSACTION} round trip. The application's
+ * DataSource is wrapped in a {@link ConsistencyRoutingDataSource} that picks the pool of the level
+ * bound to the current thread.
+ * <p>
+ * Session tokens are WAL positions: after a write the primary's current LSN is handed to the
+ * client, and a read presenting it goes to a replica whose replayed LSN has reached it. Replica
+ * positions only grow, so the last one seen is cached and a replica is only asked again while
+ * it seems to lag. Without configured replicas no token is captured.
+ */
 @Slf4j
 @Component
-public class PostgreSQLAdapter implements DatabaseAdapter {
+@ConditionalOnClass(name = "com.zaxxer.hikari.HikariDataSource")
+public class PostgreSQLAdapter implements DatabaseAdapter, BeanPostProcessor {
+
+    private static final String TOKEN_PREFIX = "pg:";
+
+    private static final Map<ConsistencyLevel, String> ISOLATION_LEVELS = new EnumMap<>(Map.of(
+            ConsistencyLevel.STRONG, "TRANSACTION_SERIALIZABLE",
+            ConsistencyLevel.CAUSAL, "TRANSACTION_REPEATABLE_READ"));
+
+    private final ThreadLocal<ConsistencyLevel> currentLevel = new ThreadLocal<>();
+    private final ThreadLocal<Replica> currentReplica = new ThreadLocal<>();
+    private final Map<ConsistencyLevel, DataSource> levelPools = new EnumMap<>(ConsistencyLevel.class);
+    private final List<Replica> replicas = new ArrayList<>();
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final int levelPoolSize;
+    private final List<String> replicaUrls;
+
+    private DataSource primary;
+
+    public PostgreSQLAdapter(@Value("${ccf.mapping.postgresql.level-pool-size:5}") int levelPoolSize,
+                             @Value("${ccf.mapping.postgresql.replica-urls:}") List<String> replicaUrls) {
+        this.levelPoolSize = levelPoolSize;
+        this.replicaUrls = replicaUrls.stream().map(String::trim).filter(url -> !url.isEmpty()).toList();
+    }
 
     @Override
-    public String getDatabaseType() {
-        return "PostgreSQL";
+    public DatabaseType getDatabaseType() {
+        return DatabaseType.POSTGRESQL;
     }
 
     @Override
     public void applyConsistencyLevel(ConsistencyLevel level) {
-        log.info("Applying consistency level {} to PostgreSQL", level);
+        log.debug("Routing PostgreSQL connections through the {} pool", translateConsistencyLevel(level));
+        currentLevel.set(level);
+    }
 
-        String isolationLevel = translateConsistencyLevel(level);
-        log.info("Mapped to isolation level: {}", isolationLevel);
+    @Override
+    public void clearConsistencyLevel() {
+        currentLevel.remove();
+        currentReplica.remove();
+    }
 
-        // In real implementation, set transaction isolation level
-        // e.g., dataSource.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+    @Override
+    public ConsistencyLevel getCurrentLevel() {
+        return currentLevel.get();
     }
 
     @Override
@@ -34,8 +94,155 @@ public class PostgreSQLAdapter implements DatabaseAdapter {
         };
     }
 
+    @Override
+    public String captureSessionToken() {
+        // Without replicas every read goes to the primary, so a token would never be checked
+        if (primary == null || replicas.isEmpty()) {
+            return null;
+        }
+        try (Connection connection = primary.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT pg_current_wal_lsn()")) {
+            return resultSet.next() ? TOKEN_PREFIX + resultSet.getString(1) : null;
+        } catch (SQLException e) {
+            log.warn("Could not read the primary WAL position: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public boolean routeReadsAfter(String sessionToken) {
+        if (replicas.isEmpty()) {
+            return false;
+        }
+
+        long required = 0;
+        if (sessionToken != null && sessionToken.startsWith(TOKEN_PREFIX)) {
+            try {
+                required = parseLsn(sessionToken.substring(TOKEN_PREFIX.length()));
+            } catch (IllegalArgumentException e) {
+                log.debug("Ignoring malformed session token {}, reading from the primary", sessionToken);
+                return false;
+            }
+        }
+
+        // Start at a different replica each time to spread the reads
+        int start = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (replica.appliedLsn >= required || refresh(replica) >= required) {
+                currentReplica.set(replica);
+                log.debug("Reading from replica {} (token {})", replica.name, sessionToken);
+                return true;
+            }
+        }
+
+        log.debug("No replica has reached {}, reading from the primary", sessionToken);
+        return false;
+    }
+
     @Override
     public boolean supportsTransactions() {
         return true;
     }
-}
\ No newline at end of file
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof HikariDataSource dataSource) || primary != null) {
+            return bean;
+        }
+
+        String poolName = Objects.requireNonNullElse(dataSource.getPoolName(), beanName);
+        Map<ConsistencyLevel, DataSource> levelTargets = new EnumMap<>(ConsistencyLevel.class);
+        for (Map.Entry<ConsistencyLevel, String> entry : ISOLATION_LEVELS.entrySet()) {
+            HikariDataSource pool = copyPool(dataSource, poolName + "-" + entry.getKey().name().toLowerCase());
+            pool.setTransactionIsolation(entry.getValue());
+            levelTargets.put(entry.getKey(), pool);
+        }
+
+        Map<String, DataSource> replicaTargets = new LinkedHashMap<>();
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            HikariDataSource pool = copyPool(dataSource, poolName + "-replica-" + i);
+            pool.setJdbcUrl(replicaUrls.get(i));
+            pool.setReadOnly(true);
+            replicaTargets.put(pool.getPoolName(), pool);
+        }
+
+        log.info("Routing DataSource '{}' by consistency level {} and over {} replicas",
+                beanName, ISOLATION_LEVELS, replicaTargets.size());
+        return wrap(dataSource, levelTargets, replicaTargets);
+    }
+
+    ConsistencyRoutingDataSource wrap(DataSource primary,
+                                      Map<ConsistencyLevel, DataSource> levelTargets,
+                                      Map<String, DataSource> replicaTargets) {
+        this.primary = primary;
+        this.levelPools.putAll(levelTargets);
+        replicaTargets.forEach((name, dataSource) -> replicas.add(new Replica(name, dataSource)));
+        return new ConsistencyRoutingDataSource(primary, this::currentTarget);
+    }
+
+    @PreDestroy
+    public void closePools() {
+        levelPools.values().forEach(PostgreSQLAdapter::close);
+        replicas.forEach(replica -> close(replica.dataSource));
+    }
+
+    private DataSource currentTarget() {
+        Replica replica = currentReplica.get();
+        if (replica != null) {
+            return replica.dataSource;
+        }
+        ConsistencyLevel level = currentLevel.get();
+        return level != null ? levelPools.get(level) : null;
+    }
+
+    private long refresh(Replica replica) {
+        try (Connection connection = replica.dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT pg_last_wal_replay_lsn()")) {
+            String lsn = resultSet.next() ? resultSet.getString(1) : null;
+            // NULL means the server is not in recovery, so it has everything it was sent
+            long applied = lsn == null ? Long.MAX_VALUE : parseLsn(lsn);
+            replica.appliedLsn = Math.max(replica.appliedLsn, applied);
+        } catch (SQLException e) {
+            log.warn("Could not read the WAL position of replica {}: {}", replica.name, e.getMessage());
+        }
+        return replica.appliedLsn;
+    }
+
+    // Pools start lazily, on their first connection
+    private HikariDataSource copyPool(HikariDataSource source, String poolName) {
+        HikariDataSource pool = new HikariDataSource();
+        source.copyStateTo(pool);
+        pool.setPoolName(poolName);
+        pool.setMaximumPoolSize(levelPoolSize);
+        return pool;
+    }
+
+    private static void close(DataSource dataSource) {
+        if (dataSource instanceof HikariDataSource hikari) {
+            hikari.close();
+        }
+    }
+
+    // An LSN prints as two hex halves, e.g. 16/B374D848
+    static long parseLsn(String lsn) {
+        int slash = lsn.indexOf('/');
+        if (slash < 0) {
+            throw new IllegalArgumentException("Invalid LSN: " + lsn);
+        }
+        return (Long.parseLong(lsn.substring(0, slash), 16) << 32) | Long.parseLong(lsn.substring(slash + 1), 16);
+    }
+
+    private static final class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private volatile long appliedLsn = -1;
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+}
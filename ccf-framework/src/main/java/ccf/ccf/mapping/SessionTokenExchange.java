@@ -0,0 +1,43 @@
+package ccf.ccf.mapping;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * Carries session consistency tokens over HTTP. A client sends the token it last received in the
+ * {@value #HEADER} request header, and writes answer with a fresh one in the same response header.
+ * Outside an HTTP request, e.g. in a Kafka listener, there is nobody to hand a token to.
+ */
+@Component
+public class SessionTokenExchange {
+
+    public static final String HEADER = "X-Session-Token";
+
+    public boolean inRequest() {
+        return currentRequest() != null;
+    }
+
+    public String currentToken() {
+        ServletRequestAttributes attributes = currentRequest();
+        return attributes != null ? attributes.getRequest().getHeader(HEADER) : null;
+    }
+
+    public void publish(String token) {
+        ServletRequestAttributes attributes = currentRequest();
+        if (token == null || attributes == null) {
+            return;
+        }
+        HttpServletResponse response = attributes.getResponse();
+        if (response != null && !response.isCommitted()) {
+            response.setHeader(HEADER, token);
+        }
+    }
+
+    private static ServletRequestAttributes currentRequest() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes instanceof ServletRequestAttributes servlet ? servlet : null;
+    }
+}
@@ -0,0 +1,25 @@
+package ccf.ccf.mapping.model;
+
+import ccf.ccf.specification.model.ConsistencyLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConsistencySwitch {
+    private String contractId;
+    private ConsistencyLevel from;
+    private ConsistencyLevel to;
+    // The signal that crossed its threshold, or "recovered" when stepping back up
+    private String reason;
+    private double averageLatencyMillis;
+    private double conflictRate;
+    private double lockWaitRate;
+    private Instant timestamp;
+}
@@ -0,0 +1,25 @@
+package ccf.ccf.mapping.model;
+
+public enum DatabaseType {
+    POSTGRESQL("PostgreSQL"),
+    MONGODB("MongoDB");
+
+    private final String displayName;
+
+    DatabaseType(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public static DatabaseType fromName(String name) {
+        for (DatabaseType type : values()) {
+            if (type.displayName.equalsIgnoreCase(name) || type.name().equalsIgnoreCase(name)) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported database type: " + name);
+    }
+}
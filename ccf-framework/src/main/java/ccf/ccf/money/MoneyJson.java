@@ -0,0 +1,84 @@
+package ccf.ccf.money;
+
+import ccf.ccf.money.model.Money;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * JSON codec of {@link Money}, bound through annotations on the type so every ObjectMapper
+ * uses it. Amounts are written as {@code {"amount": 59.90, "currency": "USD"}}, the amount
+ * read exactly from its literal. The text form {@code "59.90 USD"} and a plain number in the
+ * default currency are still read, so values stored in either form stay readable.
+ */
+public final class MoneyJson {
+
+    private MoneyJson() {
+    }
+
+    public static class Serializer extends StdSerializer<Money> {
+
+        public Serializer() {
+            super(Money.class);
+        }
+
+        @Override
+        public void serialize(Money value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeStartObject();
+            generator.writeNumberField("amount", value.toBigDecimal());
+            generator.writeStringField("currency", value.currency());
+            generator.writeEndObject();
+        }
+    }
+
+    public static class Deserializer extends StdDeserializer<Money> {
+
+        public Deserializer() {
+            super(Money.class);
+        }
+
+        @Override
+        public Money deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            JsonToken token = parser.currentToken();
+            try {
+                if (token == JsonToken.START_OBJECT) {
+                    return readObject(parser, context);
+                }
+                if (token == JsonToken.VALUE_STRING) {
+                    return Money.parse(parser.getText());
+                }
+                if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+                    return Money.parse(parser.getText(), Money.DEFAULT_CURRENCY);
+                }
+            } catch (IllegalArgumentException | ArithmeticException e) {
+                return (Money) context.handleWeirdStringValue(Money.class, parser.getText(), e.getMessage());
+            }
+            return (Money) context.handleUnexpectedToken(Money.class, parser);
+        }
+
+        private Money readObject(JsonParser parser, DeserializationContext context) throws IOException {
+            String amount = null;
+            String currency = Money.DEFAULT_CURRENCY;
+            for (String field = parser.nextFieldName(); field != null; field = parser.nextFieldName()) {
+                parser.nextToken();
+                if ("amount".equals(field)) {
+                    amount = parser.getText();
+                } else if ("currency".equals(field)) {
+                    currency = parser.getText();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (amount == null) {
+                return (Money) context.handleWeirdStringValue(Money.class, "", "Amount without an amount field");
+            }
+            return Money.parse(amount, currency);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package ccf.ccf.money;
+
+import ccf.ccf.money.model.Money;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.convert.WritingConverter;
+
+import java.util.List;
+
+/**
+ * Stores {@link Money} as {@code {minorUnits: <int64>, currency: <string>}}, so amounts stay
+ * numeric and comparable in queries. Amounts stored before as a plain BigDecimal, a string or a
+ * Decimal128, are read in the default currency. Register them with the service's MongoTemplate:
+ * <pre>
+ * &#64;Bean
+ * public MongoCustomConversions mongoCustomConversions() {
+ *     return new MongoCustomConversions(MoneyMongoConverters.converters());
+ * }
+ * </pre>
+ */
+public final class MoneyMongoConverters {
+
+    private MoneyMongoConverters() {
+    }
+
+    public static List<Converter<?, ?>> converters() {
+        return List.of(new MoneyWriter(), new MoneyReader(), new LegacyStringReader(), new LegacyDecimalReader());
+    }
+
+    @WritingConverter
+    static class MoneyWriter implements Converter<Money, Document> {
+
+        @Override
+        public Document convert(Money money) {
+            return new Document("minorUnits", money.minorUnits()).append("currency", money.currency());
+        }
+    }
+
+    @ReadingConverter
+    static class MoneyReader implements Converter<Document, Money> {
+
+        @Override
+        public Money convert(Document document) {
+            return Money.ofMinor(document.get("minorUnits", Number.class).longValue(), document.getString("currency"));
+        }
+    }
+
+    @ReadingConverter
+    static class LegacyStringReader implements Converter<String, Money> {
+
+        @Override
+        public Money convert(String amount) {
+            return Money.parse(amount);
+        }
+    }
+
+    @ReadingConverter
+    static class LegacyDecimalReader implements Converter<Decimal128, Money> {
+
+        @Override
+        public Money convert(Decimal128 amount) {
+            return Money.of(amount.bigDecimalValue(), Money.DEFAULT_CURRENCY);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package ccf.ccf.money.model;
+
+import ccf.ccf.money.MoneyJson;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import jakarta.persistence.Embeddable;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.Objects;
+
+/**
+ * An amount of money as a count of minor units (cents for USD) and an ISO 4217 currency code.
+ * Arithmetic is exact long arithmetic that throws on overflow, and two amounts are equal only
+ * when both the units and the currency are, so {@code 10.5} and {@code 10.50} cannot differ.
+ * <p>
+ * The text form is the decimal amount at the currency's scale followed by the code, e.g.
+ * {@code "59.90 USD"}. It is canonical, so equal amounts have equal text. In JSON an amount is
+ * {@code {"amount": 59.90, "currency": "USD"}}; APIs and events carry a plain decimal and a
+ * currency field instead, converted with {@link #of(BigDecimal, String)} and {@link #toBigDecimal()}.
+ */
+@Embeddable
+@JsonSerialize(using = MoneyJson.Serializer.class)
+@JsonDeserialize(using = MoneyJson.Deserializer.class)
+public record Money(long minorUnits, String currency) implements Comparable<Money> {
+
+    /** Currency of amounts given without one, such as plain JSON numbers. */
+    public static final String DEFAULT_CURRENCY = "USD";
+
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000};
+
+    public Money {
+        Objects.requireNonNull(currency, "currency");
+        try {
+            Currency.getInstance(currency);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Not an ISO 4217 currency code: " + currency, e);
+        }
+    }
+
+    public static Money ofMinor(long minorUnits, String currency) {
+        return new Money(minorUnits, currency);
+    }
+
+    /** A whole amount in major units, e.g. {@code of(20, "USD")} is 20.00 USD. */
+    public static Money of(long majorUnits, String currency) {
+        return new Money(Math.multiplyExact(majorUnits, POWERS_OF_TEN[scale(currency)]), currency);
+    }
+
+    /** The decimal amount in the currency, exactly: digits beyond its scale are rejected. */
+    public static Money of(BigDecimal amount, String currency) {
+        BigDecimal units = amount.setScale(scale(currency), RoundingMode.UNNECESSARY);
+        return new Money(units.unscaledValue().longValueExact(), currency);
+    }
+
+    public static Money zero(String currency) {
+        return new Money(0, currency);
+    }
+
+    /**
+     * Parses a decimal amount such as {@code "59.9"}, exactly: digits beyond the scale of the
+     * currency are rejected rather than rounded.
+     */
+    public static Money parse(CharSequence amount, String currency) {
+        int scale = scale(currency);
+        int length = amount.length();
+        int i = 0;
+        boolean negative = false;
+        if (length > 0 && (amount.charAt(0) == '-' || amount.charAt(0) == '+')) {
+            negative = amount.charAt(0) == '-';
+            i++;
+        }
+        if (i == length) {
+            throw new NumberFormatException("Not an amount: " + amount);
+        }
+
+        long units = 0;
+        int fractionDigits = -1;
+        for (; i < length; i++) {
+            char c = amount.charAt(i);
+            if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else if (c >= '0' && c <= '9') {
+                if (fractionDigits >= 0 && ++fractionDigits > scale) {
+                    if (c != '0') {
+                        throw new ArithmeticException(amount + " has more than " + scale + " decimals for " + currency);
+                    }
+                    continue;
+                }
+                units = Math.addExact(Math.multiplyExact(units, 10), c - '0');
+            } else {
+                throw new NumberFormatException("Not an amount: " + amount);
+            }
+        }
+        int missing = scale - Math.max(0, Math.min(fractionDigits, scale));
+        units = Math.multiplyExact(units, POWERS_OF_TEN[missing]);
+        return new Money(negative ? -units : units, currency);
+    }
+
+    /** Parses the text form, {@code "59.90 USD"}; without a code the default currency applies. */
+    public static Money parse(String text) {
+        String trimmed = text.trim();
+        int space = trimmed.lastIndexOf(' ');
+        if (space < 0) {
+            return parse(trimmed, DEFAULT_CURRENCY);
+        }
+        return parse(trimmed.subSequence(0, space).toString().trim(), trimmed.substring(space + 1));
+    }
+
+    /** The amount in major units at the currency's scale, e.g. {@code 59.90} for 5990 cents. */
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, scale(currency));
+    }
+
+    public Money plus(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.addExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money times(long quantity) {
+        return new Money(Math.multiplyExact(minorUnits, quantity), currency);
+    }
+
+    public boolean isPositive() {
+        return minorUnits > 0;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        requireSameCurrency(other);
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    public void requireSameCurrency(Money other) {
+        if (!currency.equals(other.currency)) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency + " and " + other.currency);
+        }
+    }
+
+    @Override
+    public String toString() {
+        int scale = scale(currency);
+        String digits = Long.toString(Math.abs(minorUnits));
+        if (minorUnits == Long.MIN_VALUE) {
+            digits = digits.substring(1);
+        }
+        StringBuilder text = new StringBuilder(digits.length() + 6);
+        if (minorUnits < 0) {
+            text.append('-');
+        }
+        for (int pad = scale + 1 - digits.length(); pad > 0; pad--) {
+            text.append('0');
+        }
+        text.append(digits);
+        if (scale > 0) {
+            text.insert(text.length() - scale, '.');
+        }
+        return text.append(' ').append(currency).toString();
+    }
+
+    // Funds and metals report -1; they are counted in whole units
+    private static int scale(String currency) {
+        int digits = Currency.getInstance(currency).getDefaultFractionDigits();
+        return Math.max(0, Math.min(digits, POWERS_OF_TEN.length - 1));
+    }
+}
@@ -0,0 +1,185 @@
+package ccf.ccf.outbox;
+
+import ccf.ccf.outbox.model.OutboxMessage;
+import ccf.ccf.outbox.model.RelayResult;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Outbox table written through the service's JPA EntityManager, so the insert joins the
+ * surrounding {@code @Transactional} method and commits or rolls back with the entities.
+ * A relay worker drains a shard inside a transaction holding the shard's advisory lock, taken
+ * with {@code pg_try_advisory_xact_lock}: workers of other instances skip the shard meanwhile,
+ * and a worker that dies releases it with its transaction. Parked messages are moved to
+ * {@code ccf_outbox_parked} for inspection.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "ccf.outbox.store", havingValue = "jpa")
+public class JpaOutboxStore implements OutboxStore {
+
+    // Six parameters per row keeps a statement well below the driver's limit of 32767
+    private static final int ROWS_PER_INSERT = 1000;
+
+    // First half of the advisory lock key, so shard locks do not collide with the service's own
+    private static final int LOCK_SPACE = "ccf_outbox".hashCode();
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+
+    public JpaOutboxStore(EntityManager entityManager, PlatformTransactionManager transactionManager) {
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void createTable() {
+        transactionTemplate.executeWithoutResult(status -> {
+            entityManager.createNativeQuery("""
+                    CREATE TABLE IF NOT EXISTS ccf_outbox (
+                        id BIGSERIAL PRIMARY KEY,
+                        topic VARCHAR(255) NOT NULL,
+                        message_key VARCHAR(255),
+                        key_hash INT NOT NULL,
+                        event_type VARCHAR(255),
+                        payload TEXT NOT NULL,
+                        created_at BIGINT NOT NULL,
+                        attempts INT NOT NULL DEFAULT 0)""").executeUpdate();
+            entityManager.createNativeQuery("""
+                    CREATE TABLE IF NOT EXISTS ccf_outbox_parked (
+                        id BIGINT PRIMARY KEY,
+                        topic VARCHAR(255) NOT NULL,
+                        message_key VARCHAR(255),
+                        key_hash INT NOT NULL,
+                        event_type VARCHAR(255),
+                        payload TEXT NOT NULL,
+                        created_at BIGINT NOT NULL,
+                        attempts INT NOT NULL,
+                        parked_at BIGINT NOT NULL)""").executeUpdate();
+        });
+        log.info("Transactional outbox stored in table ccf_outbox");
+    }
+
+    @Override
+    public void append(OutboxMessage message) {
+        entityManager.createNativeQuery(
+                        "INSERT INTO ccf_outbox (topic, message_key, key_hash, event_type, payload, created_at) VALUES (?1, ?2, ?3, ?4, ?5, ?6)")
+                .setParameter(1, message.getTopic())
+                .setParameter(2, message.getKey())
+                .setParameter(3, OutboxStore.keyHash(message.getKey()))
+                .setParameter(4, message.getEventType())
+                .setParameter(5, message.getPayload())
+                .setParameter(6, message.getCreatedAt().toEpochMilli())
+                .executeUpdate();
+    }
+
+    @Override
+    public void appendAll(List<OutboxMessage> messages) {
+        for (int from = 0; from < messages.size(); from += ROWS_PER_INSERT) {
+            List<OutboxMessage> chunk = messages.subList(from, Math.min(messages.size(), from + ROWS_PER_INSERT));
+            StringBuilder sql = new StringBuilder(
+                    "INSERT INTO ccf_outbox (topic, message_key, key_hash, event_type, payload, created_at) VALUES ");
+            for (int row = 0; row < chunk.size(); row++) {
+                int p = row * 6;
+                sql.append(row == 0 ? "" : ", ")
+                        .append("(?").append(p + 1).append(", ?").append(p + 2).append(", ?").append(p + 3)
+                        .append(", ?").append(p + 4).append(", ?").append(p + 5).append(", ?").append(p + 6).append(')');
+            }
+
+            Query insert = entityManager.createNativeQuery(sql.toString());
+            for (int row = 0; row < chunk.size(); row++) {
+                OutboxMessage message = chunk.get(row);
+                int p = row * 6;
+                insert.setParameter(p + 1, message.getTopic())
+                        .setParameter(p + 2, message.getKey())
+                        .setParameter(p + 3, OutboxStore.keyHash(message.getKey()))
+                        .setParameter(p + 4, message.getEventType())
+                        .setParameter(p + 5, message.getPayload())
+                        .setParameter(p + 6, message.getCreatedAt().toEpochMilli());
+            }
+            insert.executeUpdate();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public int drain(int shard, int shards, int batchSize, Function<List<OutboxMessage>, RelayResult> sender) {
+        return Objects.requireNonNull(transactionTemplate.execute(status -> {
+            Object locked = entityManager.createNativeQuery("SELECT pg_try_advisory_xact_lock(?1, ?2)")
+                    .setParameter(1, LOCK_SPACE)
+                    .setParameter(2, shard)
+                    .getSingleResult();
+            if (!Boolean.TRUE.equals(locked)) {
+                return 0;
+            }
+
+            List<Object[]> rows = entityManager.createNativeQuery("""
+                            SELECT id, topic, message_key, event_type, payload, created_at, attempts
+                            FROM ccf_outbox WHERE MOD(key_hash, ?1) = ?2
+                            ORDER BY id LIMIT ?3""")
+                    .setParameter(1, shards)
+                    .setParameter(2, shard)
+                    .setParameter(3, batchSize)
+                    .getResultList();
+            if (rows.isEmpty()) {
+                return 0;
+            }
+
+            List<OutboxMessage> batch = rows.stream().map(JpaOutboxStore::toMessage).toList();
+            RelayResult result = sender.apply(batch);
+
+            if (!result.getSent().isEmpty()) {
+                entityManager.createNativeQuery("DELETE FROM ccf_outbox WHERE id IN (:ids)")
+                        .setParameter("ids", ids(result.getSent()))
+                        .executeUpdate();
+            }
+            if (!result.getFailed().isEmpty()) {
+                entityManager.createNativeQuery("UPDATE ccf_outbox SET attempts = attempts + 1 WHERE id IN (:ids)")
+                        .setParameter("ids", ids(result.getFailed()))
+                        .executeUpdate();
+            }
+            if (!result.getParked().isEmpty()) {
+                List<Long> parkedIds = ids(result.getParked());
+                entityManager.createNativeQuery("""
+                                INSERT INTO ccf_outbox_parked
+                                    (id, topic, message_key, key_hash, event_type, payload, created_at, attempts, parked_at)
+                                SELECT id, topic, message_key, key_hash, event_type, payload, created_at, attempts + 1, :parkedAt
+                                FROM ccf_outbox WHERE id IN (:ids)""")
+                        .setParameter("parkedAt", System.currentTimeMillis())
+                        .setParameter("ids", parkedIds)
+                        .executeUpdate();
+                entityManager.createNativeQuery("DELETE FROM ccf_outbox WHERE id IN (:ids)")
+                        .setParameter("ids", parkedIds)
+                        .executeUpdate();
+            }
+            return batch.size();
+        }));
+    }
+
+    private static List<Long> ids(List<OutboxMessage> messages) {
+        return messages.stream().map(message -> Long.valueOf(message.getId())).toList();
+    }
+
+    private static OutboxMessage toMessage(Object[] row) {
+        return OutboxMessage.builder()
+                .id(String.valueOf(((Number) row[0]).longValue()))
+                .topic((String) row[1])
+                .key((String) row[2])
+                .eventType((String) row[3])
+                .payload((String) row[4])
+                .createdAt(Instant.ofEpochMilli(((Number) row[5]).longValue()))
+                .attempts(((Number) row[6]).intValue())
+                .build();
+    }
+}
@@ -0,0 +1,177 @@
+package ccf.ccf.outbox;
+
+import ccf.ccf.outbox.model.OutboxMessage;
+import ccf.ccf.outbox.model.RelayResult;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Outbox collection written through the service's MongoTemplate. The template binds to the
+ * session of a transaction started by a {@code MongoTransactionManager}, so inside one the
+ * insert commits or aborts with the business documents; without one it is a separate write.
+ * MongoDB has no advisory locks, so a relay worker first takes a lease on its shard in
+ * {@code ccf_outbox_shards}, renewed on every drain; workers of other instances skip the shard
+ * until it expires. The batch itself is claimed with a lease too: candidates whose lease has
+ * expired are stamped with the worker's claim id in one update, and the worker relays only what
+ * carries its id. A crashed worker's shard and messages become claimable once the leases run out.
+ * Parked messages are moved to {@code ccf_outbox_parked}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "ccf.outbox.store", havingValue = "mongo")
+public class MongoOutboxStore implements OutboxStore {
+
+    private static final String COLLECTION = "ccf_outbox";
+    private static final String SHARDS = "ccf_outbox_shards";
+    private static final String PARKED = "ccf_outbox_parked";
+
+    private final MongoTemplate mongoTemplate;
+    private final long leaseMillis;
+    private final String owner = UUID.randomUUID().toString();
+
+    private volatile boolean indexed;
+
+    public MongoOutboxStore(MongoTemplate mongoTemplate,
+                            @Value("${ccf.outbox.relay.lease-seconds:30}") long leaseSeconds) {
+        this.mongoTemplate = mongoTemplate;
+        this.leaseMillis = leaseSeconds * 1000;
+    }
+
+    @Override
+    public void append(OutboxMessage message) {
+        mongoTemplate.insert(toDocument(message), COLLECTION);
+    }
+
+    @Override
+    public void appendAll(List<OutboxMessage> messages) {
+        mongoTemplate.insert(messages.stream().map(MongoOutboxStore::toDocument).toList(), COLLECTION);
+    }
+
+    private static Document toDocument(OutboxMessage message) {
+        return new Document("topic", message.getTopic())
+                .append("key", message.getKey())
+                .append("keyHash", OutboxStore.keyHash(message.getKey()))
+                .append("eventType", message.getEventType())
+                .append("payload", message.getPayload())
+                .append("createdAt", Date.from(message.getCreatedAt()))
+                .append("claimedUntil", new Date(0))
+                .append("attempts", 0);
+    }
+
+    @Override
+    public int drain(int shard, int shards, int batchSize, Function<List<OutboxMessage>, RelayResult> sender) {
+        if (!indexed) {
+            createIndexes();
+        }
+
+        Date now = new Date();
+        if (!leaseShard(shard, now)) {
+            return 0;
+        }
+
+        Query candidates = new Query(where("claimedUntil").lt(now).and("keyHash").mod(shards, shard))
+                .with(Sort.by("_id"))
+                .limit(batchSize);
+        candidates.fields().include("_id");
+        List<ObjectId> ids = mongoTemplate.find(candidates, Document.class, COLLECTION).stream()
+                .map(document -> document.getObjectId("_id"))
+                .toList();
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        // The lease check is repeated so a message another worker claimed in between is left alone
+        String claim = UUID.randomUUID().toString();
+        mongoTemplate.updateMulti(new Query(where("_id").in(ids).and("claimedUntil").lt(now)),
+                new Update().set("claim", claim).set("claimedUntil", new Date(now.getTime() + leaseMillis)),
+                COLLECTION);
+        List<Document> claimed = mongoTemplate.find(new Query(where("claim").is(claim)).with(Sort.by("_id")),
+                Document.class, COLLECTION);
+        if (claimed.isEmpty()) {
+            return 0;
+        }
+
+        RelayResult result = sender.apply(claimed.stream().map(MongoOutboxStore::toMessage).toList());
+
+        if (!result.getSent().isEmpty()) {
+            mongoTemplate.remove(new Query(where("_id").in(ids(result.getSent()))), COLLECTION);
+        }
+        if (!result.getParked().isEmpty()) {
+            Set<ObjectId> parkedIds = ids(result.getParked());
+            Date parkedAt = new Date();
+            mongoTemplate.insert(claimed.stream()
+                    .filter(document -> parkedIds.contains(document.getObjectId("_id")))
+                    .map(document -> new Document(document)
+                            .append("attempts", document.getInteger("attempts", 0) + 1)
+                            .append("parkedAt", parkedAt))
+                    .toList(), PARKED);
+            mongoTemplate.remove(new Query(where("_id").in(parkedIds)), COLLECTION);
+        }
+        if (!result.getFailed().isEmpty()) {
+            mongoTemplate.updateMulti(new Query(where("_id").in(ids(result.getFailed()))),
+                    new Update().inc("attempts", 1), COLLECTION);
+        }
+        // Release what is left right away instead of waiting for the lease to expire
+        mongoTemplate.updateMulti(new Query(where("claim").is(claim)),
+                new Update().unset("claim").set("claimedUntil", new Date(0)),
+                COLLECTION);
+        return claimed.size();
+    }
+
+    // Takes or renews the shard's lease; the upsert fails on the unique _id while another owner holds it
+    private boolean leaseShard(int shard, Date now) {
+        Query free = new Query(where("_id").is("shard-" + shard)
+                .orOperator(where("owner").is(owner), where("leasedUntil").lt(now)));
+        try {
+            mongoTemplate.upsert(free,
+                    new Update().set("owner", owner).set("leasedUntil", new Date(now.getTime() + leaseMillis)),
+                    SHARDS);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    private static Set<ObjectId> ids(List<OutboxMessage> messages) {
+        return messages.stream().map(message -> new ObjectId(message.getId())).collect(Collectors.toSet());
+    }
+
+    // Done by the relay rather than at startup, so the service still starts while MongoDB is down
+    private void createIndexes() {
+        mongoTemplate.indexOps(COLLECTION).createIndex(new Index().on("claimedUntil", Sort.Direction.ASC));
+        mongoTemplate.indexOps(COLLECTION).createIndex(new Index().on("claim", Sort.Direction.ASC).sparse());
+        indexed = true;
+        log.info("Transactional outbox stored in collection {}", COLLECTION);
+    }
+
+    private static OutboxMessage toMessage(Document document) {
+        return OutboxMessage.builder()
+                .id(document.getObjectId("_id").toHexString())
+                .topic(document.getString("topic"))
+                .key(document.getString("key"))
+                .eventType(document.getString("eventType"))
+                .payload(document.getString("payload"))
+                .createdAt(document.getDate("createdAt").toInstant())
+                .attempts(document.getInteger("attempts", 0))
+                .build();
+    }
+}
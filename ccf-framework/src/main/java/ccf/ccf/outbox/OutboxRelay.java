@@ -0,0 +1,273 @@
+package ccf.ccf.outbox;
+
+import ccf.ccf.outbox.model.OutboxMessage;
+import ccf.ccf.outbox.model.RelayResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.errors.AuthenticationException;
+import org.apache.kafka.common.errors.AuthorizationException;
+import org.apache.kafka.common.errors.RetriableException;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.ssl.SslBundles;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+/**
+ * Moves committed outbox messages to Kafka. Each worker drains the store in batches and sends a
+ * batch in waves: the first message of every key, then the second, and so on. All sends of a
+ * wave are issued before any is awaited, so the producer pipelines them into a few requests; a
+ * batch of distinct keys goes out in a single wave. A key whose message fails sends nothing more
+ * in that batch, so its later messages never overtake the one being retried. A worker keeps
+ * draining while it finds full batches and otherwise polls again after
+ * {@code ccf.outbox.relay.poll-interval-ms}. Workers own disjoint shards of the message keys, and
+ * the store lets one worker across all instances drain a shard at a time, so the messages of one
+ * key, such as one order, reach Kafka in the order they were written.
+ * <p>
+ * A message Kafka rejected {@code ccf.outbox.relay.max-attempts} times, for example as too large,
+ * is parked by the store and counted in {@code ccf.outbox.relay.parked}, so it no longer holds
+ * back its key. Timeouts, retriable broker errors and authorization failures are not counted:
+ * they end once the broker or its configuration is fixed.
+ * <p>
+ * The producer is built from {@code spring.kafka.producer.*}, including security settings, with
+ * string serializers, {@code acks=all} and idempotence forced: payloads are JSON already, and
+ * idempotence keeps retries from reordering.
+ * <p>
+ * Delivery is at least once: a crash between the send and the removal sends the batch again,
+ * which consumers absorb through their event ids. The gauge {@code ccf.outbox.relay.lag} is the
+ * age in seconds of the oldest message of the latest batches, and zero once the outbox is empty.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "ccf.outbox.store")
+public class OutboxRelay {
+
+    /** Header carrying {@link OutboxMessage#getEventType()}, which consumers dispatch on. */
+    public static final String EVENT_TYPE_HEADER = "eventType";
+
+    private final OutboxStore outboxStore;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final ScheduledExecutorService workers;
+    private final int workerCount;
+    private final int batchSize;
+    private final long pollIntervalMillis;
+    private final long sendTimeoutMillis;
+    private final int maxAttempts;
+    private final AtomicLongArray lagMillis;
+    private final Counter relayed;
+    private final Counter failed;
+    private final Counter parked;
+
+    public OutboxRelay(OutboxStore outboxStore,
+                       ObjectProvider<MeterRegistry> meterRegistry,
+                       KafkaProperties kafkaProperties,
+                       ObjectProvider<SslBundles> sslBundles,
+                       @Value("${ccf.outbox.relay.workers:2}") int workerCount,
+                       @Value("${ccf.outbox.relay.batch-size:100}") int batchSize,
+                       @Value("${ccf.outbox.relay.poll-interval-ms:200}") long pollIntervalMillis,
+                       @Value("${ccf.outbox.relay.send-timeout-ms:10000}") long sendTimeoutMillis,
+                       @Value("${ccf.outbox.relay.linger-ms:5}") int lingerMillis,
+                       @Value("${ccf.outbox.relay.max-attempts:10}") int maxAttempts) {
+        this(outboxStore, meterRegistry,
+                new KafkaTemplate<>(producerFactory(kafkaProperties.buildProducerProperties(sslBundles.getIfAvailable()),
+                        sendTimeoutMillis, lingerMillis)),
+                workerCount, batchSize, pollIntervalMillis, sendTimeoutMillis, maxAttempts);
+    }
+
+    OutboxRelay(OutboxStore outboxStore,
+                ObjectProvider<MeterRegistry> meterRegistry,
+                KafkaTemplate<String, String> kafkaTemplate,
+                int workerCount, int batchSize, long pollIntervalMillis, long sendTimeoutMillis, int maxAttempts) {
+        this.outboxStore = outboxStore;
+        this.kafkaTemplate = kafkaTemplate;
+        this.workerCount = Math.max(1, workerCount);
+        this.batchSize = Math.max(1, batchSize);
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.sendTimeoutMillis = sendTimeoutMillis;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.lagMillis = new AtomicLongArray(this.workerCount);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = Executors.newScheduledThreadPool(this.workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "ccf-outbox-relay-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        MeterRegistry registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+        Gauge.builder("ccf.outbox.relay.lag", lagMillis,
+                        lag -> IntStream.range(0, lag.length()).mapToLong(lag::get).max().orElse(0) / 1000.0)
+                .baseUnit("seconds")
+                .register(registry);
+        this.relayed = Counter.builder("ccf.outbox.relayed").register(registry);
+        this.failed = Counter.builder("ccf.outbox.relay.failures").register(registry);
+        this.parked = Counter.builder("ccf.outbox.relay.parked").register(registry);
+    }
+
+    static DefaultKafkaProducerFactory<String, String> producerFactory(Map<String, Object> producerProperties,
+                                                                       long sendTimeoutMillis, int lingerMillis) {
+        Map<String, Object> config = new LinkedHashMap<>(producerProperties);
+        config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        config.put(ProducerConfig.ACKS_CONFIG, "all");
+        config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        config.putIfAbsent(ProducerConfig.LINGER_MS_CONFIG, lingerMillis);
+        config.putIfAbsent(ProducerConfig.MAX_BLOCK_MS_CONFIG, sendTimeoutMillis);
+        return new DefaultKafkaProducerFactory<>(config);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        for (int i = 0; i < workerCount; i++) {
+            int shard = i;
+            workers.scheduleWithFixedDelay(() -> relayPending(shard), 0, pollIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        log.info("Outbox relay started with {} workers, batches of {}", workerCount, batchSize);
+    }
+
+    void relayPending(int shard) {
+        try {
+            int claimed;
+            do {
+                claimed = outboxStore.drain(shard, workerCount, batchSize, batch -> send(shard, batch));
+                if (claimed == 0) {
+                    lagMillis.set(shard, 0);
+                }
+            } while (claimed == batchSize && !Thread.currentThread().isInterrupted());
+        } catch (RuntimeException e) {
+            // Thrown out of a scheduled task it would cancel the worker for good
+            log.warn("Outbox relay pass failed: {}", e.getMessage());
+        }
+    }
+
+    RelayResult send(int shard, List<OutboxMessage> batch) {
+        Instant now = Instant.now();
+        batch.stream().map(OutboxMessage::getCreatedAt).min(Instant::compareTo)
+                .ifPresent(oldest -> lagMillis.set(shard, now.toEpochMilli() - oldest.toEpochMilli()));
+
+        // Messages without a key have no order to keep, so each forms its own queue
+        Map<Object, Deque<OutboxMessage>> queues = new LinkedHashMap<>();
+        for (OutboxMessage message : batch) {
+            Object key = message.getKey() != null ? message.getKey() : new Object();
+            queues.computeIfAbsent(key, k -> new ArrayDeque<>()).add(message);
+        }
+
+        List<OutboxMessage> sent = new ArrayList<>(batch.size());
+        List<OutboxMessage> failures = new ArrayList<>();
+        List<OutboxMessage> parkedMessages = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+
+        while (!queues.isEmpty() && System.nanoTime() < deadline && !Thread.currentThread().isInterrupted()) {
+            List<OutboxMessage> wave = new ArrayList<>(queues.size());
+            List<CompletableFuture<SendResult<String, String>>> futures = new ArrayList<>(queues.size());
+            for (Deque<OutboxMessage> queue : queues.values()) {
+                OutboxMessage message = queue.poll();
+                wave.add(message);
+                futures.add(send(message));
+            }
+            kafkaTemplate.flush();
+
+            for (int i = 0; i < wave.size(); i++) {
+                OutboxMessage message = wave.get(i);
+                Object key = message.getKey();
+                try {
+                    futures.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    sent.add(message);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    queues.remove(key);
+                } catch (Exception e) {
+                    if (!isTransient(e) && message.getAttempts() + 1 >= maxAttempts) {
+                        log.error("Parking outbox message {} ({}) to {} after {} attempts: {}", message.getId(),
+                                message.getEventType(), message.getTopic(), message.getAttempts() + 1, e.getMessage());
+                        parkedMessages.add(message);
+                        continue;
+                    }
+                    log.warn("Could not relay outbox message {} ({}) to {}: {}", message.getId(),
+                            message.getEventType(), message.getTopic(), e.getMessage());
+                    if (!isTransient(e)) {
+                        failures.add(message);
+                    }
+                    // The key's later messages wait until this one is through
+                    queues.remove(key);
+                }
+            }
+            queues.values().removeIf(Deque::isEmpty);
+        }
+
+        relayed.increment(sent.size());
+        failed.increment(failures.size() + parkedMessages.size());
+        parked.increment(parkedMessages.size());
+        return new RelayResult(sent, failures, parkedMessages);
+    }
+
+    // Outages and missing permissions say nothing about the message itself
+    static boolean isTransient(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RetriableException || cause instanceof TimeoutException
+                    || cause instanceof AuthorizationException || cause instanceof AuthenticationException) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    private CompletableFuture<SendResult<String, String>> send(OutboxMessage message) {
+        ProducerRecord<String, String> record =
+                new ProducerRecord<>(message.getTopic(), message.getKey(), message.getPayload());
+        if (message.getEventType() != null) {
+            record.headers().add(EVENT_TYPE_HEADER,
+                    message.getEventType().getBytes(StandardCharsets.UTF_8));
+        }
+        try {
+            return kafkaTemplate.send(record);
+        } catch (RuntimeException e) {
+            // Serialization errors and a full buffer are thrown rather than reported through the future
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        workers.shutdown();
+        if (!workers.awaitTermination(sendTimeoutMillis, TimeUnit.MILLISECONDS)) {
+            workers.shutdownNow();
+        }
+        if (kafkaTemplate.getProducerFactory() instanceof DefaultKafkaProducerFactory<?, ?> producerFactory) {
+            producerFactory.destroy();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package ccf.ccf.outbox;
+
+import ccf.ccf.outbox.model.OutboxMessage;
+import ccf.ccf.outbox.model.RelayResult;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Durable queue of messages waiting to be relayed to Kafka, kept in the service's own database
+ * so a message is stored atomically with the business change that produced it.
+ */
+public interface OutboxStore {
+
+    /**
+     * Stores the message in the caller's current transaction, if there is one.
+     */
+    void append(OutboxMessage message);
+
+    /**
+     * Stores the messages in the caller's current transaction, in as few round trips as the
+     * database allows.
+     */
+    default void appendAll(List<OutboxMessage> messages) {
+        messages.forEach(this::append);
+    }
+
+    /**
+     * Claims the shard and up to {@code batchSize} of its oldest messages, and hands them to the
+     * sender. A shard is the set of keys whose {@link #keyHash} leaves {@code shard} modulo
+     * {@code shards}; at most one worker across all instances drains a shard at a time, so all
+     * messages of one key go out in order. Every instance must therefore use the same number of
+     * shards. Sent messages are removed, failed ones have their attempt counted, parked ones are
+     * moved aside, and the rest stay as they were.
+     *
+     * @return the number of messages claimed, zero when the shard is empty or held elsewhere
+     */
+    int drain(int shard, int shards, int batchSize, Function<List<OutboxMessage>, RelayResult> sender);
+
+    static int keyHash(String key) {
+        return key == null ? 0 : key.hashCode() & Integer.MAX_VALUE;
+    }
+}
@@ -0,0 +1,61 @@
+package ccf.ccf.outbox;
+
+import ccf.ccf.outbox.model.OutboxMessage;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Publishes events through the outbox instead of sending them to Kafka directly. Call it inside
+ * the transaction that changes the data the event describes: the event is stored with that
+ * change, and the {@link OutboxRelay} sends it once it has committed.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "ccf.outbox.store")
+public class TransactionalOutbox {
+
+    private final OutboxStore outboxStore;
+    private final ObjectMapper objectMapper;
+
+    public void publish(String topic, String key, String eventType, Object event) {
+        outboxStore.append(toMessage(topic, key, eventType, event, Instant.now()));
+        log.debug("Stored {} event for topic {} in the outbox", eventType, topic);
+    }
+
+    /**
+     * Stores events of one type together, for bulk operations.
+     */
+    public <T> void publishAll(String topic, String eventType, List<T> events, Function<T, String> key) {
+        Instant now = Instant.now();
+        outboxStore.appendAll(events.stream()
+                .map(event -> toMessage(topic, key.apply(event), eventType, event, now))
+                .toList());
+        log.debug("Stored {} {} events for topic {} in the outbox", events.size(), eventType, topic);
+    }
+
+    private OutboxMessage toMessage(String topic, String key, String eventType, Object event, Instant createdAt) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot serialize " + eventType + " event", e);
+        }
+
+        return OutboxMessage.builder()
+                .topic(topic)
+                .key(key)
+                .eventType(eventType)
+                .payload(payload)
+                .createdAt(createdAt)
+                .build();
+    }
+}
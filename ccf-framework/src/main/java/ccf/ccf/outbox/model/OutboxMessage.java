@@ -0,0 +1,22 @@
+package ccf.ccf.outbox.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxMessage {
+    private String id;
+    private String topic;
+    private String key;
+    private String eventType;   // sent as the eventType header the consumers dispatch on
+    private String payload;     // the event as JSON
+    private Instant createdAt;
+    private int attempts;
+}
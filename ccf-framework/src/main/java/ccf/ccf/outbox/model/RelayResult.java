@@ -0,0 +1,16 @@
+package ccf.ccf.outbox.model;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * What became of a drained batch. Messages in none of the lists stay in the outbox untouched:
+ * they failed for a transient reason, or were not sent because an earlier message of their key failed.
+ */
+@Value
+public class RelayResult {
+    List<OutboxMessage> sent;     // acknowledged by Kafka; removed from the outbox
+    List<OutboxMessage> failed;   // rejected; attempt counted, retried ahead of the key's later messages
+    List<OutboxMessage> parked;   // failed too often; moved aside so the key's later messages can go
+}
@@ -3,6 +3,7 @@ package ccf.ccf.specification;
 import ccf.ccf.specification.model.ConsistencyContract;
 import ccf.ccf.specification.model.ConsistencyLevel;
 import ccf.ccf.specification.model.ContractRule;
+import ccf.ccf.specification.model.InvariantDefinition;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
@@ -16,7 +17,11 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -24,6 +29,8 @@ import java.util.regex.Pattern;
 @Component
 public class ContractParser {
 
+    private static final Pattern FIELD_REFERENCE = Pattern.compile("\\b([A-Z]\\w*)\\.(\\w+)\\b");
+
     private final ResourceLoader resourceLoader;
 
     public ContractParser(ResourceLoader resourceLoader) {
@@ -70,8 +77,25 @@ public class ContractParser {
         String level = extractValue(content, "CONSISTENCY_LEVEL:\\s*(\\w+)");
         contract.setConsistencyLevel(ConsistencyLevel.valueOf(level));
 
+        // Parse read consistency range, e.g. READ_CONSISTENCY: [EVENTUAL, CAUSAL]
+        List<String> readRange = extractList(content, "READ_CONSISTENCY:\\s*\\[([^\\]]+)\\]");
+        if (readRange.size() == 2) {
+            contract.setReadConsistencyFloor(ConsistencyLevel.valueOf(readRange.get(0)));
+            contract.setReadConsistencyCeiling(ConsistencyLevel.valueOf(readRange.get(1)));
+        } else {
+            if (!readRange.isEmpty()) {
+                log.warn("Ignoring invalid read consistency range: {}", readRange);
+            }
+            contract.setReadConsistencyFloor(contract.getConsistencyLevel());
+            contract.setReadConsistencyCeiling(contract.getConsistencyLevel());
+        }
+
         // Parse invariants
         contract.setInvariants(extractInvariants(content));
+        contract.setInvariantDefinitions(buildInvariantDefinitions(contract));
+
+        // Parse correlation keys
+        contract.setCorrelationKeys(extractCorrelationKeys(content));
 
         // Parse rules
         contract.setRules(extractRules(content));
@@ -94,8 +118,11 @@ public class ContractParser {
                     contract.getContractVersion() +
                     contract.getServices() +
                     contract.getConsistencyLevel() +
+                    contract.getReadConsistencyFloor() +
+                    contract.getReadConsistencyCeiling() +
                     contract.getInvariants() +
-                    contract.getSagaDefinition();
+                    contract.getSagaDefinition() +
+                    contract.getCorrelationKeys();
             byte[] hash = digest.digest(contractData.getBytes(StandardCharsets.UTF_8));
             return Base64.getEncoder().encodeToString(hash);
         } catch (NoSuchAlgorithmException e) {
@@ -140,6 +167,50 @@ public class ContractParser {
         return invariants;
     }
 
+    private List<InvariantDefinition> buildInvariantDefinitions(ConsistencyContract contract) {
+        List<InvariantDefinition> definitions = new ArrayList<>();
+        for (String invariant : contract.getInvariants()) {
+            Map<String, Set<String>> fieldsByEntity = new LinkedHashMap<>();
+            Matcher matcher = FIELD_REFERENCE.matcher(invariant);
+            while (matcher.find()) {
+                fieldsByEntity.computeIfAbsent(matcher.group(1), k -> new LinkedHashSet<>())
+                        .add(matcher.group(2));
+            }
+            definitions.add(InvariantDefinition.builder()
+                    .contractId(contract.getContractId())
+                    .expression(invariant)
+                    .fieldsByEntity(fieldsByEntity)
+                    .services(resolveOwningServices(fieldsByEntity.keySet(), contract.getServices()))
+                    .build());
+        }
+        return definitions;
+    }
+
+    // An entity is owned by the contract service named after it, e.g. Order -> OrderService
+    private Set<String> resolveOwningServices(Set<String> entityTypes, List<String> services) {
+        Set<String> owners = new LinkedHashSet<>();
+        for (String entityType : entityTypes) {
+            String owner = entityType + "Service";
+            if (services.contains(owner)) {
+                owners.add(owner);
+            }
+        }
+        return owners;
+    }
+
+    private Map<String, String> extractCorrelationKeys(String content) {
+        Map<String, String> correlationKeys = new LinkedHashMap<>();
+        for (String reference : extractList(content, "CORRELATE_BY:\\s*\\[([^\\]]+)\\]")) {
+            Matcher matcher = FIELD_REFERENCE.matcher(reference);
+            if (matcher.matches()) {
+                correlationKeys.put(matcher.group(1), matcher.group(2));
+            } else {
+                log.warn("Ignoring invalid correlation key: {}", reference);
+            }
+        }
+        return correlationKeys;
+    }
+
     private List<ContractRule> extractRules(String content) {
         List<ContractRule> rules = new ArrayList<>();
         // Simplified rule extraction
@@ -1,10 +1,13 @@
 package ccf.ccf.specification;
 
 import ccf.ccf.specification.model.ConsistencyContract;
+import ccf.ccf.specification.model.InvariantDefinition;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -14,9 +17,13 @@ public class ContractRepository {
 
     private final Map<String, ConsistencyContract> contracts = new HashMap<>();
 
-    public void save(ConsistencyContract contract) {
+    // Entity type -> invariants (across all contracts) that read it, rebuilt on every save/delete
+    private volatile Map<String, List<InvariantDefinition>> invariantsByEntity = Map.of();
+
+    public synchronized void save(ConsistencyContract contract) {
         log.info("Saving contract: {}", contract.getContractId());
         contracts.put(contract.getContractId(), contract);
+        rebuildEntityIndex();
     }
 
     public Optional<ConsistencyContract> findById(String contractId) {
@@ -31,12 +38,34 @@ public class ContractRepository {
                 .findFirst();
     }
 
-    public void delete(String contractId) {
+    public List<InvariantDefinition> findInvariantsByEntityType(String entityType) {
+        return invariantsByEntity.getOrDefault(entityType, List.of());
+    }
+
+    public synchronized void delete(String contractId) {
         log.info("Deleting contract: {}", contractId);
         contracts.remove(contractId);
+        rebuildEntityIndex();
     }
 
     public Map<String, ConsistencyContract> findAll() {
         return new HashMap<>(contracts);
     }
-}
\ No newline at end of file
+
+    private void rebuildEntityIndex() {
+        Map<String, List<InvariantDefinition>> index = new HashMap<>();
+        for (ConsistencyContract contract : contracts.values()) {
+            if (contract.getInvariantDefinitions() == null) {
+                continue;
+            }
+            for (InvariantDefinition invariant : contract.getInvariantDefinitions()) {
+                for (String entityType : invariant.getEntityTypes()) {
+                    index.computeIfAbsent(entityType, k -> new ArrayList<>()).add(invariant);
+                }
+            }
+        }
+        index.replaceAll((entityType, invariants) -> List.copyOf(invariants));
+        invariantsByEntity = Map.copyOf(index);
+        log.debug("Entity index rebuilt for types: {}", invariantsByEntity.keySet());
+    }
+}
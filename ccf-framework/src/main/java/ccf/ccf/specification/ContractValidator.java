@@ -32,6 +32,13 @@ public class ContractValidator {
             errors.add("Consistency level is required");
         }
 
+        // Validate read consistency range
+        if (contract.getReadConsistencyFloor() != null && contract.getReadConsistencyCeiling() != null
+                && contract.getReadConsistencyCeiling().isWeakerThan(contract.getReadConsistencyFloor())) {
+            errors.add("Read consistency floor " + contract.getReadConsistencyFloor()
+                    + " is stronger than its ceiling " + contract.getReadConsistencyCeiling());
+        }
+
         // Validate invariants
         if (contract.getInvariants() == null || contract.getInvariants().isEmpty()) {
             errors.add("At least one invariant must be defined");
@@ -0,0 +1,79 @@
+package ccf.ccf.specification;
+
+import ccf.ccf.specification.model.ConsistencyContract;
+import ccf.ccf.specification.model.InvariantDefinition;
+import ccf.ccf.specification.model.InvariantPlan;
+import ccf.ccf.specification.model.InvariantScope;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Slf4j
+@Component
+public class InvariantPlanner {
+
+    private final Map<String, InvariantPlan> plans = new ConcurrentHashMap<>();
+
+    public InvariantPlan plan(String serviceName, ConsistencyContract contract) {
+        List<InvariantDefinition> local = new ArrayList<>();
+        List<InvariantDefinition> crossService = new ArrayList<>();
+        List<InvariantDefinition> skipped = new ArrayList<>();
+        Map<String, InvariantScope> scopes = new HashMap<>();
+
+        for (InvariantDefinition invariant : contract.getInvariantDefinitions()) {
+            InvariantScope scope = classify(serviceName, invariant);
+            scopes.put(invariant.getExpression(), scope);
+
+            switch (scope) {
+                case LOCAL -> local.add(invariant);
+                case CROSS_SERVICE -> crossService.add(invariant);
+                case SKIPPED -> skipped.add(invariant);
+            }
+        }
+
+        InvariantPlan plan = InvariantPlan.builder()
+                .contractId(contract.getContractId())
+                .serviceName(serviceName)
+                .localInvariants(List.copyOf(local))
+                .crossServiceInvariants(List.copyOf(crossService))
+                .skippedInvariants(List.copyOf(skipped))
+                .scopes(Map.copyOf(scopes))
+                .build();
+
+        plans.put(contract.getContractId(), plan);
+
+        log.info("Service {} owns {} local and {} cross-service invariants of contract {} ({} skipped)",
+                serviceName, local.size(), crossService.size(), contract.getContractId(), skipped.size());
+
+        return plan;
+    }
+
+    public Optional<InvariantPlan> getPlan(String contractId) {
+        return Optional.ofNullable(plans.get(contractId));
+    }
+
+    /**
+     * Returns the scope of the invariant for this service. Invariants of contracts that were
+     * never planned are treated as local, so they keep being evaluated in-process.
+     */
+    public InvariantScope scopeOf(InvariantDefinition invariant) {
+        InvariantPlan plan = plans.get(invariant.getContractId());
+        if (plan == null) {
+            return InvariantScope.LOCAL;
+        }
+        return plan.getScopes().getOrDefault(invariant.getExpression(), InvariantScope.SKIPPED);
+    }
+
+    private InvariantScope classify(String serviceName, InvariantDefinition invariant) {
+        if (!invariant.getServices().contains(serviceName)) {
+            return InvariantScope.SKIPPED;
+        }
+        return invariant.getServices().size() == 1 ? InvariantScope.LOCAL : InvariantScope.CROSS_SERVICE;
+    }
+}
@@ -6,6 +6,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.util.List;
+import java.util.Map;
 
 @Data
 @Builder
@@ -18,7 +19,13 @@ public class ConsistencyContract {
     private String contractHash;
     private List<String> services;
     private ConsistencyLevel consistencyLevel;
+    // Range reads may be adapted within under load; both default to the consistency level
+    private ConsistencyLevel readConsistencyFloor;
+    private ConsistencyLevel readConsistencyCeiling;
     private List<ContractRule> rules;
     private List<String> invariants;
+    private List<InvariantDefinition> invariantDefinitions;
     private String sagaDefinition;
+    // Entity type -> field that correlates its instances across services (CORRELATE_BY block)
+    private Map<String, String> correlationKeys;
 }
\ No newline at end of file
@@ -1,8 +1,45 @@
 package ccf.ccf.specification.model;
 
 public enum ConsistencyLevel {
-    STRONG,      // ACID, Serializable
-    CAUSAL,      // Causal consistency
-    EVENTUAL,    // Eventually consistent
-    READ_YOUR_WRITES  // Session consistency
-}
\ No newline at end of file
+    STRONG(3),      // ACID, Serializable
+    CAUSAL(2),      // Causal consistency
+    EVENTUAL(0),    // Eventually consistent
+    READ_YOUR_WRITES(1);  // Session consistency
+
+    private final int strength;
+
+    ConsistencyLevel(int strength) {
+        this.strength = strength;
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+
+    public boolean isWeakerThan(ConsistencyLevel other) {
+        return strength < other.strength;
+    }
+
+    /**
+     * The next weaker level, or this level when it is already the weakest.
+     */
+    public ConsistencyLevel weaker() {
+        return ofStrength(Math.max(0, strength - 1));
+    }
+
+    /**
+     * The next stronger level, or this level when it is already the strongest.
+     */
+    public ConsistencyLevel stronger() {
+        return ofStrength(Math.min(STRONG.strength, strength + 1));
+    }
+
+    private static ConsistencyLevel ofStrength(int strength) {
+        for (ConsistencyLevel level : values()) {
+            if (level.strength == strength) {
+                return level;
+            }
+        }
+        throw new IllegalStateException("No consistency level with strength " + strength);
+    }
+}
@@ -0,0 +1,26 @@
+package ccf.ccf.specification.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+import java.util.Set;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvariantDefinition {
+    private String contractId;
+    private String expression;
+    // Entity type (e.g. "Order") -> fields of that entity read by the expression
+    private Map<String, Set<String>> fieldsByEntity;
+    // Contract services owning the entities above; empty when no listed service owns them
+    private Set<String> services;
+
+    public Set<String> getEntityTypes() {
+        return fieldsByEntity.keySet();
+    }
+}
@@ -0,0 +1,23 @@
+package ccf.ccf.specification.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvariantPlan {
+    private String contractId;
+    private String serviceName;
+    private List<InvariantDefinition> localInvariants;
+    private List<InvariantDefinition> crossServiceInvariants;
+    private List<InvariantDefinition> skippedInvariants;
+    // Invariant expression -> scope, for lookups on the verification path
+    private Map<String, InvariantScope> scopes;
+}
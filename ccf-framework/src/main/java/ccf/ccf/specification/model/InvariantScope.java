@@ -0,0 +1,7 @@
+package ccf.ccf.specification.model;
+
+public enum InvariantScope {
+    LOCAL,          // Reads only entities owned by this service
+    CROSS_SERVICE,  // Reads entities of this service and at least one other
+    SKIPPED         // Reads no entity owned by this service
+}
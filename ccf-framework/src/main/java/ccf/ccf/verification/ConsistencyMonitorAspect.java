@@ -1,38 +1,120 @@
 package ccf.ccf.verification;
 
+import ccf.ccf.mapping.AdaptiveConsistencyController;
+import ccf.ccf.mapping.ConsistencyLevelMapper;
+import ccf.ccf.mapping.SessionTokenExchange;
+import ccf.ccf.specification.ContractRepository;
+import ccf.ccf.specification.model.ConsistencyContract;
+import ccf.ccf.specification.model.ConsistencyLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Slf4j
 @Aspect
 @Component
+@Order(Ordered.HIGHEST_PRECEDENCE)  // The level must be bound before @Transactional takes a connection
 @RequiredArgsConstructor
 public class ConsistencyMonitorAspect {
 
     private final ConsistencyVerifier consistencyVerifier;
+    private final ContractRepository contractRepository;
+    private final ConsistencyLevelMapper consistencyLevelMapper;
+    private final AdaptiveConsistencyController adaptiveConsistencyController;
+    private final SessionTokenExchange sessionTokenExchange;
+
+    @Value("${ccf.consistency.conflict-retries:3}")
+    private int conflictRetries;
+
+    @Value("${ccf.consistency.conflict-backoff-ms:20}")
+    private long conflictBackoffMillis;
 
-    @Around("@annotation(ccf.ccf.verification.MonitorConsistency)")
-    public Object monitorConsistency(ProceedingJoinPoint joinPoint) throws Throwable {
+    @Around("@annotation(monitorConsistency)")
+    public Object monitorConsistency(ProceedingJoinPoint joinPoint, MonitorConsistency monitorConsistency) throws Throwable {
         String methodName = joinPoint.getSignature().getName();
         log.info("Monitoring consistency for method: {}", methodName);
 
-        long startTime = System.currentTimeMillis();
+        ConsistencyContract contract = contractRepository.findById(monitorConsistency.contractId()).orElse(null);
+        ConsistencyLevel level = null;
+        if (contract != null) {
+            level = monitorConsistency.readOnly()
+                    ? adaptiveConsistencyController.getReadLevel(contract)
+                    : contract.getConsistencyLevel();
+        }
+        boolean bound = monitorConsistency.readOnly()
+                ? consistencyLevelMapper.bindRead(level, sessionTokenExchange.currentToken())
+                : consistencyLevelMapper.bind(level);
+
+        // Only a call that opens its own transaction can rerun it after the database rolled it back
+        boolean retryable = conflictRetries > 0 && opensTransaction(joinPoint)
+                && !TransactionSynchronizationManager.isActualTransactionActive();
 
         try {
-            Object result = joinPoint.proceed();
+            for (int attempt = 0; ; attempt++) {
+                long startTime = System.nanoTime();
+                try {
+                    Object result = joinPoint.proceed();
 
-            long duration = System.currentTimeMillis() - startTime;
-            log.info("Method {} completed in {}ms", methodName, duration);
+                    long duration = System.nanoTime() - startTime;
+                    log.info("Method {} completed in {}ms", methodName, duration / 1_000_000);
+                    if (contract != null) {
+                        adaptiveConsistencyController.record(contract, duration, null);
+                    }
+                    // The transaction has committed by now, so the token covers its writes
+                    if (bound && !monitorConsistency.readOnly() && sessionTokenExchange.inRequest()) {
+                        sessionTokenExchange.publish(consistencyLevelMapper.captureSessionToken());
+                    }
 
-            return result;
+                    return result;
+
+                } catch (Exception e) {
+                    // Every conflict is recorded, so the controller sees the contention the retries hide
+                    if (contract != null) {
+                        adaptiveConsistencyController.record(contract, System.nanoTime() - startTime, e);
+                    }
+                    if (retryable && attempt < conflictRetries && AdaptiveConsistencyController.isConflict(e)) {
+                        log.warn("Method {} hit a serialization conflict, retrying ({}/{})",
+                                methodName, attempt + 1, conflictRetries);
+                        backOff(attempt);
+                        continue;
+                    }
+                    log.error("Exception in monitored method {}: {}", methodName, e.getMessage());
+                    throw e;
+                }
+            }
+        } finally {
+            if (bound) {
+                consistencyLevelMapper.clear();
+            }
+        }
+    }
+
+    private static boolean opensTransaction(ProceedingJoinPoint joinPoint) {
+        Class<?> targetClass = AopUtils.getTargetClass(joinPoint.getTarget());
+        Method method = AopUtils.getMostSpecificMethod(((MethodSignature) joinPoint.getSignature()).getMethod(), targetClass);
+        return AnnotatedElementUtils.hasAnnotation(method, Transactional.class)
+                || AnnotatedElementUtils.hasAnnotation(targetClass, Transactional.class);
+    }
 
-        } catch (Exception e) {
-            log.error("Exception in monitored method {}: {}", methodName, e.getMessage());
-            throw e;
+    // Jittered, so the transactions that conflicted do not collide again on the retry
+    private void backOff(int attempt) throws InterruptedException {
+        long ceiling = conflictBackoffMillis << Math.min(attempt, 10);
+        if (ceiling > 0) {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1));
         }
     }
-}
\ No newline at end of file
+}
@@ -2,12 +2,26 @@ package ccf.ccf.verification;
 
 import ccf.ccf.specification.ContractRegistry;
 import ccf.ccf.specification.ContractRepository;
+import ccf.ccf.specification.InvariantPlanner;
 import ccf.ccf.specification.model.ConsistencyContract;
+import ccf.ccf.specification.model.InvariantDefinition;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Slf4j
 @Component
@@ -16,6 +30,13 @@ public class ConsistencyVerifier {
 
     private final ContractRepository contractRepository;
     private final ContractRegistry contractRegistry;
+    private final InvariantChecker invariantChecker;
+    private final ViolationDetector violationDetector;
+    private final InvariantPlanner invariantPlanner;
+    private final InvariantCorrelator invariantCorrelator;
+
+    @Value("${spring.application.name:unknown}")
+    private String serviceName;
 
     public boolean verify(String contractId, Object entity) {
         log.info("Verifying consistency for contract: {}", contractId);
@@ -42,8 +63,125 @@ public class ConsistencyVerifier {
         return isValid;
     }
 
+    /**
+     * Verifies the entity against every contract that references its type, in a single pass.
+     * Local invariants are decided here; cross-service ones are handed to the correlator.
+     */
+    public boolean verify(Object entity) {
+        return verifyAll(List.of(entity));
+    }
+
+    /**
+     * Verifies a batch of entities in one pass. The invariants of each entity type are looked up
+     * and classified, and their contracts enforced, once for the whole batch.
+     *
+     * @return {@code false} when any entity violates a local invariant
+     */
+    public boolean verifyAll(Collection<?> entities) {
+        Map<String, List<Object>> entitiesByType = new LinkedHashMap<>();
+        for (Object entity : entities) {
+            entitiesByType.computeIfAbsent(entityType(entity), type -> new ArrayList<>()).add(entity);
+        }
+
+        boolean isValid = true;
+        for (Map.Entry<String, List<Object>> entry : entitiesByType.entrySet()) {
+            isValid &= verifyType(entry.getKey(), entry.getValue());
+        }
+        return isValid;
+    }
+
+    private boolean verifyType(String entityType, List<Object> entities) {
+        List<InvariantDefinition> local = new ArrayList<>();
+        List<InvariantDefinition> crossService = new ArrayList<>();
+
+        for (InvariantDefinition invariant : contractRepository.findInvariantsByEntityType(entityType)) {
+            switch (invariantPlanner.scopeOf(invariant)) {
+                case LOCAL -> local.add(invariant);
+                case CROSS_SERVICE -> crossService.add(invariant);
+                case SKIPPED -> { }
+            }
+        }
+
+        if (local.isEmpty() && crossService.isEmpty()) {
+            log.debug("No contract invariant owned for entity type: {}", entityType);
+            return true;
+        }
+
+        log.info("Verifying consistency for {} entities of type {}: {} local, {} cross-service invariants",
+                entities.size(), entityType, local.size(), crossService.size());
+
+        Set<String> enforcedContracts = new HashSet<>();
+        for (List<InvariantDefinition> invariants : List.of(local, crossService)) {
+            for (InvariantDefinition invariant : invariants) {
+                if (enforcedContracts.add(invariant.getContractId())) {
+                    contractRegistry.enforceContractValidity(invariant.getContractId());
+                }
+            }
+        }
+
+        boolean isValid = true;
+        for (Object entity : entities) {
+            Map<String, Object> values = loadFieldValues(entityType, entity, local, crossService);
+            isValid &= evaluate(values, entity, local);
+
+            if (!crossService.isEmpty()) {
+                invariantCorrelator.submit(serviceName, entityType, entity, values, crossService);
+            }
+        }
+
+        if (isValid) {
+            log.info("Consistency verification passed for {} contracts: {}", entityType, enforcedContracts);
+        } else {
+            log.error("Consistency verification failed for {} contracts: {}", entityType, enforcedContracts);
+        }
+
+        return isValid;
+    }
+
     private boolean performVerification(ConsistencyContract contract, Object entity) {
-        // For now, return true as basic implementation
-        return true;
+        String entityType = entityType(entity);
+        List<InvariantDefinition> invariants = contractRepository.findInvariantsByEntityType(entityType).stream()
+                .filter(invariant -> contract.getContractId().equals(invariant.getContractId()))
+                .toList();
+        return evaluate(loadFieldValues(entityType, entity, invariants), entity, invariants);
+    }
+
+    private boolean evaluate(Map<String, Object> values, Object entity, List<InvariantDefinition> invariants) {
+        boolean isValid = true;
+        for (InvariantDefinition invariant : invariants) {
+            Boolean result = invariantChecker.evaluate(invariant, values);
+            if (result == null) {
+                log.debug("Invariant not decidable in-process: {}", invariant.getExpression());
+            } else if (!result) {
+                isValid = false;
+                violationDetector.detectViolation(
+                        invariant.getContractId(), invariant.getExpression(), serviceName, entity);
+            }
+        }
+        return isValid;
+    }
+
+    // Each field is read once even when several contracts or invariants share it
+    @SafeVarargs
+    private Map<String, Object> loadFieldValues(String entityType, Object entity,
+                                                List<InvariantDefinition>... invariantGroups) {
+        BeanWrapper wrapper = PropertyAccessorFactory.forBeanPropertyAccess(entity);
+        Map<String, Object> values = new HashMap<>();
+
+        for (List<InvariantDefinition> invariants : invariantGroups) {
+            for (InvariantDefinition invariant : invariants) {
+                for (String field : invariant.getFieldsByEntity().get(entityType)) {
+                    String key = entityType + "." + field;
+                    if (!values.containsKey(key) && wrapper.isReadableProperty(field)) {
+                        values.put(key, wrapper.getPropertyValue(field));
+                    }
+                }
+            }
+        }
+        return values;
+    }
+
+    private String entityType(Object entity) {
+        return ClassUtils.getUserClass(entity).getSimpleName();
     }
-}
\ No newline at end of file
+}
@@ -1,16 +1,30 @@
 package ccf.ccf.verification;
 
+import ccf.ccf.money.model.Money;
 import ccf.ccf.specification.model.ConsistencyContract;
+import ccf.ccf.specification.model.InvariantDefinition;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Slf4j
 @Component
 public class InvariantChecker {
 
+    private static final Pattern IN_CONDITION = Pattern.compile("^(.+?)\\s+IN\\s+\\[(.*)]$");
+    private static final Pattern COMPARISON = Pattern.compile("^(.+?)\\s*(!=|=)\\s*(.+)$");
+    private static final Pattern REFERENCE = Pattern.compile("^[A-Z]\\w*\\.\\w+$");
+
+    // Expressions are compiled once and shared by every verification that evaluates them
+    private final Map<String, Condition> compiled = new ConcurrentHashMap<>();
+
     public boolean checkInvariants(ConsistencyContract contract, Object context) {
         log.debug("Checking invariants for contract: {}", contract.getContractName());
 
@@ -32,10 +46,142 @@ public class InvariantChecker {
         return true;
     }
 
+    /**
+     * Evaluates an invariant against field values keyed by {@code Entity.field}.
+     *
+     * @return the outcome, or {@code null} when a referenced value is not available
+     */
+    public Boolean evaluate(InvariantDefinition invariant, Map<String, Object> values) {
+        Condition condition = compiled.computeIfAbsent(invariant.getExpression(), this::compile);
+        return condition.test(values);
+    }
+
     private boolean evaluateInvariant(String invariant, Object context) {
         // Simplified evaluation
         // In real implementation, parse and evaluate the invariant expression
         log.debug("Evaluating invariant: {}", invariant);
         return true;
     }
-}
\ No newline at end of file
+
+    private Condition compile(String expression) {
+        String[] parts = expression.split("\\s+IMPLIES\\s+");
+        if (parts.length == 2) {
+            Condition antecedent = compileCondition(parts[0].trim());
+            Condition consequent = compileCondition(parts[1].trim());
+            return values -> {
+                Boolean premise = antecedent.test(values);
+                if (Boolean.FALSE.equals(premise)) {
+                    return true;
+                }
+                Boolean conclusion = consequent.test(values);
+                if (premise == null) {
+                    return Boolean.TRUE.equals(conclusion) ? Boolean.TRUE : null;
+                }
+                return conclusion;
+            };
+        }
+        return compileCondition(expression.trim());
+    }
+
+    private Condition compileCondition(String condition) {
+        Matcher in = IN_CONDITION.matcher(condition);
+        if (in.matches()) {
+            Operand operand = operand(in.group(1).trim());
+            List<Operand> candidates = new ArrayList<>();
+            for (String candidate : in.group(2).split(",")) {
+                candidates.add(operand(candidate.trim()));
+            }
+            return values -> {
+                Object value = operand.resolve(values);
+                if (value == null) {
+                    return null;
+                }
+                for (Operand candidate : candidates) {
+                    Object expected = candidate.resolve(values);
+                    if (expected != null && matches(value, expected)) {
+                        return true;
+                    }
+                }
+                return false;
+            };
+        }
+
+        Matcher comparison = COMPARISON.matcher(condition);
+        if (comparison.matches()) {
+            Operand left = operand(comparison.group(1).trim());
+            Operand right = operand(comparison.group(3).trim());
+            boolean negated = "!=".equals(comparison.group(2));
+            return values -> {
+                Object l = left.resolve(values);
+                Object r = right.resolve(values);
+                if (l == null || r == null) {
+                    return null;
+                }
+                return matches(l, r) != negated;
+            };
+        }
+
+        log.warn("Unsupported invariant expression, it will not be evaluated: {}", condition);
+        return values -> null;
+    }
+
+    private Operand operand(String token) {
+        if (REFERENCE.matcher(token).matches()) {
+            return values -> values.get(token);
+        }
+        String literal = token.replaceAll("^['\"]|['\"]$", "");
+        return values -> literal;
+    }
+
+    private boolean matches(Object left, Object right) {
+        // Amounts compare as units and currency; snapshots from other services carry a decimal or the text form
+        if (left instanceof Money money) {
+            return right instanceof Money other ? money.equals(other) : matchesMoney(money, right);
+        }
+        if (right instanceof Money money) {
+            return matchesMoney(money, left);
+        }
+        BigDecimal l = toDecimal(left);
+        BigDecimal r = toDecimal(right);
+        if (l != null && r != null) {
+            return l.compareTo(r) == 0;
+        }
+        return String.valueOf(left).equals(String.valueOf(right));
+    }
+
+    private boolean matchesMoney(Money money, Object other) {
+        BigDecimal decimal = toDecimal(other);
+        if (decimal != null) {
+            return money.toBigDecimal().compareTo(decimal) == 0;
+        }
+        return money.toString().equals(String.valueOf(other));
+    }
+
+    private BigDecimal toDecimal(Object value) {
+        if (value instanceof BigDecimal decimal) {
+            return decimal;
+        }
+        if (value instanceof Number number) {
+            return new BigDecimal(number.toString());
+        }
+        if (value instanceof String text && !text.isEmpty()
+                && (Character.isDigit(text.charAt(0)) || text.charAt(0) == '-')) {
+            try {
+                return new BigDecimal(text);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    @FunctionalInterface
+    private interface Condition {
+        Boolean test(Map<String, Object> values);
+    }
+
+    @FunctionalInterface
+    private interface Operand {
+        Object resolve(Map<String, Object> values);
+    }
+}
@@ -0,0 +1,143 @@
+package ccf.ccf.verification;
+
+import ccf.ccf.specification.ContractRepository;
+import ccf.ccf.specification.InvariantPlanner;
+import ccf.ccf.specification.model.ConsistencyContract;
+import ccf.ccf.specification.model.InvariantDefinition;
+import ccf.ccf.specification.model.InvariantPlan;
+import ccf.ccf.verification.model.InvariantSnapshotEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Asynchronous path for cross-service invariants. Each service publishes the values it owns,
+ * keyed by the contract's correlation key, and the invariant is evaluated once every entity
+ * it reads has reported for that key.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class InvariantCorrelator {
+
+    private static final String SNAPSHOT_TOPIC = "ccf-invariant-snapshots";
+    private static final int MAX_PENDING_CORRELATIONS = 10_000;
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+    private final ContractRepository contractRepository;
+    private final InvariantPlanner invariantPlanner;
+    private final InvariantChecker invariantChecker;
+    private final ViolationDetector violationDetector;
+
+    // Latest merged values per contract and correlation key, least recently used evicted first
+    private final Map<String, CorrelationState> correlations = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CorrelationState> eldest) {
+                    return size() > MAX_PENDING_CORRELATIONS;
+                }
+            });
+
+    public void submit(String serviceName, String entityType, Object entity,
+                       Map<String, Object> values, List<InvariantDefinition> invariants) {
+        Set<String> contractIds = new LinkedHashSet<>();
+        invariants.forEach(invariant -> contractIds.add(invariant.getContractId()));
+
+        BeanWrapper wrapper = PropertyAccessorFactory.forBeanPropertyAccess(entity);
+
+        for (String contractId : contractIds) {
+            String correlationField = contractRepository.findById(contractId)
+                    .map(ConsistencyContract::getCorrelationKeys)
+                    .map(keys -> keys.get(entityType))
+                    .orElse(null);
+
+            if (correlationField == null || !wrapper.isReadableProperty(correlationField)) {
+                log.debug("Contract {} has no correlation key for {}", contractId, entityType);
+                continue;
+            }
+
+            Object correlationId = wrapper.getPropertyValue(correlationField);
+            if (correlationId == null) {
+                log.debug("Correlation key {}.{} is not set yet", entityType, correlationField);
+                continue;
+            }
+
+            InvariantSnapshotEvent event = InvariantSnapshotEvent.builder()
+                    .contractId(contractId)
+                    .entityType(entityType)
+                    .correlationId(correlationId.toString())
+                    .serviceName(serviceName)
+                    .values(values)
+                    .timestamp(System.currentTimeMillis())
+                    .build();
+
+            // Same key -> same partition -> same consumer, so both sides meet in one place
+            kafkaTemplate.send(SNAPSHOT_TOPIC, contractId + ":" + event.getCorrelationId(), event);
+        }
+    }
+
+    @KafkaListener(topics = SNAPSHOT_TOPIC, groupId = "ccf-correlation-group",
+            properties = "value.deserializer=org.apache.kafka.common.serialization.StringDeserializer")
+    public void handleSnapshot(String message) {
+        try {
+            InvariantSnapshotEvent event = objectMapper.readValue(message, InvariantSnapshotEvent.class);
+            correlate(event);
+        } catch (Exception e) {
+            log.error("Error processing invariant snapshot: {}", e.getMessage(), e);
+        }
+    }
+
+    private void correlate(InvariantSnapshotEvent event) {
+        List<InvariantDefinition> invariants = invariantPlanner.getPlan(event.getContractId())
+                .map(InvariantPlan::getCrossServiceInvariants)
+                .orElse(List.of());
+
+        if (invariants.isEmpty()) {
+            return;
+        }
+
+        String key = event.getContractId() + ":" + event.getCorrelationId();
+        Map<String, Object> values;
+        Set<String> reportedEntities;
+
+        synchronized (correlations) {
+            CorrelationState state = correlations.computeIfAbsent(key, k -> new CorrelationState());
+            state.entityTypes.add(event.getEntityType());
+            state.values.putAll(event.getValues());
+            values = new HashMap<>(state.values);
+            reportedEntities = new HashSet<>(state.entityTypes);
+        }
+
+        for (InvariantDefinition invariant : invariants) {
+            if (!reportedEntities.containsAll(invariant.getEntityTypes())) {
+                continue;
+            }
+
+            Boolean result = invariantChecker.evaluate(invariant, values);
+            if (Boolean.FALSE.equals(result)) {
+                violationDetector.detectViolation(
+                        event.getContractId(), invariant.getExpression(), event.getServiceName(), values);
+            }
+        }
+    }
+
+    private static class CorrelationState {
+        private final Set<String> entityTypes = new HashSet<>();
+        private final Map<String, Object> values = new HashMap<>();
+    }
+}
@@ -9,4 +9,7 @@ import java.lang.annotation.Target;
 @Retention(RetentionPolicy.RUNTIME)
 public @interface MonitorConsistency {
     String contractId() default "";
+
+    // Reads may run at a weaker level under load, within the contract's READ_CONSISTENCY range
+    boolean readOnly() default false;
 }
\ No newline at end of file
@@ -6,6 +6,7 @@ import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 
@@ -13,7 +14,7 @@ import java.util.UUID;
 @Component
 public class ViolationDetector {
 
-    private final List<ConsistencyViolation> detectedViolations = new ArrayList<>();
+    private final List<ConsistencyViolation> detectedViolations = Collections.synchronizedList(new ArrayList<>());
 
     public void detectViolation(String contractId, String invariant, String serviceName, Object context) {
         log.warn("Consistency violation detected in contract: {}", contractId);
@@ -44,7 +45,9 @@ public class ViolationDetector {
     }
 
     public List<ConsistencyViolation> getViolations() {
-        return new ArrayList<>(detectedViolations);
+        synchronized (detectedViolations) {
+            return new ArrayList<>(detectedViolations);
+        }
     }
 
     public void clearViolations() {
@@ -0,0 +1,22 @@
+package ccf.ccf.verification.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvariantSnapshotEvent {
+    private String contractId;
+    private String entityType;
+    private String correlationId;
+    private String serviceName;
+    // Field values keyed by Entity.field
+    private Map<String, Object> values;
+    private long timestamp;
+}
@@ -0,0 +1,119 @@
+package ccf.ccf.enforcement;
+
+import ccf.ccf.enforcement.model.SagaLogRecord;
+import ccf.ccf.enforcement.model.SagaLogRecordType;
+import ccf.ccf.exception.SagaExecutionException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AsyncSagaOrchestratorTest {
+
+    @TempDir
+    Path directory;
+
+    private ExecutorService executor;
+    private FileSagaLog sagaLog;
+    private CompensationRetryQueue retryQueue;
+    private AsyncSagaOrchestrator orchestrator;
+
+    private final List<String> compensated = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ObjectProvider<MeterRegistry> meterRegistry = mock(ObjectProvider.class);
+        when(meterRegistry.getIfAvailable(any())).thenReturn(new SimpleMeterRegistry());
+
+        executor = Executors.newCachedThreadPool();
+        sagaLog = new FileSagaLog(directory.resolve("async.saga.log"), true, 16);
+        retryQueue = new CompensationRetryQueue(sagaLog, meterRegistry, 3600);
+        CompensationHandler compensationHandler = new CompensationHandler(sagaLog, executor, retryQueue, meterRegistry, 3, 1, 2);
+        orchestrator = new AsyncSagaOrchestrator(sagaLog, executor, compensationHandler, meterRegistry, 5);
+    }
+
+    @AfterEach
+    void tearDown() {
+        retryQueue.shutdown();
+        sagaLog.close();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void failedCompensationIsRetriedBeforeTheSagaAborts() {
+        AtomicInteger attempts = new AtomicInteger();
+        Supplier<CompletionStage<?>> flakyRelease = () -> attempts.incrementAndGet() < 2
+                ? CompletableFuture.failedFuture(new IllegalStateException("inventory unavailable"))
+                : record("Reserve");
+
+        CompletableFuture<SagaContext> saga = orchestrator.executeSaga("OrderSaga", List.of(
+                step("Reserve", flakyRelease),
+                step("Charge", () -> record("Charge")),
+                failing("Ship")));
+
+        assertThatThrownBy(saga::join).hasCauseInstanceOf(SagaExecutionException.class);
+        assertThat(compensated).containsExactly("Charge", "Reserve");
+        assertThat(attempts).hasValue(2);
+        assertThat(types()).contains(SagaLogRecordType.SAGA_ABORTED);
+        assertThat(retryQueue.size()).isZero();
+    }
+
+    @Test
+    void sagaWithAParkedCompensationIsNotAborted() {
+        CompletableFuture<SagaContext> saga = orchestrator.executeSaga("OrderSaga", List.of(
+                step("Reserve", () -> CompletableFuture.failedFuture(new IllegalStateException("inventory down"))),
+                step("Charge", () -> record("Charge")),
+                failing("Ship")));
+
+        assertThatThrownBy(saga::join).hasCauseInstanceOf(SagaExecutionException.class);
+        assertThat(compensated).containsExactly("Charge");
+        assertThat(retryQueue.size()).isEqualTo(1);
+        assertThat(types()).contains(SagaLogRecordType.SAGA_COMPENSATING)
+                .doesNotContain(SagaLogRecordType.SAGA_ABORTED);
+    }
+
+    private List<SagaLogRecordType> types() {
+        return sagaLog.readAll().stream().map(SagaLogRecord::getType).toList();
+    }
+
+    private CompletionStage<?> record(String stepName) {
+        compensated.add(stepName);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private AsyncSagaStep step(String name, Supplier<CompletionStage<?>> compensation) {
+        return AsyncSagaStep.builder()
+                .stepName(name)
+                .action(() -> CompletableFuture.completedFuture(null))
+                .compensation(compensation)
+                .build();
+    }
+
+    private AsyncSagaStep failing(String name) {
+        return AsyncSagaStep.builder()
+                .stepName(name)
+                .action(() -> CompletableFuture.failedFuture(new IllegalStateException(name + " failed")))
+                .build();
+    }
+}
@@ -0,0 +1,159 @@
+package ccf.ccf.enforcement;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CompensationHandlerTest {
+
+    private ExecutorService executor;
+    private CompensationRetryQueue retryQueue;
+    private CompensationHandler handler;
+
+    private final List<String> compensated = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ObjectProvider<MeterRegistry> meterRegistry = mock(ObjectProvider.class);
+        when(meterRegistry.getIfAvailable(any())).thenReturn(new SimpleMeterRegistry());
+
+        executor = Executors.newFixedThreadPool(4);
+        SagaLog sagaLog = new NoOpSagaLog();
+        retryQueue = new CompensationRetryQueue(sagaLog, meterRegistry, 3600);
+        handler = new CompensationHandler(sagaLog, executor, retryQueue, meterRegistry, 3, 1, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        retryQueue.shutdown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void sequentialStepsAreCompensatedInReverseOrder() {
+        boolean succeeded = handler.compensate(List.of(
+                executed("CreateOrder", null),
+                executed("ReserveStock", null),
+                executed("Charge", null)));
+
+        assertThat(succeeded).isTrue();
+        assertThat(compensated).containsExactly("Charge", "ReserveStock", "CreateOrder");
+    }
+
+    @Test
+    void dependentDeclaredBeforeItsDependencyIsStillCompensatedFirst() {
+        // The order a resumed or recovered saga lists its completed steps in
+        boolean succeeded = handler.compensate(List.of(
+                executed("Ship", List.of("Charge")),
+                executed("Charge", List.of("CreateOrder")),
+                executed("CreateOrder", List.of())));
+
+        assertThat(succeeded).isTrue();
+        assertThat(compensated).containsExactly("Ship", "Charge", "CreateOrder");
+    }
+
+    @Test
+    void independentCompensationsRunConcurrently() {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        Runnable meet = () -> {
+            bothStarted.countDown();
+            try {
+                if (!bothStarted.await(5, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("sibling never started");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        };
+        SagaStep stock = executed("ReleaseStock", List.of());
+        stock.setCompensation(meet);
+        SagaStep credit = executed("ReleaseCredit", List.of());
+        credit.setCompensation(meet);
+
+        assertThat(handler.compensate(List.of(stock, credit))).isTrue();
+        assertThat(stock.isCompensated()).isTrue();
+        assertThat(credit.isCompensated()).isTrue();
+    }
+
+    @Test
+    void failingCompensationIsRetriedBeforeItSucceeds() {
+        AtomicInteger attempts = new AtomicInteger();
+        SagaStep flaky = executed("Refund", null);
+        flaky.setCompensation(() -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new IllegalStateException("gateway unavailable");
+            }
+        });
+
+        assertThat(handler.compensate(List.of(flaky))).isTrue();
+        assertThat(attempts).hasValue(3);
+        assertThat(retryQueue.size()).isZero();
+    }
+
+    @Test
+    void exhaustedCompensationIsParkedAndTheRestStillRun() {
+        SagaStep failing = executed("Refund", List.of("CreateOrder"));
+        failing.setCompensation(() -> {
+            throw new IllegalStateException("gateway unavailable");
+        });
+
+        boolean succeeded = handler.compensate(List.of(executed("CreateOrder", List.of()), failing));
+
+        assertThat(succeeded).isFalse();
+        assertThat(retryQueue.size()).isEqualTo(1);
+        assertThat(compensated).containsExactly("CreateOrder");
+    }
+
+    @Test
+    void untrackedSagasParkEquallyNamedStepsSeparately() {
+        for (int i = 0; i < 2; i++) {
+            SagaStep failing = executed("Refund", null);
+            failing.setCompensation(() -> {
+                throw new IllegalStateException("gateway unavailable");
+            });
+            handler.compensate(List.of(failing));
+        }
+
+        assertThat(retryQueue.size()).isEqualTo(2);
+    }
+
+    @Test
+    void stepsNotExecutedOrAlreadyCompensatedAreSkipped() {
+        SagaStep notExecuted = executed("Ship", null);
+        notExecuted.setExecuted(false);
+        SagaStep alreadyCompensated = executed("Charge", null);
+        alreadyCompensated.setCompensated(true);
+
+        handler.compensate(List.of(executed("CreateOrder", null), alreadyCompensated, notExecuted));
+
+        assertThat(compensated).containsExactly("CreateOrder");
+    }
+
+    private SagaStep executed(String name, List<String> dependsOn) {
+        return SagaStep.builder()
+                .stepName(name)
+                .dependsOn(dependsOn)
+                .executed(true)
+                .compensation(() -> compensated.add(name))
+                .build();
+    }
+}
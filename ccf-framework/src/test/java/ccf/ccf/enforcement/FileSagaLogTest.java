@@ -0,0 +1,169 @@
+package ccf.ccf.enforcement;
+
+import ccf.ccf.enforcement.model.SagaLogRecord;
+import ccf.ccf.enforcement.model.SagaLogRecordType;
+import ccf.ccf.exception.SagaExecutionException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+class FileSagaLogTest {
+
+    @TempDir
+    Path directory;
+
+    private FileSagaLog sagaLog;
+
+    @AfterEach
+    void close() {
+        if (sagaLog != null) {
+            sagaLog.close();
+        }
+    }
+
+    @Test
+    void recordsAreReadBackInAppendOrderAfterReopening() {
+        Path file = directory.resolve("test.saga.log");
+        sagaLog = new FileSagaLog(file, true, 16);
+        sagaLog.append(record(SagaLogRecordType.SAGA_STARTED, "s1", -1, null));
+        sagaLog.append(record(SagaLogRecordType.STEP_STARTED, "s1", 0, "CreateOrder"));
+        sagaLog.append(record(SagaLogRecordType.STEP_COMPLETED, "s1", 0, "CreateOrder"));
+        sagaLog.close();
+
+        sagaLog = new FileSagaLog(file, true, 16);
+
+        assertThat(sagaLog.readAll())
+                .extracting(SagaLogRecord::getType, SagaLogRecord::getStepName)
+                .containsExactly(
+                        tuple(SagaLogRecordType.SAGA_STARTED, null),
+                        tuple(SagaLogRecordType.STEP_STARTED, "CreateOrder"),
+                        tuple(SagaLogRecordType.STEP_COMPLETED, "CreateOrder"));
+    }
+
+    @Test
+    void startPayloadSurvivesReopeningAndOlderRecordsStillRead() throws Exception {
+        Path file = directory.resolve("test.saga.log");
+        sagaLog = new FileSagaLog(file, true, 16);
+        sagaLog.append(SagaLogRecord.started("s1", "OrderSaga", "{\"note\":\"tab\there\\nline\"}\n"));
+        sagaLog.close();
+
+        // A record of the six-field format written before payloads were logged
+        String legacy = "SAGA_STARTED\ts2\tOrderSaga\t-1\t-\t1700000000000";
+        CRC32 crc = new CRC32();
+        crc.update(legacy.getBytes(StandardCharsets.UTF_8));
+        Files.writeString(file, Long.toHexString(crc.getValue()) + "\t" + legacy + "\n", StandardOpenOption.APPEND);
+
+        sagaLog = new FileSagaLog(file, true, 16);
+
+        assertThat(sagaLog.readAll())
+                .extracting(SagaLogRecord::getSagaId, SagaLogRecord::getPayload)
+                .containsExactly(
+                        tuple("s1", "{\"note\":\"tab\there\\nline\"}\n"),
+                        tuple("s2", null));
+    }
+
+    @Test
+    void tornTailIsSkippedOnReplay() throws Exception {
+        Path file = directory.resolve("test.saga.log");
+        sagaLog = new FileSagaLog(file, false, 1);
+        sagaLog.append(record(SagaLogRecordType.SAGA_STARTED, "s1", -1, null));
+        sagaLog.close();
+        // A crash in the middle of a write leaves a line whose checksum does not match
+        Files.writeString(file, "1a2b3c\tSTEP_STA", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        sagaLog = new FileSagaLog(file, false, 1);
+        sagaLog.append(record(SagaLogRecordType.STEP_STARTED, "s1", 0, "CreateOrder"));
+
+        assertThat(sagaLog.readAll()).extracting(SagaLogRecord::getType)
+                .containsExactly(SagaLogRecordType.SAGA_STARTED);
+    }
+
+    @Test
+    void compactionKeepsOnlyUnfinishedSagas() {
+        sagaLog = new FileSagaLog(directory.resolve("test.saga.log"), true, 16);
+        sagaLog.append(record(SagaLogRecordType.SAGA_STARTED, "done", -1, null));
+        sagaLog.append(record(SagaLogRecordType.SAGA_STARTED, "open", -1, null));
+        sagaLog.append(record(SagaLogRecordType.SAGA_COMPLETED, "done", -1, null));
+
+        sagaLog.compactFinished();
+        sagaLog.append(record(SagaLogRecordType.STEP_STARTED, "open", 0, "CreateOrder"));
+
+        assertThat(sagaLog.readAll()).extracting(SagaLogRecord::getSagaId, SagaLogRecord::getType)
+                .containsExactly(
+                        tuple("open", SagaLogRecordType.SAGA_STARTED),
+                        tuple("open", SagaLogRecordType.STEP_STARTED));
+    }
+
+    @Test
+    void finishedSagasAreCompactedOnSchedule() throws Exception {
+        sagaLog = new FileSagaLog(directory.resolve("test.saga.log"), true, 16,
+                Duration.ofSeconds(5), Duration.ofMillis(50));
+        sagaLog.append(record(SagaLogRecordType.SAGA_STARTED, "done", -1, null));
+        sagaLog.append(record(SagaLogRecordType.SAGA_ABORTED, "done", -1, null));
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!sagaLog.readAll().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+
+        assertThat(sagaLog.readAll()).isEmpty();
+    }
+
+    @Test
+    void writerSurvivesAStrayInterrupt() throws Exception {
+        sagaLog = new FileSagaLog(directory.resolve("test.saga.log"), true, 16);
+        sagaLog.append(record(SagaLogRecordType.SAGA_STARTED, "s1", -1, null));
+
+        writerThread().interrupt();
+        Thread.sleep(200);
+        sagaLog.append(record(SagaLogRecordType.SAGA_COMPLETED, "s1", -1, null));
+
+        assertThat(sagaLog.readAll()).extracting(SagaLogRecord::getType)
+                .containsExactly(SagaLogRecordType.SAGA_STARTED, SagaLogRecordType.SAGA_COMPLETED);
+    }
+
+    @Test
+    void appendAfterCloseFailsInsteadOfWaiting() {
+        sagaLog = new FileSagaLog(directory.resolve("test.saga.log"), true, 16);
+        sagaLog.close();
+
+        assertThatThrownBy(() -> sagaLog.append(record(SagaLogRecordType.SAGA_STARTED, "s1", -1, null)))
+                .isInstanceOf(SagaExecutionException.class);
+    }
+
+    @Test
+    void compactingSpecificSagasLeavesTheOthers() {
+        sagaLog = new FileSagaLog(directory.resolve("test.saga.log"), true, 16);
+        sagaLog.append(record(SagaLogRecordType.SAGA_STARTED, "a", -1, null));
+        sagaLog.append(record(SagaLogRecordType.SAGA_STARTED, "b", -1, null));
+
+        sagaLog.compact(Set.of("a"));
+
+        assertThat(sagaLog.readAll()).extracting(SagaLogRecord::getSagaId).containsExactly("b");
+    }
+
+    private static Thread writerThread() {
+        List<Thread> writers = Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals("ccf-saga-log-writer") && thread.isAlive())
+                .toList();
+        assertThat(writers).hasSize(1);
+        return writers.get(0);
+    }
+
+    private static SagaLogRecord record(SagaLogRecordType type, String sagaId, int stepIndex, String stepName) {
+        return SagaLogRecord.of(type, sagaId, "OrderSaga", stepIndex, stepName);
+    }
+}
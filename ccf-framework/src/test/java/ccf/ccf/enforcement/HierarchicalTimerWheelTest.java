@@ -0,0 +1,126 @@
+package ccf.ccf.enforcement;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HierarchicalTimerWheelTest {
+
+    private ExecutorService executor;
+    private HierarchicalTimerWheel wheel;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newSingleThreadExecutor();
+        wheel = new HierarchicalTimerWheel(1, executor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        wheel.shutdown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void timeoutsFireInDeadlineOrderAndNotBeforeTheirDelay() throws Exception {
+        List<Long> fired = Collections.synchronizedList(new ArrayList<>());
+        List<Long> early = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(3);
+        long start = System.nanoTime();
+
+        for (long delay : new long[]{60, 20, 40}) {
+            wheel.schedule(delay, TimeUnit.MILLISECONDS, () -> {
+                if (TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < delay) {
+                    early.add(delay);
+                }
+                fired.add(delay);
+                done.countDown();
+            });
+        }
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(fired).containsExactly(20L, 40L, 60L);
+        assertThat(early).isEmpty();
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void timeoutBeyondTheFirstWheelIsCascadedAndFires() throws Exception {
+        CountDownLatch fired = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        // 64 ticks fill the finest wheel, so 300 ticks start on the second one
+        wheel.schedule(300, TimeUnit.MILLISECONDS, fired::countDown);
+
+        assertThat(fired.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(300);
+    }
+
+    @Test
+    void cancelledTimeoutNeverFires() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        HierarchicalTimerWheel.Timeout timeout = wheel.schedule(30, TimeUnit.MILLISECONDS, runs::incrementAndGet);
+        CountDownLatch later = new CountDownLatch(1);
+        wheel.schedule(80, TimeUnit.MILLISECONDS, later::countDown);
+
+        assertThat(timeout.cancel()).isTrue();
+        assertThat(timeout.cancel()).isFalse();
+        assertThat(wheel.size()).isEqualTo(1);
+
+        assertThat(later.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(runs).hasValue(0);
+    }
+
+    @Test
+    void expiredTimeoutCannotBeCancelled() throws Exception {
+        CountDownLatch fired = new CountDownLatch(1);
+        HierarchicalTimerWheel.Timeout timeout = wheel.schedule(5, TimeUnit.MILLISECONDS, fired::countDown);
+
+        assertThat(fired.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(timeout.cancel()).isFalse();
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void everyTimeoutFiresExactlyOnce() throws Exception {
+        int count = 2_000;
+        ConcurrentHashMap<Integer, AtomicInteger> runs = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(count);
+        Random random = new Random(42);
+
+        for (int i = 0; i < count; i++) {
+            int id = i;
+            wheel.schedule(1 + random.nextInt(400), TimeUnit.MILLISECONDS, () -> {
+                runs.computeIfAbsent(id, k -> new AtomicInteger()).incrementAndGet();
+                done.countDown();
+            });
+        }
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(runs).hasSize(count);
+        assertThat(runs.values()).allSatisfy(run -> assertThat(run).hasValue(1));
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void delayBeyondTheWheelRangeIsRejected() {
+        // 64^4 ticks of 1 ms is about 4.7 hours
+        assertThatThrownBy(() -> wheel.schedule(1, TimeUnit.DAYS, () -> { }))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(wheel.size()).isZero();
+    }
+}
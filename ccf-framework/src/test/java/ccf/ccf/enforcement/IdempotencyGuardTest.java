@@ -0,0 +1,156 @@
+package ccf.ccf.enforcement;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class IdempotencyGuardTest {
+
+    @Test
+    void duplicateIsSkipped() {
+        IdempotencyGuard guard = guard(null, 1_000, 100);
+        AtomicInteger runs = new AtomicInteger();
+
+        assertThat(guard.process("paymentAuthorized-1", runs::incrementAndGet)).isTrue();
+        assertThat(guard.process("paymentAuthorized-1", runs::incrementAndGet)).isFalse();
+        assertThat(runs).hasValue(1);
+    }
+
+    @Test
+    void failedHandlerLeavesTheEventUnrecorded() {
+        IdempotencyGuard guard = guard(null, 1_000, 100);
+
+        assertThatThrownBy(() -> guard.process("paymentAuthorized-1", () -> {
+            throw new IllegalStateException("database down");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(guard.isProcessed("paymentAuthorized-1")).isFalse();
+    }
+
+    @Test
+    void eventsWithoutIdAreAlwaysProcessed() {
+        IdempotencyGuard guard = guard(null, 1_000, 100);
+        AtomicInteger runs = new AtomicInteger();
+
+        guard.process(null, runs::incrementAndGet);
+        guard.process(null, runs::incrementAndGet);
+
+        assertThat(runs).hasValue(2);
+    }
+
+    @Test
+    void withoutStoreIdsThatLeftTheLruAreForgotten() {
+        IdempotencyGuard guard = guard(null, 1_000, 2);
+        guard.markProcessed("e-1");
+        guard.markProcessed("e-2");
+        guard.markProcessed("e-3");
+
+        assertThat(guard.isProcessed("e-1")).isFalse();
+        assertThat(guard.isProcessed("e-3")).isTrue();
+    }
+
+    @Test
+    void storeCoversIdsBeyondTheLru() {
+        InMemoryStore store = new InMemoryStore();
+        IdempotencyGuard guard = guard(store, 1_000, 2);
+        guard.markProcessed("e-1");
+        guard.markProcessed("e-2");
+        guard.markProcessed("e-3");
+
+        assertThat(guard.isProcessed("e-1")).isTrue();
+        assertThat(store.reads).hasValue(1);
+    }
+
+    @Test
+    void newIdsAreRecognisedWithoutReadingTheStore() {
+        InMemoryStore store = new InMemoryStore();
+        IdempotencyGuard guard = guard(store, 1_000, 100);
+        for (int i = 0; i < 500; i++) {
+            guard.markProcessed("seen-" + i);
+        }
+
+        int newIds = 0;
+        for (int i = 0; i < 500; i++) {
+            if (!guard.isProcessed("new-" + i)) {
+                newIds++;
+            }
+        }
+        assertThat(newIds).isEqualTo(500);
+        // Only bloom false positives reach the store
+        assertThat(store.reads.get()).isLessThan(25);
+    }
+
+    @Test
+    void idsSurviveOneRotationAndAreForgottenAfterTwo() {
+        IdempotencyGuard guard = guard(null, 100, 1_000);
+        guard.markProcessed("first");
+        for (int i = 0; i < 99; i++) {
+            guard.markProcessed("gen1-" + i);
+        }
+        // The filter holding "first" is now the previous generation
+        assertThat(guard.isProcessed("first")).isTrue();
+
+        for (int i = 0; i < 100; i++) {
+            guard.markProcessed("gen2-" + i);
+        }
+        // Both bloom generations moved on, so only a false positive could still match
+        assertThat(guard.isProcessed("first")).isFalse();
+    }
+
+    @Test
+    void restartedGuardRecognisesIdsPreloadedFromTheStore() {
+        InMemoryStore store = new InMemoryStore();
+        guard(store, 1_000, 100).markProcessed("paymentAuthorized-1");
+
+        IdempotencyGuard restarted = guard(store, 1_000, 100);
+        restarted.warmUp();
+
+        assertThat(restarted.process("paymentAuthorized-1", () -> { })).isFalse();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static IdempotencyGuard guard(ProcessedEventStore store, long expectedEvents, int lruSize) {
+        ObjectProvider<ProcessedEventStore> storeProvider = mock(ObjectProvider.class);
+        when(storeProvider.getIfAvailable()).thenReturn(store);
+        ObjectProvider<MeterRegistry> meterRegistry = mock(ObjectProvider.class);
+        when(meterRegistry.getIfAvailable(any())).thenReturn(new SimpleMeterRegistry());
+        return new IdempotencyGuard(storeProvider, meterRegistry, expectedEvents, 0.01, lruSize);
+    }
+
+    private static final class InMemoryStore implements ProcessedEventStore {
+        private final Set<String> ids = ConcurrentHashMap.newKeySet();
+        private final List<String> order = new ArrayList<>();
+        private final AtomicInteger reads = new AtomicInteger();
+
+        @Override
+        public boolean contains(String eventId) {
+            reads.incrementAndGet();
+            return ids.contains(eventId);
+        }
+
+        @Override
+        public synchronized void add(String eventId) {
+            if (ids.add(eventId)) {
+                order.add(0, eventId);
+            }
+        }
+
+        @Override
+        public synchronized List<String> recentIds(int limit) {
+            return List.copyOf(order.subList(0, Math.min(limit, order.size())));
+        }
+    }
+}
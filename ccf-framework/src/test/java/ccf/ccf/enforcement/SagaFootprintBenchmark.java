@@ -0,0 +1,123 @@
+package ccf.ccf.enforcement;
+
+import ccf.ccf.specification.ContractRepository;
+import ccf.ccf.specification.model.ConsistencyContract;
+import ccf.ccf.specification.model.ConsistencyLevel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Reports the retained heap per in-flight saga for the paths production takes:
+ * <ul>
+ *   <li>hand-built steps: a {@link SagaContext} and {@link SagaStep}s with bound lambdas, as
+ *       callers of {@code coordinateTransaction(transactionId, steps)} build them;</li>
+ *   <li>plan-based: what {@link TransactionCoordinator} holds while a contract's saga runs, the
+ *       {@link SagaInstance} in the store and the saga's context; the steps run from the plan's
+ *       shared handler array;</li>
+ *   <li>event-driven: what {@link EventDrivenSagaRuntime} holds while a saga waits for its next
+ *       event, the instance alone, since its steps are only instantiated to compensate.</li>
+ * </ul>
+ * Not a unit test; run it with the test classpath:
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/classes:target/test-classes:$(cat target/cp.txt) ccf.ccf.enforcement.SagaFootprintBenchmark
+ * </pre>
+ */
+public class SagaFootprintBenchmark {
+
+    private static final int SAGAS = 200_000;
+    private static final String CONTRACT_ID = "OrderPaymentConsistency";
+    private static final List<String> STEP_NAMES = List.of("CreateOrder", "AuthorizePayment", "ConfirmOrder");
+
+    public static void main(String[] args) {
+        String[] sagaIds = new String[SAGAS];
+        String[] orderIds = new String[SAGAS];
+        for (int i = 0; i < SAGAS; i++) {
+            sagaIds[i] = UUID.randomUUID().toString();
+            orderIds[i] = "order-" + i;
+        }
+
+        SagaPlanCompiler compiler = compiler();
+
+        long baseline = usedHeap();
+        List<Object> sagas = new ArrayList<>(SAGAS);
+        for (int i = 0; i < SAGAS; i++) {
+            sagas.add(handBuilt(sagaIds[i], orderIds[i]));
+        }
+        long handBuiltBytes = usedHeap() - baseline;
+        sagas = null;
+
+        baseline = usedHeap();
+        SagaInstanceStore store = new SagaInstanceStore(64);
+        sagas = new ArrayList<>(SAGAS);
+        for (int i = 0; i < SAGAS; i++) {
+            store.create(sagaIds[i], compiler.resolvePlan(CONTRACT_ID), orderIds[i], orderIds[i]);
+            SagaContext context = new SagaContext();
+            context.setSagaId(sagaIds[i]);
+            sagas.add(context);
+        }
+        long planBasedBytes = usedHeap() - baseline;
+        sagas = null;
+        store = null;
+
+        baseline = usedHeap();
+        store = new SagaInstanceStore(64);
+        for (int i = 0; i < SAGAS; i++) {
+            store.create(sagaIds[i], compiler.resolvePlan(CONTRACT_ID), orderIds[i], orderIds[i]);
+        }
+        long eventDrivenBytes = usedHeap() - baseline;
+
+        System.out.printf("Hand-built SagaContext + SagaSteps:  %d bytes per saga%n", handBuiltBytes / SAGAS);
+        System.out.printf("Plan-based, while the saga runs:     %d bytes per saga%n", planBasedBytes / SAGAS);
+        System.out.printf("Event-driven, waiting for an event:  %d bytes per saga (%d sagas stored)%n",
+                eventDrivenBytes / SAGAS, store.size());
+    }
+
+    private static Object handBuilt(String sagaId, String orderId) {
+        SagaContext context = new SagaContext();
+        context.setSagaId(sagaId);
+        context.put("orderId", orderId);
+
+        List<SagaStep> steps = new ArrayList<>(STEP_NAMES.size());
+        for (String name : STEP_NAMES) {
+            steps.add(SagaStep.builder()
+                    .stepName(name)
+                    .action(() -> orderId.length())
+                    .compensation(() -> orderId.length())
+                    .build());
+        }
+        return new Object[]{context, steps};
+    }
+
+    private static SagaPlanCompiler compiler() {
+        ContractRepository contracts = new ContractRepository();
+        contracts.save(ConsistencyContract.builder()
+                .contractId(CONTRACT_ID)
+                .contractName(CONTRACT_ID)
+                .contractHash("benchmark")
+                .consistencyLevel(ConsistencyLevel.EVENTUAL)
+                .sagaDefinition(String.join(" ", STEP_NAMES.stream().map(name -> "STEP " + name).toList()))
+                .build());
+
+        SagaPlanCompiler compiler = new SagaPlanCompiler(contracts);
+        SagaStepHandler<String> handler = orderId -> orderId.length();
+        STEP_NAMES.forEach(name -> compiler.bind(CONTRACT_ID, name, handler));
+        compiler.resolvePlan(CONTRACT_ID);
+        return compiler;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,68 @@
+package ccf.ccf.enforcement;
+
+import ccf.ccf.enforcement.model.SagaLogRecord;
+import ccf.ccf.enforcement.model.SagaLogRecordType;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Saga throughput of {@link FileSagaLog} with one fsync per record and with group commit.
+ * Each saga appends the records of a two-step run, as {@link SagaOrchestrator} does, from one
+ * of many concurrent threads. Not a unit test; run it with the test classpath:
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/classes:target/test-classes:$(cat target/cp.txt) ccf.ccf.enforcement.SagaLogBenchmark
+ * </pre>
+ */
+public class SagaLogBenchmark {
+
+    private static final int SAGAS = 2_000;
+    private static final int THREADS = 64;
+    private static final List<String> STEP_NAMES = List.of("CreateOrder", "AuthorizePayment");
+
+    public static void main(String[] args) throws Exception {
+        Path directory = Files.createTempDirectory("ccf-saga-log-bench");
+        for (boolean groupCommit : new boolean[]{false, true}) {
+            Path file = directory.resolve("bench-" + groupCommit + ".saga.log");
+            try (FileSagaLog sagaLog = new FileSagaLog(file, groupCommit, 256)) {
+                double sagasPerSecond = run(sagaLog);
+                System.out.printf("group commit %-5s: %,.0f sagas/s (%d records each)%n",
+                        groupCommit, sagasPerSecond, 2 + 2 * STEP_NAMES.size());
+            }
+        }
+    }
+
+    private static double run(SagaLog sagaLog) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> sagas = new ArrayList<>(SAGAS);
+            for (int i = 0; i < SAGAS; i++) {
+                sagas.add(executor.submit(() -> runSaga(sagaLog, UUID.randomUUID().toString())));
+            }
+            for (Future<?> saga : sagas) {
+                saga.get();
+            }
+            return SAGAS / ((System.nanoTime() - start) / 1e9);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    // The records a two-step saga appends, each awaited as the orchestrator awaits them
+    private static void runSaga(SagaLog sagaLog, String sagaId) {
+        sagaLog.append(SagaLogRecord.of(SagaLogRecordType.SAGA_STARTED, sagaId, "OrderSaga", -1, null));
+        for (int i = 0; i < STEP_NAMES.size(); i++) {
+            sagaLog.append(SagaLogRecord.of(SagaLogRecordType.STEP_STARTED, sagaId, "OrderSaga", i, STEP_NAMES.get(i)));
+            sagaLog.append(SagaLogRecord.of(SagaLogRecordType.STEP_COMPLETED, sagaId, "OrderSaga", i, STEP_NAMES.get(i)));
+        }
+        sagaLog.append(SagaLogRecord.of(SagaLogRecordType.SAGA_COMPLETED, sagaId, "OrderSaga", -1, null));
+    }
+}
@@ -0,0 +1,244 @@
+package ccf.ccf.enforcement;
+
+import ccf.ccf.enforcement.model.SagaPlan;
+import ccf.ccf.enforcement.model.SagaStepState;
+import ccf.ccf.exception.SagaExecutionException;
+import ccf.ccf.specification.ContractRepository;
+import ccf.ccf.specification.model.ConsistencyContract;
+import ccf.ccf.specification.model.ConsistencyLevel;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SagaOrchestratorTest {
+
+    private ExecutorService executor;
+    private CompensationRetryQueue retryQueue;
+    private SagaOrchestrator orchestrator;
+
+    private final List<String> compensated = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ObjectProvider<MeterRegistry> meterRegistry = mock(ObjectProvider.class);
+        when(meterRegistry.getIfAvailable(any())).thenReturn(new SimpleMeterRegistry());
+
+        executor = Executors.newFixedThreadPool(4);
+        SagaLog sagaLog = new NoOpSagaLog();
+        retryQueue = new CompensationRetryQueue(sagaLog, meterRegistry, 3600);
+        CompensationHandler compensationHandler =
+                new CompensationHandler(sagaLog, executor, retryQueue, meterRegistry, 1, 1, 1);
+        orchestrator = new SagaOrchestrator(compensationHandler, sagaLog, executor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        retryQueue.shutdown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void independentStepsRunConcurrently() {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        Runnable meet = () -> {
+            bothStarted.countDown();
+            try {
+                if (!bothStarted.await(5, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("sibling never started");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        };
+
+        SagaContext context = orchestrator.executeSaga("parallel", List.of(
+                step("ReserveStock", List.of(), meet),
+                step("ReserveCredit", List.of(), meet),
+                step("Confirm", List.of("ReserveStock", "ReserveCredit"), () -> { })));
+
+        assertThat(context.isCompleted()).isTrue();
+    }
+
+    @Test
+    void dependentStepWaitsForItsDependencies() {
+        List<String> ran = Collections.synchronizedList(new ArrayList<>());
+
+        orchestrator.executeSaga("ordered", List.of(
+                step("Confirm", List.of("Reserve"), () -> ran.add("Confirm")),
+                step("Reserve", List.of(), () -> ran.add("Reserve"))));
+
+        assertThat(ran).containsExactly("Reserve", "Confirm");
+    }
+
+    @Test
+    void failureCompensatesOnlyCompletedStepsInReverseDependencyOrder() {
+        assertThatThrownBy(() -> orchestrator.executeSaga("failing", List.of(
+                step("CreateOrder", List.of(), () -> { }),
+                step("ReserveStock", List.of("CreateOrder"), () -> { }),
+                step("Charge", List.of("ReserveStock"), () -> {
+                    throw new IllegalStateException("card declined");
+                }),
+                step("Ship", List.of("Charge"), () -> { }))))
+                .isInstanceOf(SagaExecutionException.class)
+                .hasRootCauseMessage("card declined");
+
+        assertThat(compensated).containsExactly("ReserveStock", "CreateOrder");
+    }
+
+    @Test
+    void errorThrownByStepFailsTheSagaInsteadOfHanging() {
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () ->
+                assertThatThrownBy(() -> orchestrator.executeSaga("erroring", List.of(
+                        step("CreateOrder", List.of(), () -> { }),
+                        step("Charge", List.of("CreateOrder"), () -> {
+                            throw new AssertionError("broken step");
+                        }))))
+                        .isInstanceOf(SagaExecutionException.class)
+                        .hasCauseInstanceOf(AssertionError.class));
+
+        assertThat(compensated).containsExactly("CreateOrder");
+    }
+
+    @Test
+    void failingStepInterruptsRunningSiblingAndLeavesPoolThreadsClean() throws Exception {
+        CountDownLatch siblingStarted = new CountDownLatch(1);
+
+        assertThatThrownBy(() -> orchestrator.executeSaga("cancelling", List.of(
+                step("Slow", List.of(), () -> {
+                    siblingStarted.countDown();
+                    try {
+                        Thread.sleep(30_000);
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException("cancelled");
+                    }
+                }),
+                step("Failing", List.of(), () -> {
+                    try {
+                        siblingStarted.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    throw new IllegalStateException("failed");
+                }))))
+                .isInstanceOf(SagaExecutionException.class)
+                .hasRootCauseMessage("failed");
+
+        assertThat(compensated).isEmpty();
+        for (int i = 0; i < 4; i++) {
+            assertThat(executor.submit(() -> Thread.currentThread().isInterrupted()).get()).isFalse();
+        }
+    }
+
+    @Test
+    void cyclicDependenciesAreRejectedBeforeAnyStepRuns() {
+        List<String> ran = Collections.synchronizedList(new ArrayList<>());
+
+        assertThatThrownBy(() -> orchestrator.executeSaga("cyclic", List.of(
+                step("A", List.of("B"), () -> ran.add("A")),
+                step("B", List.of("A"), () -> ran.add("B")))))
+                .isInstanceOf(SagaExecutionException.class)
+                .hasRootCauseMessage("Saga step dependencies contain a cycle");
+
+        assertThat(ran).isEmpty();
+    }
+
+    @Test
+    void unknownDependencyIsRejected() {
+        assertThatThrownBy(() -> orchestrator.executeSaga("unknown", List.of(
+                step("A", List.of("Missing"), () -> { }))))
+                .isInstanceOf(SagaExecutionException.class)
+                .hasRootCauseMessage("Saga step A depends on unknown step Missing");
+    }
+
+    @Test
+    void planRunsFromTheInstanceSlotsAndBoundHandlers() {
+        SagaPlanCompiler compiler = compiler(payload -> { });
+        SagaInstanceStore store = new SagaInstanceStore(4);
+        SagaPlan plan = compiler.resolvePlan("Plan");
+        SagaInstance instance = store.create("saga-1", plan, "order-1", "order-1");
+
+        SagaContext context = orchestrator.executePlan(instance, compiler.handlers(plan), "\"order-1\"",
+                () -> compiler.instantiate("Plan", "order-1", store, instance));
+
+        assertThat(context.isCompleted()).isTrue();
+        assertThat(List.of(instance.getStepState(0), instance.getStepState(1), instance.getStepState(2)))
+                .containsOnly(SagaStepState.COMPLETED);
+        assertThat(compensated).isEmpty();
+    }
+
+    @Test
+    void failedPlanCompensatesOnlyTheCompletedSteps() {
+        SagaPlanCompiler compiler = compiler(payload -> { });
+        compiler.bind("Plan", "Charge", (SagaStepHandler<String>) payload -> {
+            throw new IllegalStateException("declined");
+        });
+        SagaInstanceStore store = new SagaInstanceStore(4);
+        SagaPlan plan = compiler.resolvePlan("Plan");
+        SagaInstance instance = store.create("saga-1", plan, "order-1", "order-1");
+
+        assertThatThrownBy(() -> orchestrator.executePlan(instance, compiler.handlers(plan), null,
+                () -> compiler.instantiate("Plan", "order-1", store, instance)))
+                .isInstanceOf(SagaExecutionException.class);
+
+        assertThat(compensated).containsExactly("Reserve:order-1");
+        assertThat(instance.getStepState("Reserve")).isEqualTo(SagaStepState.COMPENSATED);
+        assertThat(instance.getStepState("Charge")).isEqualTo(SagaStepState.FAILED);
+        assertThat(instance.getStepState("Ship")).isEqualTo(SagaStepState.PENDING);
+    }
+
+    private SagaPlanCompiler compiler(SagaStepHandler<String> action) {
+        ContractRepository contracts = new ContractRepository();
+        contracts.save(ConsistencyContract.builder()
+                .contractId("Plan")
+                .contractName("Plan")
+                .contractHash("1")
+                .consistencyLevel(ConsistencyLevel.EVENTUAL)
+                .sagaDefinition("STEP Reserve STEP Charge STEP Ship")
+                .build());
+        SagaPlanCompiler compiler = new SagaPlanCompiler(contracts);
+        for (String name : List.of("Reserve", "Charge", "Ship")) {
+            compiler.bind("Plan", name, new SagaStepHandler<String>() {
+                @Override
+                public void execute(String payload) {
+                    action.execute(payload);
+                }
+
+                @Override
+                public void compensate(String payload) {
+                    compensated.add(name + ":" + payload);
+                }
+            });
+        }
+        return compiler;
+    }
+
+    private SagaStep step(String name, List<String> dependsOn, Runnable action) {
+        return SagaStep.builder()
+                .stepName(name)
+                .dependsOn(dependsOn)
+                .action(action)
+                .compensation(() -> compensated.add(name))
+                .build();
+    }
+}
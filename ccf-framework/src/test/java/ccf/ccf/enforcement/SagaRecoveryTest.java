@@ -0,0 +1,95 @@
+package ccf.ccf.enforcement;
+
+import ccf.ccf.enforcement.model.SagaLogRecord;
+import ccf.ccf.enforcement.model.SagaLogRecordType;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SagaRecoveryTest {
+
+    @TempDir
+    Path directory;
+
+    private ExecutorService executor;
+    private FileSagaLog sagaLog;
+    private CompensationRetryQueue retryQueue;
+    private SagaRecovery recovery;
+
+    private final List<String> compensated = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ObjectProvider<MeterRegistry> meterRegistry = mock(ObjectProvider.class);
+        when(meterRegistry.getIfAvailable(any())).thenReturn(new SimpleMeterRegistry());
+
+        executor = Executors.newFixedThreadPool(2);
+        sagaLog = new FileSagaLog(directory.resolve("recovery.saga.log"), true, 16);
+        retryQueue = new CompensationRetryQueue(sagaLog, meterRegistry, 3600);
+        CompensationHandler compensationHandler = new CompensationHandler(sagaLog, executor, retryQueue, meterRegistry, 3, 1, 2);
+        recovery = new SagaRecovery(sagaLog, new SagaOrchestrator(compensationHandler, sagaLog, executor), compensationHandler);
+        ReflectionTestUtils.setField(recovery, "policy", SagaRecovery.Policy.COMPENSATE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        retryQueue.shutdown();
+        sagaLog.close();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void factoryRebuildsTheStepsFromTheLoggedPayload() {
+        sagaLog.append(SagaLogRecord.started("s1", "OrderSaga", "{\"orderId\":7}"));
+        sagaLog.append(SagaLogRecord.of(SagaLogRecordType.STEP_STARTED, "s1", "OrderSaga", 0, "Reserve"));
+        sagaLog.append(SagaLogRecord.of(SagaLogRecordType.STEP_COMPLETED, "s1", "OrderSaga", 0, "Reserve"));
+        sagaLog.append(SagaLogRecord.of(SagaLogRecordType.STEP_STARTED, "s1", "OrderSaga", 1, "Charge"));
+
+        AtomicReference<SagaLogRecord> started = new AtomicReference<>();
+        recovery.registerDefinition("OrderSaga", record -> {
+            started.set(record);
+            return List.of(step("Reserve", record.getPayload()), step("Charge", record.getPayload()));
+        });
+
+        assertThat(recovery.recover()).isEqualTo(1);
+        assertThat(started.get().getSagaId()).isEqualTo("s1");
+        // Only the completed step is undone, against the payload it ran with
+        assertThat(compensated).containsExactly("Reserve:{\"orderId\":7}");
+        assertThat(sagaLog.readAll()).isEmpty();
+    }
+
+    @Test
+    void sagaWithoutDefinitionStaysInTheLog() {
+        sagaLog.append(SagaLogRecord.started("s1", "Unknown", null));
+
+        assertThat(recovery.recover()).isZero();
+        assertThat(sagaLog.readAll()).extracting(SagaLogRecord::getSagaId).containsExactly("s1");
+    }
+
+    private SagaStep step(String name, String payload) {
+        return SagaStep.builder()
+                .stepName(name)
+                .action(() -> { })
+                .compensation(() -> compensated.add(name + ":" + payload))
+                .build();
+    }
+}
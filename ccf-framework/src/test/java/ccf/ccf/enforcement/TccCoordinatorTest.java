@@ -0,0 +1,198 @@
+package ccf.ccf.enforcement;
+
+import ccf.ccf.enforcement.model.SagaLogRecord;
+import ccf.ccf.enforcement.model.SagaLogRecordType;
+import ccf.ccf.exception.SagaExecutionException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TccCoordinatorTest {
+
+    private static final String CONTRACT_ID = "StockReservation";
+
+    private ExecutorService executor;
+    private RecordingSagaLog sagaLog;
+    private TccCoordinator coordinator;
+
+    private final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ObjectProvider<MeterRegistry> meterRegistry = mock(ObjectProvider.class);
+        when(meterRegistry.getIfAvailable(any())).thenReturn(new SimpleMeterRegistry());
+
+        executor = Executors.newFixedThreadPool(4);
+        sagaLog = new RecordingSagaLog();
+        coordinator = new TccCoordinator(sagaLog, executor, meterRegistry, 1, 2, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void allTriesSucceedingConfirmsEveryParticipant() {
+        coordinator.registerParticipant(CONTRACT_ID, participant("stock", () -> { }));
+        coordinator.registerParticipant(CONTRACT_ID, participant("credit", () -> { }));
+
+        SagaContext context = coordinator.execute("tx-1", CONTRACT_ID, "order-1");
+
+        assertThat(context.isCompleted()).isTrue();
+        assertThat(calls).contains("stock:confirm", "credit:confirm").doesNotContain("stock:cancel", "credit:cancel");
+        assertThat(sagaLog.types()).endsWith(SagaLogRecordType.TCC_CONFIRMING, SagaLogRecordType.TCC_CONFIRMED);
+    }
+
+    @Test
+    void failedTryCancelsEveryParticipant() {
+        coordinator.registerParticipant(CONTRACT_ID, participant("stock", () -> { }));
+        coordinator.registerParticipant(CONTRACT_ID, participant("credit", () -> {
+            throw new IllegalStateException("no credit");
+        }));
+
+        assertThatThrownBy(() -> coordinator.execute("tx-1", CONTRACT_ID, "order-1"))
+                .isInstanceOf(SagaExecutionException.class)
+                .hasRootCauseMessage("no credit");
+
+        assertThat(calls).contains("stock:cancel", "credit:cancel").doesNotContain("stock:confirm");
+    }
+
+    @Test
+    void timedOutTryIsInterruptedAndCancelled() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        coordinator.registerParticipant(CONTRACT_ID, participant("stock", () -> {
+            try {
+                Thread.sleep(30_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        }));
+
+        assertThatThrownBy(() -> coordinator.execute("tx-1", CONTRACT_ID, "order-1"))
+                .isInstanceOf(SagaExecutionException.class);
+
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(calls).contains("stock:cancel").doesNotContain("stock:confirm");
+    }
+
+    @Test
+    void unloggedConfirmDecisionCancelsInstead() {
+        sagaLog.failing = SagaLogRecordType.TCC_CONFIRMING;
+        coordinator.registerParticipant(CONTRACT_ID, participant("stock", () -> { }));
+
+        assertThatThrownBy(() -> coordinator.execute("tx-1", CONTRACT_ID, "order-1"))
+                .isInstanceOf(SagaExecutionException.class);
+
+        assertThat(calls).contains("stock:cancel").doesNotContain("stock:confirm");
+        assertThat(sagaLog.types()).endsWith(SagaLogRecordType.TCC_CANCELLING, SagaLogRecordType.TCC_CANCELLED);
+    }
+
+    @Test
+    void unloggedCancelDecisionStillCancels() {
+        sagaLog.failing = SagaLogRecordType.TCC_CANCELLING;
+        coordinator.registerParticipant(CONTRACT_ID, participant("stock", () -> {
+            throw new IllegalStateException("out of stock");
+        }));
+
+        assertThatThrownBy(() -> coordinator.execute("tx-1", CONTRACT_ID, "order-1"))
+                .isInstanceOf(SagaExecutionException.class);
+
+        assertThat(calls).contains("stock:cancel");
+    }
+
+    @Test
+    void recoveryAppliesTheLastLoggedDecision() {
+        coordinator.registerParticipant(CONTRACT_ID, participant("stock", () -> { }));
+        sagaLog.append(SagaLogRecord.of(SagaLogRecordType.TCC_TRYING, "tx-1", CONTRACT_ID, 0, "stock"));
+        sagaLog.append(SagaLogRecord.of(SagaLogRecordType.TCC_CONFIRMING, "tx-1", CONTRACT_ID, -1, null));
+        sagaLog.append(SagaLogRecord.of(SagaLogRecordType.TCC_CANCELLING, "tx-1", CONTRACT_ID, -1, null));
+
+        assertThat(coordinator.recover()).isEqualTo(1);
+        assertThat(calls).containsExactly("stock:cancel");
+    }
+
+    @Test
+    void recoveryRunsWhenStartedAheadOfTheWebServerAndListeners() {
+        coordinator.registerParticipant(CONTRACT_ID, participant("stock", () -> { }));
+        sagaLog.append(SagaLogRecord.of(SagaLogRecordType.TCC_TRYING, "tx-1", CONTRACT_ID, 0, "stock"));
+
+        coordinator.start();
+
+        assertThat(calls).containsExactly("stock:cancel");
+        assertThat(coordinator.isRunning()).isTrue();
+        // The servlet web server starts in Integer.MAX_VALUE - 2048
+        assertThat(coordinator.getPhase()).isLessThan(Integer.MAX_VALUE - 2048);
+    }
+
+    private TccParticipant<String> participant(String name, Runnable onTry) {
+        return new TccParticipant<>() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public void tryReserve(String transactionId, String payload) {
+                calls.add(name + ":try");
+                onTry.run();
+            }
+
+            @Override
+            public void confirm(String transactionId) {
+                calls.add(name + ":confirm");
+            }
+
+            @Override
+            public void cancel(String transactionId) {
+                calls.add(name + ":cancel");
+            }
+        };
+    }
+
+    private static final class RecordingSagaLog implements SagaLog {
+        private final List<SagaLogRecord> records = Collections.synchronizedList(new ArrayList<>());
+        private volatile SagaLogRecordType failing;
+
+        @Override
+        public void append(SagaLogRecord record) {
+            if (record.getType() == failing) {
+                throw new SagaExecutionException("Saga log unavailable");
+            }
+            records.add(record);
+        }
+
+        @Override
+        public List<SagaLogRecord> readAll() {
+            return List.copyOf(records);
+        }
+
+        @Override
+        public void compact(Set<String> finishedSagaIds) {
+            records.removeIf(record -> finishedSagaIds.contains(record.getSagaId()));
+        }
+
+        private List<SagaLogRecordType> types() {
+            return readAll().stream().map(SagaLogRecord::getType).toList();
+        }
+    }
+}
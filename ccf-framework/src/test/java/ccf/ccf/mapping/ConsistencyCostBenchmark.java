@@ -0,0 +1,209 @@
+package ccf.ccf.mapping;
+
+import ccf.ccf.mapping.model.DatabaseType;
+import ccf.ccf.specification.model.ConsistencyLevel;
+import com.zaxxer.hikari.HikariDataSource;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures what each consistency level costs on PostgreSQL. For every distinct translation of the
+ * PostgreSQL adapter (SERIALIZABLE, REPEATABLE READ, READ COMMITTED) it runs the same order/payment
+ * workload: create an order, add its amount to one of a few hot totals with a read-modify-write,
+ * record the payment and confirm the order. The hot totals make the transactions contend, which is
+ * where stricter isolation pays in aborts and latency.
+ * <p>
+ * It connects to the database given on the command line, not to a service's DataSource, and
+ * recreates its {@code ccf_profile_*} tables there; use a scratch database. Not a unit test; run
+ * it with the test classpath and a PostgreSQL driver:
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/classes:target/test-classes:$(cat target/cp.txt):postgresql.jar \
+ *     ccf.ccf.mapping.ConsistencyCostBenchmark jdbc:postgresql://localhost/ccf_profile user password
+ * </pre>
+ */
+public class ConsistencyCostBenchmark {
+
+    private static final int THREADS = 8;
+    private static final int TRANSACTIONS = 2_000;
+    // Fewer rows, more contention on the read-modify-write
+    private static final int HOT_ROWS = 16;
+
+    private static final Map<String, Integer> JDBC_ISOLATION = Map.of(
+            "SERIALIZABLE", Connection.TRANSACTION_SERIALIZABLE,
+            "REPEATABLE READ", Connection.TRANSACTION_REPEATABLE_READ,
+            "READ COMMITTED", Connection.TRANSACTION_READ_COMMITTED,
+            "READ UNCOMMITTED", Connection.TRANSACTION_READ_UNCOMMITTED);
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: ConsistencyCostBenchmark <jdbc-url> [user] [password]");
+            System.exit(1);
+        }
+
+        try (HikariDataSource target = new HikariDataSource()) {
+            target.setJdbcUrl(args[0]);
+            target.setUsername(args.length > 1 ? args[1] : null);
+            target.setPassword(args.length > 2 ? args[2] : null);
+            target.setMaximumPoolSize(THREADS + 1);
+
+            ConsistencyLevelMapper mapper = new ConsistencyLevelMapper(List.of(new PostgreSQLAdapter(1, List.of())));
+            Map<String, List<ConsistencyLevel>> levelsByTranslation = new LinkedHashMap<>();
+            Arrays.stream(ConsistencyLevel.values())
+                    .sorted((a, b) -> Integer.compare(b.getStrength(), a.getStrength()))
+                    .forEach(level -> levelsByTranslation.computeIfAbsent(
+                            mapper.getTranslatedLevel(DatabaseType.POSTGRESQL.getDisplayName(), level),
+                            k -> new ArrayList<>()).add(level));
+
+            System.out.printf("%d threads, %d transactions per level, %d hot rows%n", THREADS, TRANSACTIONS, HOT_ROWS);
+            try {
+                for (Map.Entry<String, List<ConsistencyLevel>> entry : levelsByTranslation.entrySet()) {
+                    resetTables(target);
+                    Cost cost = run(target, JDBC_ISOLATION.get(entry.getKey()));
+                    System.out.printf("  %-16s %-28s %8.1f tx/s  abort %5.1f%%  failed %d  p50 %7.2fms  p95 %7.2fms  p99 %7.2fms%n",
+                            entry.getKey(), entry.getValue(), cost.throughputPerSecond(), cost.abortRate() * 100,
+                            cost.failed(), cost.p50Millis(), cost.p95Millis(), cost.p99Millis());
+                }
+            } finally {
+                dropTables(target);
+            }
+        }
+    }
+
+    private static Cost run(DataSource target, int isolation) throws InterruptedException {
+        long[] latencies = new long[TRANSACTIONS];
+        AtomicInteger next = new AtomicInteger();
+        AtomicLong committed = new AtomicLong();
+        AtomicLong aborted = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+
+        ExecutorService workers = Executors.newFixedThreadPool(THREADS);
+        long start = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            workers.execute(() -> {
+                int i;
+                while ((i = next.getAndIncrement()) < TRANSACTIONS) {
+                    long begin = System.nanoTime();
+                    Outcome outcome = runTransaction(target, isolation, i + 1L);
+                    latencies[i] = System.nanoTime() - begin;
+                    switch (outcome) {
+                        case COMMITTED -> committed.incrementAndGet();
+                        case ABORTED -> aborted.incrementAndGet();
+                        case FAILED -> failed.incrementAndGet();
+                    }
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(1, TimeUnit.HOURS);
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        Arrays.sort(latencies);
+        return new Cost(failed.get(), committed.get() / elapsedSeconds, (double) aborted.get() / TRANSACTIONS,
+                percentile(latencies, 0.50), percentile(latencies, 0.95), percentile(latencies, 0.99));
+    }
+
+    private static Outcome runTransaction(DataSource target, int isolation, long orderId) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        BigDecimal amount = BigDecimal.valueOf(random.nextInt(1, 100_000), 2);
+        int hotRow = random.nextInt(HOT_ROWS);
+
+        try (Connection connection = target.getConnection()) {
+            connection.setAutoCommit(false);
+            connection.setTransactionIsolation(isolation);
+            try {
+                update(connection, "INSERT INTO ccf_profile_orders (id, status, amount) VALUES (?, 'PENDING', ?)",
+                        orderId, amount);
+
+                BigDecimal total;
+                try (PreparedStatement select = connection.prepareStatement(
+                        "SELECT authorized FROM ccf_profile_totals WHERE id = ?")) {
+                    select.setInt(1, hotRow);
+                    try (ResultSet resultSet = select.executeQuery()) {
+                        resultSet.next();
+                        total = resultSet.getBigDecimal(1);
+                    }
+                }
+                update(connection, "UPDATE ccf_profile_totals SET authorized = ? WHERE id = ?", total.add(amount), hotRow);
+
+                update(connection, "INSERT INTO ccf_profile_payments (order_id, status, amount) VALUES (?, 'AUTHORIZED', ?)",
+                        orderId, amount);
+                update(connection, "UPDATE ccf_profile_orders SET status = 'CONFIRMED' WHERE id = ?", orderId);
+                connection.commit();
+                return Outcome.COMMITTED;
+            } catch (SQLException e) {
+                connection.rollback();
+                return isAbort(e) ? Outcome.ABORTED : Outcome.FAILED;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            return Outcome.FAILED;
+        }
+    }
+
+    // Class 40 is transaction rollback (serialization failure, deadlock); 55P03 a lock wait timeout
+    private static boolean isAbort(SQLException e) {
+        String state = e.getSQLState();
+        return state != null && (state.startsWith("40") || state.equals("55P03"));
+    }
+
+    private static void resetTables(DataSource target) throws SQLException {
+        dropTables(target);
+        try (Connection connection = target.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE ccf_profile_orders (id BIGINT PRIMARY KEY, status VARCHAR(16), amount DECIMAL(19,2))");
+            statement.execute("CREATE TABLE ccf_profile_payments (order_id BIGINT PRIMARY KEY, status VARCHAR(16), amount DECIMAL(19,2))");
+            statement.execute("CREATE TABLE ccf_profile_totals (id INT PRIMARY KEY, authorized DECIMAL(19,2))");
+            for (int i = 0; i < HOT_ROWS; i++) {
+                statement.execute("INSERT INTO ccf_profile_totals (id, authorized) VALUES (" + i + ", 0)");
+            }
+        }
+    }
+
+    private static void dropTables(DataSource target) throws SQLException {
+        try (Connection connection = target.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS ccf_profile_payments");
+            statement.execute("DROP TABLE IF EXISTS ccf_profile_orders");
+            statement.execute("DROP TABLE IF EXISTS ccf_profile_totals");
+        }
+    }
+
+    private static void update(Connection connection, String sql, Object... parameters) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            statement.executeUpdate();
+        }
+    }
+
+    private static double percentile(long[] sortedNanos, double quantile) {
+        int index = (int) Math.ceil(quantile * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    private record Cost(long failed, double throughputPerSecond, double abortRate,
+                        double p50Millis, double p95Millis, double p99Millis) {
+    }
+
+    private enum Outcome {
+        COMMITTED, ABORTED, FAILED
+    }
+}
@@ -0,0 +1,96 @@
+package ccf.ccf.mapping;
+
+import ccf.ccf.specification.model.ConsistencyLevel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PostgreSQLAdapterSessionTokenTest {
+
+    private final PostgreSQLAdapter adapter = new PostgreSQLAdapter(5, List.of());
+    private final ConsistencyLevelMapper mapper = new ConsistencyLevelMapper(List.of(adapter));
+
+    // Stand-ins for a primary and one streaming replica, each reporting a fixed WAL position
+    private final DataSource primary = dataSourceAt("0/3000060");
+    private final DataSource replica = dataSourceAt("0/2000000");
+    private final ConsistencyRoutingDataSource routing = adapter.wrap(primary, Map.of(), Map.of("replica", replica));
+
+    @AfterEach
+    void clear() {
+        mapper.clear();
+    }
+
+    @Test
+    void writeTokenIsThePrimaryWalPosition() {
+        assertThat(mapper.captureSessionToken()).isEqualTo("pg:0/3000060");
+    }
+
+    @Test
+    void noTokenIsCapturedWithoutReplicas() throws SQLException {
+        PostgreSQLAdapter withoutReplicas = new PostgreSQLAdapter(5, List.of());
+        DataSource unused = mock(DataSource.class);
+        withoutReplicas.wrap(unused, Map.of(), Map.of());
+
+        assertThat(withoutReplicas.captureSessionToken()).isNull();
+        verify(unused, never()).getConnection();
+    }
+
+    @Test
+    void readGoesToReplicaThatReachedTheToken() {
+        assertThat(mapper.bindRead(ConsistencyLevel.READ_YOUR_WRITES, "pg:0/1FFFFFF")).isTrue();
+
+        assertThat(routing.determineTargetDataSource()).isSameAs(replica);
+        assertThat(mapper.replicaReads()).isEqualTo(1);
+    }
+
+    @Test
+    void readFallsBackToPrimaryWhileReplicaLags() {
+        assertThat(mapper.bindRead(ConsistencyLevel.READ_YOUR_WRITES, "pg:0/3000060")).isTrue();
+
+        assertThat(routing.determineTargetDataSource()).isSameAs(primary);
+        assertThat(mapper.replicaReads()).isZero();
+    }
+
+    @Test
+    void causalReadsStayOnPrimary() {
+        mapper.bindRead(ConsistencyLevel.CAUSAL, null);
+
+        assertThat(routing.determineTargetDataSource()).isSameAs(primary);
+    }
+
+    @Test
+    void lsnComparesAcrossBothHalves() {
+        assertThat(PostgreSQLAdapter.parseLsn("1/0")).isGreaterThan(PostgreSQLAdapter.parseLsn("0/FFFFFFFF"));
+    }
+
+    private static DataSource dataSourceAt(String lsn) {
+        try {
+            ResultSet resultSet = mock(ResultSet.class);
+            when(resultSet.next()).thenReturn(true);
+            when(resultSet.getString(1)).thenReturn(lsn);
+            Statement statement = mock(Statement.class);
+            when(statement.executeQuery(anyString())).thenReturn(resultSet);
+            Connection connection = mock(Connection.class);
+            when(connection.createStatement()).thenReturn(statement);
+            DataSource dataSource = mock(DataSource.class);
+            when(dataSource.getConnection()).thenReturn(connection);
+            return dataSource;
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package ccf.ccf.money;
+
+import ccf.ccf.money.model.Money;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MoneyMongoConvertersTest {
+
+    @Test
+    void moneyRoundTripsThroughItsDocument() {
+        Money money = Money.ofMinor(5990, "EUR");
+
+        Document document = new MoneyMongoConverters.MoneyWriter().convert(money);
+
+        assertThat(document).containsEntry("minorUnits", 5990L).containsEntry("currency", "EUR");
+        assertThat(new MoneyMongoConverters.MoneyReader().convert(document)).isEqualTo(money);
+    }
+
+    @Test
+    void amountsStoredAsPlainDecimalsAreReadInTheDefaultCurrency() {
+        assertThat(new MoneyMongoConverters.LegacyStringReader().convert("59.9")).isEqualTo(Money.ofMinor(5990, "USD"));
+        assertThat(new MoneyMongoConverters.LegacyDecimalReader().convert(new Decimal128(new BigDecimal("59.90"))))
+                .isEqualTo(Money.ofMinor(5990, "USD"));
+    }
+}
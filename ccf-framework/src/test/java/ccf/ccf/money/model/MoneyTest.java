@@ -0,0 +1,81 @@
+package ccf.ccf.money.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MoneyTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void parseReadsDecimalsExactlyAtTheCurrencyScale() {
+        assertThat(Money.parse("59.9", "USD")).isEqualTo(Money.ofMinor(5990, "USD"));
+        assertThat(Money.parse("59.90", "USD")).isEqualTo(Money.parse("59.900", "USD"));
+        assertThat(Money.parse("-0.01", "USD").minorUnits()).isEqualTo(-1);
+        assertThat(Money.parse("1500", "JPY").minorUnits()).isEqualTo(1500);
+        assertThat(Money.parse("1.005", "BHD").minorUnits()).isEqualTo(1005);
+    }
+
+    @Test
+    void parseRejectsDigitsBeyondTheScaleInsteadOfRounding() {
+        assertThatThrownBy(() -> Money.parse("10.005", "USD")).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> Money.parse("1.5", "JPY")).isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    void parseRejectsMalformedAmounts() {
+        assertThatThrownBy(() -> Money.parse("", "USD")).isInstanceOf(NumberFormatException.class);
+        assertThatThrownBy(() -> Money.parse("-", "USD")).isInstanceOf(NumberFormatException.class);
+        assertThatThrownBy(() -> Money.parse("1.2.3", "USD")).isInstanceOf(NumberFormatException.class);
+        assertThatThrownBy(() -> Money.parse("1e3", "USD")).isInstanceOf(NumberFormatException.class);
+        assertThatThrownBy(() -> Money.parse("99999999999999999999", "USD")).isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    void textFormIsCanonicalAndParsesBack() {
+        assertThat(Money.ofMinor(5990, "USD")).hasToString("59.90 USD");
+        assertThat(Money.ofMinor(5, "USD")).hasToString("0.05 USD");
+        assertThat(Money.ofMinor(-5, "USD")).hasToString("-0.05 USD");
+        assertThat(Money.ofMinor(1500, "JPY")).hasToString("1500 JPY");
+        assertThat(Money.ofMinor(Long.MIN_VALUE, "USD")).hasToString("-92233720368547758.08 USD");
+
+        for (Money money : new Money[]{Money.ofMinor(5990, "USD"), Money.ofMinor(-5, "EUR"), Money.ofMinor(7, "JPY")}) {
+            assertThat(Money.parse(money.toString())).isEqualTo(money);
+        }
+        assertThat(Money.parse("12.5")).isEqualTo(Money.of(new BigDecimal("12.50"), Money.DEFAULT_CURRENCY));
+    }
+
+    @Test
+    void invalidCurrencyIsRejectedOnConstruction() {
+        assertThatThrownBy(() -> Money.ofMinor(1, "XYZ"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("XYZ");
+        assertThatThrownBy(() -> Money.ofMinor(1, "usd")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void decimalConversionIsExact() {
+        assertThat(Money.of(new BigDecimal("59.9"), "USD").toBigDecimal()).isEqualByComparingTo("59.90");
+        assertThat(Money.ofMinor(5990, "USD").toBigDecimal()).hasToString("59.90");
+        assertThatThrownBy(() -> Money.of(new BigDecimal("0.001"), "USD")).isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    void jsonCarriesANumericAmountAndTheCurrency() throws Exception {
+        String json = objectMapper.writeValueAsString(Money.ofMinor(5990, "EUR"));
+
+        assertThat(json).isEqualTo("{\"amount\":59.90,\"currency\":\"EUR\"}");
+        assertThat(objectMapper.readValue(json, Money.class)).isEqualTo(Money.ofMinor(5990, "EUR"));
+    }
+
+    @Test
+    void jsonStillReadsTheTextFormAndPlainNumbers() throws Exception {
+        assertThat(objectMapper.readValue("\"59.90 EUR\"", Money.class)).isEqualTo(Money.ofMinor(5990, "EUR"));
+        assertThat(objectMapper.readValue("0.1", Money.class)).isEqualTo(Money.ofMinor(10, "USD"));
+    }
+}
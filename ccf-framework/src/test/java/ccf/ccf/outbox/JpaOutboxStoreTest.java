@@ -0,0 +1,107 @@
+package ccf.ccf.outbox;
+
+import ccf.ccf.outbox.model.OutboxMessage;
+import ccf.ccf.outbox.model.RelayResult;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class JpaOutboxStoreTest {
+
+    private final List<String> statements = new ArrayList<>();
+    private final List<Object[]> rows = new ArrayList<>();
+    private final AtomicBoolean lockAvailable = new AtomicBoolean(true);
+    // Each write with the ids it was given, in order
+    private final List<Map.Entry<String, Object>> writes = new ArrayList<>();
+    private JpaOutboxStore store;
+
+    @BeforeEach
+    void setUp() {
+        EntityManager entityManager = mock(EntityManager.class);
+        when(entityManager.createNativeQuery(anyString())).thenAnswer(invocation -> query(invocation.getArgument(0)));
+        store = new JpaOutboxStore(entityManager, mock(PlatformTransactionManager.class));
+    }
+
+    @Test
+    void shardHeldByAnotherInstanceIsSkipped() {
+        lockAvailable.set(false);
+        rows.add(row(1, "order-1", 0));
+
+        int claimed = store.drain(0, 2, 100, batch -> {
+            throw new AssertionError("sender must not run without the shard lock");
+        });
+
+        assertThat(claimed).isZero();
+        assertThat(statements).singleElement().asString().contains("pg_try_advisory_xact_lock");
+    }
+
+    @Test
+    void claimedBatchIsSelectedOnlyAfterTheShardLock() {
+        rows.add(row(1, "order-1", 0));
+
+        store.drain(1, 2, 100, batch -> new RelayResult(batch, List.of(), List.of()));
+
+        assertThat(statements.get(0)).contains("pg_try_advisory_xact_lock");
+        assertThat(statements.get(1)).contains("FROM ccf_outbox WHERE MOD(key_hash, ?1) = ?2").contains("ORDER BY id");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void sentAreDeletedFailedCountedAndParkedMovedAside() {
+        rows.add(row(1, "order-1", 0));
+        rows.add(row(2, "order-2", 0));
+        rows.add(row(3, "order-3", 4));
+        rows.add(row(4, "order-2", 0));
+
+        int claimed = store.drain(0, 1, 100, batch -> {
+            assertThat(batch).extracting(OutboxMessage::getId).containsExactly("1", "2", "3", "4");
+            assertThat(batch.get(2).getAttempts()).isEqualTo(4);
+            return new RelayResult(List.of(batch.get(0)), List.of(batch.get(1)), List.of(batch.get(2)));
+        });
+
+        assertThat(claimed).isEqualTo(4);
+        assertThat(writes).extracting(Map.Entry::getValue)
+                .containsExactly(List.of(1L), List.of(2L), List.of(3L), List.of(3L));
+        assertThat(writes.get(0).getKey()).startsWith("DELETE FROM ccf_outbox ");
+        assertThat(writes.get(1).getKey()).startsWith("UPDATE ccf_outbox SET attempts = attempts + 1");
+        assertThat(writes.get(2).getKey()).contains("INSERT INTO ccf_outbox_parked");
+        assertThat(writes.get(3).getKey()).startsWith("DELETE FROM ccf_outbox ");
+        // Message 4 waits behind its key's failed message 2, untouched
+        assertThat(writes).noneSatisfy(write -> assertThat((List<Object>) write.getValue()).contains(4L));
+    }
+
+    private Query query(String sql) {
+        statements.add(sql);
+        Query query = mock(Query.class, RETURNS_SELF);
+        if (sql.contains("pg_try_advisory_xact_lock")) {
+            when(query.getSingleResult()).thenAnswer(invocation -> lockAvailable.get());
+        } else if (sql.strip().startsWith("SELECT id, topic")) {
+            when(query.getResultList()).thenReturn(rows);
+        } else {
+            when(query.setParameter(eq("ids"), any())).thenAnswer(invocation -> {
+                writes.add(Map.entry(sql, invocation.getArgument(1)));
+                return query;
+            });
+        }
+        return query;
+    }
+
+    private static Object[] row(long id, String key, int attempts) {
+        return new Object[]{id, "order-events", key, "orderEvent", "{}", 0L, attempts};
+    }
+}
@@ -0,0 +1,123 @@
+package ccf.ccf.outbox;
+
+import ccf.ccf.outbox.model.OutboxMessage;
+import ccf.ccf.outbox.model.RelayResult;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MongoOutboxStoreTest {
+
+    private static final String COLLECTION = "ccf_outbox";
+
+    private MongoTemplate mongoTemplate;
+    private MongoOutboxStore store;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.indexOps(anyString())).thenReturn(mock(IndexOperations.class));
+        store = new MongoOutboxStore(mongoTemplate, 30);
+    }
+
+    @Test
+    void shardLeasedByAnotherInstanceIsSkipped() {
+        when(mongoTemplate.upsert(any(Query.class), any(UpdateDefinition.class), eq("ccf_outbox_shards")))
+                .thenThrow(new DuplicateKeyException("shard-0 is leased"));
+
+        int claimed = store.drain(0, 2, 100, batch -> {
+            throw new AssertionError("sender must not run without the shard lease");
+        });
+
+        assertThat(claimed).isZero();
+        verify(mongoTemplate, never()).find(any(Query.class), eq(Document.class), eq(COLLECTION));
+    }
+
+    @Test
+    void shardLeaseIsTakenOrRenewedForThisInstanceOnly() {
+        store.drain(1, 2, 100, batch -> new RelayResult(batch, List.of(), List.of()));
+
+        ArgumentCaptor<Query> lease = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).upsert(lease.capture(), any(UpdateDefinition.class), eq("ccf_outbox_shards"));
+        Document leaseQuery = lease.getValue().getQueryObject();
+        assertThat(leaseQuery.get("_id")).isEqualTo("shard-1");
+        assertThat(leaseQuery.getList("$or", Document.class)).hasSize(2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void sentAreRemovedFailedCountedAndParkedMovedAside() {
+        List<Document> claimed = List.of(document("order-1", 0), document("order-2", 0),
+                document("order-3", 4), document("order-2", 0));
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq(COLLECTION)))
+                .thenReturn(claimed.stream().map(d -> new Document("_id", d.getObjectId("_id"))).toList())
+                .thenReturn(claimed);
+
+        int drained = store.drain(0, 1, 100, batch -> {
+            assertThat(batch).extracting(OutboxMessage::getKey).containsExactly("order-1", "order-2", "order-3", "order-2");
+            return new RelayResult(List.of(batch.get(0)), List.of(batch.get(1)), List.of(batch.get(2)));
+        });
+
+        assertThat(drained).isEqualTo(4);
+
+        ArgumentCaptor<Query> removed = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, atLeastOnce()).remove(removed.capture(), eq(COLLECTION));
+        assertThat(removed.getAllValues()).extracting(query -> idsOf(query))
+                .containsExactly(List.of(id(claimed, 0)), List.of(id(claimed, 2)));
+
+        ArgumentCaptor<Collection<Document>> parked = ArgumentCaptor.forClass(Collection.class);
+        verify(mongoTemplate).insert(parked.capture(), eq("ccf_outbox_parked"));
+        assertThat(parked.getValue()).singleElement().satisfies(document -> {
+            assertThat(document.getObjectId("_id")).isEqualTo(id(claimed, 2));
+            assertThat(document.getInteger("attempts")).isEqualTo(5);
+        });
+
+        ArgumentCaptor<Query> updated = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, atLeastOnce()).updateMulti(updated.capture(), any(UpdateDefinition.class), eq(COLLECTION));
+        // The claim, the failed message's attempt, then the release of what is left
+        assertThat(updated.getAllValues()).hasSize(3);
+        assertThat(idsOf(updated.getAllValues().get(1))).containsExactly(id(claimed, 1));
+        assertThat(updated.getAllValues().get(2).getQueryObject()).containsKey("claim");
+    }
+
+    private static Document document(String key, int attempts) {
+        return new Document("_id", new ObjectId())
+                .append("topic", "order-events")
+                .append("key", key)
+                .append("keyHash", OutboxStore.keyHash(key))
+                .append("eventType", "orderEvent")
+                .append("payload", "{}")
+                .append("createdAt", new Date())
+                .append("attempts", attempts);
+    }
+
+    private static ObjectId id(List<Document> documents, int index) {
+        return documents.get(index).getObjectId("_id");
+    }
+
+    private static List<Object> idsOf(Query query) {
+        Object in = ((Document) query.getQueryObject().get("_id")).get("$in");
+        return List.copyOf((Collection<?>) in);
+    }
+}
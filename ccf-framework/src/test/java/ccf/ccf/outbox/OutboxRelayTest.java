@@ -0,0 +1,120 @@
+package ccf.ccf.outbox;
+
+import ccf.ccf.outbox.model.OutboxMessage;
+import ccf.ccf.outbox.model.RelayResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.errors.NetworkException;
+import org.apache.kafka.common.errors.RecordTooLargeException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OutboxRelayTest {
+
+    private final List<String> sentPayloads = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> eventTypes = Collections.synchronizedList(new ArrayList<>());
+    private final Map<String, RuntimeException> failures = new HashMap<>();
+    private OutboxRelay relay;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ObjectProvider<MeterRegistry> meterRegistry = mock(ObjectProvider.class);
+        when(meterRegistry.getIfAvailable(any())).thenReturn(new SimpleMeterRegistry());
+
+        KafkaTemplate<String, String> kafkaTemplate = mock(KafkaTemplate.class);
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenAnswer(invocation -> {
+            ProducerRecord<String, String> record = invocation.getArgument(0);
+            sentPayloads.add(record.value());
+            eventTypes.add(new String(record.headers().lastHeader(OutboxRelay.EVENT_TYPE_HEADER).value(), StandardCharsets.UTF_8));
+            RuntimeException failure = failures.get(record.value());
+            return failure != null
+                    ? CompletableFuture.failedFuture(failure)
+                    : CompletableFuture.completedFuture(mock(SendResult.class));
+        });
+        relay = new OutboxRelay(mock(OutboxStore.class), meterRegistry, kafkaTemplate, 1, 100, 100, 5_000, 3);
+    }
+
+    @Test
+    void distinctKeysGoOutInOneWave() {
+        RelayResult result = relay.send(0, List.of(message("1", "order-1", 0), message("2", "order-2", 0)));
+
+        assertThat(result.getSent()).extracting(OutboxMessage::getId).containsExactly("1", "2");
+        assertThat(sentPayloads).containsExactly("1", "2");
+        assertThat(eventTypes).containsExactly("orderEvent", "orderEvent");
+    }
+
+    @Test
+    void messagesOfOneKeyAreSentInOrder() {
+        RelayResult result = relay.send(0, List.of(
+                message("1", "order-1", 0), message("2", "order-2", 0), message("3", "order-1", 0)));
+
+        assertThat(result.getSent()).extracting(OutboxMessage::getId).containsExactly("1", "2", "3");
+        assertThat(sentPayloads.indexOf("1")).isLessThan(sentPayloads.indexOf("3"));
+    }
+
+    @Test
+    void failedMessageStopsItsKeyButNotOthers() {
+        failures.put("1", new RecordTooLargeException("too large"));
+
+        RelayResult result = relay.send(0, List.of(
+                message("1", "order-1", 0), message("2", "order-2", 0), message("3", "order-1", 0)));
+
+        assertThat(result.getSent()).extracting(OutboxMessage::getId).containsExactly("2");
+        assertThat(result.getFailed()).extracting(OutboxMessage::getId).containsExactly("1");
+        assertThat(result.getParked()).isEmpty();
+        assertThat(sentPayloads).doesNotContain("3");
+    }
+
+    @Test
+    void messageRejectedTooOftenIsParkedAndItsKeyMovesOn() {
+        failures.put("1", new RecordTooLargeException("too large"));
+
+        RelayResult result = relay.send(0, List.of(message("1", "order-1", 2), message("2", "order-1", 0)));
+
+        assertThat(result.getParked()).extracting(OutboxMessage::getId).containsExactly("1");
+        assertThat(result.getSent()).extracting(OutboxMessage::getId).containsExactly("2");
+    }
+
+    @Test
+    void transientFailureIsNeitherCountedNorParked() {
+        failures.put("1", new NetworkException("broker down"));
+
+        RelayResult result = relay.send(0, List.of(message("1", "order-1", 2), message("2", "order-1", 0)));
+
+        assertThat(result.getSent()).isEmpty();
+        assertThat(result.getFailed()).isEmpty();
+        assertThat(result.getParked()).isEmpty();
+        assertThat(sentPayloads).containsExactly("1");
+    }
+
+    private static OutboxMessage message(String id, String key, int attempts) {
+        return OutboxMessage.builder()
+                .id(id)
+                .topic("order-events")
+                .key(key)
+                .eventType("orderEvent")
+                .payload(id)
+                .createdAt(Instant.now())
+                .attempts(attempts)
+                .build();
+    }
+}
@@ -0,0 +1,172 @@
+package ccf.ccf.outbox;
+
+import ccf.ccf.outbox.model.OutboxMessage;
+import ccf.ccf.outbox.model.RelayResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.ssl.SslBundles;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.MessageListener;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Consumer throughput of order events keyed by order id, against the partition count of the
+ * topic. The events go through {@link OutboxRelay} into an embedded broker; a listener container
+ * with one thread per partition then consumes them, spending a millisecond per event as a
+ * database write would. Events of each order carry a sequence number, and any event seen out of
+ * sequence is reported. Not a unit test; run it with the test classpath:
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/classes:target/test-classes:$(cat target/cp.txt) ccf.ccf.outbox.PartitionThroughputBenchmark
+ * </pre>
+ */
+public class PartitionThroughputBenchmark {
+
+    private static final int ORDERS = 1_000;
+    private static final int EVENTS_PER_ORDER = 4;
+    private static final int[] PARTITIONS = {1, 2, 4, 8};
+
+    public static void main(String[] args) throws Exception {
+        EmbeddedKafkaKraftBroker broker = new EmbeddedKafkaKraftBroker(1, 1);
+        broker.afterPropertiesSet();
+        try {
+            for (int partitions : PARTITIONS) {
+                run(broker, partitions);
+            }
+        } finally {
+            broker.destroy();
+        }
+    }
+
+    private static void run(EmbeddedKafkaKraftBroker broker, int partitions) throws Exception {
+        String topic = "order-events-" + partitions;
+        broker.addTopics(new NewTopic(topic, partitions, (short) 1));
+
+        InMemoryOutboxStore store = new InMemoryOutboxStore();
+        for (int seq = 0; seq < EVENTS_PER_ORDER; seq++) {
+            for (int order = 0; order < ORDERS; order++) {
+                store.append(OutboxMessage.builder()
+                        .topic(topic)
+                        .key(String.valueOf(order))
+                        .eventType("orderEvent")
+                        .payload(String.valueOf(seq))
+                        .createdAt(Instant.now())
+                        .build());
+            }
+        }
+
+        int workers = 4;
+        KafkaProperties kafkaProperties = new KafkaProperties();
+        kafkaProperties.setBootstrapServers(List.of(broker.getBrokersAsString()));
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        OutboxRelay relay = new OutboxRelay(store, beans.getBeanProvider(MeterRegistry.class), kafkaProperties,
+                beans.getBeanProvider(SslBundles.class), workers, 500, 100, 30_000, 5, 10);
+        long relayStart = System.nanoTime();
+        List<Thread> relayThreads = new ArrayList<>();
+        for (int shard = 0; shard < workers; shard++) {
+            int owned = shard;
+            Thread thread = new Thread(() -> relay.relayPending(owned));
+            thread.start();
+            relayThreads.add(thread);
+        }
+        for (Thread thread : relayThreads) {
+            thread.join();
+        }
+        double relaySeconds = (System.nanoTime() - relayStart) / 1e9;
+        relay.shutdown();
+
+        int total = ORDERS * EVENTS_PER_ORDER;
+        CountDownLatch consumed = new CountDownLatch(total);
+        Map<String, Integer> lastSeq = new ConcurrentHashMap<>();
+        AtomicInteger outOfOrder = new AtomicInteger();
+        AtomicLong firstRecord = new AtomicLong();
+
+        ContainerProperties properties = new ContainerProperties(topic);
+        properties.setMessageListener((MessageListener<String, String>) record -> {
+            firstRecord.compareAndSet(0, System.nanoTime());
+            int seq = Integer.parseInt(record.value());
+            Integer previous = lastSeq.put(record.key(), seq);
+            if (seq != (previous == null ? 0 : previous + 1)) {
+                outOfOrder.incrementAndGet();
+            }
+            sleepMillis(1);
+            consumed.countDown();
+        });
+        ConcurrentMessageListenerContainer<String, String> container = new ConcurrentMessageListenerContainer<>(
+                new DefaultKafkaConsumerFactory<>(Map.of(
+                        ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString(),
+                        ConsumerConfig.GROUP_ID_CONFIG, "bench-" + partitions,
+                        ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest",
+                        ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class,
+                        ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class)),
+                properties);
+        container.setConcurrency(partitions);
+
+        // Timed from the first record, so the consumer group join is left out
+        container.start();
+        boolean done = consumed.await(5, TimeUnit.MINUTES);
+        double consumeSeconds = (System.nanoTime() - firstRecord.get()) / 1e9;
+        container.stop();
+
+        System.out.printf("%d partitions: relay %8.0f events/s, consume %7.0f events/s, %d out of order%s%n",
+                partitions, total / relaySeconds, total / consumeSeconds, outOfOrder.get(),
+                done ? "" : " (timed out)");
+    }
+
+    private static void sleepMillis(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class InMemoryOutboxStore implements OutboxStore {
+
+        private final List<OutboxMessage> messages = new ArrayList<>();
+        private long nextId;
+
+        @Override
+        public synchronized void append(OutboxMessage message) {
+            message.setId(String.valueOf(nextId++));
+            messages.add(message);
+        }
+
+        @Override
+        public int drain(int shard, int shards, int batchSize, Function<List<OutboxMessage>, RelayResult> sender) {
+            List<OutboxMessage> batch = new ArrayList<>(batchSize);
+            synchronized (this) {
+                Iterator<OutboxMessage> iterator = messages.iterator();
+                while (iterator.hasNext() && batch.size() < batchSize) {
+                    OutboxMessage message = iterator.next();
+                    if (OutboxStore.keyHash(message.getKey()) % shards == shard) {
+                        batch.add(message);
+                        iterator.remove();
+                    }
+                }
+            }
+            if (!batch.isEmpty() && sender.apply(batch).getSent().size() < batch.size()) {
+                throw new IllegalStateException("Embedded broker rejected part of a batch");
+            }
+            return batch.size();
+        }
+    }
+}
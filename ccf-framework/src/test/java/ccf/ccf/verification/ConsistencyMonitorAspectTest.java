@@ -0,0 +1,164 @@
+package ccf.ccf.verification;
+
+import ccf.ccf.mapping.AdaptiveConsistencyController;
+import ccf.ccf.mapping.ConsistencyLevelMapper;
+import ccf.ccf.mapping.SessionTokenExchange;
+import ccf.ccf.specification.ContractRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.reflect.Method;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ConsistencyMonitorAspectTest {
+
+    private AdaptiveConsistencyController controller;
+    private ConsistencyMonitorAspect aspect;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ObjectProvider<MeterRegistry> meterRegistry = mock(ObjectProvider.class);
+        when(meterRegistry.getIfAvailable(any())).thenReturn(new SimpleMeterRegistry());
+
+        controller = new AdaptiveConsistencyController(meterRegistry, false, 5000, 20, 500, 0.05, 0.05, 3, 100);
+        aspect = new ConsistencyMonitorAspect(null, new ContractRepository(), new ConsistencyLevelMapper(List.of()),
+                controller, new SessionTokenExchange());
+        ReflectionTestUtils.setField(aspect, "conflictRetries", 3);
+        ReflectionTestUtils.setField(aspect, "conflictBackoffMillis", 1L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        controller.shutdown();
+    }
+
+    @Test
+    void serializationFailureReRunsTheTransaction() {
+        Orders orders = proxy(new TransactionalOrders(2, "40001"));
+
+        assertThat(orders.confirm()).isEqualTo("confirmed");
+        assertThat(orders.attempts()).isEqualTo(3);
+    }
+
+    @Test
+    void deadlockIsRetriedLikeASerializationFailure() {
+        Orders orders = proxy(new TransactionalOrders(1, "40P01"));
+
+        assertThat(orders.confirm()).isEqualTo("confirmed");
+        assertThat(orders.attempts()).isEqualTo(2);
+    }
+
+    @Test
+    void retriesAreBounded() {
+        Orders orders = proxy(new TransactionalOrders(10, "40001"));
+
+        assertThatThrownBy(orders::confirm).hasRootCauseInstanceOf(SQLException.class);
+        assertThat(orders.attempts()).isEqualTo(4);
+    }
+
+    @Test
+    void otherFailuresAreNotRetried() {
+        Orders orders = proxy(new TransactionalOrders(1, "23505"));
+
+        assertThatThrownBy(orders::confirm).hasRootCauseInstanceOf(SQLException.class);
+        assertThat(orders.attempts()).isEqualTo(1);
+    }
+
+    @Test
+    void methodWithoutItsOwnTransactionIsNotRetried() {
+        Orders orders = proxy(new NonTransactionalOrders(1, "40001"));
+
+        assertThatThrownBy(orders::confirm).hasRootCauseInstanceOf(SQLException.class);
+        assertThat(orders.attempts()).isEqualTo(1);
+    }
+
+    // Calls the advice the way the proxy would, with a join point that proceeds into the target
+    private Orders proxy(Orders target) {
+        return new Orders() {
+            @Override
+            public String confirm() {
+                try {
+                    Method method = target.getClass().getMethod("confirm");
+                    MethodSignature signature = mock(MethodSignature.class);
+                    when(signature.getName()).thenReturn("confirm");
+                    when(signature.getMethod()).thenReturn(method);
+                    ProceedingJoinPoint joinPoint = mock(ProceedingJoinPoint.class);
+                    when(joinPoint.getSignature()).thenReturn(signature);
+                    when(joinPoint.getTarget()).thenReturn(target);
+                    when(joinPoint.proceed()).thenAnswer(invocation -> target.confirm());
+                    return (String) aspect.monitorConsistency(joinPoint, method.getAnnotation(MonitorConsistency.class));
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+
+            @Override
+            public int attempts() {
+                return target.attempts();
+            }
+        };
+    }
+
+    interface Orders {
+        String confirm();
+
+        int attempts();
+    }
+
+    static class NonTransactionalOrders implements Orders {
+        private final AtomicInteger attempts = new AtomicInteger();
+        private final int failures;
+        private final String sqlState;
+
+        NonTransactionalOrders(int failures, String sqlState) {
+            this.failures = failures;
+            this.sqlState = sqlState;
+        }
+
+        @Override
+        @MonitorConsistency(contractId = "OrderPaymentConsistency")
+        public String confirm() {
+            if (attempts.incrementAndGet() <= failures) {
+                throw new IllegalStateException("could not commit", new SQLException("conflict", sqlState));
+            }
+            return "confirmed";
+        }
+
+        @Override
+        public int attempts() {
+            return attempts.get();
+        }
+    }
+
+    static class TransactionalOrders extends NonTransactionalOrders {
+        TransactionalOrders(int failures, String sqlState) {
+            super(failures, sqlState);
+        }
+
+        @Override
+        @Transactional
+        @MonitorConsistency(contractId = "OrderPaymentConsistency")
+        public String confirm() {
+            return super.confirm();
+        }
+    }
+}
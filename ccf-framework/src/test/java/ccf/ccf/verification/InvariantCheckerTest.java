@@ -0,0 +1,83 @@
+package ccf.ccf.verification;
+
+import ccf.ccf.specification.model.InvariantDefinition;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InvariantCheckerTest {
+
+    private final InvariantChecker checker = new InvariantChecker();
+
+    @Test
+    void equalityComparesNumbersByValue() {
+        InvariantDefinition totalMatch = invariant("Order.totalAmount = Payment.amount");
+
+        assertThat(checker.evaluate(totalMatch, values("Order.totalAmount", new BigDecimal("59.90"),
+                "Payment.amount", 59.9))).isTrue();
+        assertThat(checker.evaluate(totalMatch, values("Order.totalAmount", new BigDecimal("59.90"),
+                "Payment.amount", "60"))).isFalse();
+    }
+
+    @Test
+    void inequalityNegatesTheComparison() {
+        InvariantDefinition notFailed = invariant("Payment.status != FAILED");
+
+        assertThat(checker.evaluate(notFailed, values("Payment.status", "AUTHORIZED"))).isTrue();
+        assertThat(checker.evaluate(notFailed, values("Payment.status", "FAILED"))).isFalse();
+    }
+
+    @Test
+    void inMatchesAnyListedLiteral() {
+        InvariantDefinition settled = invariant("Payment.status IN [DECLINED, REFUNDED]");
+
+        assertThat(checker.evaluate(settled, values("Payment.status", "REFUNDED"))).isTrue();
+        assertThat(checker.evaluate(settled, values("Payment.status", "AUTHORIZED"))).isFalse();
+    }
+
+    @Test
+    void implicationHoldsWhenThePremiseIsFalse() {
+        InvariantDefinition confirmed = invariant("Order.status = CONFIRMED IMPLIES Payment.status = AUTHORIZED");
+
+        assertThat(checker.evaluate(confirmed, values("Order.status", "PENDING"))).isTrue();
+        assertThat(checker.evaluate(confirmed, values("Order.status", "CONFIRMED",
+                "Payment.status", "AUTHORIZED"))).isTrue();
+        assertThat(checker.evaluate(confirmed, values("Order.status", "CONFIRMED",
+                "Payment.status", "DECLINED"))).isFalse();
+    }
+
+    @Test
+    void missingValuesLeaveTheOutcomeOpen() {
+        assertThat(checker.evaluate(invariant("Order.totalAmount = Payment.amount"),
+                values("Order.totalAmount", 10))).isNull();
+        assertThat(checker.evaluate(invariant("Order.status = CONFIRMED IMPLIES Payment.status = AUTHORIZED"),
+                values("Order.status", "CONFIRMED"))).isNull();
+    }
+
+    @Test
+    void unknownPremiseStillHoldsWhenTheConclusionDoes() {
+        assertThat(checker.evaluate(invariant("Order.status = CONFIRMED IMPLIES Payment.status = AUTHORIZED"),
+                values("Payment.status", "AUTHORIZED"))).isTrue();
+    }
+
+    @Test
+    void unsupportedExpressionsAreNotEvaluated() {
+        assertThat(checker.evaluate(invariant("Order.total > 0"), values("Order.total", 1))).isNull();
+    }
+
+    private static InvariantDefinition invariant(String expression) {
+        return InvariantDefinition.builder().contractId("Test").expression(expression).build();
+    }
+
+    private static Map<String, Object> values(Object... keysAndValues) {
+        Map<String, Object> values = new HashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            values.put((String) keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,147 @@
+package com.order.cache;
+
+import ccf.ccf.mapping.ConsistencyLevelMapper;
+import ccf.ccf.mapping.SessionTokenExchange;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.order.dto.OrderResponse;
+import com.order.service.OrderService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.TopicPartition;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Read-through cache in front of {@link OrderService#getOrder}, for clients polling an order
+ * until it is confirmed. Entries are bounded by {@code orders.cache.max-size} and expire after
+ * {@code orders.cache.ttl-seconds}. Concurrent misses on one order share a single load.
+ * <p>
+ * Once a transaction that changed an order commits, the entry is dropped here and the order id
+ * is sent to {@value #INVALIDATION_TOPIC}, where every other node drops its copy too. A lost
+ * invalidation leaves a node stale for at most the TTL. Hits, misses and evictions are exported
+ * as the {@code cache.*} metrics tagged {@code cache=orders}.
+ * <p>
+ * Requests carrying a session token bypass the cache: the client wants to see its own writes,
+ * which an entry on this node may predate until the invalidation arrives. Orders loaded from a
+ * replica are returned but not cached, since the replica may lag behind the primary.
+ */
+@Slf4j
+@Component
+public class OrderCache {
+
+    public static final String INVALIDATION_TOPIC = "order-cache-invalidations";
+    private static final String ORIGIN_HEADER = "origin";
+
+    private final OrderService orderService;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final SessionTokenExchange sessionTokenExchange;
+    private final ConsistencyLevelMapper consistencyLevelMapper;
+    private final boolean enabled;
+    private final Cache<Long, OrderResponse> cache;
+    private final Counter localInvalidations;
+    private final Counter remoteInvalidations;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public OrderCache(OrderService orderService,
+                      KafkaTemplate<String, Object> kafkaTemplate,
+                      SessionTokenExchange sessionTokenExchange,
+                      ConsistencyLevelMapper consistencyLevelMapper,
+                      ObjectProvider<MeterRegistry> meterRegistry,
+                      @Value("${orders.cache.enabled:true}") boolean enabled,
+                      @Value("${orders.cache.max-size:10000}") long maxSize,
+                      @Value("${orders.cache.ttl-seconds:30}") long ttlSeconds) {
+        this.orderService = orderService;
+        this.kafkaTemplate = kafkaTemplate;
+        this.sessionTokenExchange = sessionTokenExchange;
+        this.consistencyLevelMapper = consistencyLevelMapper;
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+
+        MeterRegistry registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+        CaffeineCacheMetrics.monitor(registry, cache, "orders");
+        this.localInvalidations = Counter.builder("orders.cache.invalidations").tag("source", "local").register(registry);
+        this.remoteInvalidations = Counter.builder("orders.cache.invalidations").tag("source", "remote").register(registry);
+    }
+
+    /**
+     * The order as {@link OrderService#getOrder} returns it. A miss loads it while other readers
+     * of the same order wait for that load; a missing order is not cached.
+     */
+    public OrderResponse getOrder(Long orderId) {
+        if (!enabled || sessionTokenExchange.currentToken() != null) {
+            return orderService.getOrder(orderId);
+        }
+        OrderResponse[] fromReplica = new OrderResponse[1];
+        OrderResponse response = cache.get(orderId, id -> {
+            long replicaReads = consistencyLevelMapper.replicaReads();
+            OrderResponse loaded = orderService.getOrder(id);
+            if (consistencyLevelMapper.replicaReads() != replicaReads) {
+                fromReplica[0] = loaded;
+                return null;
+            }
+            return loaded;
+        });
+        if (response != null) {
+            return response;
+        }
+        // Readers that waited on another thread's replica load get nothing and read for themselves
+        return fromReplica[0] != null ? fromReplica[0] : orderService.getOrder(orderId);
+    }
+
+    // Without a transaction the change is already visible, so the event is handled right away
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderChanged(OrderChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        // Waits for a load of this order in progress, so a value read before the commit is dropped too
+        cache.invalidate(event.orderId());
+        localInvalidations.increment();
+
+        ProducerRecord<String, Object> record =
+                new ProducerRecord<>(INVALIDATION_TOPIC, String.valueOf(event.orderId()), null);
+        record.headers().add(ORIGIN_HEADER, nodeId.getBytes(StandardCharsets.UTF_8));
+        kafkaTemplate.send(record).whenComplete((result, e) -> {
+            if (e != null) {
+                log.warn("Could not broadcast cache invalidation of order {}: {}", event.orderId(), e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Every node assigns itself the topic's single partition without a consumer group and starts
+     * from the latest: entries cached before the node started cannot exist, and no group is left
+     * on the broker when the node goes away.
+     */
+    @KafkaListener(topicPartitions = @TopicPartition(topic = INVALIDATION_TOPIC, partitions = "0"),
+            containerFactory = "cacheInvalidationListenerContainerFactory",
+            autoStartup = "${orders.cache.enabled:true}")
+    public void onInvalidation(ConsumerRecord<String, String> record) {
+        Header origin = record.headers().lastHeader(ORIGIN_HEADER);
+        if (origin != null && nodeId.equals(new String(origin.value(), StandardCharsets.UTF_8))) {
+            return;
+        }
+        cache.invalidate(Long.valueOf(record.key()));
+        remoteInvalidations.increment();
+        log.debug("Order {} changed on another node, dropped from the cache", record.key());
+    }
+}
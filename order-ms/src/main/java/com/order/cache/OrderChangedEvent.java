@@ -0,0 +1,8 @@
+package com.order.cache;
+
+/**
+ * Published inside the transaction that changed an order, so cached copies can be dropped once
+ * it commits.
+ */
+public record OrderChangedEvent(Long orderId) {
+}
@@ -4,6 +4,7 @@ import ccf.ccf.specification.ContractParser;
 import ccf.ccf.specification.ContractRegistry;
 import ccf.ccf.specification.ContractRepository;
 import ccf.ccf.specification.ContractValidator;
+import ccf.ccf.specification.InvariantPlanner;
 import ccf.ccf.specification.model.ConsistencyContract;
 import ccf.ccf.verification.ConsistencyVerifier;
 import com.order.model.Order;
@@ -12,6 +13,8 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 @Slf4j
 @Component
 @RequiredArgsConstructor
@@ -21,6 +24,7 @@ public class OrderCcfIntegration {
     private final ContractValidator contractValidator;
     private final ContractRepository contractRepository;
     private final ContractRegistry contractRegistry;
+    private final InvariantPlanner invariantPlanner;
     private final ConsistencyVerifier consistencyVerifier;
 
     @PostConstruct
@@ -38,6 +42,9 @@ public class OrderCcfIntegration {
             contractValidator.validate(contract);
             contractRepository.save(contract);
 
+            // Decide which invariants this service evaluates in-process
+            invariantPlanner.plan("OrderService", contract);
+
             // Register with CCF Registry
             contractRegistry.registerContract("OrderService", contract);
 
@@ -54,6 +61,11 @@ public class OrderCcfIntegration {
         log.info("Validating consistency for order: {}", order.getId());
 
         // This will throw exception if contract is invalid
-        return consistencyVerifier.verify("OrderPaymentConsistency", order);
+        return consistencyVerifier.verify(order);
+    }
+
+    public boolean validateOrdersConsistency(List<Order> orders) {
+        log.info("Validating consistency for {} orders", orders.size());
+        return consistencyVerifier.verifyAll(orders);
     }
 }
\ No newline at end of file
@@ -0,0 +1,9 @@
+package com.order.ccf;
+
+/**
+ * An order event the payment saga tracks, published inside the transaction that caused it.
+ * {@link OrderSagaTracking} forwards it to the saga runtime only once that transaction commits,
+ * so a rolled-back change never advances a saga.
+ */
+public record OrderSagaEvent(String eventType, Long orderId) {
+}
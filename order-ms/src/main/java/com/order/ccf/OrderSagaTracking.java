@@ -0,0 +1,72 @@
+package com.order.ccf;
+
+import ccf.ccf.enforcement.EventDrivenSagaRuntime;
+import ccf.ccf.enforcement.SagaPlanCompiler;
+import ccf.ccf.enforcement.SagaStepHandler;
+import ccf.ccf.enforcement.model.SagaStepState;
+import com.order.service.OrderService;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+
+/**
+ * Tracks the choreographed Order -> Payment saga of the contract, so an order whose payment
+ * never arrives is cancelled when the saga times out.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OrderSagaTracking {
+
+    public static final String CONTRACT_ID = "OrderPaymentConsistency";
+
+    private final SagaPlanCompiler sagaPlanCompiler;
+    private final EventDrivenSagaRuntime sagaRuntime;
+    private final OrderService orderService;
+
+    @PostConstruct
+    public void initialize() {
+        // Steps run by this service or by payment-service; only CreateOrder needs undoing here
+        sagaPlanCompiler.bind(CONTRACT_ID, "CreateOrder", new SagaStepHandler<Long>() {
+            @Override
+            public void execute(Long orderId) {
+                // Performed by OrderService.createOrder
+            }
+
+            @Override
+            public void compensate(Long orderId) {
+                cancelIfPending(orderId);
+            }
+        });
+        sagaPlanCompiler.bind(CONTRACT_ID, "AuthorizePayment", (SagaStepHandler<Long>) orderId -> { });
+        sagaPlanCompiler.bind(CONTRACT_ID, "ConfirmOrder", (SagaStepHandler<Long>) orderId -> { });
+
+        sagaRuntime.mapEvent(CONTRACT_ID, "orderCreated", "CreateOrder", SagaStepState.COMPLETED);
+        sagaRuntime.mapEvent(CONTRACT_ID, "paymentAuthorized", "AuthorizePayment", SagaStepState.COMPLETED);
+        sagaRuntime.mapEvent(CONTRACT_ID, "paymentFailed", "AuthorizePayment", SagaStepState.FAILED);
+        sagaRuntime.mapEvent(CONTRACT_ID, "orderConfirmed", "ConfirmOrder", SagaStepState.COMPLETED);
+        // Ends the saga of an order cancelled for any reason instead of leaving it to time out
+        sagaRuntime.mapEvent(CONTRACT_ID, "orderCancelled", "ConfirmOrder", SagaStepState.FAILED);
+    }
+
+    /**
+     * Advances the order's saga after the transaction that published the event committed.
+     * Compensations triggered from here run on the saga executor, outside this callback.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderSagaEvent(OrderSagaEvent event) {
+        sagaRuntime.onEvent(CONTRACT_ID, event.eventType(), String.valueOf(event.orderId()), event.orderId());
+    }
+
+    // A failed payment already cancelled the order with its reason, and a payment that arrived
+    // meanwhile confirmed it: the conditional cancellation leaves both as they are
+    private void cancelIfPending(Long orderId) {
+        if (!orderService.cancelOrders(Map.of(orderId, "Payment not completed in time")).isEmpty()) {
+            log.warn("Cancelled order {}: payment saga timed out", orderId);
+        }
+    }
+}
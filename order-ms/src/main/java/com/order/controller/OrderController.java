@@ -1,13 +1,25 @@
 package com.order.controller;
 
+import com.order.cache.OrderCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.order.dto.CreateOrderRequest;
+import com.order.dto.OrderPage;
 import com.order.dto.OrderResponse;
+import com.order.service.OrderGroupCommitter;
 import com.order.service.OrderService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
 
 @Slf4j
 @RestController
@@ -16,18 +28,64 @@ import org.springframework.web.bind.annotation.*;
 public class OrderController {
 
     private final OrderService orderService;
+    private final OrderGroupCommitter groupCommitter;
+    private final OrderCache orderCache;
+    private final ObjectMapper objectMapper;
+
+    @Value("${orders.batch.max-size:1000}")
+    private int maxBatchSize;
 
     @PostMapping
     public ResponseEntity<OrderResponse> createOrder(@RequestBody CreateOrderRequest request) {
         log.info("Received request to create order for customer: {}", request.getCustomerId());
-        OrderResponse response = orderService.createOrder(request);
+        OrderResponse response = groupCommitter.create(request);
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    // All orders of a batch share one transaction and one outbox insert, so its size is bounded
+    @PostMapping("/batch")
+    public ResponseEntity<List<OrderResponse>> createOrders(@RequestBody List<CreateOrderRequest> requests) {
+        log.info("Received request to create {} orders", requests.size());
+        if (requests.size() > maxBatchSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "A batch holds at most " + maxBatchSize + " orders, got " + requests.size());
+        }
+        List<OrderResponse> responses = orderService.createOrders(requests);
+        return ResponseEntity.status(HttpStatus.CREATED).body(responses);
+    }
+
+    @GetMapping
+    public ResponseEntity<OrderPage> listOrders(@RequestParam String customerId,
+                                                @RequestParam(required = false) String cursor,
+                                                @RequestParam(defaultValue = "50") int limit) {
+        log.info("Received request to list orders of customer: {}", customerId);
+        try {
+            return ResponseEntity.ok(orderService.listOrders(customerId, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            // A cursor the client made up or truncated
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    // One JSON order per line, written while the rows are read, for exports of any size
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportOrders(@RequestParam String customerId) {
+        log.info("Received request to export orders of customer: {}", customerId);
+        StreamingResponseBody body = out -> orderService.exportOrders(customerId, order -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(order));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
     @GetMapping("/{orderId}")
     public ResponseEntity<OrderResponse> getOrder(@PathVariable Long orderId) {
         log.info("Received request to get order: {}", orderId);
-        OrderResponse response = orderService.getOrder(orderId);
+        OrderResponse response = orderCache.getOrder(orderId);
         return ResponseEntity.ok(response);
     }
 }
\ No newline at end of file
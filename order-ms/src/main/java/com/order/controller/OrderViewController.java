@@ -0,0 +1,35 @@
+package com.order.controller;
+
+import com.order.dto.OrderView;
+import com.order.view.OrderViewProjection;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Order and payment state in one call, answered from the in-memory view without touching
+ * either service's database.
+ */
+@RestController
+@RequestMapping("/api/order-views")
+@RequiredArgsConstructor
+public class OrderViewController {
+
+    private final OrderViewProjection orderViewProjection;
+
+    // 503 while the order's partition replays: its view may be missing or behind the topics
+    @GetMapping("/{orderId}")
+    public ResponseEntity<OrderView> getOrderView(@PathVariable long orderId) {
+        if (orderViewProjection.isReplaying(orderId)) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Order view is still replaying");
+        }
+        return orderViewProjection.find(orderId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
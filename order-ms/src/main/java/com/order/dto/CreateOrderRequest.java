@@ -1,5 +1,6 @@
 package com.order.dto;
 
+import ccf.ccf.money.model.Money;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -16,6 +17,11 @@ public class CreateOrderRequest {
     private String customerId;
     private List<OrderItemDto> items;
     private BigDecimal totalPrice;
+    private String currency;        // of the total and every item price, USD when absent
+
+    public String currencyOrDefault() {
+        return currency != null ? currency : Money.DEFAULT_CURRENCY;
+    }
 
     @Data
     @Builder
@@ -0,0 +1,21 @@
+package com.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of a customer's orders, newest first. {@code nextCursor} is passed back as
+ * {@code cursor} for the following page and is null on the last one.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderPage {
+    private List<OrderResponse> orders;
+    private String nextCursor;
+}
@@ -1,5 +1,6 @@
 package com.order.dto;
 
+import ccf.ccf.money.model.Money;
 import com.order.model.OrderStatus;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -17,6 +18,12 @@ public class OrderResponse {
     private Long id;
     private String customerId;
     private BigDecimal totalAmount;
+    private String currency;
     private OrderStatus status;
     private LocalDateTime createdAt;
+
+    // Selected straight from the orders table, whose total is a Money embeddable
+    public OrderResponse(Long id, String customerId, Money totalAmount, OrderStatus status, LocalDateTime createdAt) {
+        this(id, customerId, totalAmount.toBigDecimal(), totalAmount.currency(), status, createdAt);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,29 @@
+package com.order.dto;
+
+import ccf.ccf.money.model.Money;
+import com.order.model.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Combined state of an order and its payment, as projected from the order and payment events.
+ * Fields stay null until the event carrying them has been seen. Views in the store are replaced,
+ * never modified, so readers need no locking.
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderView {
+    private Long orderId;
+    private String customerId;
+    private Money totalAmount;
+    private OrderStatus orderStatus;
+    private String paymentId;
+    private String paymentStatus;   // AUTHORIZED or DECLINED, as payment-service records it
+    private Instant updatedAt;      // time of the latest event applied
+}
@@ -12,8 +12,10 @@ import java.math.BigDecimal;
 @NoArgsConstructor
 @AllArgsConstructor
 public class PaymentAuthorizedEvent {
+    private String eventId;
     private String paymentId;
     private Long orderId;
     private BigDecimal amount;
+    private String currency;
     private String timestamp;
 }
\ No newline at end of file
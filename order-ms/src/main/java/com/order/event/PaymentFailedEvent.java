@@ -10,6 +10,7 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 public class PaymentFailedEvent {
+    private String eventId;
     private String paymentId;
     private Long orderId;
     private String reason;
@@ -0,0 +1,140 @@
+package com.order.eventstore;
+
+import com.order.model.Order;
+import com.order.model.OrderAggregate;
+import com.order.model.OrderEventRecord;
+import com.order.model.OrderSnapshot;
+import com.order.repository.OrderEventRecordRepository;
+import com.order.repository.OrderSnapshotRepository;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+/**
+ * Loads and stores {@link OrderAggregate}s for the event-sourced mode. An order is rehydrated
+ * from its latest snapshot plus the events after that snapshot's version, read with one query
+ * per distinct snapshot version among the orders. Storing inserts the pending events and, every
+ * {@code orders.event-sourcing.snapshot-every} versions, a new snapshot; 0 takes none.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "orders.persistence", havingValue = "event-sourced")
+public class OrderEventStore {
+
+    private final OrderEventRecordRepository eventRepository;
+    private final OrderSnapshotRepository snapshotRepository;
+    private final EntityManager entityManager;
+
+    @Value("${orders.event-sourcing.snapshot-every:2}")
+    private int snapshotEvery;
+
+    /**
+     * New order ids from the generator of {@link Order}, so both persistence modes draw them
+     * from {@code orders_seq} alike, 50 per round trip.
+     */
+    public List<Long> allocateOrderIds(int count) {
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        IdentifierGenerator generator = (IdentifierGenerator) session.getFactory().getMappingMetamodel()
+                .getEntityDescriptor(Order.class).getGenerator();
+        return IntStream.range(0, count).mapToObj(i -> (Long) generator.generate(session, null)).toList();
+    }
+
+    public Optional<OrderAggregate> load(Long orderId) {
+        return Optional.ofNullable(loadAll(List.of(orderId)).get(orderId));
+    }
+
+    /**
+     * The current state of the given orders; unknown ids are absent from the result.
+     */
+    public Map<Long, OrderAggregate> loadAll(Collection<Long> orderIds) {
+        Map<Long, OrderAggregate> aggregates = new HashMap<>();
+        if (orderIds.isEmpty()) {
+            return aggregates;
+        }
+        // Each tail starts after the snapshot read here, not after whatever snapshot is latest
+        // by the time the events are read: one committed in between would hide both
+        Map<Integer, List<Long>> byVersion = new TreeMap<>();
+        Set<Long> unsnapshotted = new HashSet<>(orderIds);
+        for (OrderSnapshot snapshot : snapshotRepository.findLatestByOrderIdIn(orderIds)) {
+            aggregates.put(snapshot.getOrderId(), snapshot.getState());
+            byVersion.computeIfAbsent(snapshot.getVersion(), version -> new ArrayList<>()).add(snapshot.getOrderId());
+            unsnapshotted.remove(snapshot.getOrderId());
+        }
+        if (!unsnapshotted.isEmpty()) {
+            byVersion.put(0, List.copyOf(unsnapshotted));
+        }
+        byVersion.forEach((version, ids) -> eventRepository.findTailsByOrderIdIn(ids, version)
+                .forEach(event -> aggregates.computeIfAbsent(event.getOrderId(), id -> new OrderAggregate()).apply(event)));
+        // A tail without its creation event or a snapshot is no order
+        aggregates.values().removeIf(aggregate -> aggregate.getOrderId() == null);
+        return aggregates;
+    }
+
+    /**
+     * Inserts the pending events of the given aggregates and flushes, so a concurrent append to
+     * one of the orders fails here, before anything is published.
+     *
+     * @return the inserted events
+     * @throws OptimisticLockingFailureException if another writer appended to one of the orders first
+     */
+    public List<OrderEventRecord> save(Collection<OrderAggregate> aggregates) {
+        List<OrderEventRecord> events = aggregates.stream()
+                .flatMap(aggregate -> aggregate.getPendingEvents().stream())
+                .toList();
+        LocalDateTime now = LocalDateTime.now();
+        List<OrderSnapshot> snapshots = aggregates.stream()
+                .filter(this::snapshotDue)
+                .map(aggregate -> OrderSnapshot.builder()
+                        .orderId(aggregate.getOrderId())
+                        .version(aggregate.getVersion())
+                        .state(aggregate)
+                        .takenAt(now)
+                        .build())
+                .toList();
+
+        try {
+            eventRepository.saveAll(events);
+            snapshotRepository.saveAll(snapshots);
+            eventRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            throw new OptimisticLockingFailureException("An order was changed concurrently, its events were not stored", e);
+        }
+        log.debug("Stored {} order events and {} snapshots", events.size(), snapshots.size());
+
+        aggregates.forEach(aggregate -> aggregate.getPendingEvents().clear());
+        return events;
+    }
+
+    private boolean snapshotDue(OrderAggregate aggregate) {
+        return snapshotDue(aggregate, snapshotEvery);
+    }
+
+    // Whether the pending events carry the aggregate across a multiple of snapshotEvery
+    static boolean snapshotDue(OrderAggregate aggregate, int snapshotEvery) {
+        if (snapshotEvery <= 0) {
+            return false;
+        }
+        int stored = aggregate.getVersion() - aggregate.getPendingEvents().size();
+        return aggregate.getVersion() / snapshotEvery > stored / snapshotEvery;
+    }
+}
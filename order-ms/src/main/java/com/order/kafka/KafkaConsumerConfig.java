@@ -18,6 +18,12 @@ public class KafkaConsumerConfig {
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootstrapServers;
 
+    @Value("${kafka.topics.partitions:6}")
+    private int partitions;
+
+    @Value("${orders.payment-events.max-batch-size:500}")
+    private int maxBatchSize;
+
     @Bean
     public ConsumerFactory<String, String> consumerFactory() {
         Map<String, Object> config = new HashMap<>();
@@ -35,6 +41,38 @@ public class KafkaConsumerConfig {
         ConcurrentKafkaListenerContainerFactory<String, String> factory =
                 new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
+        // One consumer thread per partition: fewer would serialize orders, more would sit idle.
+        // A partition is only ever read by one thread, which keeps each order's events in sequence.
+        factory.setConcurrency(partitions);
+        return factory;
+    }
+
+    // Hands each listener thread everything one poll returned, up to max-batch-size records
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> batchKafkaListenerContainerFactory() {
+        Map<String, Object> config = new HashMap<>(consumerFactory().getConfigurationProperties());
+        config.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxBatchSize);
+
+        ConcurrentKafkaListenerContainerFactory<String, String> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(config));
+        factory.setBatchListener(true);
+        factory.setConcurrency(partitions);
+        return factory;
+    }
+
+    // Order cache invalidations: no group, so nothing is committed and nothing is left on the broker
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> cacheInvalidationListenerContainerFactory() {
+        Map<String, Object> config = new HashMap<>(consumerFactory().getConfigurationProperties());
+        config.remove(ConsumerConfig.GROUP_ID_CONFIG);
+        config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        config.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+
+        ConcurrentKafkaListenerContainerFactory<String, String> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(config));
+        factory.setConcurrency(1);
         return factory;
     }
-}
\ No newline at end of file
+}
@@ -1,10 +1,13 @@
 package com.order.kafka;
 
+import com.order.cache.OrderCache;
+import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
@@ -19,6 +22,24 @@ public class KafkaProducerConfig {
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootstrapServers;
 
+    @Value("${kafka.topics.partitions:6}")
+    private int partitions;
+
+    @Value("${kafka.topics.replicas:1}")
+    private int replicas;
+
+    // Created, or grown to this many partitions, at startup; events are keyed by order id
+    @Bean
+    public NewTopic orderEventsTopic() {
+        return TopicBuilder.name("order-events").partitions(partitions).replicas(replicas).build();
+    }
+
+    // Carries order ids only; every node reads all of it, so one partition is enough
+    @Bean
+    public NewTopic orderCacheInvalidationsTopic() {
+        return TopicBuilder.name(OrderCache.INVALIDATION_TOPIC).partitions(1).replicas(replicas).build();
+    }
+
     @Bean
     public ProducerFactory<String, Object> producerFactory() {
         Map<String, Object> config = new HashMap<>();
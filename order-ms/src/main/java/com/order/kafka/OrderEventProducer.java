@@ -1,16 +1,20 @@
 package com.order.kafka;
 
+import ccf.ccf.outbox.TransactionalOutbox;
 import com.order.event.OrderCancelledEvent;
 import com.order.event.OrderConfirmedEvent;
 import com.order.event.OrderCreatedEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.kafka.support.KafkaHeaders;
-import org.springframework.messaging.Message;
-import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
+/**
+ * Events are written to the outbox in the caller's transaction; the outbox relay sends them
+ * to Kafka after the commit. They are keyed by order id, so all events of an order land on one
+ * partition in order while different orders spread over all partitions.
+ */
 @Slf4j
 @Component
 @RequiredArgsConstructor
@@ -18,44 +22,35 @@ public class OrderEventProducer {
 
     private static final String ORDER_EVENTS_TOPIC = "order-events";
 
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final TransactionalOutbox outbox;
 
     public void sendOrderCreatedEvent(OrderCreatedEvent event) {
         log.info("Publishing OrderCreatedEvent for order: {}", event.getOrderId());
+        outbox.publish(ORDER_EVENTS_TOPIC, String.valueOf(event.getOrderId()), "orderCreated", event);
+    }
 
-        Message<OrderCreatedEvent> message = MessageBuilder
-                .withPayload(event)
-                .setHeader(KafkaHeaders.TOPIC, ORDER_EVENTS_TOPIC)
-                .setHeader(KafkaHeaders.KEY, "orderCreated")
-                .setHeader("__TypeId__", "orderCreated")  // Add type header
-                .build();
-
-        kafkaTemplate.send(message);
+    public void sendOrderCreatedEvents(List<OrderCreatedEvent> events) {
+        log.info("Publishing {} OrderCreatedEvents", events.size());
+        outbox.publishAll(ORDER_EVENTS_TOPIC, "orderCreated", events, event -> String.valueOf(event.getOrderId()));
     }
 
     public void sendOrderConfirmedEvent(OrderConfirmedEvent event) {
         log.info("Publishing OrderConfirmedEvent for order: {}", event.getOrderId());
+        outbox.publish(ORDER_EVENTS_TOPIC, String.valueOf(event.getOrderId()), "orderConfirmed", event);
+    }
 
-        Message<OrderConfirmedEvent> message = MessageBuilder
-                .withPayload(event)
-                .setHeader(KafkaHeaders.TOPIC, ORDER_EVENTS_TOPIC)
-                .setHeader(KafkaHeaders.KEY, "orderConfirmed")
-                .setHeader("__TypeId__", "orderConfirmed")
-                .build();
+    public void sendOrderConfirmedEvents(List<OrderConfirmedEvent> events) {
+        log.info("Publishing {} OrderConfirmedEvents", events.size());
+        outbox.publishAll(ORDER_EVENTS_TOPIC, "orderConfirmed", events, event -> String.valueOf(event.getOrderId()));
+    }
 
-        kafkaTemplate.send(message);
+    public void sendOrderCancelledEvents(List<OrderCancelledEvent> events) {
+        log.info("Publishing {} OrderCancelledEvents", events.size());
+        outbox.publishAll(ORDER_EVENTS_TOPIC, "orderCancelled", events, event -> String.valueOf(event.getOrderId()));
     }
 
     public void sendOrderCancelledEvent(OrderCancelledEvent event) {
         log.info("Publishing OrderCancelledEvent for order: {}", event.getOrderId());
-
-        Message<OrderCancelledEvent> message = MessageBuilder
-                .withPayload(event)
-                .setHeader(KafkaHeaders.TOPIC, ORDER_EVENTS_TOPIC)
-                .setHeader(KafkaHeaders.KEY, "orderCancelled")
-                .setHeader("__TypeId__", "orderCancelled")
-                .build();
-
-        kafkaTemplate.send(message);
+        outbox.publish(ORDER_EVENTS_TOPIC, String.valueOf(event.getOrderId()), "orderCancelled", event);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,196 @@
+package com.order.kafka;
+
+import ccf.ccf.enforcement.EventDrivenSagaRuntime;
+import ccf.ccf.enforcement.IdempotencyGuard;
+import ccf.ccf.outbox.OutboxRelay;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.order.ccf.OrderSagaTracking;
+import com.order.event.PaymentAuthorizedEvent;
+import com.order.event.PaymentFailedEvent;
+import com.order.service.OrderService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Batch mode of {@link PaymentEventConsumer}, enabled with
+ * {@code orders.payment-events.batch-listener=true}. All payment events of a poll are applied
+ * together: one conditional update confirms the orders whose payment was authorized and one
+ * cancels those whose payment failed, each followed by one verification pass and one outbox
+ * insert. The cost of a poll then barely depends on how many events it carries.
+ * <p>
+ * An order with several events in one poll has them applied in offset order: the poll is split
+ * into rounds holding at most one event per order, and each round is applied before the next.
+ * The saga hears of each event only after the transaction applying it committed.
+ * <p>
+ * When a batch transaction fails, its events are handled one at a time, so a single bad event
+ * does not hold back the others.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "orders.payment-events.batch-listener", havingValue = "true")
+public class PaymentEventBatchConsumer {
+
+    private final OrderService orderService;
+    private final ObjectMapper objectMapper;
+    private final EventDrivenSagaRuntime sagaRuntime;
+    private final IdempotencyGuard idempotencyGuard;
+    private final DistributionSummary batchSizes;
+    private final Counter fallbacks;
+
+    public PaymentEventBatchConsumer(OrderService orderService,
+                                     ObjectMapper objectMapper,
+                                     EventDrivenSagaRuntime sagaRuntime,
+                                     IdempotencyGuard idempotencyGuard,
+                                     ObjectProvider<MeterRegistry> meterRegistry) {
+        this.orderService = orderService;
+        this.objectMapper = objectMapper;
+        this.sagaRuntime = sagaRuntime;
+        this.idempotencyGuard = idempotencyGuard;
+
+        MeterRegistry registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+        this.batchSizes = DistributionSummary.builder("orders.payment.events.batch.size").register(registry);
+        this.fallbacks = Counter.builder("orders.payment.events.batch.fallbacks").register(registry);
+    }
+
+    @KafkaListener(topics = "payment-events", groupId = "order-service-group",
+            containerFactory = "batchKafkaListenerContainerFactory")
+    public void consumePaymentEvents(List<ConsumerRecord<String, String>> records) {
+        batchSizes.record(records.size());
+        log.info("Received a batch of {} payment events", records.size());
+
+        List<Round> rounds = new ArrayList<>();
+        Map<Long, Integer> eventsPerOrder = new HashMap<>();
+        Set<String> seen = new HashSet<>();
+        for (ConsumerRecord<String, String> record : records) {
+            Header typeHeader = record.headers().lastHeader(OutboxRelay.EVENT_TYPE_HEADER);
+            String eventType = typeHeader != null ? new String(typeHeader.value(), StandardCharsets.UTF_8) : null;
+            try {
+                if ("paymentAuthorized".equals(eventType)) {
+                    PaymentAuthorizedEvent event = objectMapper.readValue(record.value(), PaymentAuthorizedEvent.class);
+                    if (isNew(event.getEventId(), seen)) {
+                        round(rounds, eventsPerOrder, event.getOrderId()).authorized.add(event);
+                    }
+                } else if ("paymentFailed".equals(eventType)) {
+                    PaymentFailedEvent event = objectMapper.readValue(record.value(), PaymentFailedEvent.class);
+                    if (isNew(event.getEventId(), seen)) {
+                        round(rounds, eventsPerOrder, event.getOrderId()).failed.add(event);
+                    }
+                } else {
+                    log.warn("Unknown payment event type: {}", eventType);
+                }
+            } catch (Exception e) {
+                log.error("Error reading payment event for order {}: {}", record.key(), e.getMessage(), e);
+            }
+        }
+
+        for (Round round : rounds) {
+            if (!round.authorized.isEmpty()) {
+                confirm(round.authorized);
+            }
+            if (!round.failed.isEmpty()) {
+                cancel(round.failed);
+            }
+        }
+    }
+
+    // The order's first event of the poll goes to the first round, its second to the second, ...
+    private static Round round(List<Round> rounds, Map<Long, Integer> eventsPerOrder, Long orderId) {
+        int index = eventsPerOrder.merge(orderId, 1, Integer::sum) - 1;
+        if (index == rounds.size()) {
+            rounds.add(new Round());
+        }
+        return rounds.get(index);
+    }
+
+    // Also drops redeliveries within the batch itself
+    private boolean isNew(String eventId, Set<String> seen) {
+        if (eventId == null) {
+            return true;
+        }
+        return seen.add(eventId) && !idempotencyGuard.isProcessed(eventId);
+    }
+
+    private void confirm(List<PaymentAuthorizedEvent> events) {
+        try {
+            orderService.confirmOrders(events.stream().map(PaymentAuthorizedEvent::getOrderId).toList());
+            events.forEach(event -> {
+                markProcessed(event.getEventId());
+                signal("paymentAuthorized", event.getOrderId());
+            });
+        } catch (RuntimeException e) {
+            fallbacks.increment();
+            log.warn("Confirming {} orders in one batch failed ({}), confirming them one by one", events.size(), e.getMessage());
+            for (PaymentAuthorizedEvent event : events) {
+                handleAlone(event.getEventId(), event.getOrderId(), () -> {
+                    orderService.confirmOrder(event.getOrderId());
+                    signal("paymentAuthorized", event.getOrderId());
+                });
+            }
+        }
+    }
+
+    private void cancel(List<PaymentFailedEvent> events) {
+        Map<Long, String> reasons = new LinkedHashMap<>();
+        events.forEach(event -> reasons.put(event.getOrderId(), event.getReason()));
+        try {
+            orderService.cancelOrders(reasons);
+            events.forEach(event -> {
+                markProcessed(event.getEventId());
+                signal("paymentFailed", event.getOrderId());
+            });
+        } catch (RuntimeException e) {
+            fallbacks.increment();
+            log.warn("Cancelling {} orders in one batch failed ({}), cancelling them one by one", events.size(), e.getMessage());
+            for (PaymentFailedEvent event : events) {
+                handleAlone(event.getEventId(), event.getOrderId(), () -> {
+                    orderService.cancelOrder(event.getOrderId(), event.getReason());
+                    signal("paymentFailed", event.getOrderId());
+                });
+            }
+        }
+    }
+
+    // Called once the order service's transaction committed; a failed payment's compensation
+    // then finds the order already cancelled
+    private void signal(String eventType, Long orderId) {
+        sagaRuntime.onEvent(OrderSagaTracking.CONTRACT_ID, eventType, String.valueOf(orderId), orderId);
+    }
+
+    // As the single-event listener does: a failing event is logged and left unrecorded
+    private void handleAlone(String eventId, Long orderId, Runnable handler) {
+        try {
+            idempotencyGuard.process(eventId, handler);
+        } catch (RuntimeException e) {
+            log.error("Error processing payment event for order {}: {}", orderId, e.getMessage(), e);
+        }
+    }
+
+    private void markProcessed(String eventId) {
+        if (eventId != null) {
+            idempotencyGuard.markProcessed(eventId);
+        }
+    }
+
+    private static final class Round {
+        private final List<PaymentAuthorizedEvent> authorized = new ArrayList<>();
+        private final List<PaymentFailedEvent> failed = new ArrayList<>();
+    }
+}
@@ -1,11 +1,16 @@
 package com.order.kafka;
 
+import ccf.ccf.enforcement.EventDrivenSagaRuntime;
+import ccf.ccf.enforcement.IdempotencyGuard;
+import ccf.ccf.outbox.OutboxRelay;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.order.ccf.OrderSagaTracking;
 import com.order.event.PaymentAuthorizedEvent;
 import com.order.event.PaymentFailedEvent;
 import com.order.service.OrderService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.messaging.handler.annotation.Header;
@@ -15,27 +20,31 @@ import org.springframework.stereotype.Component;
 @Slf4j
 @Component
 @RequiredArgsConstructor
+@ConditionalOnProperty(name = "orders.payment-events.batch-listener", havingValue = "false", matchIfMissing = true)
 public class PaymentEventConsumer {
 
     private final OrderService orderService;
     private final ObjectMapper objectMapper;
+    private final EventDrivenSagaRuntime sagaRuntime;
+    private final IdempotencyGuard idempotencyGuard;
 
     @KafkaListener(topics = "payment-events", groupId = "order-service-group")
     public void consumePaymentEvents(
             @Payload String message,
-            @Header(value = KafkaHeaders.RECEIVED_KEY, required = false) String key) {
+            @Header(value = KafkaHeaders.RECEIVED_KEY, required = false) String key,
+            @Header(value = OutboxRelay.EVENT_TYPE_HEADER, required = false) String eventType) {
 
-        log.info("Received payment event with key: {}", key);
+        log.info("Received {} event for order: {}", eventType, key);
 
         try {
-            if ("paymentAuthorized".equals(key)) {
+            if ("paymentAuthorized".equals(eventType)) {
                 PaymentAuthorizedEvent event = objectMapper.readValue(message, PaymentAuthorizedEvent.class);
-                handlePaymentAuthorized(event);
-            } else if ("paymentFailed".equals(key)) {
+                idempotencyGuard.process(event.getEventId(), () -> handlePaymentAuthorized(event));
+            } else if ("paymentFailed".equals(eventType)) {
                 PaymentFailedEvent event = objectMapper.readValue(message, PaymentFailedEvent.class);
-                handlePaymentFailed(event);
+                idempotencyGuard.process(event.getEventId(), () -> handlePaymentFailed(event));
             } else {
-                log.warn("Unknown payment event key: {}", key);
+                log.warn("Unknown payment event type: {}", eventType);
             }
         } catch (Exception e) {
             log.error("Error processing payment event: {}", e.getMessage(), e);
@@ -45,10 +54,14 @@ public class PaymentEventConsumer {
     private void handlePaymentAuthorized(PaymentAuthorizedEvent event) {
         log.info("Payment authorized for order: {}", event.getOrderId());
         orderService.confirmOrder(event.getOrderId());
+        sagaRuntime.onEvent(OrderSagaTracking.CONTRACT_ID, "paymentAuthorized",
+                String.valueOf(event.getOrderId()), event.getOrderId());
     }
 
     private void handlePaymentFailed(PaymentFailedEvent event) {
         log.warn("Payment failed for order: {}", event.getOrderId());
         orderService.cancelOrder(event.getOrderId(), event.getReason());
+        sagaRuntime.onEvent(OrderSagaTracking.CONTRACT_ID, "paymentFailed",
+                String.valueOf(event.getOrderId()), event.getOrderId());
     }
 }
\ No newline at end of file
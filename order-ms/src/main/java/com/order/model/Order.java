@@ -1,33 +1,38 @@
 package com.order.model;
 
+import ccf.ccf.money.model.Money;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+// Serves the customer listing: equality on customer_id, then newest first by (created_at, id)
+@Table(name = "orders", indexes = @Index(name = "idx_orders_customer_created", columnList = "customer_id, created_at, id"))
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class Order {
 
+    // Sequence ids are allocated 50 at a time (pooled optimizer), so inserts can be JDBC-batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
     private String customerId;
 
-    @Column(nullable = false)
-    private BigDecimal totalAmount;
+    @Embedded
+    @AttributeOverride(name = "minorUnits", column = @Column(name = "total_minor_units", nullable = false))
+    @AttributeOverride(name = "currency", column = @Column(name = "currency", length = 3, nullable = false))
+    private Money totalAmount;
 
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
@@ -0,0 +1,110 @@
+package com.order.model;
+
+import ccf.ccf.money.model.Money;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An order in the event-sourced mode: the result of applying its events in version order.
+ * Changes are made by appending events, which are applied at once and kept as pending until
+ * the event store inserts them. The aggregate is also the content of an {@link OrderSnapshot}.
+ */
+@Data
+@NoArgsConstructor
+public class OrderAggregate {
+
+    private Long orderId;
+    private Integer version = 0;
+    private String customerId;
+    private Money totalAmount;
+    private OrderStatus status;
+    private List<OrderEventPayload.Item> items = new ArrayList<>();
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    @JsonIgnore
+    private final List<OrderEventRecord> pendingEvents = new ArrayList<>();
+
+    /**
+     * A new order with the content of the given, already validated, order.
+     */
+    public static OrderAggregate create(Long orderId, Order order, LocalDateTime now) {
+        OrderAggregate aggregate = new OrderAggregate();
+        aggregate.orderId = orderId;
+        aggregate.append(OrderEventType.CREATED, order.getCustomerId(), OrderEventPayload.builder()
+                .totalAmount(order.getTotalAmount())
+                .items(order.getItems().stream()
+                        .map(item -> OrderEventPayload.Item.builder()
+                                .productId(item.getProductId())
+                                .quantity(item.getQuantity())
+                                .price(item.getPrice())
+                                .build())
+                        .toList())
+                .build(), now);
+        return aggregate;
+    }
+
+    public void confirm(LocalDateTime now) {
+        append(OrderEventType.CONFIRMED, null, null, now);
+    }
+
+    public void cancel(String reason, LocalDateTime now) {
+        append(OrderEventType.CANCELLED, null, OrderEventPayload.builder().reason(reason).build(), now);
+    }
+
+    public void apply(OrderEventRecord event) {
+        switch (event.getType()) {
+            case CREATED -> {
+                orderId = event.getOrderId();
+                customerId = event.getCustomerId();
+                totalAmount = event.getPayload().getTotalAmount();
+                items = new ArrayList<>(event.getPayload().getItems());
+                status = OrderStatus.PENDING;
+                createdAt = event.getOccurredAt();
+            }
+            case CONFIRMED -> status = OrderStatus.CONFIRMED;
+            case CANCELLED -> status = OrderStatus.CANCELLED;
+        }
+        version = event.getVersion();
+        updatedAt = event.getOccurredAt();
+    }
+
+    /**
+     * The current state as a detached {@link Order}, the form consistency verification and the
+     * responses work with.
+     */
+    public Order toOrder() {
+        Order order = Order.builder()
+                .id(orderId)
+                .customerId(customerId)
+                .totalAmount(totalAmount)
+                .status(status)
+                .createdAt(createdAt)
+                .updatedAt(updatedAt)
+                .build();
+        items.forEach(item -> order.addItem(OrderItem.builder()
+                .productId(item.getProductId())
+                .quantity(item.getQuantity())
+                .price(item.getPrice())
+                .build()));
+        return order;
+    }
+
+    private void append(OrderEventType type, String customerId, OrderEventPayload payload, LocalDateTime now) {
+        OrderEventRecord event = OrderEventRecord.builder()
+                .orderId(orderId)
+                .version(version + 1)
+                .type(type)
+                .customerId(customerId)
+                .payload(payload)
+                .occurredAt(now)
+                .build();
+        apply(event);
+        pendingEvents.add(event);
+    }
+}
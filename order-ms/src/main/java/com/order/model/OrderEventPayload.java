@@ -0,0 +1,34 @@
+package com.order.model;
+
+import ccf.ccf.money.model.Money;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Body of an {@link OrderEventRecord}; each event type fills only its own fields.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class OrderEventPayload {
+    private Money totalAmount;
+    private List<Item> items;
+    private String reason;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+        private String productId;
+        private Integer quantity;
+        private Money price;
+    }
+}
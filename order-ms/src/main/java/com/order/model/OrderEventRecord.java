@@ -0,0 +1,52 @@
+package com.order.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+
+/**
+ * One change of an order in the append-only {@code order_events} log. Rows are only ever
+ * inserted. Two writers appending the same version of an order collide on the unique
+ * {@code (order_id, version)} pair, and one of them fails.
+ */
+@Entity
+@Table(name = "order_events",
+        uniqueConstraints = @UniqueConstraint(name = "uk_order_events_order_version", columnNames = {"order_id", "version"}),
+        // Serves the customer listing, which reads creation events only
+        indexes = @Index(name = "idx_order_events_customer_occurred", columnList = "customer_id, occurred_at, order_id"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderEventRecord {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_events_seq")
+    @SequenceGenerator(name = "order_events_seq", sequenceName = "order_events_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long orderId;
+
+    @Column(nullable = false)
+    private Integer version;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private OrderEventType type;
+
+    // Set on CREATED events only
+    private String customerId;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    private OrderEventPayload payload;
+
+    @Column(nullable = false)
+    private LocalDateTime occurredAt;
+}
@@ -0,0 +1,7 @@
+package com.order.model;
+
+public enum OrderEventType {
+    CREATED,
+    CONFIRMED,
+    CANCELLED
+}
@@ -1,13 +1,12 @@
 package com.order.model;
 
+import ccf.ccf.money.model.Money;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.math.BigDecimal;
-
 @Entity
 @Table(name = "order_items")
 @Data
@@ -17,7 +16,8 @@ import java.math.BigDecimal;
 public class OrderItem {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_items_seq")
+    @SequenceGenerator(name = "order_items_seq", sequenceName = "order_items_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -30,6 +30,8 @@ public class OrderItem {
     @Column(nullable = false)
     private Integer quantity;
 
-    @Column(nullable = false)
-    private BigDecimal price;
+    @Embedded
+    @AttributeOverride(name = "minorUnits", column = @Column(name = "price_minor_units", nullable = false))
+    @AttributeOverride(name = "currency", column = @Column(name = "currency", length = 3, nullable = false))
+    private Money price;
 }
\ No newline at end of file
@@ -0,0 +1,43 @@
+package com.order.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+
+/**
+ * State of an order as of one version of its event log. Snapshots are appended next to the
+ * events, never updated; the one with the highest version is the starting point of rehydration.
+ */
+@Entity
+@Table(name = "order_snapshots",
+        uniqueConstraints = @UniqueConstraint(name = "uk_order_snapshots_order_version", columnNames = {"order_id", "version"}))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_snapshots_seq")
+    @SequenceGenerator(name = "order_snapshots_seq", sequenceName = "order_snapshots_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long orderId;
+
+    @Column(nullable = false)
+    private Integer version;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(nullable = false)
+    private OrderAggregate state;
+
+    @Column(nullable = false)
+    private LocalDateTime takenAt;
+}
@@ -0,0 +1,54 @@
+package com.order.repository;
+
+import com.order.model.OrderEventRecord;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
+/**
+ * The order event log. Customer listings select the order ids of the creation events, the only
+ * ones carrying a customer id, through the {@code (customer_id, occurred_at, order_id)} index
+ * newest first.
+ */
+@Repository
+public interface OrderEventRecordRepository extends JpaRepository<OrderEventRecord, Long> {
+
+    String CREATED_BY_CUSTOMER = "SELECT e.orderId FROM OrderEventRecord e WHERE e.customerId = :customerId ";
+    String NEWEST_FIRST = " ORDER BY e.occurredAt DESC, e.orderId DESC";
+
+    /**
+     * The events of the given orders after the given version, in version order: the tail to
+     * replay onto snapshots of that version, or every event with version 0.
+     */
+    @Query("SELECT e FROM OrderEventRecord e WHERE e.orderId IN :orderIds AND e.version > :version "
+            + "ORDER BY e.orderId, e.version")
+    @QueryHints(@QueryHint(name = HINT_READ_ONLY, value = "true"))
+    List<OrderEventRecord> findTailsByOrderIdIn(@Param("orderIds") Collection<Long> orderIds,
+                                                @Param("version") int version);
+
+    @Query(CREATED_BY_CUSTOMER + NEWEST_FIRST)
+    List<Long> findFirstOrderIdsByCustomerId(@Param("customerId") String customerId, Limit limit);
+
+    @Query(CREATED_BY_CUSTOMER + "AND e.occurredAt <= :createdAt AND (e.occurredAt < :createdAt OR e.orderId < :id)"
+            + NEWEST_FIRST)
+    List<Long> findOrderIdsByCustomerIdAfter(@Param("customerId") String customerId,
+                                             @Param("createdAt") LocalDateTime createdAt,
+                                             @Param("id") Long id,
+                                             Limit limit);
+
+    @Query(CREATED_BY_CUSTOMER + NEWEST_FIRST)
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    Stream<Long> streamOrderIdsByCustomerId(@Param("customerId") String customerId);
+}
@@ -1,12 +1,62 @@
 package com.order.repository;
 
+import com.order.dto.OrderResponse;
 import com.order.model.Order;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
+/**
+ * Customer listings select {@link OrderResponse} rows directly, so no entity or item collection
+ * is loaded, and walk the {@code (customer_id, created_at, id)} index newest first.
+ */
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
-    List<Order> findByCustomerId(String customerId);
-}
\ No newline at end of file
+
+    String SUMMARY = "SELECT new com.order.dto.OrderResponse(o.id, o.customerId, o.totalAmount, o.status, o.createdAt) "
+            + "FROM Order o WHERE o.customerId = :customerId ";
+    String NEWEST_FIRST = " ORDER BY o.createdAt DESC, o.id DESC";
+
+    @Query(SUMMARY + NEWEST_FIRST)
+    List<OrderResponse> findFirstPageByCustomerId(@Param("customerId") String customerId, Limit limit);
+
+    /**
+     * The orders after the given one in listing order. The {@code <=} bound on its own makes the
+     * index scan start at the cursor instead of at the customer's newest order.
+     */
+    @Query(SUMMARY + "AND o.createdAt <= :createdAt AND (o.createdAt < :createdAt OR o.id < :id)" + NEWEST_FIRST)
+    List<OrderResponse> findPageByCustomerIdAfter(@Param("customerId") String customerId,
+                                                  @Param("createdAt") LocalDateTime createdAt,
+                                                  @Param("id") Long id,
+                                                  Limit limit);
+
+    /**
+     * Compare-and-set of the status of many orders in one statement: only orders still in
+     * {@code from} change, so an illegal transition is a row left out rather than an error.
+     *
+     * @return the ids of the orders that changed
+     */
+    @Query(value = "UPDATE orders SET status = :to, updated_at = :now WHERE id IN (:ids) AND status = :from RETURNING id",
+            nativeQuery = true)
+    List<Long> transitionStatus(@Param("ids") Collection<Long> ids,
+                                @Param("from") String from,
+                                @Param("to") String to,
+                                @Param("now") LocalDateTime now);
+
+    // A fetch size makes the PostgreSQL driver read through a cursor, within the caller's transaction
+    @Query(SUMMARY + NEWEST_FIRST)
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    Stream<OrderResponse> streamByCustomerId(@Param("customerId") String customerId);
+}
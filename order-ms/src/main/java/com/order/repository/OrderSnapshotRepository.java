@@ -0,0 +1,24 @@
+package com.order.repository;
+
+import com.order.model.OrderSnapshot;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
+@Repository
+public interface OrderSnapshotRepository extends JpaRepository<OrderSnapshot, Long> {
+
+    // Read-only: the loaded state is replayed onto, which must not turn into an update
+    @Query("SELECT s FROM OrderSnapshot s WHERE s.orderId IN :orderIds AND s.version = "
+            + "(SELECT MAX(l.version) FROM OrderSnapshot l WHERE l.orderId = s.orderId)")
+    @QueryHints(@QueryHint(name = HINT_READ_ONLY, value = "true"))
+    List<OrderSnapshot> findLatestByOrderIdIn(@Param("orderIds") Collection<Long> orderIds);
+}
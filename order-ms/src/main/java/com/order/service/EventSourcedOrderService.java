@@ -0,0 +1,303 @@
+package com.order.service;
+
+import ccf.ccf.verification.MonitorConsistency;
+import com.order.cache.OrderChangedEvent;
+import com.order.ccf.OrderCcfIntegration;
+import com.order.ccf.OrderSagaEvent;
+import com.order.dto.CreateOrderRequest;
+import com.order.dto.OrderPage;
+import com.order.dto.OrderResponse;
+import com.order.event.OrderCancelledEvent;
+import com.order.event.OrderConfirmedEvent;
+import com.order.event.OrderCreatedEvent;
+import com.order.eventstore.OrderEventStore;
+import com.order.kafka.OrderEventProducer;
+import com.order.model.Order;
+import com.order.model.OrderAggregate;
+import com.order.model.OrderEventRecord;
+import com.order.model.OrderEventType;
+import com.order.model.OrderStatus;
+import com.order.repository.OrderEventRecordRepository;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * {@link OrderService} over the append-only order event log, enabled with
+ * {@code orders.persistence=event-sourced}. Every change of an order is an inserted event, so
+ * writers never wait on each other's row locks and the log keeps the full history of each order.
+ * The outgoing Kafka events are derived from the stored ones.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "orders.persistence", havingValue = "event-sourced")
+public class EventSourcedOrderService implements OrderService {
+
+    private static final int EXPORT_CHUNK_SIZE = 500;
+
+    private final OrderEventStore eventStore;
+    private final OrderEventRecordRepository eventRepository;
+    private final OrderEventProducer eventProducer;
+    private final OrderCcfIntegration ccfIntegration;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityManager entityManager;
+
+    @Value("${orders.listing.max-page-size:500}")
+    private int maxPageSize;
+
+    @Override
+    @Transactional
+    @MonitorConsistency(contractId = "OrderPaymentConsistency")
+    public OrderResponse createOrder(CreateOrderRequest request) {
+        log.info("Creating order for customer: {}", request.getCustomerId());
+        return create(List.of(request)).get(0);
+    }
+
+    @Override
+    @Transactional
+    @MonitorConsistency(contractId = "OrderPaymentConsistency")
+    public List<OrderResponse> createOrders(List<CreateOrderRequest> requests) {
+        log.info("Creating {} orders", requests.size());
+        return create(requests);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @MonitorConsistency(contractId = "OrderPaymentConsistency", readOnly = true)
+    public OrderResponse getOrder(Long orderId) {
+        log.info("Fetching order: {}", orderId);
+        return eventStore.load(orderId)
+                .map(aggregate -> OrderServiceImpl.mapToResponse(aggregate.toOrder()))
+                .orElseThrow(() -> new RuntimeException("Order not found: " + orderId));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @MonitorConsistency(contractId = "OrderPaymentConsistency", readOnly = true)
+    public OrderPage listOrders(String customerId, String cursor, int limit) {
+        int pageSize = Math.min(Math.max(1, limit), maxPageSize);
+        log.info("Listing up to {} orders of customer {}", pageSize, customerId);
+
+        Limit fetch = Limit.of(pageSize + 1);
+        List<Long> orderIds;
+        if (cursor == null || cursor.isBlank()) {
+            orderIds = eventRepository.findFirstOrderIdsByCustomerId(customerId, fetch);
+        } else {
+            OrderCursor after = OrderCursor.parse(cursor);
+            orderIds = eventRepository.findOrderIdsByCustomerIdAfter(customerId, after.createdAt(), after.id(), fetch);
+        }
+        return OrderCursor.page(currentState(orderIds), pageSize);
+    }
+
+    /**
+     * Reads the customer's order ids through a database cursor and rehydrates the orders
+     * {@value #EXPORT_CHUNK_SIZE} at a time. Each chunk is detached once written, so memory stays
+     * flat however many orders the customer has.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void exportOrders(String customerId, Consumer<OrderResponse> sink) {
+        log.info("Exporting orders of customer {}", customerId);
+        List<Long> chunk = new ArrayList<>(EXPORT_CHUNK_SIZE);
+        try (Stream<Long> orderIds = eventRepository.streamOrderIdsByCustomerId(customerId)) {
+            orderIds.forEach(orderId -> {
+                chunk.add(orderId);
+                if (chunk.size() == EXPORT_CHUNK_SIZE) {
+                    currentState(chunk).forEach(sink);
+                    chunk.clear();
+                    entityManager.clear();
+                }
+            });
+        }
+        currentState(chunk).forEach(sink);
+    }
+
+    @Override
+    @Transactional
+    @MonitorConsistency(contractId = "OrderPaymentConsistency")
+    public OrderResponse confirmOrder(Long orderId) {
+        log.info("Confirming order: {}", orderId);
+
+        OrderAggregate order = eventStore.load(orderId)
+                .orElseThrow(() -> new RuntimeException("Order not found: " + orderId));
+
+        if (order.getStatus() == OrderStatus.CANCELLED) {
+            // The saga timed out and cancelled the order before the payment arrived
+            log.warn("Order {} already cancelled, not confirming", orderId);
+            return OrderServiceImpl.mapToResponse(order.toOrder());
+        }
+        if (order.getStatus() == OrderStatus.CONFIRMED) {
+            log.info("Order {} already confirmed", orderId);
+            return OrderServiceImpl.mapToResponse(order.toOrder());
+        }
+
+        order.confirm(LocalDateTime.now());
+        store(List.of(order));
+
+        log.info("Order confirmed: {}", orderId);
+        return OrderServiceImpl.mapToResponse(order.toOrder());
+    }
+
+    @Override
+    @Transactional
+    @MonitorConsistency(contractId = "OrderPaymentConsistency")
+    public OrderResponse cancelOrder(Long orderId, String reason) {
+        log.info("Cancelling order: {} with reason: {}", orderId, reason);
+
+        OrderAggregate order = eventStore.load(orderId)
+                .orElseThrow(() -> new RuntimeException("Order not found: " + orderId));
+
+        if (order.getStatus() != OrderStatus.PENDING) {
+            // Already cancelled, or confirmed by a payment that won the race with the saga timeout
+            log.warn("Order {} is {}, not cancelling", orderId, order.getStatus());
+            return OrderServiceImpl.mapToResponse(order.toOrder());
+        }
+
+        order.cancel(reason, LocalDateTime.now());
+        store(List.of(order));
+
+        log.info("Order cancelled: {}", orderId);
+        return OrderServiceImpl.mapToResponse(order.toOrder());
+    }
+
+    /**
+     * Appends a confirmation to each order that is still PENDING; the others are left as they
+     * are, as the conditional update of the state mode leaves them.
+     *
+     * @return the ids of the orders this call confirmed
+     */
+    @Override
+    @Transactional
+    @MonitorConsistency(contractId = "OrderPaymentConsistency")
+    public List<Long> confirmOrders(List<Long> orderIds) {
+        List<OrderAggregate> pending = pending(orderIds);
+        LocalDateTime now = LocalDateTime.now();
+        pending.forEach(order -> order.confirm(now));
+        return store(pending);
+    }
+
+    @Override
+    @Transactional
+    @MonitorConsistency(contractId = "OrderPaymentConsistency")
+    public List<Long> cancelOrders(Map<Long, String> reasonsByOrderId) {
+        List<OrderAggregate> pending = pending(reasonsByOrderId.keySet());
+        LocalDateTime now = LocalDateTime.now();
+        pending.forEach(order -> order.cancel(reasonsByOrderId.get(order.getOrderId()), now));
+        return store(pending);
+    }
+
+    private List<OrderResponse> create(List<CreateOrderRequest> requests) {
+        List<Order> orders = requests.stream().map(OrderServiceImpl::buildOrder).toList();
+        List<Long> orderIds = eventStore.allocateOrderIds(orders.size());
+        LocalDateTime now = LocalDateTime.now();
+        List<OrderAggregate> created = IntStream.range(0, orders.size())
+                .mapToObj(i -> OrderAggregate.create(orderIds.get(i), orders.get(i), now))
+                .toList();
+        store(created);
+        log.info("Created orders {}", orderIds);
+        return created.stream().map(order -> OrderServiceImpl.mapToResponse(order.toOrder())).toList();
+    }
+
+    private List<OrderAggregate> pending(Collection<Long> orderIds) {
+        log.info("Moving the PENDING ones of {} orders", orderIds.size());
+        List<OrderAggregate> pending = eventStore.loadAll(orderIds).values().stream()
+                .filter(order -> order.getStatus() == OrderStatus.PENDING)
+                .toList();
+        if (pending.size() < orderIds.size()) {
+            log.info("{} of {} orders were no longer PENDING and stay as they are",
+                    orderIds.size() - pending.size(), orderIds.size());
+        }
+        return pending;
+    }
+
+    /**
+     * Verifies the changed orders, stores their events and publishes them, in the caller's
+     * transaction.
+     *
+     * @return the ids of the changed orders
+     */
+    private List<Long> store(List<OrderAggregate> changed) {
+        if (changed.isEmpty()) {
+            return List.of();
+        }
+        ccfIntegration.validateOrdersConsistency(changed.stream().map(OrderAggregate::toOrder).toList());
+        List<OrderEventRecord> events = eventStore.save(changed);
+        publish(events);
+        return changed.stream().map(OrderAggregate::getOrderId).toList();
+    }
+
+    private void publish(List<OrderEventRecord> events) {
+        List<OrderCreatedEvent> created = new ArrayList<>();
+        List<OrderConfirmedEvent> confirmed = new ArrayList<>();
+        List<OrderCancelledEvent> cancelled = new ArrayList<>();
+        for (OrderEventRecord event : events) {
+            Long orderId = event.getOrderId();
+            String timestamp = event.getOccurredAt().toString();
+            switch (event.getType()) {
+                case CREATED -> created.add(OrderCreatedEvent.builder()
+                        .eventId("orderCreated-" + orderId)
+                        .orderId(orderId)
+                        .customerId(event.getCustomerId())
+                        .totalAmount(event.getPayload().getTotalAmount().toBigDecimal())
+                        .currency(event.getPayload().getTotalAmount().currency())
+                        .timestamp(timestamp)
+                        .build());
+                case CONFIRMED -> confirmed.add(OrderConfirmedEvent.builder()
+                        .eventId("orderConfirmed-" + orderId)
+                        .orderId(orderId)
+                        .timestamp(timestamp)
+                        .build());
+                case CANCELLED -> cancelled.add(OrderCancelledEvent.builder()
+                        .eventId("orderCancelled-" + orderId)
+                        .orderId(orderId)
+                        .reason(event.getPayload().getReason())
+                        .timestamp(timestamp)
+                        .build());
+            }
+            if (event.getType() != OrderEventType.CREATED) {
+                eventPublisher.publishEvent(new OrderChangedEvent(orderId));
+            }
+        }
+
+        // The saga hears of the events only once this transaction commits
+        if (!created.isEmpty()) {
+            eventProducer.sendOrderCreatedEvents(created);
+            created.forEach(event -> eventPublisher.publishEvent(new OrderSagaEvent("orderCreated", event.getOrderId())));
+        }
+        if (!confirmed.isEmpty()) {
+            eventProducer.sendOrderConfirmedEvents(confirmed);
+            confirmed.forEach(event -> eventPublisher.publishEvent(new OrderSagaEvent("orderConfirmed", event.getOrderId())));
+        }
+        if (!cancelled.isEmpty()) {
+            eventProducer.sendOrderCancelledEvents(cancelled);
+            cancelled.forEach(event -> eventPublisher.publishEvent(new OrderSagaEvent("orderCancelled", event.getOrderId())));
+        }
+    }
+
+    // Listing rows in the order of the given ids; an id without events is skipped
+    private List<OrderResponse> currentState(List<Long> orderIds) {
+        Map<Long, OrderAggregate> orders = eventStore.loadAll(orderIds);
+        return orderIds.stream()
+                .map(orders::get)
+                .filter(Objects::nonNull)
+                .map(order -> OrderServiceImpl.mapToResponse(order.toOrder()))
+                .toList();
+    }
+}
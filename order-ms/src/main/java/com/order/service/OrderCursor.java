@@ -0,0 +1,49 @@
+package com.order.service;
+
+import com.order.dto.OrderPage;
+import com.order.dto.OrderResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Position in a customer's order listing: the (createdAt, id) of the last order returned,
+ * handed to clients as an opaque base64url string.
+ */
+record OrderCursor(LocalDateTime createdAt, Long id) {
+
+    private static final String SEPARATOR = "_";
+
+    static OrderCursor parse(String cursor) {
+        try {
+            String[] position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+                    .split(SEPARATOR, 2);
+            return new OrderCursor(LocalDateTime.parse(position[0]), Long.valueOf(position[1]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+
+    /**
+     * The page of the given rows, fetched one beyond {@code pageSize}: that extra row tells
+     * whether another page follows.
+     */
+    static OrderPage page(List<OrderResponse> rows, int pageSize) {
+        if (rows.size() <= pageSize) {
+            return OrderPage.builder().orders(rows).build();
+        }
+        List<OrderResponse> page = rows.subList(0, pageSize);
+        OrderResponse last = page.get(pageSize - 1);
+        return OrderPage.builder()
+                .orders(List.copyOf(page))
+                .nextCursor(new OrderCursor(last.getCreatedAt(), last.getId()).encode())
+                .build();
+    }
+
+    String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((createdAt + SEPARATOR + id).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,226 @@
+package com.order.service;
+
+import ccf.ccf.mapping.ConsistencyLevelMapper;
+import ccf.ccf.mapping.SessionTokenExchange;
+import com.order.dto.CreateOrderRequest;
+import com.order.dto.OrderResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Group commit for order creation. With {@code orders.group-commit.enabled}, concurrent create
+ * requests are queued, and a flusher thread collects them until the window closes or the batch
+ * is full, then creates them all in one transaction through {@link OrderService#createOrders}.
+ * While one flusher commits, the next gathers, so batches grow with the load.
+ * <p>
+ * Each caller still gets its own result: if the batch transaction fails, its requests are
+ * replayed one transaction each, so only the faulty ones complete with an error. Callers also
+ * get the session token of the commit that covered their order, as with a direct create.
+ * Callers wait on their own thread; the service runs on virtual threads, so waiting is cheap
+ * and needs no async request handling.
+ */
+@Slf4j
+@Component
+public class OrderGroupCommitter {
+
+    private final OrderService orderService;
+    private final ConsistencyLevelMapper consistencyLevelMapper;
+    private final SessionTokenExchange sessionTokenExchange;
+    private final boolean enabled;
+    private final long windowMillis;
+    private final int maxBatchSize;
+    private final BlockingQueue<PendingOrder> queue = new LinkedBlockingQueue<>();
+    private final ExecutorService flushers;
+    private final DistributionSummary batchSizes;
+    private final Counter fallbacks;
+
+    private volatile boolean running = true;
+
+    public OrderGroupCommitter(OrderService orderService,
+                               ConsistencyLevelMapper consistencyLevelMapper,
+                               SessionTokenExchange sessionTokenExchange,
+                               ObjectProvider<MeterRegistry> meterRegistry,
+                               @Value("${orders.group-commit.enabled:false}") boolean enabled,
+                               @Value("${orders.group-commit.window-ms:5}") long windowMillis,
+                               @Value("${orders.group-commit.max-batch-size:200}") int maxBatchSize,
+                               @Value("${orders.group-commit.flushers:2}") int flusherCount) {
+        this.orderService = orderService;
+        this.consistencyLevelMapper = consistencyLevelMapper;
+        this.sessionTokenExchange = sessionTokenExchange;
+        this.enabled = enabled;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+
+        MeterRegistry registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+        Gauge.builder("orders.group.commit.window", () -> windowMillis).baseUnit("milliseconds").register(registry);
+        Gauge.builder("orders.group.commit.max.batch.size", () -> this.maxBatchSize).register(registry);
+        Gauge.builder("orders.group.commit.queued", queue, BlockingQueue::size).register(registry);
+        this.batchSizes = DistributionSummary.builder("orders.group.commit.batch.size").register(registry);
+        this.fallbacks = Counter.builder("orders.group.commit.fallbacks").register(registry);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.flushers = Executors.newFixedThreadPool(Math.max(1, flusherCount), runnable -> {
+            Thread thread = new Thread(runnable, "order-group-commit-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (enabled) {
+            for (int i = 0; i < Math.max(1, flusherCount); i++) {
+                flushers.execute(this::flushLoop);
+            }
+            log.info("Order group commit enabled: window {}ms, up to {} orders per transaction", windowMillis, maxBatchSize);
+        }
+    }
+
+    /**
+     * Creates the order, within the next group commit when enabled. Errors are thrown as a
+     * direct create would throw them.
+     */
+    public OrderResponse create(CreateOrderRequest request) {
+        if (!enabled) {
+            return orderService.createOrder(request);
+        }
+        if (!running) {
+            throw new IllegalStateException("Order service is shutting down");
+        }
+
+        PendingOrder pending = new PendingOrder(request, RequestContextHolder.getRequestAttributes(), new CompletableFuture<>());
+        queue.add(pending);
+        try {
+            return pending.result.get();
+        } catch (InterruptedException e) {
+            // The order may still be committed by its group
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the group commit", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void flushLoop() {
+        while (running) {
+            List<PendingOrder> batch = new ArrayList<>(maxBatchSize);
+            try {
+                PendingOrder first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // The window opens with the first request and closes early when the batch is full
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(windowMillis);
+                while (batch.size() < maxBatchSize) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingOrder next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                }
+                commit(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.forEach(pending -> pending.result.completeExceptionally(e));
+                return;
+            } catch (Throwable e) {
+                // Nothing may end the flusher while callers wait; results already completed stay as they are
+                log.error("Group commit of {} orders failed unexpectedly", batch.size(), e);
+                batch.forEach(pending -> pending.result.completeExceptionally(e));
+            }
+        }
+    }
+
+    private void commit(List<PendingOrder> batch) {
+        batchSizes.record(batch.size());
+        List<OrderResponse> responses;
+        try {
+            responses = orderService.createOrders(batch.stream().map(PendingOrder::request).toList());
+        } catch (Throwable e) {
+            if (batch.size() == 1) {
+                batch.get(0).result.completeExceptionally(e);
+            } else {
+                fallbacks.increment();
+                log.warn("Group commit of {} orders failed ({}), committing them one by one", batch.size(), e.getMessage());
+                batch.forEach(this::commitAlone);
+            }
+            return;
+        }
+
+        String sessionToken = consistencyLevelMapper.captureSessionToken();
+        for (int i = 0; i < batch.size(); i++) {
+            OrderResponse response = responses.get(i);
+            PendingOrder pending = batch.get(i);
+            inRequestOf(pending, () -> {
+                sessionTokenExchange.publish(sessionToken);
+                pending.result.complete(response);
+            });
+        }
+    }
+
+    private void commitAlone(PendingOrder pending) {
+        inRequestOf(pending, () -> {
+            try {
+                pending.result.complete(orderService.createOrder(pending.request));
+            } catch (Throwable e) {
+                pending.result.completeExceptionally(e);
+            }
+        });
+    }
+
+    // Lets the session token reach the caller's response from the flusher thread
+    private static void inRequestOf(PendingOrder pending, Runnable action) {
+        RequestContextHolder.setRequestAttributes(pending.requestAttributes);
+        try {
+            action.run();
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        flushers.shutdown();
+        if (!flushers.awaitTermination(5, TimeUnit.SECONDS)) {
+            flushers.shutdownNow();
+        }
+        PendingOrder pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result.completeExceptionally(new IllegalStateException("Order service is shutting down"));
+        }
+    }
+
+    private record PendingOrder(CreateOrderRequest request, RequestAttributes requestAttributes,
+                                CompletableFuture<OrderResponse> result) {
+    }
+}
@@ -1,11 +1,21 @@
 package com.order.service;
 
 import com.order.dto.CreateOrderRequest;
+import com.order.dto.OrderPage;
 import com.order.dto.OrderResponse;
 
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
 public interface OrderService {
     OrderResponse createOrder(CreateOrderRequest request);
+    List<OrderResponse> createOrders(List<CreateOrderRequest> requests);
     OrderResponse getOrder(Long orderId);
+    OrderPage listOrders(String customerId, String cursor, int limit);
+    void exportOrders(String customerId, Consumer<OrderResponse> sink);
     OrderResponse confirmOrder(Long orderId);
     OrderResponse cancelOrder(Long orderId, String reason);
+    List<Long> confirmOrders(List<Long> orderIds);
+    List<Long> cancelOrders(Map<Long, String> reasonsByOrderId);
 }
\ No newline at end of file
@@ -1,9 +1,13 @@
 package com.order.service;
 
 
+import ccf.ccf.money.model.Money;
 import ccf.ccf.verification.MonitorConsistency;
+import com.order.cache.OrderChangedEvent;
 import com.order.ccf.OrderCcfIntegration;
+import com.order.ccf.OrderSagaEvent;
 import com.order.dto.CreateOrderRequest;
+import com.order.dto.OrderPage;
 import com.order.dto.OrderResponse;
 import com.order.event.OrderCancelledEvent;
 import com.order.event.OrderConfirmedEvent;
@@ -15,20 +19,34 @@ import com.order.model.OrderStatus;
 import com.order.repository.OrderRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
+@ConditionalOnProperty(name = "orders.persistence", havingValue = "state", matchIfMissing = true)
 public class OrderServiceImpl implements OrderService {
 
     private final OrderRepository orderRepository;
     private final OrderEventProducer eventProducer;
     private final OrderCcfIntegration ccfIntegration;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${orders.listing.max-page-size:500}")
+    private int maxPageSize;
 
     @Override
     @Transactional
@@ -36,49 +54,43 @@ public class OrderServiceImpl implements OrderService {
     public OrderResponse createOrder(CreateOrderRequest request) {
         log.info("Creating order for customer: {}", request.getCustomerId());
 
-        BigDecimal total = request.getItems().stream()
-                .map(item -> item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        Order order = orderRepository.save(buildOrder(request));
+        log.info("Order created with ID: {}", order.getId());
 
-        if (!total.equals(request.getTotalPrice())) {
-            log.error("Contract violation: TOTAL_MATCH invariant failed");
-            throw new RuntimeException("Expected: " + total + " , " + "Got: " + request.getTotalPrice());
-        }
+        ccfIntegration.validateOrderConsistency(order);
 
-        Order order = Order.builder()
-                .customerId(request.getCustomerId())
-                .totalAmount(total)
-                .status(OrderStatus.PENDING)
-                .build();
+        eventProducer.sendOrderCreatedEvent(orderCreatedEvent(order));
+        eventPublisher.publishEvent(new OrderSagaEvent("orderCreated", order.getId()));
 
-        Order finalOrder = order;
-        request.getItems().forEach(itemDto -> {
-            OrderItem item = OrderItem.builder()
-                    .productId(itemDto.getProductId())
-                    .quantity(itemDto.getQuantity())
-                    .price(itemDto.getPrice())
-                    .build();
-            finalOrder.addItem(item);
-        });
+        return mapToResponse(order);
+    }
 
-        order = orderRepository.save(order);
-        log.info("Order created with ID: {}", order.getId());
+    /**
+     * Creates all orders in one transaction: ids come from the pooled sequence, the inserts are
+     * JDBC-batched at flush, the contract is verified in one pass and the events are stored in
+     * the outbox together. One invalid order rejects the whole batch.
+     */
+    @Override
+    @Transactional
+    @MonitorConsistency(contractId = "OrderPaymentConsistency")
+    public List<OrderResponse> createOrders(List<CreateOrderRequest> requests) {
+        log.info("Creating {} orders", requests.size());
 
-        ccfIntegration.validateOrderConsistency(order);
+        List<Order> orders = orderRepository.saveAll(requests.stream().map(OrderServiceImpl::buildOrder).toList());
+        orderRepository.flush();
+        log.info("Created {} orders", orders.size());
 
-        OrderCreatedEvent event = OrderCreatedEvent.builder()
-                .orderId(order.getId())
-                .customerId(order.getCustomerId())
-                .totalAmount(order.getTotalAmount())
-                .timestamp(LocalDateTime.now().toString())
-                .build();
+        ccfIntegration.validateOrdersConsistency(orders);
 
-        eventProducer.sendOrderCreatedEvent(event);
+        eventProducer.sendOrderCreatedEvents(orders.stream().map(this::orderCreatedEvent).toList());
+        orders.forEach(order -> eventPublisher.publishEvent(new OrderSagaEvent("orderCreated", order.getId())));
 
-        return mapToResponse(order);
+        return orders.stream().map(OrderServiceImpl::mapToResponse).toList();
     }
 
     @Override
+    @Transactional(readOnly = true)
+    @MonitorConsistency(contractId = "OrderPaymentConsistency", readOnly = true)
     public OrderResponse getOrder(Long orderId) {
         log.info("Fetching order: {}", orderId);
         Order order = orderRepository.findById(orderId)
@@ -86,60 +98,228 @@ public class OrderServiceImpl implements OrderService {
         return mapToResponse(order);
     }
 
+    /**
+     * Keyset pagination: the cursor is the (createdAt, id) of the last order returned, so every
+     * page is an index range scan however deep the client has paged.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    @MonitorConsistency(contractId = "OrderPaymentConsistency", readOnly = true)
+    public OrderPage listOrders(String customerId, String cursor, int limit) {
+        int pageSize = Math.min(Math.max(1, limit), maxPageSize);
+        log.info("Listing up to {} orders of customer {}", pageSize, customerId);
+
+        Limit fetch = Limit.of(pageSize + 1);
+        List<OrderResponse> orders;
+        if (cursor == null || cursor.isBlank()) {
+            orders = orderRepository.findFirstPageByCustomerId(customerId, fetch);
+        } else {
+            OrderCursor after = OrderCursor.parse(cursor);
+            orders = orderRepository.findPageByCustomerIdAfter(customerId, after.createdAt(), after.id(), fetch);
+        }
+        return OrderCursor.page(orders, pageSize);
+    }
+
+    /**
+     * Hands every order of the customer to the sink as it is read from the database cursor;
+     * only one fetch of rows is held in memory at a time.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void exportOrders(String customerId, Consumer<OrderResponse> sink) {
+        log.info("Exporting orders of customer {}", customerId);
+        try (Stream<OrderResponse> orders = orderRepository.streamByCustomerId(customerId)) {
+            orders.forEach(sink);
+        }
+    }
+
+    /**
+     * Confirms the order only if it is still PENDING, with the conditional update of
+     * {@link #confirmOrders}, so a concurrent cancellation cannot be overwritten.
+     */
     @Override
     @Transactional
     @MonitorConsistency(contractId = "OrderPaymentConsistency")
     public OrderResponse confirmOrder(Long orderId) {
         log.info("Confirming order: {}", orderId);
 
+        boolean confirmed = !transition(List.of(orderId), OrderStatus.CONFIRMED).isEmpty();
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found: " + orderId));
 
-        order.setStatus(OrderStatus.CONFIRMED);
-        order = orderRepository.save(order);
-
-        ccfIntegration.validateOrderConsistency(order);
+        if (!confirmed) {
+            // Confirmed before, or cancelled by the saga timeout before the payment arrived
+            log.warn("Order {} is {}, not confirming", orderId, order.getStatus());
+            return mapToResponse(order);
+        }
 
         OrderConfirmedEvent event = OrderConfirmedEvent.builder()
+                .eventId("orderConfirmed-" + order.getId())
                 .orderId(order.getId())
                 .timestamp(LocalDateTime.now().toString())
                 .build();
 
         eventProducer.sendOrderConfirmedEvent(event);
+        eventPublisher.publishEvent(new OrderSagaEvent("orderConfirmed", orderId));
 
         log.info("Order confirmed: {}", orderId);
         return mapToResponse(order);
     }
 
+    /**
+     * Cancels the order only if it is still PENDING, as {@link #confirmOrder} confirms it.
+     */
     @Override
     @Transactional
     @MonitorConsistency(contractId = "OrderPaymentConsistency")
     public OrderResponse cancelOrder(Long orderId, String reason) {
         log.info("Cancelling order: {} with reason: {}", orderId, reason);
 
+        boolean cancelled = !transition(List.of(orderId), OrderStatus.CANCELLED).isEmpty();
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found: " + orderId));
 
-        order.setStatus(OrderStatus.CANCELLED);
-        order = orderRepository.save(order);
+        if (!cancelled) {
+            log.warn("Order {} is {}, not cancelling", orderId, order.getStatus());
+            return mapToResponse(order);
+        }
 
         OrderCancelledEvent event = OrderCancelledEvent.builder()
+                .eventId("orderCancelled-" + order.getId())
                 .orderId(order.getId())
                 .reason(reason)
                 .timestamp(LocalDateTime.now().toString())
                 .build();
 
         eventProducer.sendOrderCancelledEvent(event);
+        eventPublisher.publishEvent(new OrderSagaEvent("orderCancelled", orderId));
 
         log.info("Order cancelled: {}", orderId);
         return mapToResponse(order);
     }
 
-    private OrderResponse mapToResponse(Order order) {
+    /**
+     * Confirms the orders that are still PENDING with one conditional update, then verifies
+     * them in one pass and stores their events together. Orders already confirmed or cancelled
+     * are left as they are and get no event.
+     *
+     * @return the ids of the orders this call confirmed
+     */
+    @Override
+    @Transactional
+    @MonitorConsistency(contractId = "OrderPaymentConsistency")
+    public List<Long> confirmOrders(List<Long> orderIds) {
+        List<Long> confirmed = transition(orderIds, OrderStatus.CONFIRMED);
+        if (confirmed.isEmpty()) {
+            return confirmed;
+        }
+
+        String timestamp = LocalDateTime.now().toString();
+        eventProducer.sendOrderConfirmedEvents(confirmed.stream()
+                .map(orderId -> OrderConfirmedEvent.builder()
+                        .eventId("orderConfirmed-" + orderId)
+                        .orderId(orderId)
+                        .timestamp(timestamp)
+                        .build())
+                .toList());
+        confirmed.forEach(orderId -> eventPublisher.publishEvent(new OrderSagaEvent("orderConfirmed", orderId)));
+        return confirmed;
+    }
+
+    /**
+     * Cancels the orders that are still PENDING, as {@link #confirmOrders} confirms them.
+     *
+     * @return the ids of the orders this call cancelled
+     */
+    @Override
+    @Transactional
+    @MonitorConsistency(contractId = "OrderPaymentConsistency")
+    public List<Long> cancelOrders(Map<Long, String> reasonsByOrderId) {
+        List<Long> cancelled = transition(reasonsByOrderId.keySet(), OrderStatus.CANCELLED);
+        if (cancelled.isEmpty()) {
+            return cancelled;
+        }
+
+        String timestamp = LocalDateTime.now().toString();
+        eventProducer.sendOrderCancelledEvents(cancelled.stream()
+                .map(orderId -> OrderCancelledEvent.builder()
+                        .eventId("orderCancelled-" + orderId)
+                        .orderId(orderId)
+                        .reason(reasonsByOrderId.get(orderId))
+                        .timestamp(timestamp)
+                        .build())
+                .toList());
+        cancelled.forEach(orderId -> eventPublisher.publishEvent(new OrderSagaEvent("orderCancelled", orderId)));
+        return cancelled;
+    }
+
+    private List<Long> transition(Collection<Long> orderIds, OrderStatus target) {
+        log.info("Moving {} orders from PENDING to {}", orderIds.size(), target);
+        List<Long> changed = orderRepository.transitionStatus(orderIds, OrderStatus.PENDING.name(), target.name(),
+                LocalDateTime.now());
+        if (changed.size() < orderIds.size()) {
+            log.info("{} of {} orders were no longer PENDING and stay as they are",
+                    orderIds.size() - changed.size(), orderIds.size());
+        }
+        if (!changed.isEmpty()) {
+            ccfIntegration.validateOrdersConsistency(orderRepository.findAllById(changed));
+            changed.forEach(orderId -> eventPublisher.publishEvent(new OrderChangedEvent(orderId)));
+        }
+        return changed;
+    }
+
+    static Order buildOrder(CreateOrderRequest request) {
+        // Summed in minor units: plain long arithmetic, exact, and no intermediate amounts
+        String currency = request.currencyOrDefault();
+        Money totalPrice = request.getTotalPrice() != null ? Money.of(request.getTotalPrice(), currency) : null;
+        List<Money> prices = new ArrayList<>(request.getItems().size());
+        long total = 0;
+        for (CreateOrderRequest.OrderItemDto item : request.getItems()) {
+            Money price = Money.of(item.getPrice(), currency);
+            prices.add(price);
+            total = Math.addExact(total, Math.multiplyExact(price.minorUnits(), item.getQuantity()));
+        }
+
+        if (totalPrice == null || totalPrice.minorUnits() != total) {
+            log.error("Contract violation: TOTAL_MATCH invariant failed");
+            throw new RuntimeException("Expected: " + Money.ofMinor(total, currency) + " , " + "Got: " + totalPrice);
+        }
+
+        Order order = Order.builder()
+                .customerId(request.getCustomerId())
+                .totalAmount(totalPrice)
+                .status(OrderStatus.PENDING)
+                .build();
+
+        for (int i = 0; i < prices.size(); i++) {
+            CreateOrderRequest.OrderItemDto itemDto = request.getItems().get(i);
+            OrderItem item = OrderItem.builder()
+                    .productId(itemDto.getProductId())
+                    .quantity(itemDto.getQuantity())
+                    .price(prices.get(i))
+                    .build();
+            order.addItem(item);
+        }
+        return order;
+    }
+
+    private OrderCreatedEvent orderCreatedEvent(Order order) {
+        return OrderCreatedEvent.builder()
+                .eventId("orderCreated-" + order.getId())
+                .orderId(order.getId())
+                .customerId(order.getCustomerId())
+                .totalAmount(order.getTotalAmount().toBigDecimal())
+                .currency(order.getTotalAmount().currency())
+                .timestamp(LocalDateTime.now().toString())
+                .build();
+    }
+
+    static OrderResponse mapToResponse(Order order) {
         return OrderResponse.builder()
                 .id(order.getId())
                 .customerId(order.getCustomerId())
-                .totalAmount(order.getTotalAmount())
+                .totalAmount(order.getTotalAmount().toBigDecimal())
+                .currency(order.getTotalAmount().currency())
                 .status(order.getStatus())
                 .createdAt(order.getCreatedAt())
                 .build();
@@ -0,0 +1,481 @@
+package com.order.view;
+
+import ccf.ccf.money.model.Money;
+import ccf.ccf.outbox.OutboxRelay;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.order.dto.OrderView;
+import com.order.event.OrderCreatedEvent;
+import com.order.event.PaymentAuthorizedEvent;
+import com.order.event.PaymentFailedEvent;
+import com.order.model.OrderStatus;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.utils.Utils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Read model of orders and their payments, projected from {@code order-events} and
+ * {@code payment-events} into memory. Both topics are keyed by order id and have the same
+ * partition count, so partition {@code p} of each holds the events of the same orders. One
+ * thread per partition reads both, owns the store shard of those orders, and is the only writer
+ * to it; lookups hash the order id as the producer did and read that shard without locking.
+ * <p>
+ * Every {@code orders.view.snapshot-interval-seconds} a thread that applied events writes its
+ * shard and the offsets it reached to {@code orders.view.snapshot-dir}. On startup each thread
+ * loads its snapshot and replays only the events after it, all partitions in parallel; without
+ * a snapshot it replays its partitions from the beginning. Topic retention must therefore
+ * exceed the snapshot interval. No consumer group is used, so every instance keeps a full view.
+ * <p>
+ * A supervisor thread starts the projectors once both topics exist with equal partition counts,
+ * and checks them again every {@code orders.view.check-interval-seconds}. If the counts change,
+ * or a projector stopped on an error, the projectors are restarted and the view is rebuilt.
+ * Kafka being unavailable therefore delays the view instead of failing startup.
+ */
+@Slf4j
+@Component
+public class OrderViewProjection {
+
+    private static final String ORDER_EVENTS_TOPIC = "order-events";
+    private static final String PAYMENT_EVENTS_TOPIC = "payment-events";
+    private static final int SNAPSHOT_FORMAT = 0x4F565332;
+
+    private final ObjectReader orderCreatedReader;
+    private final ObjectReader paymentAuthorizedReader;
+    private final ObjectReader paymentFailedReader;
+    private final String bootstrapServers;
+    private final boolean enabled;
+    private final Path snapshotDir;
+    private final long snapshotIntervalMillis;
+    private final long checkIntervalMillis;
+
+    private volatile Projectors projectors;
+    private volatile Thread supervisor;
+    private volatile boolean running = true;
+
+    public OrderViewProjection(ObjectMapper objectMapper,
+                               ObjectProvider<MeterRegistry> meterRegistry,
+                               @Value("${spring.kafka.bootstrap-servers}") String bootstrapServers,
+                               @Value("${orders.view.enabled:true}") boolean enabled,
+                               @Value("${orders.view.snapshot-dir:${java.io.tmpdir}/order-view}") String snapshotDir,
+                               @Value("${orders.view.snapshot-interval-seconds:60}") long snapshotIntervalSeconds,
+                               @Value("${orders.view.check-interval-seconds:30}") long checkIntervalSeconds) {
+        // Fields added to the events later must not make the view skip them
+        ObjectReader reader = objectMapper.reader().without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.orderCreatedReader = reader.forType(OrderCreatedEvent.class);
+        this.paymentAuthorizedReader = reader.forType(PaymentAuthorizedEvent.class);
+        this.paymentFailedReader = reader.forType(PaymentFailedEvent.class);
+        this.bootstrapServers = bootstrapServers;
+        this.enabled = enabled;
+        this.snapshotDir = Paths.get(snapshotDir);
+        this.snapshotIntervalMillis = TimeUnit.SECONDS.toMillis(snapshotIntervalSeconds);
+        this.checkIntervalMillis = TimeUnit.SECONDS.toMillis(checkIntervalSeconds);
+
+        MeterRegistry registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+        Gauge.builder("orders.view.size", this, projection -> {
+            Projectors current = projection.projectors;
+            return current != null ? Arrays.stream(current.shards).mapToInt(Map::size).sum() : 0;
+        }).register(registry);
+        Gauge.builder("orders.view.replaying.partitions", this, projection -> {
+            Projectors current = projection.projectors;
+            return current != null ? current.replaying.get() : 0;
+        }).register(registry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        Thread thread = new Thread(this::supervise, "order-view-supervisor");
+        thread.setDaemon(true);
+        thread.start();
+        supervisor = thread;
+    }
+
+    private void supervise() {
+        try (KafkaConsumer<String, String> metadata = newConsumer()) {
+            while (running) {
+                try {
+                    int partitions = partitionCount(metadata);
+                    Projectors current = projectors;
+                    if (partitions > 0 && (current == null || current.partitions != partitions || current.stopped())) {
+                        if (current != null) {
+                            log.info("Order view restarting: {} partitions now, was {}{}", partitions, current.partitions,
+                                    current.stopped() ? " with a stopped projector" : "");
+                            current.stop();
+                        }
+                        Projectors next = new Projectors(partitions);
+                        projectors = next;
+                        next.start();
+                    }
+                } catch (RuntimeException e) {
+                    if (!running) {
+                        return;
+                    }
+                    log.warn("Order view cannot read the partitions of {} and {}, retrying in {}s: {}", ORDER_EVENTS_TOPIC,
+                            PAYMENT_EVENTS_TOPIC, TimeUnit.MILLISECONDS.toSeconds(checkIntervalMillis), e.getMessage());
+                }
+                Thread.sleep(checkIntervalMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The partition count both topics share, or 0 while one is missing or their counts differ:
+     * an order's events would then be split across projectors.
+     */
+    private int partitionCount(KafkaConsumer<String, String> metadata) {
+        List<?> orders = metadata.partitionsFor(ORDER_EVENTS_TOPIC);
+        List<?> payments = metadata.partitionsFor(PAYMENT_EVENTS_TOPIC);
+        if (orders == null || orders.isEmpty() || payments == null || payments.isEmpty()) {
+            log.warn("Order view waiting for {} and {} to be created", ORDER_EVENTS_TOPIC, PAYMENT_EVENTS_TOPIC);
+            return 0;
+        }
+        if (orders.size() != payments.size()) {
+            log.error("Order view waiting: {} has {} partitions but {} has {}, so an order's events would be split "
+                    + "across projectors", ORDER_EVENTS_TOPIC, orders.size(), PAYMENT_EVENTS_TOPIC, payments.size());
+            return 0;
+        }
+        return orders.size();
+    }
+
+    /**
+     * The view of an order, read from memory. Empty for an order whose events have not been
+     * projected yet; check {@link #isReplaying(long)} first to tell that from an unknown order.
+     */
+    public Optional<OrderView> find(long orderId) {
+        Projectors current = projectors;
+        if (current == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(current.shards[partitionOf(orderId, current.partitions)].get(orderId));
+    }
+
+    /**
+     * Whether the view of the order may still be incomplete: the projectors have not started, or
+     * the order's partition has not caught up with the end of its topics.
+     */
+    public boolean isReplaying(long orderId) {
+        Projectors current = projectors;
+        return current == null || current.caughtUp.get(partitionOf(orderId, current.partitions)) == 0;
+    }
+
+    // Same choice as the producer's default partitioner for the String key
+    private static int partitionOf(long orderId, int partitions) {
+        return Utils.toPositive(Utils.murmur2(String.valueOf(orderId).getBytes(StandardCharsets.UTF_8))) % partitions;
+    }
+
+    private void project(Projectors owner, int partition) {
+        int partitions = owner.partitions;
+        Map<Long, OrderView> store = owner.shards[partition];
+        TopicPartition orders = new TopicPartition(ORDER_EVENTS_TOPIC, partition);
+        TopicPartition payments = new TopicPartition(PAYMENT_EVENTS_TOPIC, partition);
+        long started = System.nanoTime();
+
+        try (KafkaConsumer<String, String> consumer = newConsumer()) {
+            owner.consumers.add(consumer);
+            if (!owner.running) {
+                return;
+            }
+            consumer.assign(List.of(orders, payments));
+            long[] restored = restore(partition, partitions, store);
+            if (restored != null) {
+                consumer.seek(orders, restored[0]);
+                consumer.seek(payments, restored[1]);
+            } else {
+                consumer.seekToBeginning(List.of(orders, payments));
+            }
+
+            Map<TopicPartition, Long> replayEnd = consumer.endOffsets(List.of(orders, payments));
+            boolean replayed = false;
+            boolean dirty = false;
+            long orderPosition = -1;
+            long paymentPosition = -1;
+            long nextSnapshot = System.currentTimeMillis() + snapshotIntervalMillis;
+            try {
+                while (owner.running) {
+                    ConsumerRecords<String, String> records = consumer.poll(Duration.ofMillis(500));
+                    for (ConsumerRecord<String, String> record : records) {
+                        apply(store, record);
+                    }
+                    dirty |= !records.isEmpty();
+                    orderPosition = consumer.position(orders);
+                    paymentPosition = consumer.position(payments);
+
+                    if (!replayed && orderPosition >= replayEnd.get(orders) && paymentPosition >= replayEnd.get(payments)) {
+                        replayed = true;
+                        owner.caughtUp.set(partition, 1);
+                        owner.replaying.decrementAndGet();
+                        log.info("Order view partition {} caught up in {}ms with {} orders", partition,
+                                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), store.size());
+                    }
+                    if (dirty && System.currentTimeMillis() >= nextSnapshot) {
+                        writeSnapshot(partition, partitions, store, orderPosition, paymentPosition);
+                        dirty = false;
+                        nextSnapshot = System.currentTimeMillis() + snapshotIntervalMillis;
+                    }
+                }
+            } catch (WakeupException e) {
+                // Shutting down
+            }
+            if (dirty) {
+                writeSnapshot(partition, partitions, store, orderPosition, paymentPosition);
+            }
+        } catch (WakeupException e) {
+            // Shut down before the replay began
+        } catch (RuntimeException e) {
+            log.error("Order view projector of partition {} stopped: {}", partition, e.getMessage(), e);
+        }
+    }
+
+    private void apply(Map<Long, OrderView> store, ConsumerRecord<String, String> record) {
+        Header typeHeader = record.headers().lastHeader(OutboxRelay.EVENT_TYPE_HEADER);
+        if (record.key() == null || typeHeader == null) {
+            return;
+        }
+        String eventType = new String(typeHeader.value(), StandardCharsets.UTF_8);
+        Long orderId;
+        try {
+            orderId = Long.valueOf(record.key());
+        } catch (NumberFormatException e) {
+            log.warn("Skipping {} event with key {}: not an order id", eventType, record.key());
+            return;
+        }
+        OrderView current = store.get(orderId);
+        OrderView.OrderViewBuilder view = current != null ? current.toBuilder() : OrderView.builder().orderId(orderId);
+
+        try {
+            switch (eventType) {
+                case "orderCreated" -> {
+                    OrderCreatedEvent event = orderCreatedReader.readValue(record.value());
+                    view.customerId(event.getCustomerId()).totalAmount(event.totalMoney());
+                    // A redelivered creation must not undo a later confirmation or cancellation
+                    if (current == null || current.getOrderStatus() == null) {
+                        view.orderStatus(OrderStatus.PENDING);
+                    }
+                }
+                case "orderConfirmed" -> view.orderStatus(OrderStatus.CONFIRMED);
+                case "orderCancelled" -> view.orderStatus(OrderStatus.CANCELLED);
+                case "paymentAuthorized" -> view
+                        .paymentId(paymentAuthorizedReader.<PaymentAuthorizedEvent>readValue(record.value()).getPaymentId())
+                        .paymentStatus("AUTHORIZED");
+                case "paymentFailed" -> view
+                        .paymentId(paymentFailedReader.<PaymentFailedEvent>readValue(record.value()).getPaymentId())
+                        .paymentStatus("DECLINED");
+                default -> {
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Skipping unreadable {} event of order {} in the view: {}", eventType, orderId, e.getMessage());
+            return;
+        }
+        store.put(orderId, view.updatedAt(Instant.ofEpochMilli(record.timestamp())).build());
+    }
+
+    private Path snapshotFile(int partition) {
+        return snapshotDir.resolve("partition-" + partition + ".snapshot");
+    }
+
+    /**
+     * Loads the partition's snapshot into the store.
+     *
+     * @return the order and payment event offsets to resume from, or null to replay from the beginning
+     */
+    private long[] restore(int partition, int partitions, Map<Long, OrderView> store) {
+        Path file = snapshotFile(partition);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != SNAPSHOT_FORMAT || in.readInt() != partitions) {
+                log.info("Order view snapshot {} is from another format or partition count, replaying", file);
+                return null;
+            }
+            long[] offsets = {in.readLong(), in.readLong()};
+            for (int remaining = in.readInt(); remaining > 0; remaining--) {
+                OrderView view = readView(in);
+                store.put(view.getOrderId(), view);
+            }
+            log.info("Order view partition {} restored {} orders from {}", partition, store.size(), file);
+            return offsets;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Order view snapshot {} is unreadable, replaying: {}", file, e.getMessage());
+            store.clear();
+            return null;
+        }
+    }
+
+    // Written beside the previous snapshot and moved over it, so a crash never leaves half a file
+    private void writeSnapshot(int partition, int partitions, Map<Long, OrderView> store,
+                               long orderPosition, long paymentPosition) {
+        Path file = snapshotFile(partition);
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(snapshotDir);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                out.writeInt(SNAPSHOT_FORMAT);
+                out.writeInt(partitions);
+                out.writeLong(orderPosition);
+                out.writeLong(paymentPosition);
+                out.writeInt(store.size());
+                for (OrderView view : store.values()) {
+                    writeView(out, view);
+                }
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Order view partition {} snapshot written with {} orders", partition, store.size());
+        } catch (IOException e) {
+            log.warn("Could not write order view snapshot {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static void writeView(DataOutputStream out, OrderView view) throws IOException {
+        out.writeLong(view.getOrderId());
+        writeNullable(out, view.getCustomerId());
+        out.writeBoolean(view.getTotalAmount() != null);
+        if (view.getTotalAmount() != null) {
+            out.writeLong(view.getTotalAmount().minorUnits());
+            out.writeUTF(view.getTotalAmount().currency());
+        }
+        writeNullable(out, view.getOrderStatus() != null ? view.getOrderStatus().name() : null);
+        writeNullable(out, view.getPaymentId());
+        writeNullable(out, view.getPaymentStatus());
+        out.writeLong(view.getUpdatedAt() != null ? view.getUpdatedAt().toEpochMilli() : Long.MIN_VALUE);
+    }
+
+    private static OrderView readView(DataInputStream in) throws IOException {
+        OrderView.OrderViewBuilder view = OrderView.builder().orderId(in.readLong()).customerId(readNullable(in));
+        if (in.readBoolean()) {
+            view.totalAmount(Money.ofMinor(in.readLong(), in.readUTF()));
+        }
+        String status = readNullable(in);
+        view.orderStatus(status != null ? OrderStatus.valueOf(status) : null)
+                .paymentId(readNullable(in))
+                .paymentStatus(readNullable(in));
+        long updatedAt = in.readLong();
+        return view.updatedAt(updatedAt != Long.MIN_VALUE ? Instant.ofEpochMilli(updatedAt) : null).build();
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private KafkaConsumer<String, String> newConsumer() {
+        // Partitions are assigned, not subscribed, and progress lives in the snapshots: no group, no commits
+        return new KafkaConsumer<>(Map.of(
+                ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers,
+                ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false,
+                ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest",
+                ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class,
+                ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class));
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        Thread current = supervisor;
+        if (current != null) {
+            current.interrupt();
+            current.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        Projectors last = projectors;
+        if (last != null) {
+            last.stop();
+        }
+    }
+
+    // The projector threads for one partition count, with the store shards they own
+    private final class Projectors {
+        private final int partitions;
+        private final Map<Long, OrderView>[] shards;
+        private final AtomicIntegerArray caughtUp;
+        private final AtomicInteger replaying;
+        private final List<Thread> threads = new ArrayList<>();
+        private final List<KafkaConsumer<String, String>> consumers = new CopyOnWriteArrayList<>();
+        private volatile boolean running = true;
+
+        @SuppressWarnings("unchecked")
+        private Projectors(int partitions) {
+            this.partitions = partitions;
+            this.shards = new Map[partitions];
+            for (int i = 0; i < partitions; i++) {
+                shards[i] = new ConcurrentHashMap<>();
+            }
+            this.caughtUp = new AtomicIntegerArray(partitions);
+            this.replaying = new AtomicInteger(partitions);
+        }
+
+        private void start() {
+            for (int partition = 0; partition < partitions; partition++) {
+                int owned = partition;
+                Thread thread = new Thread(() -> project(this, owned), "order-view-" + partition);
+                thread.setDaemon(true);
+                thread.start();
+                threads.add(thread);
+            }
+            log.info("Order view projecting {} partitions of {} and {}", partitions, ORDER_EVENTS_TOPIC, PAYMENT_EVENTS_TOPIC);
+        }
+
+        private boolean stopped() {
+            return threads.stream().anyMatch(thread -> !thread.isAlive());
+        }
+
+        private void stop() throws InterruptedException {
+            running = false;
+            consumers.forEach(KafkaConsumer::wakeup);
+            for (Thread thread : threads) {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.order.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.order.cache.OrderCache;
+import com.order.ccf.OrderCcfIntegration;
+import com.order.kafka.OrderEventProducer;
+import com.order.repository.OrderRepository;
+import com.order.service.OrderGroupCommitter;
+import com.order.service.OrderServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class OrderControllerTest {
+
+    private final OrderController controller = new OrderController(
+            new OrderServiceImpl(mock(OrderRepository.class), mock(OrderEventProducer.class),
+                    mock(OrderCcfIntegration.class), mock(ApplicationEventPublisher.class)),
+            mock(OrderGroupCommitter.class), mock(OrderCache.class), new ObjectMapper());
+
+    @Test
+    void malformedCursorIsABadRequest() {
+        assertThatThrownBy(() -> controller.listOrders("customer-1", "not-a-cursor", 10))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+    }
+}
@@ -0,0 +1,125 @@
+package com.order.eventstore;
+
+import ccf.ccf.money.model.Money;
+import com.order.model.Order;
+import com.order.model.OrderAggregate;
+import com.order.model.OrderEventRecord;
+import com.order.model.OrderEventType;
+import com.order.model.OrderSnapshot;
+import com.order.model.OrderStatus;
+import com.order.repository.OrderEventRecordRepository;
+import com.order.repository.OrderSnapshotRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderEventStoreTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 3, 1, 12, 0);
+
+    private OrderEventRecordRepository eventRepository;
+    private OrderSnapshotRepository snapshotRepository;
+    private OrderEventStore store;
+
+    @BeforeEach
+    void setUp() {
+        eventRepository = mock(OrderEventRecordRepository.class);
+        snapshotRepository = mock(OrderSnapshotRepository.class);
+        store = new OrderEventStore(eventRepository, snapshotRepository, mock(EntityManager.class));
+        ReflectionTestUtils.setField(store, "snapshotEvery", 2);
+    }
+
+    @Test
+    void tailsStartAfterTheVersionOfTheLoadedSnapshot() {
+        OrderAggregate snapshotted = created(1L);
+        snapshotted.confirm(NOW);
+        snapshotted.getPendingEvents().clear();
+        when(snapshotRepository.findLatestByOrderIdIn(anyCollection())).thenReturn(List.of(OrderSnapshot.builder()
+                .orderId(1L).version(2).state(snapshotted).takenAt(NOW).build()));
+        OrderAggregate fresh = created(2L);
+        when(eventRepository.findTailsByOrderIdIn(List.of(2L), 0)).thenReturn(fresh.getPendingEvents());
+        when(eventRepository.findTailsByOrderIdIn(List.of(1L), 2)).thenReturn(List.of());
+
+        Map<Long, OrderAggregate> loaded = store.loadAll(List.of(1L, 2L));
+
+        assertThat(loaded.get(1L).getStatus()).isEqualTo(OrderStatus.CONFIRMED);
+        assertThat(loaded.get(2L).getStatus()).isEqualTo(OrderStatus.PENDING);
+        verify(eventRepository).findTailsByOrderIdIn(List.of(1L), 2);
+        verify(eventRepository).findTailsByOrderIdIn(List.of(2L), 0);
+    }
+
+    @Test
+    void aTailWithoutCreationEventOrSnapshotIsNoOrder() {
+        when(snapshotRepository.findLatestByOrderIdIn(anyCollection())).thenReturn(List.of());
+        when(eventRepository.findTailsByOrderIdIn(anyCollection(), anyInt())).thenReturn(List.of(OrderEventRecord.builder()
+                .orderId(1L).version(2).type(OrderEventType.CONFIRMED).occurredAt(NOW).build()));
+
+        assertThat(store.load(1L)).isEmpty();
+    }
+
+    @Test
+    void snapshotIsDueWhenPendingEventsCrossAMultiple() {
+        OrderAggregate aggregate = created(1L);
+        assertThat(OrderEventStore.snapshotDue(aggregate, 2)).isFalse();
+
+        aggregate.confirm(NOW);
+        assertThat(OrderEventStore.snapshotDue(aggregate, 2)).isTrue();
+        assertThat(OrderEventStore.snapshotDue(aggregate, 50)).isFalse();
+        assertThat(OrderEventStore.snapshotDue(aggregate, 0)).isFalse();
+
+        aggregate.getPendingEvents().clear();
+        aggregate.cancel("late", NOW);
+        assertThat(OrderEventStore.snapshotDue(aggregate, 2)).isFalse();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void saveStoresEventsAndDueSnapshots() {
+        OrderAggregate aggregate = created(1L);
+        aggregate.confirm(NOW);
+
+        List<OrderEventRecord> stored = store.save(List.of(aggregate));
+
+        assertThat(stored).extracting(OrderEventRecord::getVersion).containsExactly(1, 2);
+        ArgumentCaptor<List<OrderSnapshot>> snapshots = ArgumentCaptor.forClass(List.class);
+        verify(snapshotRepository).saveAll(snapshots.capture());
+        assertThat(snapshots.getValue()).singleElement()
+                .satisfies(snapshot -> assertThat(snapshot.getVersion()).isEqualTo(2));
+        assertThat(aggregate.getPendingEvents()).isEmpty();
+    }
+
+    @Test
+    void aConflictingVersionIsAnOptimisticLockingFailure() {
+        OrderAggregate aggregate = created(1L);
+        doThrow(new DataIntegrityViolationException("uk_order_events_order_version")).when(eventRepository).flush();
+
+        assertThatThrownBy(() -> store.save(List.of(aggregate)))
+                .isInstanceOf(OptimisticLockingFailureException.class)
+                .hasCauseInstanceOf(DataIntegrityViolationException.class);
+        assertThat(aggregate.getPendingEvents()).hasSize(1);
+    }
+
+    private static OrderAggregate created(Long orderId) {
+        return OrderAggregate.create(orderId, Order.builder()
+                .customerId("customer-" + orderId)
+                .totalAmount(Money.of(10, "USD"))
+                .build(), NOW);
+    }
+}
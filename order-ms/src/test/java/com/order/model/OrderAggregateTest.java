@@ -0,0 +1,87 @@
+package com.order.model;
+
+import ccf.ccf.money.model.Money;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.groups.Tuple.tuple;
+
+class OrderAggregateTest {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 3, 1, 12, 0);
+    private static final LocalDateTime CONFIRMED_AT = CREATED_AT.plusMinutes(5);
+
+    @Test
+    void createAppendsTheFirstVersionAsPending() {
+        OrderAggregate aggregate = OrderAggregate.create(7L, order(), CREATED_AT);
+
+        assertThat(aggregate.getVersion()).isEqualTo(1);
+        assertThat(aggregate.getStatus()).isEqualTo(OrderStatus.PENDING);
+        assertThat(aggregate.getTotalAmount()).isEqualTo(Money.of(25, "USD"));
+        assertThat(aggregate.getPendingEvents()).extracting(OrderEventRecord::getType, OrderEventRecord::getVersion)
+                .containsExactly(tuple(OrderEventType.CREATED, 1));
+    }
+
+    @Test
+    void changesAppendTheNextVersions() {
+        OrderAggregate aggregate = OrderAggregate.create(7L, order(), CREATED_AT);
+        aggregate.confirm(CONFIRMED_AT);
+
+        assertThat(aggregate.getVersion()).isEqualTo(2);
+        assertThat(aggregate.getStatus()).isEqualTo(OrderStatus.CONFIRMED);
+        assertThat(aggregate.getUpdatedAt()).isEqualTo(CONFIRMED_AT);
+        assertThat(aggregate.getPendingEvents()).extracting(OrderEventRecord::getVersion).containsExactly(1, 2);
+    }
+
+    @Test
+    void replayingTheEventsRebuildsTheSameState() {
+        OrderAggregate original = OrderAggregate.create(7L, order(), CREATED_AT);
+        original.cancel("payment failed", CONFIRMED_AT);
+
+        OrderAggregate replayed = new OrderAggregate();
+        original.getPendingEvents().forEach(replayed::apply);
+
+        assertThat(replayed.getOrderId()).isEqualTo(7L);
+        assertThat(replayed.getVersion()).isEqualTo(2);
+        assertThat(replayed.getStatus()).isEqualTo(OrderStatus.CANCELLED);
+        assertThat(replayed.getCustomerId()).isEqualTo("customer-1");
+        assertThat(replayed.getCreatedAt()).isEqualTo(CREATED_AT);
+        assertThat(replayed.getItems()).isEqualTo(original.getItems());
+        assertThat(replayed.getPendingEvents()).isEmpty();
+    }
+
+    @Test
+    void tailEventsApplyOntoASnapshot() {
+        OrderAggregate snapshot = OrderAggregate.create(7L, order(), CREATED_AT);
+        snapshot.getPendingEvents().clear();
+
+        snapshot.apply(OrderEventRecord.builder()
+                .orderId(7L).version(2).type(OrderEventType.CONFIRMED).occurredAt(CONFIRMED_AT).build());
+
+        assertThat(snapshot.getVersion()).isEqualTo(2);
+        assertThat(snapshot.getStatus()).isEqualTo(OrderStatus.CONFIRMED);
+        assertThat(snapshot.getCreatedAt()).isEqualTo(CREATED_AT);
+    }
+
+    @Test
+    void toOrderCarriesTheItems() {
+        Order order = OrderAggregate.create(7L, order(), CREATED_AT).toOrder();
+
+        assertThat(order.getId()).isEqualTo(7L);
+        assertThat(order.getItems()).singleElement().satisfies(item -> {
+            assertThat(item.getProductId()).isEqualTo("product-1");
+            assertThat(item.getQuantity()).isEqualTo(2);
+            assertThat(item.getOrder()).isSameAs(order);
+        });
+    }
+
+    private static Order order() {
+        Order order = Order.builder()
+                .customerId("customer-1")
+                .totalAmount(Money.of(25, "USD"))
+                .build();
+        order.addItem(OrderItem.builder().productId("product-1").quantity(2).price(Money.parse("12.50", "USD")).build());
+        return order;
+    }
+}
@@ -0,0 +1,70 @@
+package com.order.service;
+
+import com.order.dto.OrderPage;
+import com.order.dto.OrderResponse;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OrderCursorTest {
+
+    @Test
+    void encodedCursorParsesBackToTheSamePosition() {
+        OrderCursor cursor = new OrderCursor(LocalDateTime.of(2024, 3, 1, 12, 30, 5, 123_456_000), 42L);
+
+        assertThat(OrderCursor.parse(cursor.encode())).isEqualTo(cursor);
+    }
+
+    @Test
+    void positionOnAWholeMinuteSurvivesTheRoundTrip() {
+        // LocalDateTime.toString drops zero seconds
+        OrderCursor cursor = new OrderCursor(LocalDateTime.of(2024, 3, 1, 12, 30), 7L);
+
+        assertThat(OrderCursor.parse(cursor.encode())).isEqualTo(cursor);
+    }
+
+    @Test
+    void encodedCursorIsUrlSafe() {
+        String encoded = new OrderCursor(LocalDateTime.of(2024, 3, 1, 23, 59, 59, 999_999_999), Long.MAX_VALUE).encode();
+
+        assertThat(encoded).matches("[A-Za-z0-9_-]+");
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        assertThatThrownBy(() -> OrderCursor.parse("not a cursor"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Invalid cursor");
+        assertThatThrownBy(() -> OrderCursor.parse(new OrderCursor(LocalDateTime.of(2024, 3, 1, 12, 0), 1L).encode().substring(4)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void fullPageCarriesACursorToItsLastOrder() {
+        List<OrderResponse> rows = List.of(order(3, 3), order(2, 2), order(1, 1));
+
+        OrderPage page = OrderCursor.page(rows, 2);
+
+        assertThat(page.getOrders()).extracting(OrderResponse::getId).containsExactly(3L, 2L);
+        assertThat(OrderCursor.parse(page.getNextCursor())).isEqualTo(new OrderCursor(rows.get(1).getCreatedAt(), 2L));
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        OrderPage page = OrderCursor.page(List.of(order(1, 1)), 2);
+
+        assertThat(page.getOrders()).hasSize(1);
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    private static OrderResponse order(long id, int minute) {
+        return OrderResponse.builder()
+                .id(id)
+                .createdAt(LocalDateTime.of(2024, 3, 1, 12, minute))
+                .build();
+    }
+}
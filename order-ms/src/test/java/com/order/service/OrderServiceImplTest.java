@@ -0,0 +1,85 @@
+package com.order.service;
+
+import ccf.ccf.money.model.Money;
+import com.order.ccf.OrderCcfIntegration;
+import com.order.ccf.OrderSagaEvent;
+import com.order.dto.OrderResponse;
+import com.order.kafka.OrderEventProducer;
+import com.order.model.Order;
+import com.order.model.OrderStatus;
+import com.order.repository.OrderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderServiceImplTest {
+
+    private OrderRepository orderRepository;
+    private OrderEventProducer eventProducer;
+    private ApplicationEventPublisher eventPublisher;
+    private OrderServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        orderRepository = mock(OrderRepository.class);
+        eventProducer = mock(OrderEventProducer.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        service = new OrderServiceImpl(orderRepository, eventProducer, mock(OrderCcfIntegration.class), eventPublisher);
+    }
+
+    @Test
+    void confirmingACancelledOrderChangesNothingAndPublishesNothing() {
+        when(orderRepository.transitionStatus(eq(List.of(7L)), eq("PENDING"), eq("CONFIRMED"), any())).thenReturn(List.of());
+        when(orderRepository.findById(7L)).thenReturn(Optional.of(order(OrderStatus.CANCELLED)));
+
+        OrderResponse response = service.confirmOrder(7L);
+
+        assertThat(response.getStatus()).isEqualTo(OrderStatus.CANCELLED);
+        verify(orderRepository, never()).save(any());
+        verify(eventProducer, never()).sendOrderConfirmedEvent(any());
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void cancellingAConfirmedOrderChangesNothingAndPublishesNothing() {
+        when(orderRepository.transitionStatus(eq(List.of(7L)), eq("PENDING"), eq("CANCELLED"), any())).thenReturn(List.of());
+        when(orderRepository.findById(7L)).thenReturn(Optional.of(order(OrderStatus.CONFIRMED)));
+
+        OrderResponse response = service.cancelOrder(7L, "Payment not completed in time");
+
+        assertThat(response.getStatus()).isEqualTo(OrderStatus.CONFIRMED);
+        verify(eventProducer, never()).sendOrderCancelledEvent(any());
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void confirmingAPendingOrderPublishesItsEvents() {
+        when(orderRepository.transitionStatus(eq(List.of(7L)), eq("PENDING"), eq("CONFIRMED"), any())).thenReturn(List.of(7L));
+        when(orderRepository.findById(7L)).thenReturn(Optional.of(order(OrderStatus.CONFIRMED)));
+
+        service.confirmOrder(7L);
+
+        verify(eventProducer).sendOrderConfirmedEvent(any());
+        verify(eventPublisher).publishEvent(new OrderSagaEvent("orderConfirmed", 7L));
+    }
+
+    private static Order order(OrderStatus status) {
+        return Order.builder()
+                .id(7L)
+                .customerId("customer-1")
+                .totalAmount(Money.of(50, "USD"))
+                .status(status)
+                .build();
+    }
+}
@@ -1,8 +1,13 @@
 package com.payment;
 
+import ccf.ccf.money.MoneyMongoConverters;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
 
 @SpringBootApplication
 @ComponentScan(basePackages = {"com.payment", "ccf.ccf"})
@@ -12,4 +17,14 @@ public class PaymentMsApplication {
         SpringApplication.run(PaymentMsApplication.class, args);
     }
 
+    @Bean
+    public MongoCustomConversions mongoCustomConversions() {
+        return new MongoCustomConversions(MoneyMongoConverters.converters());
+    }
+
+    // A payment and the outbox event reporting it commit together; needs a replica set
+    @Bean
+    public MongoTransactionManager transactionManager(MongoDatabaseFactory databaseFactory) {
+        return new MongoTransactionManager(databaseFactory);
+    }
 }
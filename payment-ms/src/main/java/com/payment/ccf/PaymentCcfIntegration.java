@@ -4,6 +4,7 @@ import ccf.ccf.specification.ContractParser;
 import ccf.ccf.specification.ContractRegistry;
 import ccf.ccf.specification.ContractRepository;
 import ccf.ccf.specification.ContractValidator;
+import ccf.ccf.specification.InvariantPlanner;
 import ccf.ccf.specification.model.ConsistencyContract;
 import ccf.ccf.verification.ConsistencyVerifier;
 import com.payment.model.Payment;
@@ -21,6 +22,7 @@ public class PaymentCcfIntegration {
     private final ContractValidator contractValidator;
     private final ContractRepository contractRepository;
     private final ContractRegistry contractRegistry;
+    private final InvariantPlanner invariantPlanner;
     private final ConsistencyVerifier consistencyVerifier;
 
     @PostConstruct
@@ -38,6 +40,9 @@ public class PaymentCcfIntegration {
             contractValidator.validate(contract);
             contractRepository.save(contract);
 
+            // Decide which invariants this service evaluates in-process
+            invariantPlanner.plan("PaymentService", contract);
+
             // Register with CCF Registry
             contractRegistry.registerContract("PaymentService", contract);
 
@@ -52,6 +57,6 @@ public class PaymentCcfIntegration {
 
     public boolean validatePaymentConsistency(Payment payment) {
         log.info("Validating consistency for payment: {}", payment.getId());
-        return consistencyVerifier.verify("OrderPaymentConsistency", payment);
+        return consistencyVerifier.verify(payment);
     }
 }
\ No newline at end of file
@@ -17,6 +17,7 @@ public class PaymentResponse {
     private String id;
     private Long orderId;
     private BigDecimal amount;
+    private String currency;
     private PaymentStatus status;
     private LocalDateTime createdAt;
 }
\ No newline at end of file
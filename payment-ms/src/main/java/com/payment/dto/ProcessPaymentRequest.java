@@ -14,5 +14,6 @@ import java.math.BigDecimal;
 public class ProcessPaymentRequest {
     private Long orderId;
     private BigDecimal amount;
+    private String currency;
     private String paymentMethod;
 }
\ No newline at end of file
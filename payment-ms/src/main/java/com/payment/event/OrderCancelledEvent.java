@@ -10,6 +10,7 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 public class OrderCancelledEvent {
+    private String eventId;
     private Long orderId;
     private String reason;
     private String timestamp;
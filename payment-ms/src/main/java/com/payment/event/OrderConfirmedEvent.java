@@ -10,6 +10,7 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 public class OrderConfirmedEvent {
+    private String eventId;
     private Long orderId;
     private String timestamp;
 }
\ No newline at end of file
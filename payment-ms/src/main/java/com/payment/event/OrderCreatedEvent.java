@@ -1,5 +1,6 @@
 package com.payment.event;
 
+import ccf.ccf.money.model.Money;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -12,8 +13,15 @@ import java.math.BigDecimal;
 @NoArgsConstructor
 @AllArgsConstructor
 public class OrderCreatedEvent {
+    private String eventId;
     private Long orderId;
     private String customerId;
     private BigDecimal totalAmount;
+    private String currency;
     private String timestamp;
+
+    // Events published before the currency field was added are in the default currency
+    public Money totalMoney() {
+        return Money.of(totalAmount, currency != null ? currency : Money.DEFAULT_CURRENCY);
+    }
 }
\ No newline at end of file
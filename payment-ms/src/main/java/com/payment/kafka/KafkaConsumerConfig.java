@@ -20,6 +20,9 @@ public class KafkaConsumerConfig {
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootstrapServers;
 
+    @Value("${kafka.topics.partitions:6}")
+    private int partitions;
+
     @Bean
     public ConsumerFactory<String, Object> consumerFactory() {
         Map<String, Object> config = new HashMap<>();
@@ -46,6 +49,9 @@ public class KafkaConsumerConfig {
         ConcurrentKafkaListenerContainerFactory<String, Object> factory =
                 new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
+        // One consumer thread per partition: fewer would serialize orders, more would sit idle.
+        // A partition is only ever read by one thread, which keeps each order's events in sequence.
+        factory.setConcurrency(partitions);
         return factory;
     }
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package com.payment.kafka;
 
+import ccf.ccf.enforcement.IdempotencyGuard;
+import ccf.ccf.outbox.OutboxRelay;
 import com.payment.event.OrderCreatedEvent;
 import com.payment.service.PaymentService;
 import lombok.RequiredArgsConstructor;
@@ -16,21 +18,23 @@ import org.springframework.stereotype.Component;
 public class OrderEventConsumer {
 
     private final PaymentService paymentService;
+    private final IdempotencyGuard idempotencyGuard;
 
     @KafkaListener(topics = "order-events", groupId = "payment-service-group")
     public void consumeOrderEvents(
             @Payload OrderCreatedEvent event,
-            @Header(value = KafkaHeaders.RECEIVED_KEY, required = false) String key) {
+            @Header(value = KafkaHeaders.RECEIVED_KEY, required = false) String key,
+            @Header(value = OutboxRelay.EVENT_TYPE_HEADER, required = false) String eventType) {
 
-        log.info("Received order event with key: {}", key);
+        log.info("Received {} event for order: {}", eventType, key);
 
-        if ("orderCreated".equals(key)) {
-            handleOrderCreated(event);
+        if ("orderCreated".equals(eventType)) {
+            idempotencyGuard.process(event.getEventId(), () -> handleOrderCreated(event));
         }
     }
 
     private void handleOrderCreated(OrderCreatedEvent event) {
         log.info("Processing payment for order: {}", event.getOrderId());
-        paymentService.processPayment(event.getOrderId(), event.getTotalAmount());
+        paymentService.processPayment(event.getOrderId(), event.totalMoney());
     }
 }
\ No newline at end of file
@@ -1,15 +1,16 @@
 package com.payment.kafka;
 
+import ccf.ccf.outbox.TransactionalOutbox;
 import com.payment.event.PaymentAuthorizedEvent;
 import com.payment.event.PaymentFailedEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.kafka.support.KafkaHeaders;
-import org.springframework.messaging.Message;
-import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Component;
 
+/**
+ * Events are written to the outbox collection; the outbox relay sends them to Kafka, keyed by
+ * order id like the order events.
+ */
 @Slf4j
 @Component
 @RequiredArgsConstructor
@@ -17,31 +18,15 @@ public class PaymentEventProducer {
 
     private static final String PAYMENT_EVENTS_TOPIC = "payment-events";
 
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final TransactionalOutbox outbox;
 
     public void sendPaymentAuthorizedEvent(PaymentAuthorizedEvent event) {
         log.info("Publishing PaymentAuthorizedEvent for order: {}", event.getOrderId());
-
-        Message<PaymentAuthorizedEvent> message = MessageBuilder
-                .withPayload(event)
-                .setHeader(KafkaHeaders.TOPIC, PAYMENT_EVENTS_TOPIC)
-                .setHeader(KafkaHeaders.KEY, "paymentAuthorized")
-                .setHeader("__TypeId__", "paymentAuthorized")
-                .build();
-
-        kafkaTemplate.send(message);
+        outbox.publish(PAYMENT_EVENTS_TOPIC, String.valueOf(event.getOrderId()), "paymentAuthorized", event);
     }
 
     public void sendPaymentFailedEvent(PaymentFailedEvent event) {
         log.info("Publishing PaymentFailedEvent for order: {}", event.getOrderId());
-
-        Message<PaymentFailedEvent> message = MessageBuilder
-                .withPayload(event)
-                .setHeader(KafkaHeaders.TOPIC, PAYMENT_EVENTS_TOPIC)
-                .setHeader(KafkaHeaders.KEY, "paymentFailed")
-                .setHeader("__TypeId__", "paymentFailed")
-                .build();
-
-        kafkaTemplate.send(message);
+        outbox.publish(PAYMENT_EVENTS_TOPIC, String.valueOf(event.getOrderId()), "paymentFailed", event);
     }
-}
\ No newline at end of file
+}
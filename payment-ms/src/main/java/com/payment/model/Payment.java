@@ -1,13 +1,14 @@
 package com.payment.model;
 
+import ccf.ccf.money.model.Money;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Document(collection = "payments")
@@ -20,8 +21,10 @@ public class Payment {
     @Id
     private String id;
 
+    // One payment per order, even when an orderCreated event is redelivered
+    @Indexed(unique = true)
     private Long orderId;
-    private BigDecimal amount;
+    private Money amount;
     private PaymentStatus status;
     private String paymentMethod;
     private LocalDateTime createdAt;
@@ -2,9 +2,9 @@ package com.payment.service;
 
 import com.payment.dto.PaymentResponse;
 
-import java.math.BigDecimal;
+import ccf.ccf.money.model.Money;
 
 public interface PaymentService {
-    PaymentResponse processPayment(Long orderId, BigDecimal amount);
+    PaymentResponse processPayment(Long orderId, Money amount);
     PaymentResponse getPayment(String paymentId);
 }
\ No newline at end of file
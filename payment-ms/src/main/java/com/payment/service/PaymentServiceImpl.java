@@ -1,5 +1,6 @@
 package com.payment.service;
 
+import ccf.ccf.money.model.Money;
 import ccf.ccf.verification.MonitorConsistency;
 import com.payment.ccf.PaymentCcfIntegration;
 import com.payment.dto.PaymentResponse;
@@ -12,8 +13,8 @@ import com.payment.repository.PaymentRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Random;
 
@@ -27,11 +28,26 @@ public class PaymentServiceImpl implements PaymentService {
     private final PaymentCcfIntegration ccfIntegration;
     private final Random random = new Random();
 
+    /**
+     * Stores the payment and its outbox event in one Mongo transaction. A concurrent delivery for
+     * the same order fails on the unique order id and aborts the transaction; its retry then
+     * finds the payment.
+     */
     @Override
+    @Transactional
     @MonitorConsistency(contractId = "OrderPaymentConsistency")
-    public PaymentResponse processPayment(Long orderId, BigDecimal amount) {
+    public PaymentResponse processPayment(Long orderId, Money amount) {
         log.info("Processing payment for order: {} with amount: {}", orderId, amount);
 
+        // A redelivered orderCreated: the order is not charged again, but its outcome is reported
+        // again under the same event id, in case the first report never reached order-service
+        Payment existing = paymentRepository.findByOrderId(orderId).orElse(null);
+        if (existing != null) {
+            log.info("Order {} already has payment {}, not charging again", orderId, existing.getId());
+            publishOutcome(existing);
+            return mapToResponse(existing);
+        }
+
         // Simulate payment processing (70% success, 30% failure for testing)
         boolean paymentSuccess = simulatePaymentGateway(amount);
 
@@ -44,53 +60,62 @@ public class PaymentServiceImpl implements PaymentService {
                 .updatedAt(LocalDateTime.now())
                 .build();
 
-        payment = paymentRepository.save(payment);
+        payment = paymentRepository.insert(payment);
         log.info("Payment saved with ID: {} and status: {}", payment.getId(), payment.getStatus());
 
         ccfIntegration.validatePaymentConsistency(payment);
+        publishOutcome(payment);
+
+        return mapToResponse(payment);
+    }
 
-        if (paymentSuccess) {
+    @Override
+    @MonitorConsistency(contractId = "OrderPaymentConsistency", readOnly = true)
+    public PaymentResponse getPayment(String paymentId) {
+        log.info("Fetching payment: {}", paymentId);
+        Payment payment = paymentRepository.findById(paymentId)
+                .orElseThrow(() -> new RuntimeException("Payment not found: " + paymentId));
+        return mapToResponse(payment);
+    }
+
+    // Event ids derive from the payment, so a repeated report is dropped by order-service's idempotency.
+    // A refunded payment was authorized first, and that is what it reports.
+    private void publishOutcome(Payment payment) {
+        if (payment.getStatus() != PaymentStatus.DECLINED) {
             PaymentAuthorizedEvent event = PaymentAuthorizedEvent.builder()
+                    .eventId("paymentAuthorized-" + payment.getId())
                     .paymentId(payment.getId())
-                    .orderId(orderId)
-                    .amount(amount)
+                    .orderId(payment.getOrderId())
+                    .amount(payment.getAmount().toBigDecimal())
+                    .currency(payment.getAmount().currency())
                     .timestamp(LocalDateTime.now().toString())
                     .build();
 
             eventProducer.sendPaymentAuthorizedEvent(event);
-            log.info("Payment authorized for order: {}", orderId);
+            log.info("Payment authorized for order: {}", payment.getOrderId());
         } else {
             PaymentFailedEvent event = PaymentFailedEvent.builder()
+                    .eventId("paymentFailed-" + payment.getId())
                     .paymentId(payment.getId())
-                    .orderId(orderId)
+                    .orderId(payment.getOrderId())
                     .reason("Insufficient funds")
                     .timestamp(LocalDateTime.now().toString())
                     .build();
 
             eventProducer.sendPaymentFailedEvent(event);
-            log.warn("Payment declined for order: {}", orderId);
+            log.warn("Payment declined for order: {}", payment.getOrderId());
         }
-
-        return mapToResponse(payment);
-    }
-
-    @Override
-    public PaymentResponse getPayment(String paymentId) {
-        log.info("Fetching payment: {}", paymentId);
-        Payment payment = paymentRepository.findById(paymentId)
-                .orElseThrow(() -> new RuntimeException("Payment not found: " + paymentId));
-        return mapToResponse(payment);
     }
 
-    private boolean simulatePaymentGateway(BigDecimal amount) {
+    private boolean simulatePaymentGateway(Money amount) {
         // 70% success rate for testing
 //        return random.nextInt(100) < 70;
         boolean paymentSuccess = false;
-        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+        if (!amount.isPositive()) {
             log.error("Amount must be greater than zero");
         } else {
 
-            paymentSuccess = amount.compareTo(BigDecimal.valueOf(20)) > 0;
+            paymentSuccess = amount.compareTo(Money.of(20, amount.currency())) > 0;
         }
         return paymentSuccess;
     }
@@ -99,7 +124,8 @@ public class PaymentServiceImpl implements PaymentService {
         return PaymentResponse.builder()
                 .id(payment.getId())
                 .orderId(payment.getOrderId())
-                .amount(payment.getAmount())
+                .amount(payment.getAmount().toBigDecimal())
+                .currency(payment.getAmount().currency())
                 .status(payment.getStatus())
                 .createdAt(payment.getCreatedAt())
                 .build();
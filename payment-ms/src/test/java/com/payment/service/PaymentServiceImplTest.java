@@ -0,0 +1,74 @@
+package com.payment.service;
+
+import ccf.ccf.money.model.Money;
+import com.payment.ccf.PaymentCcfIntegration;
+import com.payment.event.PaymentAuthorizedEvent;
+import com.payment.event.PaymentFailedEvent;
+import com.payment.kafka.PaymentEventProducer;
+import com.payment.model.Payment;
+import com.payment.model.PaymentStatus;
+import com.payment.repository.PaymentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PaymentServiceImplTest {
+
+    private PaymentRepository paymentRepository;
+    private PaymentEventProducer eventProducer;
+    private PaymentServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        paymentRepository = mock(PaymentRepository.class);
+        eventProducer = mock(PaymentEventProducer.class);
+        service = new PaymentServiceImpl(paymentRepository, eventProducer, mock(PaymentCcfIntegration.class));
+    }
+
+    @Test
+    void redeliveredOrderReportsTheAuthorizationAgainUnderTheSameEventId() {
+        when(paymentRepository.findByOrderId(7L)).thenReturn(Optional.of(payment("pay-1", PaymentStatus.AUTHORIZED)));
+
+        service.processPayment(7L, Money.of(50, "USD"));
+
+        verify(paymentRepository, never()).insert(any(Payment.class));
+        ArgumentCaptor<PaymentAuthorizedEvent> event = ArgumentCaptor.forClass(PaymentAuthorizedEvent.class);
+        verify(eventProducer).sendPaymentAuthorizedEvent(event.capture());
+        assertThat(event.getValue().getEventId()).isEqualTo("paymentAuthorized-pay-1");
+        assertThat(event.getValue().getAmount()).isEqualByComparingTo("50");
+    }
+
+    @Test
+    void redeliveredOrderReportsTheDeclineAgainUnderTheSameEventId() {
+        when(paymentRepository.findByOrderId(7L)).thenReturn(Optional.of(payment("pay-2", PaymentStatus.DECLINED)));
+
+        service.processPayment(7L, Money.of(50, "USD"));
+
+        ArgumentCaptor<PaymentFailedEvent> event = ArgumentCaptor.forClass(PaymentFailedEvent.class);
+        verify(eventProducer).sendPaymentFailedEvent(event.capture());
+        assertThat(event.getValue().getEventId()).isEqualTo("paymentFailed-pay-2");
+        verify(eventProducer, never()).sendPaymentAuthorizedEvent(any());
+    }
+
+    private static Payment payment(String id, PaymentStatus status) {
+        return Payment.builder()
+                .id(id)
+                .orderId(7L)
+                .amount(Money.of(50, "USD"))
+                .status(status)
+                .paymentMethod("CARD")
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
+    }
+}